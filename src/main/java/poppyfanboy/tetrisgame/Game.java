@@ -2,11 +2,23 @@ package poppyfanboy.tetrisgame;
 
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
 
+import poppyfanboy.tetrisgame.entities.shapetypes.PolyominoSet;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
 import poppyfanboy.tetrisgame.graphics.Display;
+import poppyfanboy.tetrisgame.input.InputReplayer;
 import poppyfanboy.tetrisgame.input.KeyManager;
+import poppyfanboy.tetrisgame.logic.TimingTable;
 import poppyfanboy.tetrisgame.states.*;
 
 /**
@@ -30,15 +42,32 @@ public class Game implements Runnable {
 
     // separate thread for the game state
     private Thread thread;
-    private boolean running;
+    private volatile boolean running;
+    // set by the window once the game is to be saved (the game has no
+    // pause, so it is saved when the window is minimized or loses focus)
+    private volatile boolean suspendRequested;
 
     // game states
     private State currentState;
-    private State gameState;
+    private GameState gameState;
     private State menuState;
 
     // key manager
     private KeyManager keyManager;
+    // files to record the player inputs to or to replay them from
+    private Path recordingFile, replayFile;
+    // the game is played by the built-in bot
+    private boolean autoplay;
+    // timing curve file, the default timings are used if it is null
+    private Path timingsFile;
+    // file the game is resumed from and autosaved to
+    private Path saveFile;
+    // shape set file, the tetrominoes are used if it is null
+    private Path shapesFile;
+    // bundled shape set, which is used unless there is a shape set file
+    private String shapeSetName;
+    // the debug checks are enabled
+    private boolean debug;
 
     public Game(String title, Resolution resolution) {
         this.resolution = resolution;
@@ -71,12 +100,154 @@ public class Game implements Runnable {
         }
     }
 
+    /**
+     * Makes the game record the player inputs into the specified file.
+     * Must be called before the game is started.
+     */
+    public void setRecordingFile(Path recordingFile) {
+        this.recordingFile = recordingFile;
+    }
+
+    /**
+     * Makes the game replay the inputs from the specified file before
+     * giving the control to the player. Must be called before the game is
+     * started.
+     */
+    public void setReplayFile(Path replayFile) {
+        this.replayFile = replayFile;
+    }
+
+    /**
+     * Makes the built-in bot play the game instead of the player. Does
+     * nothing in case the game is replayed. Must be called before the game
+     * is started.
+     */
+    public void setAutoplay(boolean autoplay) {
+        this.autoplay = autoplay;
+    }
+
+    /**
+     * Makes the game load the timings of the levels from the specified
+     * timing curve file (see {@link TimingTable}). The recording of the
+     * game must be replayed with the same timings, the recordings made
+     * with other timings are rejected. Must be called before the game is
+     * started.
+     */
+    public void setTimingsFile(Path timingsFile) {
+        this.timingsFile = timingsFile;
+    }
+
+    /**
+     * Makes the game resume from the save file, if it holds a saved game,
+     * and autosave into it. The game is also saved when the window is
+     * closed, minimized or loses focus. Does nothing in case the game is
+     * replayed or recorded, since such games must be started from
+     * scratch. Must be called before the game is started.
+     */
+    public void setSaveFile(Path saveFile) {
+        this.saveFile = saveFile;
+    }
+
+    /**
+     * Makes the game load the shapes it is played with from the specified
+     * shape set file (see {@link PolyominoSet}). The compiled shapes are
+     * cached next to the file. Just like the timings, the shapes are not
+     * a part of the recordings and of the save files, so these must be
+     * used with the same shape set. The recordings store the checksums of
+     * the shapes and of the timings, so the recordings made with other
+     * ones are rejected. Must be called before the game is started.
+     */
+    public void setShapesFile(Path shapesFile) {
+        this.shapesFile = shapesFile;
+    }
+
+    /**
+     * Makes the game use one of the shape sets bundled with it (see
+     * {@link PolyominoSet#loadBundled}) in case no shape set file is
+     * specified. Must be called before the game is started.
+     */
+    public void setShapeSet(String shapeSetName) {
+        this.shapeSetName = shapeSetName;
+    }
+
+    /**
+     * Enables the debug checks, such as the leak detection of the
+     * animation pools, and shows the allocation rate of the animations.
+     * Must be called before the game is started.
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
     // initialize the graphics, load the assets, create the game states
     private void init() throws IOException {
         display
             = new Display(title, resolution.getWidth(), resolution.getHeight());
         display.getFrame().addKeyListener(keyManager);
-        gameState = new GameState(this);
+        final TimingTable timings = timingsFile != null
+                ? TimingTable.load(timingsFile)
+                : TimingTable.DEFAULT;
+        final ShapeType[] shapeTypes;
+        if (shapesFile != null) {
+            shapeTypes = PolyominoSet.load(shapesFile,
+                    shapesFile.resolveSibling(shapesFile.getFileName()
+                            + ".cache")).getShapeTypes();
+        } else if (shapeSetName != null) {
+            shapeTypes = PolyominoSet.loadBundled(shapeSetName)
+                    .getShapeTypes();
+        } else {
+            shapeTypes = TetrisShapeType.values();
+        }
+        if (replayFile != null) {
+            InputReplayer inputReplayer = new InputReplayer(
+                    new BufferedInputStream(Files.newInputStream(replayFile)));
+            GameState replayedState
+                    = new GameState(this, inputReplayer.getSeed(),
+                            shapeTypes);
+            replayedState.setTimings(timings);
+            replayedState.replayInputs(inputReplayer);
+            gameState = replayedState;
+        } else {
+            GameState newState
+                    = new GameState(this, new Random().nextLong(), shapeTypes);
+            newState.setTimings(timings);
+            if (recordingFile != null) {
+                newState.recordInputs(new BufferedOutputStream(
+                        Files.newOutputStream(recordingFile)));
+            }
+            if (saveFile != null && recordingFile == null) {
+                try {
+                    newState.useSaveFile(saveFile);
+                } catch (IOException | IllegalArgumentException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            if (autoplay) {
+                newState.startAutoplay();
+            }
+            gameState = newState;
+        }
+        display.getFrame().addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                // the game is saved by the game thread once it stops
+                stop();
+            }
+
+            @Override
+            public void windowIconified(WindowEvent e) {
+                suspendRequested = true;
+            }
+
+            @Override
+            public void windowDeactivated(WindowEvent e) {
+                suspendRequested = true;
+            }
+        });
         menuState = new MenuState(this);
         currentState = gameState;
     }
@@ -93,9 +264,16 @@ public class Game implements Runnable {
     public void run() {
         try {
             init();
-        } catch (IOException ex) {
-            stop();
+        } catch (IOException | IllegalArgumentException ex) {
+            // stop() would make the game thread join itself
+            synchronized (this) {
+                running = false;
+            }
             ex.printStackTrace();
+            // the window is of no use without the game
+            if (display != null) {
+                display.getFrame().dispose();
+            }
             return;
         }
         // next time to update the game
@@ -113,7 +291,11 @@ public class Game implements Runnable {
                 - nextGameTick + SKIP_TICKS)) / SKIP_TICKS;
             render(interpolation);
         }
-        stop();
+        try {
+            gameState.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
     }
     
     // update the game state
@@ -122,6 +304,10 @@ public class Game implements Runnable {
             currentState.tick();
         }
         keyManager.tick();
+        if (suspendRequested) {
+            suspendRequested = false;
+            gameState.suspend();
+        }
     }
     
     /**
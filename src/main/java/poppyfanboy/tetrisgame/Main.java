@@ -1,11 +1,41 @@
 package poppyfanboy.tetrisgame;
 
+import java.nio.file.Paths;
+
 import poppyfanboy.tetrisgame.states.Resolution;
 
 public class Main {
 	public static void main(String[] args) {
         System.setProperty("sun.java2d.opengl", "true");
         Game game = new Game("test", Resolution._1024x800);
+        // --record <file> records the inputs of the game,
+        // --replay <file> replays the previously recorded game,
+        // --autoplay lets the built-in bot play the game,
+        // --timings <file> loads the timings of the levels from the file,
+        // --save <file> resumes the game from the file and autosaves it,
+        // --shapes <file> plays the game with the shapes from the file,
+        // --shape-set <name> plays the game with a bundled shape set
+        // (triominoes, tetrominoes, pentominoes, hexominoes, heptominoes),
+        // --debug enables the debug checks
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--record") && i + 1 < args.length) {
+                game.setRecordingFile(Paths.get(args[++i]));
+            } else if (args[i].equals("--replay") && i + 1 < args.length) {
+                game.setReplayFile(Paths.get(args[++i]));
+            } else if (args[i].equals("--autoplay")) {
+                game.setAutoplay(true);
+            } else if (args[i].equals("--timings") && i + 1 < args.length) {
+                game.setTimingsFile(Paths.get(args[++i]));
+            } else if (args[i].equals("--save") && i + 1 < args.length) {
+                game.setSaveFile(Paths.get(args[++i]));
+            } else if (args[i].equals("--shapes") && i + 1 < args.length) {
+                game.setShapesFile(Paths.get(args[++i]));
+            } else if (args[i].equals("--shape-set") && i + 1 < args.length) {
+                game.setShapeSet(args[++i]);
+            } else if (args[i].equals("--debug")) {
+                game.setDebug(true);
+            }
+        }
         game.start();
     }
 }
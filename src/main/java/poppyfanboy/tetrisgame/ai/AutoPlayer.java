@@ -0,0 +1,387 @@
+package poppyfanboy.tetrisgame.ai;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import poppyfanboy.tetrisgame.entities.BlockColor;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.input.Controllable;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+import poppyfanboy.tetrisgame.logic.GameFieldState;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.util.BitBoard;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * Input policy that plays the game by itself. Once a new shape spawns,
+ * all of its placements are evaluated with the {@link BoardEvaluator}
+ * (optionally looking one or two shapes ahead, at the upcoming shapes that
+ * are already known) and the best one is chosen. Then each tick the player
+ * presses the key that makes the next move towards the chosen placement
+ * and passes it to the wrapped object along with the inputs it receives. Once the shape
+ * is in its place, it is hard dropped, unless it has to be locked by
+ * rotation (so that the T-spin counts).
+ *
+ * The path to the placement is searched anew every time the shape moves,
+ * so in case the shape is moved not the way it was expected (e.g. it has
+ * been dropped by the gravity in the middle of the path), the player
+ * adjusts to it. In case the shape keeps coming back to the positions it
+ * has already been at (e.g. it is kicked up and then falls back again
+ * and again, while each of the moves restarts the lock delay) or the path
+ * is searched too many times, the player gives up on the wall kicks and
+ * chooses the best of the placements that can be reached without them.
+ * If that does not help either, the shape is just hard dropped.
+ *
+ * The values of the evaluated boards are kept in the transposition tables
+ * (one per thread, so the worker threads do not have to synchronize), so
+ * that a board that is reached again, e.g. by dropping the next shape in
+ * a symmetric rotation, is not evaluated anew.
+ */
+public class AutoPlayer implements Controllable {
+    private final Controllable target;
+    private final GameLogic game;
+    private final BoardEvaluator evaluator;
+    public static final int MAX_LOOK_AHEAD_DEPTH = 2;
+
+    // number of the upcoming shapes whose placements are evaluated
+    private final int lookAheadDepth;
+    // evaluate the placements on multiple threads
+    private final boolean parallel;
+    // start a new game once the current one is over
+    private final boolean autoRestart;
+
+    private final PlacementFinder finder;
+    private final ThreadLocal<TranspositionTable> tables
+            = ThreadLocal.withInitial(TranspositionTable::new);
+    // upcoming shapes taken into account by the current evaluation
+    private final ShapeType[] upcomingShapeTypes
+            = new ShapeType[MAX_LOOK_AHEAD_DEPTH];
+    private int upcomingShapesCount;
+
+    private Placement chosenPlacement;
+    // path to the chosen placement and the position it starts from, so
+    // that the path is not searched again while the shape stays in place
+    private Placement route;
+    private int routeX, routeY;
+    private Rotation routeRotation;
+    // positions the path has been searched from since the shape spawned,
+    // packed by the getPositionKey method
+    private final int[] routePositions;
+    private int routePositionsCount;
+    // the wall kicks have not helped, the shape is to be hard dropped
+    private boolean givenUp;
+    // key pressed during the previous tick
+    private InputKey pressedKey;
+
+    /**
+     * @param   lookAheadDepth the number of the upcoming shapes whose
+     *          placements are evaluated along with the placements of the
+     *          current shape (no more than the game shows, though).
+     * @throws  IllegalArgumentException in case the depth is negative or
+     *          greater than {@link #MAX_LOOK_AHEAD_DEPTH}.
+     */
+    public AutoPlayer(Controllable target, GameLogic game,
+            BoardEvaluator evaluator, int lookAheadDepth, boolean parallel,
+            boolean autoRestart) {
+        if (lookAheadDepth < 0 || lookAheadDepth > MAX_LOOK_AHEAD_DEPTH) {
+            throw new IllegalArgumentException(String.format(
+                    "The look ahead depth must lie within [0, %d] range."
+                    + " Got: lookAheadDepth = %d", MAX_LOOK_AHEAD_DEPTH,
+                    lookAheadDepth));
+        }
+        this.target = target;
+        this.game = game;
+        this.evaluator = evaluator;
+        this.lookAheadDepth = lookAheadDepth;
+        this.parallel = parallel;
+        this.autoRestart = autoRestart;
+
+        finder = new PlacementFinder(game.getWidthInBlocks(),
+                game.getHeightInBlocks());
+        // the shortest path is no longer than that, unless the shape is
+        // kicked up along the way
+        routePositions = new int[2 * (game.getWidthInBlocks()
+                + game.getHeightInBlocks())];
+        game.addListener(new GameLogicListener() {
+            @Override
+            public void shapeSpawned(ShapeType shapeType, IntVector coords,
+                    BlockColor color, ShapeType nextShapeType) {
+                chosenPlacement = null;
+                route = null;
+                routePositionsCount = 0;
+                givenUp = false;
+                finder.setWallKicksEnabled(true);
+            }
+        });
+    }
+
+    /**
+     * Creates a player that looks one shape ahead and evaluates the
+     * placements in parallel.
+     */
+    public AutoPlayer(Controllable target, GameLogic game) {
+        this(target, game, new BoardEvaluator(), 1, true, false);
+    }
+
+    @Override
+    public void control(EnumMap<InputKey, KeyState> inputs) {
+        EnumMap<InputKey, KeyState> newInputs = new EnumMap<>(inputs);
+        final InputKey key = chooseKey();
+        if (pressedKey != null && pressedKey != key) {
+            newInputs.put(pressedKey, KeyState.RELEASED);
+        }
+        if (key != null) {
+            // forced drop lasts as long as the key is held
+            newInputs.put(key, key == pressedKey && key == InputKey.ARROW_DOWN
+                    ? KeyState.HELD
+                    : KeyState.PRESSED);
+        }
+        pressedKey = key;
+        target.control(newInputs);
+    }
+
+    // returns the key to be pressed during the current tick or null
+    private InputKey chooseKey() {
+        final GameFieldState state = game.getState();
+        if (state == GameFieldState.STOPPED) {
+            return autoRestart ? InputKey.R : null;
+        }
+        if (game.getActiveShapeType() == null || !state.shapeControllable()) {
+            return null;
+        }
+        if (givenUp) {
+            // the hard drop does not work once the shape has landed, the
+            // lock delay is waited out then
+            return state == GameFieldState.SHAPE_FELL ? null : InputKey.SPACE;
+        }
+        if (chosenPlacement == null) {
+            chosenPlacement = choosePlacement();
+            if (chosenPlacement == null) {
+                return null;
+            }
+        }
+        final IntVector coords = game.getActiveShapeCoords();
+        if (route == null || routeX != coords.getX()
+                || routeY != coords.getY()
+                || routeRotation != game.getActiveShapeRotation()) {
+            if (!addRoutePosition(coords.getX(), coords.getY(),
+                    game.getActiveShapeRotation())) {
+                if (!finder.isWallKicksEnabled()) {
+                    givenUp = true;
+                    return chooseKey();
+                }
+                // the positions are recorded anew for the new placement
+                finder.setWallKicksEnabled(false);
+                routePositionsCount = 0;
+                addRoutePosition(coords.getX(), coords.getY(),
+                        game.getActiveShapeRotation());
+                chosenPlacement = choosePlacement();
+                if (chosenPlacement == null) {
+                    givenUp = true;
+                    return chooseKey();
+                }
+            }
+            route = findRoute(finder.findPlacements(game));
+            if (route == null) {
+                // the chosen placement is not reachable anymore
+                chosenPlacement = choosePlacement();
+                if (chosenPlacement == null) {
+                    return null;
+                }
+                route = chosenPlacement;
+            }
+            routeX = coords.getX();
+            routeY = coords.getY();
+            routeRotation = game.getActiveShapeRotation();
+        }
+        int movesLeft = route.getPathLength();
+        if (!chosenPlacement.isRotatedLast()) {
+            // the rest of the way is covered by the hard drop
+            while (movesLeft > 0
+                    && route.getMove(movesLeft - 1) == Move.DOWN) {
+                movesLeft--;
+            }
+            if (movesLeft == 0) {
+                return InputKey.SPACE;
+            }
+        } else if (movesLeft == 0) {
+            // wait for the shape to lock by itself
+            return null;
+        }
+        return route.getMove(0).getInputKey();
+    }
+
+    /**
+     * Records the position the path is searched from. Returns {@code false}
+     * in case the shape has already been there or the path has been
+     * searched too many times.
+     */
+    private boolean addRoutePosition(int x, int y, Rotation rotation) {
+        final int key = getPositionKey(x, y, rotation);
+        for (int i = 0; i < routePositionsCount; i++) {
+            if (routePositions[i] == key) {
+                return false;
+            }
+        }
+        if (routePositionsCount == routePositions.length) {
+            return false;
+        }
+        routePositions[routePositionsCount++] = key;
+        return true;
+    }
+
+    private static int getPositionKey(int x, int y, Rotation rotation) {
+        return (x & 0x3FFF) << 16 | (y & 0x3FFF) << 2 | rotation.ordinal();
+    }
+
+    // finds the path from the current position to the chosen placement
+    private Placement findRoute(List<Placement> placements) {
+        Placement route = null;
+        for (Placement placement : placements) {
+            if (!placement.coversSameTiles(chosenPlacement)) {
+                continue;
+            }
+            if (placement.isRotatedLast() == chosenPlacement.isRotatedLast()
+                    || placement.getPathLength() == 0) {
+                return placement;
+            }
+            route = placement;
+        }
+        return route;
+    }
+
+    private Placement choosePlacement() {
+        final List<Placement> placements = finder.findPlacements(game);
+        if (placements.isEmpty()) {
+            return null;
+        }
+        upcomingShapesCount = Math.min(lookAheadDepth, game.getPreviewSize());
+        for (int i = 0; i < upcomingShapesCount; i++) {
+            upcomingShapeTypes[i] = game.getPreviewShapeType(i);
+        }
+        // copies of the board share the rows, so they are cheap to make,
+        // and making them beforehand means that the worker threads do not
+        // touch the board of the game at all
+        final BitBoard[] boards = new BitBoard[placements.size()];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = game.getOccupancy().copy();
+        }
+        final double[] values = new double[placements.size()];
+        IntStream indices = IntStream.range(0, placements.size());
+        if (parallel) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> values[i] = evaluatePlacement(boards[i],
+                placements.get(i)));
+
+        int bestIndex = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[bestIndex]) {
+                bestIndex = i;
+            }
+        }
+        return placements.get(bestIndex);
+    }
+
+    /**
+     * Evaluates the placement of the shape, the board is modified in the
+     * process. The best of the placements of the upcoming shapes on the
+     * resulting board are taken into account as well.
+     */
+    private double evaluatePlacement(BitBoard board, Placement placement) {
+        final boolean isTSpin = GameLogic.isTSpin(board,
+                placement.getShapeType(), placement.getX(), placement.getY(),
+                placement.isRotatedLast());
+        final double clearValue = evaluator.evaluateLineClear(lockShape(board,
+                placement.getRowMasks(), placement.getX(), placement.getY()),
+                isTSpin);
+        return clearValue + evaluateBoard(board, 0);
+    }
+
+    /**
+     * Evaluates the board the shape has been locked onto. The best of the
+     * placements of the upcoming shapes starting from the {@code index}-th
+     * one are taken into account.
+     */
+    private double evaluateBoard(BitBoard board, int index) {
+        final TranspositionTable table = tables.get();
+        final long key = TranspositionTable.getKey(board,
+                getUpcomingShapeType(index), getUpcomingShapeType(index + 1));
+        double value = table.get(key, Double.NaN);
+        if (Double.isNaN(value)) {
+            value = index == upcomingShapesCount
+                    ? evaluator.evaluate(board)
+                    : evaluateBestDrop(board, index);
+            table.put(key, value);
+        }
+        return value;
+    }
+
+    private ShapeType getUpcomingShapeType(int index) {
+        return index < upcomingShapesCount ? upcomingShapeTypes[index] : null;
+    }
+
+    /**
+     * Evaluates the best of the placements of the {@code index}-th upcoming
+     * shape that it gets to by moving sideways at the spawn row and dropping
+     * straight down. It is just an estimate (the shape might not be able to
+     * get to some of these placements, or it might get to the better ones
+     * by tucking), but it is an order of magnitude cheaper than the full
+     * search.
+     */
+    private double evaluateBestDrop(BitBoard board, int index) {
+        final ShapeType shapeType = upcomingShapeTypes[index];
+        final int spawnY = GameLogic.getSpawnCoords(shapeType,
+                board.getWidth()).getY();
+        final int frameSize = shapeType.getFrameSize();
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Rotation rotation : Rotation.values()) {
+            final int[] rowMasks = shapeType.getRowMasks(rotation);
+            for (int x = 1 - frameSize; x < board.getWidth(); x++) {
+                if (!board.fits(rowMasks, x, spawnY)) {
+                    continue;
+                }
+                int y = spawnY;
+                while (board.fits(rowMasks, x, y + 1)) {
+                    y++;
+                }
+                BitBoard droppedBoard = board.copy();
+                final double clearValue = evaluator.evaluateLineClear(
+                        lockShape(droppedBoard, rowMasks, x, y), false);
+                bestValue = Math.max(bestValue,
+                        clearValue + evaluateBoard(droppedBoard, index + 1));
+            }
+        }
+        // in case the shape can not even spawn, the game is over
+        return bestValue;
+    }
+
+    /**
+     * Puts the shape onto the board and removes the filled rows. Returns
+     * the number of the removed rows.
+     */
+    private static int lockShape(BitBoard board, int[] rowMasks, int x,
+            int y) {
+        int[] filledRows = new int[rowMasks.length];
+        int filledRowsCount = 0;
+        for (int i = 0; i < rowMasks.length; i++) {
+            if (rowMasks[i] == 0) {
+                continue;
+            }
+            for (int j = 0; j < Integer.SIZE; j++) {
+                if ((rowMasks[i] & (1 << j)) != 0) {
+                    board.set(x + j, y + i);
+                }
+            }
+            if (board.isRowFilled(y + i)) {
+                filledRows[filledRowsCount++] = y + i;
+            }
+        }
+        board.removeRows(filledRows, filledRowsCount);
+        return filledRowsCount;
+    }
+}
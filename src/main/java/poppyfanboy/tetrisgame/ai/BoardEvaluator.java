@@ -0,0 +1,104 @@
+package poppyfanboy.tetrisgame.ai;
+
+import poppyfanboy.tetrisgame.util.BitBoard;
+
+/**
+ * Heuristic estimate of how good the state of the game field is. The
+ * estimate is a weighted sum of the features of the board (aggregate
+ * height of the columns, number of holes, bumpiness of the surface and
+ * number of T-spin setups) plus the reward for the cleared lines.
+ *
+ * The evaluator has no mutable state, so it can be shared by multiple
+ * threads.
+ */
+public class BoardEvaluator {
+    public static final double DEFAULT_HEIGHT_WEIGHT = -0.510066;
+    public static final double DEFAULT_LINES_WEIGHT = 0.760666;
+    public static final double DEFAULT_HOLES_WEIGHT = -0.35663;
+    public static final double DEFAULT_BUMPINESS_WEIGHT = -0.184483;
+    public static final double DEFAULT_T_SLOTS_WEIGHT = 0.3;
+    public static final double DEFAULT_T_SPIN_WEIGHT = 1.5;
+
+    private final double heightWeight, linesWeight, holesWeight;
+    private final double bumpinessWeight, tSlotsWeight, tSpinWeight;
+
+    public BoardEvaluator(double heightWeight, double linesWeight,
+            double holesWeight, double bumpinessWeight, double tSlotsWeight,
+            double tSpinWeight) {
+        this.heightWeight = heightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+        this.tSlotsWeight = tSlotsWeight;
+        this.tSpinWeight = tSpinWeight;
+    }
+
+    public BoardEvaluator() {
+        this(DEFAULT_HEIGHT_WEIGHT, DEFAULT_LINES_WEIGHT, DEFAULT_HOLES_WEIGHT,
+                DEFAULT_BUMPINESS_WEIGHT, DEFAULT_T_SLOTS_WEIGHT,
+                DEFAULT_T_SPIN_WEIGHT);
+    }
+
+    /**
+     * Evaluates the features of the board. The higher the value is, the
+     * better the board is.
+     */
+    public double evaluate(BitBoard board) {
+        final int width = board.getWidth(), height = board.getHeight();
+        int[] columnHeights = new int[width];
+        int aggregateHeight = 0, holesCount = 0, bumpiness = 0;
+        for (int x = 0; x < width; x++) {
+            int y = 0;
+            while (y < height && !board.get(x, y)) {
+                y++;
+            }
+            columnHeights[x] = height - y;
+            aggregateHeight += height - y;
+            for (; y < height; y++) {
+                if (!board.get(x, y)) {
+                    holesCount++;
+                }
+            }
+            if (x > 0) {
+                bumpiness += Math.abs(columnHeights[x] - columnHeights[x - 1]);
+            }
+        }
+        return heightWeight * aggregateHeight + holesWeight * holesCount
+                + bumpinessWeight * bumpiness
+                + tSlotsWeight * countTSlots(board, columnHeights);
+    }
+
+    /**
+     * Evaluates the reward for clearing the lines.
+     */
+    public double evaluateLineClear(int linesCleared, boolean isTSpin) {
+        return (linesWeight + (isTSpin ? tSpinWeight : 0)) * linesCleared;
+    }
+
+    /**
+     * Counts the slots that a T-shape can be spinned into: the shape
+     * pointing down fits into the slot, the tiles on both sides of its
+     * bottom block are occupied and the slot is covered by an overhang from
+     * one side.
+     */
+    private static int countTSlots(BitBoard board, int[] columnHeights) {
+        final int width = board.getWidth(), height = board.getHeight();
+        int slotsCount = 0;
+        for (int x = 1; x < width - 1; x++) {
+            // the bottom block of the shape lies right on the surface of
+            // the middle column, and y is the row of its top blocks
+            final int y = height - columnHeights[x] - 2;
+            if (y < 1) {
+                continue;
+            }
+            if (board.get(x - 1, y) || board.get(x + 1, y)
+                    || !board.get(x - 1, y + 1) || !board.get(x + 1, y + 1)) {
+                continue;
+            }
+            if (board.get(x - 1, y - 1) != board.get(x + 1, y - 1)) {
+                slotsCount++;
+            }
+        }
+        return slotsCount;
+    }
+}
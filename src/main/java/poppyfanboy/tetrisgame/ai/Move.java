@@ -0,0 +1,29 @@
+package poppyfanboy.tetrisgame.ai;
+
+import poppyfanboy.tetrisgame.input.InputKey;
+
+/**
+ * A single step of the active shape that the player can make. Each of
+ * the moves corresponds to the key that makes it.
+ */
+public enum Move {
+    LEFT(InputKey.ARROW_LEFT), RIGHT(InputKey.ARROW_RIGHT),
+    ROTATE_LEFT(InputKey.W), ROTATE_RIGHT(InputKey.S),
+    // the shape falls down by one row (either by itself or because the
+    // forced drop key is held)
+    DOWN(InputKey.ARROW_DOWN);
+
+    private final InputKey inputKey;
+
+    Move(InputKey inputKey) {
+        this.inputKey = inputKey;
+    }
+
+    public InputKey getInputKey() {
+        return inputKey;
+    }
+
+    public boolean isRotation() {
+        return this == ROTATE_LEFT || this == ROTATE_RIGHT;
+    }
+}
@@ -0,0 +1,105 @@
+package poppyfanboy.tetrisgame.ai;
+
+import java.util.Arrays;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * A final position of the shape, in which it can not fall any further,
+ * along with the sequence of moves that brings the shape there from its
+ * spawn position.
+ */
+public final class Placement {
+    private final ShapeType shapeType;
+    private final int x, y;
+    private final Rotation rotation;
+    private final Move[] path;
+
+    public Placement(ShapeType shapeType, int x, int y, Rotation rotation,
+            Move[] path) {
+        this.shapeType = shapeType;
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.path = path.clone();
+    }
+
+    public ShapeType getShapeType() {
+        return shapeType;
+    }
+
+    /**
+     * Coordinates of the upper-left corner of the frame of the shape.
+     */
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public Rotation getRotation() {
+        return rotation;
+    }
+
+    public int[] getRowMasks() {
+        return shapeType.getRowMasks(rotation);
+    }
+
+    public Move[] getPath() {
+        return path.clone();
+    }
+
+    public int getPathLength() {
+        return path.length;
+    }
+
+    public Move getMove(int index) {
+        return path[index];
+    }
+
+    /**
+     * Tells if the last move of the path is a rotation. It is required
+     * for the shape to count as T-spinned, in case it is locked without
+     * any further moves (hard drop breaks the T-spin too).
+     */
+    public boolean isRotatedLast() {
+        return path.length != 0 && path[path.length - 1].isRotation();
+    }
+
+    /**
+     * Checks if both placements put the solid blocks onto the same tiles
+     * (e.g. the placements of an O-shape in different rotations).
+     */
+    public boolean coversSameTiles(Placement other) {
+        if (Math.abs(x - other.x) >= Integer.SIZE) {
+            return false;
+        }
+        final int[] rowMasks = getRowMasks();
+        final int[] otherRowMasks = other.getRowMasks();
+        final int minX = Math.min(x, other.x);
+        final int minY = Math.min(y, other.y);
+        final int maxY = Math.max(y + rowMasks.length,
+                other.y + otherRowMasks.length);
+        for (int boardY = minY; boardY < maxY; boardY++) {
+            if (getRowMask(rowMasks, boardY - y) << (x - minX)
+                    != getRowMask(otherRowMasks, boardY - other.y)
+                            << (other.x - minX)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long getRowMask(int[] rowMasks, int i) {
+        return i < 0 || i >= rowMasks.length ? 0 : rowMasks[i] & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Placement(%s, x = %d, y = %d, %s, path = %s)",
+                shapeType, x, y, rotation, Arrays.toString(path));
+    }
+}
@@ -0,0 +1,280 @@
+package poppyfanboy.tetrisgame.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.util.BitBoard;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * Finds all of the placements of the shape that can be reached from its
+ * current position. The search is a BFS over the {@code (x, y, rotation)}
+ * states of the shape, which follows the same movement rules as the
+ * {@link GameLogic} does (including the wall kicks), so that the
+ * placements that are only reachable by tucking the shape under the
+ * blocks or by kicking it into a slot are found as well. The shape is
+ * dropped by the gravity once a wall kick is over, and a landed shape is
+ * dropped as soon as it is moved to where it can fall, just like in the
+ * game. The paths found are the shortest ones in terms of the number of
+ * moves. The rest of the timings are not taken into account: a path is
+ * followed exactly in case the shape is not dropped by the gravity in the
+ * middle of it, and each time it lands, it stays still until the lock
+ * delay starts.
+ *
+ * The buffers are reused between the searches, so a single finder must
+ * not be used by multiple threads at once.
+ */
+public class PlacementFinder {
+    private static final Rotation[] ROTATIONS = Rotation.values();
+    private static final Move[] MOVES = Move.values();
+
+    private final int widthInBlocks, heightInBlocks;
+    // number of rows the shape falls by a single drop
+    private int gravity;
+    private boolean wallKicksEnabled = true;
+
+    // the states are indexed as (rotation, y, x), where x and y lie within
+    // [1 - frameSize, width - 1] and [1 - frameSize, height - 1] ranges,
+    // since frames may have empty rows and columns
+    private int frameSize;
+    private int xSpan, ySpan;
+    private long[] visited;
+    private int[] queue;
+    private int[] parents;
+    private byte[] moves;
+    // wall kicks of the shape being searched for indexed by the rotation
+    // the shape is rotated from (the methods of the shape type make a copy
+    // of the array on each call)
+    private final IntVector[][] rightWallKicks
+            = new IntVector[ROTATIONS.length][];
+    private final IntVector[][] leftWallKicks
+            = new IntVector[ROTATIONS.length][];
+
+    public PlacementFinder(int widthInBlocks, int heightInBlocks) {
+        if (widthInBlocks <= 0 || heightInBlocks <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Width and height must be positive integers."
+                    + " Got: width = %d, height = %d",
+                    widthInBlocks, heightInBlocks));
+        }
+        this.widthInBlocks = widthInBlocks;
+        this.heightInBlocks = heightInBlocks;
+    }
+
+    /**
+     * Makes the searches use the wall kicks or not. In case the wall kicks
+     * are disabled, a rotation that needs a wall kick is not possible.
+     * They are enabled by default.
+     */
+    public void setWallKicksEnabled(boolean wallKicksEnabled) {
+        this.wallKicksEnabled = wallKicksEnabled;
+    }
+
+    public boolean isWallKicksEnabled() {
+        return wallKicksEnabled;
+    }
+
+    /**
+     * Finds the placements of the active shape of the game. Returns an
+     * empty list in case there is no active shape at the moment.
+     */
+    public List<Placement> findPlacements(GameLogic game) {
+        final ShapeType shapeType = game.getActiveShapeType();
+        if (shapeType == null) {
+            return Collections.emptyList();
+        }
+        final IntVector coords = game.getActiveShapeCoords();
+        return findPlacements(game.getOccupancy(), shapeType, coords.getX(),
+                coords.getY(), game.getActiveShapeRotation(),
+                game.getGravity());
+    }
+
+    /**
+     * Finds the placements of the shape that falls by a single row per
+     * drop.
+     *
+     * @see #findPlacements(BitBoard, ShapeType, int, int, Rotation, int)
+     */
+    public List<Placement> findPlacements(BitBoard board, ShapeType shapeType,
+            int x, int y, Rotation rotation) {
+        return findPlacements(board, shapeType, x, y, rotation, 1);
+    }
+
+    /**
+     * Finds the placements of the shape positioned at the {@code (x, y)}
+     * tile of the board. Placements that cover the same tiles are reported
+     * once (unless only one of them ends with a rotation, which matters for
+     * the T-spins).
+     *
+     * @param   gravity the number of rows the shape falls by a single drop.
+     * @throws  IllegalArgumentException in case the size of the board
+     *          differs from the size the finder has been created for or
+     *          the gravity is not positive.
+     */
+    public List<Placement> findPlacements(BitBoard board, ShapeType shapeType,
+            int x, int y, Rotation rotation, int gravity) {
+        if (board.getWidth() != widthInBlocks
+                || board.getHeight() != heightInBlocks) {
+            throw new IllegalArgumentException(String.format(
+                    "The board size differs from the size of the finder."
+                    + " Got: %dx%d, expected: %dx%d", board.getWidth(),
+                    board.getHeight(), widthInBlocks, heightInBlocks));
+        }
+        if (gravity <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "The gravity must be positive. Got: gravity = %d",
+                    gravity));
+        }
+        this.gravity = gravity;
+        if (!board.fits(shapeType.getRowMasks(rotation), x, y)) {
+            return Collections.emptyList();
+        }
+        ensureCapacity(shapeType.getFrameSize());
+        Arrays.fill(visited, 0);
+        for (Rotation fromRotation : ROTATIONS) {
+            rightWallKicks[fromRotation.ordinal()]
+                    = shapeType.getRightWallKicks(fromRotation);
+            leftWallKicks[fromRotation.ordinal()]
+                    = shapeType.getLeftWallKicks(fromRotation);
+        }
+
+        List<Placement> placements = new ArrayList<>();
+        final int start = getIndex(x, y, rotation);
+        visited[start >>> 6] |= 1L << start;
+        parents[start] = -1;
+        queue[0] = start;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            final int current = queue[head++];
+            final Rotation currentRotation
+                    = ROTATIONS[current / (xSpan * ySpan)];
+            final int currentY
+                    = current % (xSpan * ySpan) / xSpan + 1 - frameSize;
+            final int currentX = current % xSpan + 1 - frameSize;
+
+            if (!board.fits(shapeType.getRowMasks(currentRotation),
+                    currentX, currentY + 1)) {
+                addPlacement(placements, shapeType, current, currentX,
+                        currentY, currentRotation);
+            }
+            for (Move move : MOVES) {
+                final int next = applyMove(board, shapeType, move,
+                        currentX, currentY, currentRotation);
+                if (next == -1 || (visited[next >>> 6] & 1L << next) != 0) {
+                    continue;
+                }
+                visited[next >>> 6] |= 1L << next;
+                parents[next] = current;
+                moves[next] = (byte) move.ordinal();
+                queue[tail++] = next;
+            }
+        }
+        return placements;
+    }
+
+    /**
+     * Returns the index of the state the move leads to or {@code -1} in
+     * case the move is not possible.
+     */
+    private int applyMove(BitBoard board, ShapeType shapeType, Move move,
+            int x, int y, Rotation rotation) {
+        final int[] rowMasks = shapeType.getRowMasks(rotation);
+        // the lock delay of a landed shape is over as soon as it is moved
+        // to where it can fall, and it falls right away
+        final boolean landed = !board.fits(rowMasks, x, y + 1);
+        switch (move) {
+            case LEFT:
+            case RIGHT:
+                final int newX = move == Move.LEFT ? x - 1 : x + 1;
+                if (!board.fits(rowMasks, newX, y)) {
+                    return -1;
+                }
+                return getIndex(newX, landed
+                        ? y + GameLogic.getDropDistance(board, rowMasks,
+                                newX, y, gravity)
+                        : y, rotation);
+            case DOWN:
+                final int dropDistance = GameLogic.getDropDistance(board,
+                        rowMasks, x, y, gravity);
+                return dropDistance != 0
+                        ? getIndex(x, y + dropDistance, rotation)
+                        : -1;
+            case ROTATE_LEFT:
+            case ROTATE_RIGHT:
+                final Rotation direction = move == Move.ROTATE_RIGHT
+                        ? Rotation.RIGHT
+                        : Rotation.LEFT;
+                final Rotation newRotation = rotation.add(direction);
+                final int[] newRowMasks = shapeType.getRowMasks(newRotation);
+                if (board.fits(newRowMasks, x, y)) {
+                    return getIndex(x, landed
+                            ? y + GameLogic.getDropDistance(board,
+                                    newRowMasks, x, y, gravity)
+                            : y, newRotation);
+                }
+                if (!wallKicksEnabled) {
+                    return -1;
+                }
+                final IntVector shift = GameLogic.getWallKick(board,
+                        newRowMasks, x, y, direction == Rotation.RIGHT
+                                ? rightWallKicks[rotation.ordinal()]
+                                : leftWallKicks[rotation.ordinal()]);
+                if (shift == null) {
+                    return -1;
+                }
+                // the shape can not be controlled until the wall kick is
+                // over, and then it is dropped whether it has landed or not
+                final int kickedX = x + shift.getX();
+                final int kickedY = y + shift.getY();
+                return getIndex(kickedX, kickedY
+                        + GameLogic.getDropDistance(board, newRowMasks,
+                                kickedX, kickedY, gravity), newRotation);
+        }
+        return -1;
+    }
+
+    private void addPlacement(List<Placement> placements, ShapeType shapeType,
+            int index, int x, int y, Rotation rotation) {
+        int pathLength = 0;
+        for (int i = index; parents[i] != -1; i = parents[i]) {
+            pathLength++;
+        }
+        Move[] path = new Move[pathLength];
+        for (int i = index; parents[i] != -1; i = parents[i]) {
+            path[--pathLength] = MOVES[moves[i]];
+        }
+        Placement placement = new Placement(shapeType, x, y, rotation, path);
+        // the placements found earlier have shorter paths
+        for (Placement other : placements) {
+            if (other.isRotatedLast() == placement.isRotatedLast()
+                    && other.coversSameTiles(placement)) {
+                return;
+            }
+        }
+        placements.add(placement);
+    }
+
+    private int getIndex(int x, int y, Rotation rotation) {
+        return (rotation.ordinal() * ySpan + y - 1 + frameSize) * xSpan
+                + x - 1 + frameSize;
+    }
+
+    private void ensureCapacity(int newFrameSize) {
+        if (newFrameSize <= frameSize) {
+            return;
+        }
+        frameSize = newFrameSize;
+        xSpan = widthInBlocks + frameSize - 1;
+        ySpan = heightInBlocks + frameSize - 1;
+        final int statesCount = ROTATIONS.length * xSpan * ySpan;
+        visited = new long[(statesCount + Long.SIZE - 1) / Long.SIZE];
+        queue = new int[statesCount];
+        parents = new int[statesCount];
+        moves = new byte[statesCount];
+    }
+}
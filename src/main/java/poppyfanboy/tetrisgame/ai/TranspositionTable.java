@@ -0,0 +1,185 @@
+package poppyfanboy.tetrisgame.ai;
+
+import java.util.Arrays;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.PolyominoShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.util.BitBoard;
+import poppyfanboy.tetrisgame.util.Util;
+
+/**
+ * Bounded cache of the position values. A position is identified by the
+ * Zobrist hash of the board along with the shape that is to be placed onto
+ * it and the shape that comes after it (see {@link #getKey}), so the same
+ * position reached by different sequences of moves is evaluated only once.
+ *
+ * The table is open-addressed: an entry is looked for in a small window of
+ * the slots starting from the one the key maps to. Once the window is full,
+ * one of its entries is evicted by the clock (second chance) policy: every
+ * entry has a reference bit, which is set on each hit, and the eviction
+ * skips the entries whose bit is set, clearing the bits along the way.
+ *
+ * The table does not store the boards themselves, so in the (very unlikely)
+ * case of a collision of the 64-bit keys a wrong value is returned. The
+ * table is not thread-safe.
+ */
+public class TranspositionTable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    // number of the slots an entry can be placed into
+    private static final int WINDOW_SIZE = 8;
+
+    private final long[] keys;
+    private final double[] values;
+    private final boolean[] used;
+    private final boolean[] referenced;
+    private final int indexMask;
+    // window slot, which the clock hand of the eviction starts from
+    private int hand;
+
+    private int size;
+    private long hits, misses;
+
+    /**
+     * Creates a table that holds at most {@code capacity} entries
+     * (rounded up to a power of two).
+     */
+    public TranspositionTable(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format(
+                    "Capacity must be a positive integer not greater"
+                    + " than 2^30. Got: capacity = %d", capacity));
+        }
+        final int slotsCount = Math.max(WINDOW_SIZE,
+                Integer.highestOneBit(capacity - 1) << 1);
+        keys = new long[slotsCount];
+        values = new double[slotsCount];
+        used = new boolean[slotsCount];
+        referenced = new boolean[slotsCount];
+        indexMask = slotsCount - 1;
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Returns the key of the position: the board, the shape that is to be
+     * placed onto it and the shape after that. Either of the shapes may be
+     * {@code null} in case it is not known or not taken into account.
+     */
+    public static long getKey(BitBoard board, ShapeType currentShapeType,
+            ShapeType nextShapeType) {
+        return board.getHash() ^ getShapeKey(currentShapeType, 1)
+                ^ getShapeKey(nextShapeType, 2);
+    }
+
+    private static long getShapeKey(ShapeType shapeType, int position) {
+        if (shapeType == null) {
+            return 0;
+        }
+        final long shapeKey;
+        if (shapeType instanceof PolyominoShapeType) {
+            // the names of the loaded shapes are only unique within their
+            // set, so the shapes are told apart by their ids
+            shapeKey = ((PolyominoShapeType) shapeType).getId();
+        } else {
+            // the built-in shape types are enumerations, so the names of
+            // the class and of the constant identify the shape type
+            shapeKey = ((long) shapeType.getClass().getName().hashCode()
+                    << 32) ^ (shapeType.toString().hashCode()
+                            & 0xFFFFFFFFL);
+        }
+        return Util.mix64(shapeKey ^ ((long) position << 60));
+    }
+
+    private int getIndex(long key) {
+        return (int) Util.mix64(key) & indexMask;
+    }
+
+    /**
+     * Returns the value stored with the key or {@code missingValue} in case
+     * there is no such entry.
+     */
+    public double get(long key, double missingValue) {
+        final int index = getIndex(key);
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            final int slot = (index + i) & indexMask;
+            if (!used[slot]) {
+                // entries are never removed, so the rest of the window is
+                // empty as well
+                break;
+            }
+            if (keys[slot] == key) {
+                referenced[slot] = true;
+                hits++;
+                return values[slot];
+            }
+        }
+        misses++;
+        return missingValue;
+    }
+
+    /**
+     * Stores the value with the key, replacing the previous value of the
+     * key. In case there is no room for a new entry, one of the entries
+     * is evicted.
+     */
+    public void put(long key, double value) {
+        final int index = getIndex(key);
+        for (int i = 0; i < WINDOW_SIZE; i++) {
+            final int slot = (index + i) & indexMask;
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                values[slot] = value;
+                referenced[slot] = false;
+                size++;
+                return;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+        // at most two rounds: after the first one all of the reference bits
+        // of the window are cleared
+        while (true) {
+            final int slot = (index + hand) & indexMask;
+            hand = (hand + 1) % WINDOW_SIZE;
+            if (referenced[slot]) {
+                referenced[slot] = false;
+            } else {
+                keys[slot] = key;
+                values[slot] = value;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all of the entries and resets the statistics.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        Arrays.fill(referenced, false);
+        size = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
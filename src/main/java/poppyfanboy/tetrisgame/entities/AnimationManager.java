@@ -4,19 +4,36 @@ import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
+import java.util.function.Supplier;
 
 import poppyfanboy.tetrisgame.graphics.AnimatedObject;
 import poppyfanboy.tetrisgame.graphics.Animation;
 import poppyfanboy.tetrisgame.graphics.AnimationEndHandler;
+import poppyfanboy.tetrisgame.graphics.AnimationPool;
+import poppyfanboy.tetrisgame.graphics.animation2D.AcceleratedMoveAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.Animated2D;
+import poppyfanboy.tetrisgame.graphics.animation2D.BlockBreakAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.GhostModeAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.HVLinearAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.MoveAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.OpacityAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.Pose2D;
+import poppyfanboy.tetrisgame.graphics.animation2D.RotationAnimation;
 import poppyfanboy.tetrisgame.graphics.displayanimation.AnimatedDisplay;
+import poppyfanboy.tetrisgame.graphics.displayanimation.TransitionAnimation;
 
 /**
  * An object that manages all the animations in the game. Objects to be
  * animated are added to the manager as soon as they are created, and removed
  * after they are removed from the game. The objects are identified by their
  * hash code, so you need to override it to something meaningful in order to
- * guarantee performance of the animation gym.
+ * guarantee performance of the animation gym. The locked blocks (which
+ * are the most numerous) are the exception, they are kept in an
+ * {@link AnimationStore} and only the animated ones cost anything per tick.
+ *
+ * The animations are meant to be obtained from the pools of the manager
+ * (see {@link #obtain}), the manager recycles them once they are over, so
+ * that the animations are not allocated over and over again.
  *
  * I thought that it might be a good idea to implement a single general
  * method for each operation, instead of implementing the same operation for
@@ -25,39 +42,138 @@ import poppyfanboy.tetrisgame.graphics.displayanimation.AnimatedDisplay;
  * correctly throw exceptions in case an object of wrong type is passed.
  */
 public class AnimationManager {
+    // the allocation rate is measured over the periods of this many ticks
+    private static final int STATS_PERIOD = 600;
+
     private HashMap<Animated2D,
                 AnimatedObject<Animated2D, ActiveShapeAnimationType>>
             activeShapesAnimated = new HashMap<>();
-    private HashMap<Animated2D,
-                AnimatedObject<Animated2D, LockedBlockAnimationType>>
-            lockedBlocksAnimated = new HashMap<>();
+    private AnimationStore lockedBlocksAnimated = new AnimationStore();
     private HashMap<AnimatedDisplay,
                 AnimatedObject<AnimatedDisplay, DisplayAnimationType>>
             displaysAnimated = new HashMap<>();
 
     private boolean isIterating = false;
-    private Queue<PostponedAction<?, ?>> postponedActions = new ArrayDeque<>();
+    private Queue<Runnable> postponedActions = new ArrayDeque<>();
+
+    private final Map<Class<?>, AnimationPool<?>> pools = new HashMap<>();
+    private boolean debug = false;
+    private long ticksCount = 0;
+    // number of the animations created by the pools by the start of the
+    // current period
+    private long periodCreatedCount = 0;
+    private double allocationRate = 0;
+
+    public AnimationManager() {
+        addPool(AcceleratedMoveAnimation.class, AcceleratedMoveAnimation::new);
+        addPool(BlockBreakAnimation.class, BlockBreakAnimation::new);
+        addPool(GhostModeAnimation.class, GhostModeAnimation::new);
+        addPool(HVLinearAnimation.class, HVLinearAnimation::new);
+        addPool(MoveAnimation.class, MoveAnimation::new);
+        addPool(OpacityAnimation.class, OpacityAnimation::new);
+        addPool(RotationAnimation.class, RotationAnimation::new);
+        addPool(TransitionAnimation.class, TransitionAnimation::new);
+    }
 
     public void tick() {
         isIterating = true;
         activeShapesAnimated.values().forEach(AnimatedObject::tick);
-        lockedBlocksAnimated.values().forEach(AnimatedObject::tick);
+        lockedBlocksAnimated.tick();
         displaysAnimated.values().forEach(AnimatedObject::tick);
         isIterating = false;
         while (!postponedActions.isEmpty()) {
-            postponedActions.poll().perform();
+            postponedActions.poll().run();
+        }
+
+        ticksCount++;
+        if (ticksCount % STATS_PERIOD == 0) {
+            final long createdCount = getCreatedAnimationsCount();
+            allocationRate = (double) (createdCount - periodCreatedCount)
+                    / STATS_PERIOD;
+            periodCreatedCount = createdCount;
+            if (debug) {
+                // reports the leaks detected since the last check
+                getLeaksCount();
+            }
         }
     }
 
     public void perform(double interpolation) {
         activeShapesAnimated.values()
                 .forEach(object -> object.perform(interpolation));
-        lockedBlocksAnimated.values()
-                .forEach(object -> object.perform(interpolation));
+        lockedBlocksAnimated.perform(interpolation);
         displaysAnimated.values()
                 .forEach(object -> object.perform(interpolation));
     }
 
+    // -- animation pools --
+
+    /**
+     * Returns an animation of the specified class from the pool of the
+     * manager, the animation must be set up with its {@code reset} method.
+     * Once the animation is added to the manager it belongs to the manager:
+     * it is recycled as soon as it is over, so it must not be kept
+     * anywhere else.
+     *
+     * @throws  IllegalArgumentException in case the manager has no pool of
+     *          the animations of the specified class.
+     */
+    public <A extends Animation<?>> A obtain(Class<A> animationClass) {
+        final AnimationPool<?> pool = pools.get(animationClass);
+        if (pool == null) {
+            throw new IllegalArgumentException(String.format(
+                    "There is no pool of the %s animations.",
+                    animationClass.getSimpleName()));
+        }
+        return animationClass.cast(pool.obtain());
+    }
+
+    /**
+     * Turns the leak detection of the animation pools on or off (see
+     * {@link AnimationPool}). The leaked animations are reported to the
+     * standard error stream.
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+        pools.values().forEach(pool -> pool.setDebug(debug));
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Returns the average number of the animations allocated per tick over
+     * the last {@code STATS_PERIOD} ticks. Once the pools have warmed up
+     * it should stay at zero.
+     */
+    public double getAllocationRate() {
+        return allocationRate;
+    }
+
+    /**
+     * Returns the total number of the animations allocated by the pools.
+     */
+    public long getCreatedAnimationsCount() {
+        long count = 0;
+        for (AnimationPool<?> pool : pools.values()) {
+            count += pool.getCreatedCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of the leaked animations detected so far, only
+     * the leaks of the animations obtained in the debug mode are detected.
+     */
+    public long getLeaksCount() {
+        long count = 0;
+        for (AnimationPool<?> pool : pools.values()) {
+            count += pool.getLeaksCount();
+        }
+        return count;
+    }
+
     // -- object addition operations --
 
     public void addActiveShape(Shape activeShape) {
@@ -66,8 +182,49 @@ public class AnimationManager {
     }
 
     public void addLockedBlock(Block lockedBlock) {
-        addObject(lockedBlock, lockedBlocksAnimated,
-                LockedBlockAnimationType.class);
+        addStoredObject(lockedBlock);
+    }
+
+    /**
+     * Adds a group of the locked blocks, its animations are ticked along
+     * with the animations of the locked blocks.
+     */
+    public void addBlockGroup(BlockGroup blockGroup) {
+        addStoredObject(blockGroup);
+    }
+
+    /**
+     * Adds a set of the locked blocks along with its members, from now on
+     * the animations of the set animate the blocks (see {@link BlockSet}).
+     * The blocks must be present in the animation manager. The blocks are
+     * taken from the iterable right away, so it can be reused once this
+     * method returns.
+     */
+    public void addBlockSet(BlockSet blockSet, Iterable<Block> blocks) {
+        addBlockSet(blockSet);
+        for (Block block : blocks) {
+            addBlockSetMember(blockSet, block);
+        }
+    }
+
+    /**
+     * Adds an empty set of the locked blocks, its members are added by the
+     * {@link #addBlockSetMember} method.
+     */
+    public void addBlockSet(BlockSet blockSet) {
+        addStoredObject(blockSet);
+    }
+
+    /**
+     * Puts the block into the set. The block and the set must be present
+     * in the animation manager.
+     */
+    public void addBlockSetMember(BlockSet blockSet, Block block) {
+        if (isIterating) {
+            postponedActions.add(() -> addBlockSetMember(blockSet, block));
+            return;
+        }
+        lockedBlocksAnimated.addMember(blockSet, block);
     }
 
     public void addDisplay(AnimatedDisplay display) {
@@ -97,15 +254,49 @@ public class AnimationManager {
                 activeShapesAnimated);
     }
 
-    public void tempFastForward(Shape activeShape, double ticksCount) {
-        activeShapesAnimated.get(activeShape).tempFastForward(ticksCount);
+    /**
+     * Writes the state of the active shape the specified number of ticks
+     * ahead into the pose, as far as the running animations of the shape
+     * are concerned. The pose is expected to hold the current state of the
+     * shape (see {@link Pose2D#set}), the shape itself is not changed.
+     *
+     * @throws  IllegalArgumentException in case the specified active shape
+     *          is not present in the animation manager.
+     */
+    public void sampleAt(Shape activeShape, double ticksCount, Pose2D pose) {
+        throwExceptionIfNotPresent(activeShape, activeShapesAnimated);
+        activeShapesAnimated.get(activeShape).sampleAt(pose, ticksCount);
     }
 
     public void addAnimation(Block fallenBlock,
             LockedBlockAnimationType animationType,
             Animation<Animated2D> animation, AnimationEndHandler endHandler) {
-        addAnimation(fallenBlock, animationType, animation, endHandler,
-                lockedBlocksAnimated);
+        lockedBlocksAnimated.addAnimation(fallenBlock, animationType,
+                animation, endHandler);
+    }
+
+    public void addAnimation(BlockGroup blockGroup,
+            LockedBlockAnimationType animationType,
+            Animation<Animated2D> animation) {
+        lockedBlocksAnimated.addAnimation(blockGroup, animationType,
+                animation, null);
+    }
+
+    /**
+     * Adds an animation of the type of the set to the set (see
+     * {@link BlockSet#getAnimationType}). The animation is postponed along
+     * with the set in case the set is added while the animations are
+     * ticked.
+     */
+    public void addAnimation(BlockSet blockSet,
+            Animation<Animated2D> animation, AnimationEndHandler endHandler) {
+        if (isIterating) {
+            postponedActions.add(
+                    () -> addAnimation(blockSet, animation, endHandler));
+            return;
+        }
+        lockedBlocksAnimated.addAnimation(blockSet,
+                blockSet.getAnimationType(), animation, endHandler);
     }
 
     public void addAnimation(AnimatedDisplay display,
@@ -140,8 +331,7 @@ public class AnimationManager {
     public void addAnimationCallback(Block block,
             LockedBlockAnimationType animationType,
             AnimationEndHandler endHandler) {
-        addAnimationCallback(block, animationType, endHandler,
-                lockedBlocksAnimated);
+        lockedBlocksAnimated.addCallback(block, animationType, endHandler);
     }
 
     // -- animations getter operations --
@@ -169,7 +359,18 @@ public class AnimationManager {
     }
 
     public void removeLockedBlock(Block fallenBlock) {
-        removeObject(fallenBlock, lockedBlocksAnimated);
+        removeStoredObject(fallenBlock);
+    }
+
+    public void removeBlockGroup(BlockGroup blockGroup) {
+        removeStoredObject(blockGroup);
+    }
+
+    /**
+     * Removes the set, its blocks keep their current properties.
+     */
+    public void removeBlockSet(BlockSet blockSet) {
+        removeStoredObject(blockSet);
     }
 
 
@@ -180,8 +381,7 @@ public class AnimationManager {
     private <T, K extends Enum<K>> void addObject(T object,
             Map<T, AnimatedObject<T, K>> map, Class<K> animationTypes) {
         if (isIterating) {
-            postponedActions
-                    .add(getObjectAdditionAction(object, map, animationTypes));
+            postponedActions.add(() -> addObject(object, map, animationTypes));
             return;
         }
         if (map.containsKey(object)) {
@@ -217,57 +417,34 @@ public class AnimationManager {
     private <T, K extends Enum<K>> void removeObject(T object,
             Map<T, AnimatedObject<T, K>> map) {
         if (isIterating) {
-            postponedActions.add(getObjectRemovalAction(object, map));
+            postponedActions.add(() -> removeObject(object, map));
             return;
         }
-        map.remove(object);
-    }
-
-
-    private class PostponedAction<T, K extends Enum<K>> {
-        private final ActionType actionType;
-        private final Map<T, AnimatedObject<T, K>> map;
-
-        private T object;
-        private Class<K> animationTypes;
-
-        private PostponedAction(ActionType actionType, T object,
-                Map<T, AnimatedObject<T, K>> map, Class<K> animationTypes) {
-            this.actionType = actionType;
-            this.object = object;
-            this.map = map;
-            this.animationTypes = animationTypes;
+        final AnimatedObject<T, K> animatedObject = map.remove(object);
+        if (animatedObject != null) {
+            animatedObject.clear();
         }
+    }
 
-        public void perform() {
-            switch (actionType) {
-                case ADD_OBJECT:
-                    addObject(object, map, animationTypes);
-                    break;
-
-                case REMOVE_OBJECT:
-                    removeObject(object, map);
-                    break;
-            }
+    private void addStoredObject(StoredAnimated2D object) {
+        if (isIterating) {
+            postponedActions.add(() -> addStoredObject(object));
+            return;
         }
-    }
-    private enum ActionType {
-        ADD_OBJECT, REMOVE_OBJECT
+        lockedBlocksAnimated.add(object);
     }
 
-    private <T, K extends Enum<K>> PostponedAction<T, K>
-            getObjectRemovalAction(T object,
-                    Map<T, AnimatedObject<T, K>> map) {
-        return new PostponedAction<>(
-                ActionType.REMOVE_OBJECT, object, map, null);
+    private void removeStoredObject(StoredAnimated2D object) {
+        if (isIterating) {
+            postponedActions.add(() -> removeStoredObject(object));
+            return;
+        }
+        lockedBlocksAnimated.remove(object);
     }
 
-
-    private <T, K extends Enum<K>> PostponedAction<T, K>
-            getObjectAdditionAction(T object, Map<T, AnimatedObject<T, K>> map,
-                    Class<K> animationTypes) {
-        return new PostponedAction<>(
-                ActionType.ADD_OBJECT, object, map, animationTypes);
+    private <A extends Animation<?>> void addPool(Class<A> animationClass,
+            Supplier<A> factory) {
+        pools.put(animationClass, new AnimationPool<>(factory));
     }
 
     // a small helper method that throws an exception in case the object is
@@ -292,7 +469,7 @@ enum ActiveShapeAnimationType {
     LOCK_DELAY
 }
 enum LockedBlockAnimationType {
-    BREAK, DROP
+    BREAK, DROP, RISE
 }
 
 enum DisplayAnimationType {
@@ -0,0 +1,456 @@
+package poppyfanboy.tetrisgame.entities;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+import poppyfanboy.tetrisgame.graphics.Animation;
+import poppyfanboy.tetrisgame.graphics.AnimationEndHandler;
+import poppyfanboy.tetrisgame.graphics.AnimationEndHandler.AnimationEndReason;
+import poppyfanboy.tetrisgame.graphics.AnimationPool;
+import poppyfanboy.tetrisgame.graphics.AnimationWrapper;
+import poppyfanboy.tetrisgame.graphics.animation2D.Animated2D;
+import poppyfanboy.tetrisgame.util.DoubleVector;
+
+/**
+ * Animations of the locked blocks and of their groups. There might be
+ * hundreds of the locked blocks on the game field, and most of the time
+ * only a few of them are animated, so instead of a map of the animated
+ * objects each object gets an index (a slot) and everything related to it
+ * is kept in the arrays indexed by the slots: the animated properties of
+ * the object (see {@link StoredAnimated2D}) and the animations of each
+ * type. The slots that have running animations are kept in a compact list,
+ * only these are ticked and performed, the idle objects cost nothing.
+ *
+ * The slots of the removed objects are reused by the added ones, along
+ * with the wrappers of their animations.
+ *
+ * An object might also be a {@link BlockSet}: the slots of its members are
+ * listed next to its slot, and whatever is written into the properties of
+ * the set is copied into the properties of the members right away, so a
+ * single animation moves a whole row of blocks.
+ */
+final class AnimationStore {
+    private static final LockedBlockAnimationType[] TYPES
+            = LockedBlockAnimationType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private StoredAnimated2D[] objects = new StoredAnimated2D[0];
+    // animated properties of the objects
+    private double[] x = {}, y = {}, rotationAngle = {}, scale = {};
+    private double[] opacity = {};
+    // animations[slot * TYPES.length + animationType.ordinal()], the
+    // wrappers are created once and reused, the finished ones are idle
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private AnimationWrapper<Animated2D>[] animations
+            = new AnimationWrapper[0];
+    private int[] runningCounts = {};
+
+    // members[setSlot] lists the slots of the members of the set and
+    // memberOffsets[setSlot] the offsets of their coordinates from the
+    // coordinates of the set (x and y of each member one after another)
+    private int[][] members = new int[0][];
+    private double[][] memberOffsets = new double[0][];
+    private int[] membersCounts = {};
+    // memberSets[slot * TYPES.length + animationType.ordinal()] is the slot
+    // of the set that animates the object (-1 for none), memberPositions
+    // are the positions of the object in the lists of the sets
+    private int[] memberSets = {};
+    private int[] memberPositions = {};
+
+    // slots that have running animations and the positions of the slots in
+    // this list (-1 for the slots that are not in the list)
+    private int[] active = {};
+    private int[] activePositions = {};
+    private int activeCount = 0;
+
+    private int[] freeSlots = {};
+    private int freeCount = 0;
+    // number of the slots that have ever been used
+    private int slotsCount = 0;
+    private int size = 0;
+
+    // the animations added to the slot while it is being ticked are
+    // postponed until the tick of the slot is over
+    private boolean isIterating = false;
+    private int tickingSlot = -1;
+    private final Queue<Runnable> postponedActions = new ArrayDeque<>();
+
+    AnimationStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    void tick() {
+        isIterating = true;
+        // the slots that get activated during the tick are appended to the
+        // list, they are ticked starting from the next tick
+        final int count = activeCount;
+        for (int i = 0; i < count; i++) {
+            final int slot = active[i];
+            if (runningCounts[slot] == 0) {
+                continue;
+            }
+            tickingSlot = slot;
+            for (int j = slot * TYPES.length;
+                    j < (slot + 1) * TYPES.length; j++) {
+                final AnimationWrapper<Animated2D> animation = animations[j];
+                if (animation == null || animation.finished()) {
+                    continue;
+                }
+                animation.tick();
+                if (animation.finished()) {
+                    animation.clear();
+                    runningCounts[slot]--;
+                }
+            }
+            tickingSlot = -1;
+            while (!postponedActions.isEmpty()) {
+                postponedActions.poll().run();
+            }
+        }
+        isIterating = false;
+
+        // the slots that have become idle during the tick are left in the
+        // list until the tick is over
+        int newCount = 0;
+        for (int i = 0; i < activeCount; i++) {
+            final int slot = active[i];
+            if (runningCounts[slot] == 0) {
+                activePositions[slot] = -1;
+            } else {
+                active[newCount] = slot;
+                activePositions[slot] = newCount++;
+            }
+        }
+        activeCount = newCount;
+    }
+
+    void perform(double interpolation) {
+        for (int i = 0; i < activeCount; i++) {
+            final int slot = active[i];
+            for (int j = slot * TYPES.length;
+                    j < (slot + 1) * TYPES.length; j++) {
+                if (animations[j] != null) {
+                    // does nothing for the finished animations
+                    animations[j].perform(interpolation);
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws  IllegalArgumentException in case the object is already
+     *          added to a store.
+     */
+    void add(StoredAnimated2D object) {
+        if (object.getSlot() != -1) {
+            throw new IllegalArgumentException(String.format("There is "
+                    + "already a %s object present in the animation manager",
+                    object));
+        }
+        final int slot;
+        if (freeCount != 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotsCount == objects.length) {
+                allocate(2 * objects.length);
+            }
+            slot = slotsCount++;
+        }
+        objects[slot] = object;
+        size++;
+        object.attach(this, slot);
+    }
+
+    /**
+     * Removes the object along with its animations, the callbacks of the
+     * animations are not triggered. Does nothing in case the object is not
+     * present in the store. Must not be called while the store is ticking.
+     */
+    void remove(StoredAnimated2D object) {
+        final int slot = object.getSlot();
+        if (slot == -1 || objects[slot] != object) {
+            return;
+        }
+        for (int j = slot * TYPES.length; j < (slot + 1) * TYPES.length; j++) {
+            if (animations[j] != null) {
+                animations[j].clear();
+            }
+            if (memberSets[j] != -1) {
+                removeMember(slot, j - slot * TYPES.length);
+            }
+        }
+        if (object instanceof BlockSet) {
+            final int type = ((BlockSet) object).getAnimationType().ordinal();
+            for (int i = 0; i < membersCounts[slot]; i++) {
+                memberSets[members[slot][i] * TYPES.length + type] = -1;
+            }
+            membersCounts[slot] = 0;
+        }
+        runningCounts[slot] = 0;
+        if (activePositions[slot] != -1) {
+            // move the last slot of the list in place of the removed one
+            final int position = activePositions[slot];
+            active[position] = active[--activeCount];
+            activePositions[active[position]] = position;
+            activePositions[slot] = -1;
+        }
+        object.detach();
+        objects[slot] = null;
+        freeSlots[freeCount++] = slot;
+        size--;
+    }
+
+    /**
+     * Puts the object into the set, so that the animations of the set
+     * animate the object from now on. The object leaves the set of the same
+     * animation type it was in before, and its own animation of this type
+     * is interrupted.
+     *
+     * @throws  IllegalArgumentException in case either the set or the
+     *          object are not present in the store, or the object is a set.
+     */
+    void addMember(BlockSet set, StoredAnimated2D object) {
+        final int setSlot = getSlot(set);
+        final int slot = getSlot(object);
+        if (object instanceof BlockSet) {
+            throw new IllegalArgumentException(String.format(
+                    "Block sets cannot be nested. Got: %s", object));
+        }
+        final int type = set.getAnimationType().ordinal();
+        final int index = slot * TYPES.length + type;
+        if (memberSets[index] == setSlot) {
+            return;
+        }
+        if (memberSets[index] != -1) {
+            removeMember(slot, type);
+        }
+        final AnimationWrapper<Animated2D> wrapper = animations[index];
+        if (wrapper != null && !wrapper.finished()) {
+            wrapper.interrupt(AnimationEndReason.INTERRUPTED_BY_ANIMATION);
+            // the end handlers might have removed the objects
+            if (objects[slot] != object || objects[setSlot] != set) {
+                return;
+            }
+            runningCounts[slot]--;
+            // or started another animation of the same type
+            if (!wrapper.finished()) {
+                runningCounts[slot]--;
+            }
+            wrapper.clear();
+        }
+
+        final int position = membersCounts[setSlot]++;
+        if (members[setSlot] == null) {
+            members[setSlot] = new int[8];
+            memberOffsets[setSlot] = new double[2 * 8];
+        } else if (position == members[setSlot].length) {
+            members[setSlot] = Arrays.copyOf(members[setSlot], 2 * position);
+            memberOffsets[setSlot]
+                    = Arrays.copyOf(memberOffsets[setSlot], 4 * position);
+        }
+        members[setSlot][position] = slot;
+        memberOffsets[setSlot][2 * position] = x[slot] - x[setSlot];
+        memberOffsets[setSlot][2 * position + 1] = y[slot] - y[setSlot];
+        memberSets[index] = setSlot;
+        memberPositions[index] = position;
+    }
+
+    /**
+     * Adds an animation of the specified type to the object. In case there
+     * already is an animation of this type, they are either combined or the
+     * old one is interrupted (see {@link Animation#conflicts}). In case the
+     * object is animated by a set with this type of the animations, the
+     * object leaves the set.
+     *
+     * @param   endHandler can be {@code null}.
+     * @throws  IllegalArgumentException in case the object is not present
+     *          in the store.
+     */
+    void addAnimation(StoredAnimated2D object,
+            LockedBlockAnimationType animationType,
+            Animation<Animated2D> animation, AnimationEndHandler endHandler) {
+        final int slot = getSlot(object);
+        if (isIterating && slot == tickingSlot) {
+            postponedActions.add(() -> addAnimation(object, animationType,
+                    animation, endHandler));
+            return;
+        }
+        final int index = slot * TYPES.length + animationType.ordinal();
+        if (memberSets[index] != -1) {
+            removeMember(slot, animationType.ordinal());
+        }
+        AnimationWrapper<Animated2D> wrapper = animations[index];
+        if (wrapper == null) {
+            wrapper = animations[index] = new AnimationWrapper<>();
+        }
+        if (!wrapper.finished()) {
+            if (!wrapper.conflicts(animation)) {
+                wrapper.combine(animation, endHandler);
+                return;
+            }
+            wrapper.interrupt(AnimationEndReason.INTERRUPTED_BY_ANIMATION);
+            // the object might have been removed by the end handlers
+            if (objects[slot] != object) {
+                AnimationPool.recycle(animation);
+                return;
+            }
+            runningCounts[slot]--;
+        }
+        // the end handlers might have started another animation of the
+        // same type already, it is replaced then
+        if (wrapper.finished()) {
+            runningCounts[slot]++;
+        }
+        wrapper.reset(object, animation, endHandler);
+        if (activePositions[slot] == -1) {
+            active[activeCount] = slot;
+            activePositions[slot] = activeCount++;
+        }
+    }
+
+    /**
+     * @throws  IllegalArgumentException in case the object is not present
+     *          in the store or it has no animation of the specified type.
+     */
+    void addCallback(StoredAnimated2D object,
+            LockedBlockAnimationType animationType,
+            AnimationEndHandler endHandler) {
+        final AnimationWrapper<Animated2D> animation
+                = animations[getSlot(object) * TYPES.length
+                        + animationType.ordinal()];
+        if (animation == null || animation.finished()) {
+            throw new IllegalArgumentException(String.format("There is no "
+                    + "animation of the specified %s type on the list",
+                    animationType));
+        }
+        animation.notifyOnAnimationEnd(endHandler);
+    }
+
+    /**
+     * Returns the number of the objects in the store.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of the objects that have running animations.
+     */
+    int getActiveCount() {
+        return activeCount;
+    }
+
+    // -- animated properties of the slots --
+
+    DoubleVector getCoords(int slot) {
+        return new DoubleVector(x[slot], y[slot]);
+    }
+
+    double getX(int slot) {
+        return x[slot];
+    }
+
+    double getY(int slot) {
+        return y[slot];
+    }
+
+    void setCoords(int slot, DoubleVector coords) {
+        x[slot] = coords.getX();
+        y[slot] = coords.getY();
+        final int count = membersCounts[slot];
+        if (count != 0) {
+            final int[] slots = members[slot];
+            final double[] offsets = memberOffsets[slot];
+            for (int i = 0; i < count; i++) {
+                x[slots[i]] = offsets[2 * i] + x[slot];
+                y[slots[i]] = offsets[2 * i + 1] + y[slot];
+            }
+        }
+    }
+
+    double getRotationAngle(int slot) {
+        return rotationAngle[slot];
+    }
+
+    void setRotationAngle(int slot, double rotationAngle) {
+        this.rotationAngle[slot] = rotationAngle;
+        copyToMembers(this.rotationAngle, slot);
+    }
+
+    double getScale(int slot) {
+        return scale[slot];
+    }
+
+    void setScale(int slot, double scale) {
+        this.scale[slot] = scale;
+        copyToMembers(this.scale, slot);
+    }
+
+    double getOpacity(int slot) {
+        return opacity[slot];
+    }
+
+    void setOpacity(int slot, double opacity) {
+        this.opacity[slot] = opacity;
+        copyToMembers(this.opacity, slot);
+    }
+
+    private void copyToMembers(double[] property, int setSlot) {
+        final int count = membersCounts[setSlot];
+        final int[] slots = members[setSlot];
+        for (int i = 0; i < count; i++) {
+            property[slots[i]] = property[setSlot];
+        }
+    }
+
+    private void removeMember(int slot, int type) {
+        final int index = slot * TYPES.length + type;
+        final int setSlot = memberSets[index];
+        final int position = memberPositions[index];
+        // move the last member of the set in place of the removed one
+        final int last = --membersCounts[setSlot];
+        final int lastSlot = members[setSlot][last];
+        members[setSlot][position] = lastSlot;
+        memberOffsets[setSlot][2 * position]
+                = memberOffsets[setSlot][2 * last];
+        memberOffsets[setSlot][2 * position + 1]
+                = memberOffsets[setSlot][2 * last + 1];
+        memberPositions[lastSlot * TYPES.length + type] = position;
+        memberSets[index] = -1;
+    }
+
+    private int getSlot(StoredAnimated2D object) {
+        final int slot = object.getSlot();
+        if (slot == -1 || objects[slot] != object) {
+            throw new IllegalArgumentException(String.format("The specified"
+                    + " object %s is not present in the animation manager.",
+                    object));
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        final int oldCapacity = objects.length;
+        objects = Arrays.copyOf(objects, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        rotationAngle = Arrays.copyOf(rotationAngle, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+        opacity = Arrays.copyOf(opacity, capacity);
+        animations = Arrays.copyOf(animations, capacity * TYPES.length);
+        runningCounts = Arrays.copyOf(runningCounts, capacity);
+        members = Arrays.copyOf(members, capacity);
+        memberOffsets = Arrays.copyOf(memberOffsets, capacity);
+        membersCounts = Arrays.copyOf(membersCounts, capacity);
+        memberSets = Arrays.copyOf(memberSets, capacity * TYPES.length);
+        Arrays.fill(memberSets, oldCapacity * TYPES.length,
+                capacity * TYPES.length, -1);
+        memberPositions
+                = Arrays.copyOf(memberPositions, capacity * TYPES.length);
+        active = Arrays.copyOf(active, capacity);
+        activePositions = Arrays.copyOf(activePositions, capacity);
+        Arrays.fill(activePositions, oldCapacity, capacity, -1);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -5,9 +5,6 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 
 import poppyfanboy.tetrisgame.states.GameState;
-import poppyfanboy.tetrisgame.graphics.animation2D.AcceleratedMoveAnimation;
-import poppyfanboy.tetrisgame.graphics.animation2D.Animated2D;
-import poppyfanboy.tetrisgame.graphics.animation2D.BlockBreakAnimation;
 import poppyfanboy.tetrisgame.graphics.Assets;
 import poppyfanboy.tetrisgame.util.IntVector;
 import poppyfanboy.tetrisgame.util.DoubleVector;
@@ -19,7 +16,8 @@ import static poppyfanboy.tetrisgame.util.DoubleVector.dVect;
 /**
  * Represents a single solid block on the game field.
  */
-public class Block extends Entity implements TileFieldObject, Animated2D {
+public class Block extends Entity
+        implements TileFieldObject, StoredAnimated2D {
     private GameState gameState;
 
     private IntVector tileCoords;
@@ -33,6 +31,12 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
     private double scale = 1.0;
     private double opacity = 1.0;
     private double brightness = 0.0;
+    // the coordinates of the group are added to the coordinates of the block
+    private BlockGroup group;
+    // the animated properties are kept in the store while the block is
+    // added to it
+    private AnimationStore store;
+    private int slot = -1;
 
     /**
      * Creates a block entity at the specified position on the game field.
@@ -62,19 +66,12 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
         tileCoords = newCoords;
     }
 
-    public void startDropAnimation() {
-        AcceleratedMoveAnimation animation = new AcceleratedMoveAnimation(
-                coords, tileCoords.toDouble(), 0.0);
-        gameState.getAnimationManager().addAnimation(this,
-                LockedBlockAnimationType.DROP, animation);
-    }
-
-    public void startBreakAnimation(int duration) {
-        BlockBreakAnimation animation
-                = new BlockBreakAnimation(rotationAngle, scale, duration);
-        gameState.getAnimationManager().addAnimation(this,
-                LockedBlockAnimationType.BREAK,
-                animation);
+    /**
+     * Puts the block into the group, or removes it from its group in case
+     * {@code null} is passed.
+     */
+    public void setGroup(BlockGroup group) {
+        this.group = group;
     }
 
     public void rotate(Rotation rotationDirection) {
@@ -104,9 +101,13 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
 
     @Override
     public Transform getLocalTransform() {
+        DoubleVector coords = getCoords();
+        if (group != null) {
+            coords = coords.add(group.getCoords());
+        }
         DoubleVector rotationPivot = coords.add(new DoubleVector(0.5, 0.5));
-        return new Transform(coords)
-                .combine(Transform.getRotation(rotationAngle, rotationPivot));
+        return new Transform(coords).combine(
+                Transform.getRotation(getRotationAngle(), rotationPivot));
     }
 
     @Override
@@ -127,6 +128,7 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
                 .normalize();
         double lightAngle = Math.atan2(lightVector.getY(), lightVector.getX());
 
+        final double scale = getScale();
         Graphics2D g = (Graphics2D) gOriginal.create();
         g.setTransform(getGlobalTransform().tScale(blockWidth).getTransform());
         Assets assets = gameState.getAssets();
@@ -138,7 +140,7 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
         double progress = (n * (Rotation.normalizeAngle(rotationAngle - lightAngle) + Math.PI) / (2 * Math.PI)) % 1;
 
         g.setComposite(AlphaComposite
-                .getInstance(AlphaComposite.SRC_OVER, (float) opacity));
+                .getInstance(AlphaComposite.SRC_OVER, (float) getOpacity()));
         if (scale == 1.0) {
             g.drawImage(sprite, 0, 0, null);
         } else {
@@ -188,33 +190,45 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
 
     @Override
     public void setCoords(DoubleVector newCoords) {
-        coords = newCoords;
+        if (store != null) {
+            store.setCoords(slot, newCoords);
+        } else {
+            coords = newCoords;
+        }
     }
 
     @Override
     public DoubleVector getCoords() {
-        return coords;
+        return store != null ? store.getCoords(slot) : coords;
     }
 
     @Override
     public void setRotationAngle(double newRotationAngle) {
-        rotationAngle = newRotationAngle;
+        if (store != null) {
+            store.setRotationAngle(slot, newRotationAngle);
+        } else {
+            rotationAngle = newRotationAngle;
+        }
     }
 
     @Override
     public double getRotationAngle() {
-        return rotationAngle;
+        return store != null ? store.getRotationAngle(slot) : rotationAngle;
     }
 
     @Override
     public void setOpacity(double newOpacity) {
         newOpacity =  Math.min(Math.max(newOpacity, 0), 1);
-        opacity = newOpacity;
+        if (store != null) {
+            store.setOpacity(slot, newOpacity);
+        } else {
+            opacity = newOpacity;
+        }
     }
 
     @Override
     public double getOpacity() {
-        return opacity;
+        return store != null ? store.getOpacity(slot) : opacity;
     }
 
     @Override
@@ -230,12 +244,41 @@ public class Block extends Entity implements TileFieldObject, Animated2D {
                     "The scale value must be non-negative."
                             + " Got: newScale = %f.", newScale));
         }
-        scale = newScale;
+        if (store != null) {
+            store.setScale(slot, newScale);
+        } else {
+            scale = newScale;
+        }
     }
 
     @Override
     public double getScale() {
-        return scale;
+        return store != null ? store.getScale(slot) : scale;
+    }
+
+    @Override
+    public void attach(AnimationStore store, int slot) {
+        store.setCoords(slot, coords);
+        store.setRotationAngle(slot, rotationAngle);
+        store.setScale(slot, scale);
+        store.setOpacity(slot, opacity);
+        this.store = store;
+        this.slot = slot;
+    }
+
+    @Override
+    public void detach() {
+        coords = store.getCoords(slot);
+        rotationAngle = store.getRotationAngle(slot);
+        scale = store.getScale(slot);
+        opacity = store.getOpacity(slot);
+        store = null;
+        slot = -1;
+    }
+
+    @Override
+    public int getSlot() {
+        return slot;
     }
 
     @Override
@@ -0,0 +1,118 @@
+package poppyfanboy.tetrisgame.entities;
+
+import poppyfanboy.tetrisgame.util.DoubleVector;
+
+/**
+ * A group of blocks that are animated as a whole. The coordinates of the
+ * group are added to the coordinates of each of its blocks, so a single
+ * animation of the group moves all of the blocks at once, no matter how
+ * many of them there are.
+ *
+ * Only the coordinates of the group affect its blocks, the rest of the
+ * properties are just stored.
+ */
+public class BlockGroup implements StoredAnimated2D {
+    private DoubleVector coords = new DoubleVector(0, 0);
+    private double rotationAngle = 0;
+    private double scale = 1.0;
+    private double opacity = 1.0;
+    // the properties are kept in the store while the group is added to it
+    private AnimationStore store;
+    private int slot = -1;
+
+    @Override
+    public void setCoords(DoubleVector newCoords) {
+        if (store != null) {
+            store.setCoords(slot, newCoords);
+        } else {
+            coords = newCoords;
+        }
+    }
+
+    @Override
+    public DoubleVector getCoords() {
+        return store != null ? store.getCoords(slot) : coords;
+    }
+
+    @Override
+    public void setRotationAngle(double newRotationAngle) {
+        if (store != null) {
+            store.setRotationAngle(slot, newRotationAngle);
+        } else {
+            rotationAngle = newRotationAngle;
+        }
+    }
+
+    @Override
+    public double getRotationAngle() {
+        return store != null ? store.getRotationAngle(slot) : rotationAngle;
+    }
+
+    @Override
+    public void setScale(double newScale) {
+        if (newScale < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "The scale value must be non-negative."
+                            + " Got: newScale = %f.", newScale));
+        }
+        if (store != null) {
+            store.setScale(slot, newScale);
+        } else {
+            scale = newScale;
+        }
+    }
+
+    @Override
+    public double getScale() {
+        return store != null ? store.getScale(slot) : scale;
+    }
+
+    @Override
+    public void setOpacity(double newOpacity) {
+        newOpacity = Math.min(Math.max(newOpacity, 0), 1);
+        if (store != null) {
+            store.setOpacity(slot, newOpacity);
+        } else {
+            opacity = newOpacity;
+        }
+    }
+
+    @Override
+    public double getOpacity() {
+        return store != null ? store.getOpacity(slot) : opacity;
+    }
+
+    @Override
+    public void setBrightness(double newBrightness) {
+    }
+
+    @Override
+    public void attach(AnimationStore store, int slot) {
+        store.setCoords(slot, coords);
+        store.setRotationAngle(slot, rotationAngle);
+        store.setScale(slot, scale);
+        store.setOpacity(slot, opacity);
+        this.store = store;
+        this.slot = slot;
+    }
+
+    @Override
+    public void detach() {
+        coords = store.getCoords(slot);
+        rotationAngle = store.getRotationAngle(slot);
+        scale = store.getScale(slot);
+        opacity = store.getOpacity(slot);
+        store = null;
+        slot = -1;
+    }
+
+    @Override
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[ block group, coords: %s ]", getCoords());
+    }
+}
@@ -0,0 +1,139 @@
+package poppyfanboy.tetrisgame.entities;
+
+import poppyfanboy.tetrisgame.util.DoubleVector;
+
+/**
+ * A set of the locked blocks that share a single animation of some type
+ * (for example, all of the blocks of a filled row share a break animation).
+ * The set is animated instead of its blocks, and the animated properties of
+ * the set are copied to all of its blocks as they change, so the animation
+ * is evaluated once per frame no matter how many blocks there are.
+ *
+ * The blocks keep their offsets from the coordinates of the set, the rest
+ * of the properties are copied as they are. Unlike the {@link BlockGroup},
+ * the set overwrites the properties of its blocks, so a block can only be
+ * in a single set of each animation type at once (see
+ * {@link AnimationManager#addBlockSet}).
+ */
+public class BlockSet implements StoredAnimated2D {
+    private final LockedBlockAnimationType animationType;
+
+    private DoubleVector coords;
+    private double rotationAngle = 0;
+    private double scale = 1.0;
+    private double opacity = 1.0;
+    // the properties are kept in the store while the set is added to it
+    private AnimationStore store;
+    private int slot = -1;
+
+    /**
+     * @param   animationType the type of the animations of the blocks that
+     *          the animations of the set stand for.
+     */
+    public BlockSet(LockedBlockAnimationType animationType,
+            DoubleVector coords) {
+        this.animationType = animationType;
+        this.coords = coords;
+    }
+
+    public LockedBlockAnimationType getAnimationType() {
+        return animationType;
+    }
+
+    @Override
+    public void setCoords(DoubleVector newCoords) {
+        if (store != null) {
+            store.setCoords(slot, newCoords);
+        } else {
+            coords = newCoords;
+        }
+    }
+
+    @Override
+    public DoubleVector getCoords() {
+        return store != null ? store.getCoords(slot) : coords;
+    }
+
+    @Override
+    public void setRotationAngle(double newRotationAngle) {
+        if (store != null) {
+            store.setRotationAngle(slot, newRotationAngle);
+        } else {
+            rotationAngle = newRotationAngle;
+        }
+    }
+
+    @Override
+    public double getRotationAngle() {
+        return store != null ? store.getRotationAngle(slot) : rotationAngle;
+    }
+
+    @Override
+    public void setScale(double newScale) {
+        if (newScale < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "The scale value must be non-negative."
+                            + " Got: newScale = %f.", newScale));
+        }
+        if (store != null) {
+            store.setScale(slot, newScale);
+        } else {
+            scale = newScale;
+        }
+    }
+
+    @Override
+    public double getScale() {
+        return store != null ? store.getScale(slot) : scale;
+    }
+
+    @Override
+    public void setOpacity(double newOpacity) {
+        newOpacity = Math.min(Math.max(newOpacity, 0), 1);
+        if (store != null) {
+            store.setOpacity(slot, newOpacity);
+        } else {
+            opacity = newOpacity;
+        }
+    }
+
+    @Override
+    public double getOpacity() {
+        return store != null ? store.getOpacity(slot) : opacity;
+    }
+
+    @Override
+    public void setBrightness(double newBrightness) {
+    }
+
+    @Override
+    public void attach(AnimationStore store, int slot) {
+        store.setCoords(slot, coords);
+        store.setRotationAngle(slot, rotationAngle);
+        store.setScale(slot, scale);
+        store.setOpacity(slot, opacity);
+        this.store = store;
+        this.slot = slot;
+    }
+
+    @Override
+    public void detach() {
+        coords = store.getCoords(slot);
+        rotationAngle = store.getRotationAngle(slot);
+        scale = store.getScale(slot);
+        opacity = store.getOpacity(slot);
+        store = null;
+        slot = -1;
+    }
+
+    @Override
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[ block set, %s animation, coords: %s ]",
+                animationType, getCoords());
+    }
+}
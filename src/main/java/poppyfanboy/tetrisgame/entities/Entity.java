@@ -76,6 +76,21 @@ public abstract class Entity {
         return new Transform();
     }
 
+    /**
+     * Same as the {@link Entity#getAdditionalTransform(Entity)}, but for
+     * the child entity whose convex hull (in the coordinates of this
+     * entity) is the specified one. This is meant for the child entities
+     * that are not yet where the hull is, e.g. for the sampled poses of
+     * the animated ones.
+     *
+     * Ignores the hull and returns the transform for the child entity as
+     * it is by default.
+     */
+    public Transform getAdditionalTransform(Entity childEntity,
+            DoubleVector[] childConvexHull) {
+        return getAdditionalTransform(childEntity);
+    }
+
     /**
      * In case this method returns {@code true} an additional transform
      * is attempted to be applied when the
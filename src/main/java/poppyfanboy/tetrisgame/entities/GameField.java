@@ -1,13 +1,21 @@
 package poppyfanboy.tetrisgame.entities;
 
 import java.awt.Graphics2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.function.DoubleUnaryOperator;
 
-import poppyfanboy.tetrisgame.Game;
-import poppyfanboy.tetrisgame.graphics.BlankAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.AcceleratedMoveAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.BlockBreakAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.MoveAnimation;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.logic.TimingTable;
+import poppyfanboy.tetrisgame.logic.randomizers.BagRandomizer;
 import poppyfanboy.tetrisgame.states.GameState;
+import poppyfanboy.tetrisgame.states.Resolution;
 
 import poppyfanboy.tetrisgame.graphics.Assets;
 import poppyfanboy.tetrisgame.entities.shapetypes.*;
@@ -15,32 +23,29 @@ import poppyfanboy.tetrisgame.input.*;
 import poppyfanboy.tetrisgame.util.*;
 
 import static java.lang.Math.abs;
-import static poppyfanboy.tetrisgame.entities.GameField.GameFieldState.*;
+import static poppyfanboy.tetrisgame.logic.GameFieldState.*;
+import static poppyfanboy.tetrisgame.util.DoubleVector.dVect;
 import static poppyfanboy.tetrisgame.util.IntVector.iVect;
 
 /**
  * A game field entity. Wraps several block entities and a single shape
  * entity that can be moved and rotated.
  *
- * Score is calculated based on this bonuses rules:
- *  - 1 line cleared => 1 point
- *  - 2 lines cleared => 3 points
- *  - 3 lines cleared => 5 points
- *  - 4 lines cleared (a tetris) => 8 points
- *  - 1 line cleared with a T-spin => 3 points
- *  - 2 lines cleared with a T-spin => 7 points
- *  - 3 lines cleared with a T-spin => 6 points
- *  - second "difficult" (T-spin or tetris) lines clear in a row(B2B)
- *          => 12 points
+ * The rules of the game are implemented by the {@link GameLogic} object,
+ * the game field passes the ticks and the player inputs to it and
+ * animates the changes the game logic notifies it about.
  */
 public class GameField extends Entity implements TileField, Controllable {
     public static final int DEFAULT_WIDTH = 10, DEFAULT_HEIGHT = 20;
     public static final double GHOST_SHAPE_OPACITY = 0.4;
+    // number of the rows around the visible area whose locked blocks are
+    // rendered as well: the blocks that drop after the rows beneath them
+    // have been removed are drawn a few rows away from their tiles
+    private static final int CULLING_MARGIN = 8;
 
     private GameState gameState;
     private AnimationManager animationManager;
     private NextShapeDisplay nextShapeDisplay;
-    private EnumMap<InputKey, KeyState> lastInputs;
 
     // graphics
     private Entity parentEntity;
@@ -48,623 +53,360 @@ public class GameField extends Entity implements TileField, Controllable {
     private double rotationAngle;
 
     // game logic
-    private GameFieldState state = STOPPED;
-    private Queue<GameFieldState> statesQueue = new StatesQueue();
+    private final GameLogic gameLogic;
 
     private int widthInBlocks, heightInBlocks;
     private Shape activeShape, ghostShape;
-    private ShapeType nextShapeType;
-    private RandomBag<?> randomBag;
     // blocks that were locked at the game field after some of the shapes
-    // fell onto the bottom of the game field
-    private NavigableMap<IntVector, Block> lockedBlocks
-            = new TreeMap<>(IntVector.Y_ORDER);
-
-    private final Random random;
-    private Score score = new Score();
-    // used when scoring the T-spins
-    private boolean lastMovementIsRotation;
-
-    // current timings (updated as the player score is going up)
-    private int softDropDuration = score.getSoftDropDuration();
-    private int forcedDropDuration = score.getForcedDropDuration();
-    private int userControlDuration = score.getUserControlDuration();
-    private int hardDropDuration = score.getHardDropDuration();
-    private int blockBreakDuration = score.getBlockBreakDuration();
-    private int lockDelayDuration = score.getLockDelayDuration();
-
-    // these collections are made unmodifiable
-    // blocks that are being broken when the filled lines are removed
-    private List<Block> brokenBlocks = Collections.emptyList();
-    // blocks above the removed filled lines that are dropped down after the
-    // animation of removing the filled lines is finished
-    private List<Block> droppedBlocks = Collections.emptyList();
-    // coordinates of these blocks before they were dropped down
-    private List<IntVector> droppedBlocksOldKeys = Collections.emptyList();
-
-    public enum GameFieldState {
-        STOPPED, CLEARING_GAMEFIELD, PAUSED,
-        SHAPE_SOFT_DROP, SHAPE_FORCED_DROP, SHAPE_WALL_KICKED, SHAPE_HARD_DROP,
-        SHAPE_FELL, SHAPE_LOCKED,
-        CLEARING_FILLED_LINES, DROPPING_BLOCKS,
-        SHAPE_SPAWN_READY;
-
-        // states in which the player can still control the active shape
-        private static final EnumSet<GameFieldState> SHAPE_CONTROLLABLE
-                = EnumSet.of(SHAPE_SOFT_DROP, SHAPE_FORCED_DROP, SHAPE_FELL);
-
-        private static final EnumMap<GameFieldState, EnumSet<GameFieldState>>
-                possibleTransitions;
-
-        static {
-            possibleTransitions = new EnumMap<>(GameFieldState.class);
-            possibleTransitions.put(STOPPED, EnumSet.of(SHAPE_SPAWN_READY));
-            possibleTransitions
-                    .put(PAUSED, EnumSet.allOf(GameFieldState.class));
-            possibleTransitions.put(SHAPE_SOFT_DROP, EnumSet.of(
-                    SHAPE_SOFT_DROP, SHAPE_HARD_DROP, SHAPE_FORCED_DROP,
-                    SHAPE_FELL));
-            possibleTransitions.put(SHAPE_FORCED_DROP, EnumSet.of(
-                    SHAPE_SOFT_DROP, SHAPE_HARD_DROP, SHAPE_FORCED_DROP,
-                    SHAPE_FELL));
-            possibleTransitions.put(SHAPE_WALL_KICKED, EnumSet.of(
-                    SHAPE_SOFT_DROP, SHAPE_HARD_DROP, SHAPE_FORCED_DROP,
-                    SHAPE_FELL));
-            possibleTransitions.put(SHAPE_HARD_DROP, EnumSet.of(SHAPE_LOCKED));
-            possibleTransitions.put(SHAPE_FELL,
-                    EnumSet.of(SHAPE_LOCKED, SHAPE_SOFT_DROP,
-                    SHAPE_FORCED_DROP, SHAPE_HARD_DROP, SHAPE_WALL_KICKED,
-                    SHAPE_FELL));
-            possibleTransitions.put(SHAPE_LOCKED,
-                    EnumSet.of(CLEARING_FILLED_LINES, SHAPE_SPAWN_READY));
-            possibleTransitions.put(CLEARING_FILLED_LINES,
-                    EnumSet.of(DROPPING_BLOCKS, SHAPE_SPAWN_READY));
-            possibleTransitions.put(DROPPING_BLOCKS,
-                    EnumSet.of(SHAPE_SPAWN_READY));
-            possibleTransitions.put(SHAPE_SPAWN_READY, SHAPE_CONTROLLABLE);
-        }
-
-        public boolean shapeFalling() {
-            return this == SHAPE_SOFT_DROP || this == SHAPE_FORCED_DROP
-                    || this == SHAPE_HARD_DROP || this == SHAPE_SPAWN_READY;
-        }
-
-        public boolean shapeControllable() {
-            return SHAPE_CONTROLLABLE.contains(this);
-        }
-
-        public boolean transitionPossible(GameFieldState other) {
-            return possibleTransitions.get(this).contains(other);
-        }
-    }
-
-    private class Score {
-        private static final int GOAL_COEFF = 5;
-        private static final int SCORE_COEFF = 100;
-        private static final int LOCK_DELAY_COEFF = 3;
-
-        List<ScoreSubscriber> subscriptions = new ArrayList<>();
-        // default values
-        int score = 0, lines = 0, level = 1;
-        int combo = 0;
-
-        private int currentGoal = GOAL_COEFF * level * SCORE_COEFF;
-
-        void subscribe(ScoreSubscriber subscriber) {
-            subscriptions.add(subscriber);
-            subscriber.updateScore(score, lines, level);
-        }
-
-        void unsubscribe(ScoreSubscriber subscriber) {
-            subscriptions.remove(subscriber);
-        }
-
-        void reset() {
-            score = 0;
-            lines = 0;
-            level = 1;
-            combo = 0;
-            currentGoal = GOAL_COEFF * level * SCORE_COEFF;
-            for (ScoreSubscriber sub : subscriptions) {
-                sub.updateScore(score, lines, level);
-            }
-            updateTimings();
-        }
-
-        void resetCombo() {
-            combo = 0;
-        }
-
-        void update(int linesCleared) {
-            if (linesCleared != 0) {
-                calculateScore(linesCleared);
-                for (ScoreSubscriber sub : subscriptions) {
-                    sub.updateScore(score, lines, level);
-                }
-                updateTimings();
-            }
-        }
-
-        void updateTimings() {
-            softDropDuration = getSoftDropDuration();
-            forcedDropDuration = getForcedDropDuration();
-            userControlDuration = getUserControlDuration();
-            hardDropDuration = getHardDropDuration();
-            blockBreakDuration = getBlockBreakDuration();
-            lockDelayDuration = getLockDelayDuration();
-            gameState.getKeyManager()
-                    .setAutofireRate(userControlDuration / 4);
-        }
-
-        private void calculateScore(int linesCleared) {
-            // update score/lines/level
-            lines += linesCleared;
-            boolean isTSpin = false;
-
-            if (activeShape.getShapeType() == TetrisShapeType.T_SHAPE
-                    && lastMovementIsRotation) {
-                IntVector centerBlockCoords
-                        = activeShape.getTileCoords().add(2, 2);
-                IntVector[] diagonals = new IntVector[4];
-                for (int i = 0; i < 2; i++) {
-                    for (int j = 0; j < 2; j++) {
-                        diagonals[i + j * 2]
-                                = centerBlockCoords.add(2 * i - 1, 2 * j - 1);
-                    }
-                }
-                int collisionsCount = 0;
-                for (IntVector coords : diagonals) {
-                    if (!GameField.this.rangeCheck(coords)
-                            || lockedBlocks.containsKey(coords)
-                            && !activeShape.checkCollision(coords)) {
-                        collisionsCount++;
-                    }
-                }
-                if (collisionsCount >= 3) {
-                    isTSpin = true;
-                }
-            }
-
-            // update combo counter
-            if (isTSpin || linesCleared == 4) {
-                combo += 1;
-            } else {
-                combo = 0;
-            }
-
-            int scoreAdded = 0;
-            if (linesCleared != 0) {
-                if (isTSpin) {
-                    if (linesCleared < 3) {
-                        scoreAdded += 4 * linesCleared - 1;
-                    } else {
-                        scoreAdded += 6;
-                    }
-                } else {
-                    if (linesCleared < 4) {
-                        scoreAdded += 2 * linesCleared - 1;
-                    } else {
-                        scoreAdded += 2 * linesCleared;
-                    }
-                }
-                if (combo >= 2) {
-                    scoreAdded = 12;
-                }
-            }
-            score += scoreAdded * SCORE_COEFF;
-            while (score >= currentGoal) {
-                level++;
-                currentGoal = currentGoal + GOAL_COEFF * level * SCORE_COEFF;
-            }
-        }
-
-        public int getSoftDropDuration() {
-            return (int) (Math.pow((0.8 - (level - 1) * 0.007),
-                    level - 1) * Game.TICKS_PER_SECOND);
-        }
-
-        public int getForcedDropDuration() {
-            return (int) Math.min(0.06 * Game.TICKS_PER_SECOND,
-                    getSoftDropDuration() / 4.0);
-        }
-
-        public int getUserControlDuration() {
-            return (int) Math.min(0.25 * Game.TICKS_PER_SECOND,
-                    getSoftDropDuration() / 1.5);
-        }
-
-        public int getHardDropDuration() {
-            return (int) Math.min(0.25 * Game.TICKS_PER_SECOND,
-                    getSoftDropDuration() / 10.0);
-        }
-
-        public int getBlockBreakDuration() {
-            return (int) Math.min(0.25 * Game.TICKS_PER_SECOND,
-                    getSoftDropDuration());
-        }
-
-        public int getLockDelayDuration() {
-            return getUserControlDuration();
-        }
-    }
-
-    @FunctionalInterface
-    public interface ScoreSubscriber {
-        void updateScore(int score, int lines, int level);
-    }
+    // fell onto the bottom of the game field; they are only used for
+    // rendering, the collision checks are done by the game logic
+    private final ChunkedGrid<Block> lockedBlocks;
+    // all of the locked blocks belong to this group, so that they could be
+    // moved up at once when the garbage rows are inserted
+    private final BlockGroup lockedBlocksGroup = new BlockGroup();
 
-    private class RandomBag<E extends Enum<?>> {
-        private final Class<E> enumType;
+    // the locked blocks are falling off the game field as it is cleared
+    private boolean clearing;
 
-        // by default the bag is empty
-        List<ShapeType> items = new LinkedList<>();
-
-        RandomBag(Class<E> enumType) {
-            this.enumType = enumType;
-        }
-
-        public void refill() {
-            items.clear();
-            for (E enumConst : enumType.getEnumConstants()) {
-                items.add((ShapeType) enumConst);
-            }
-        }
-
-        public void clear() {
-            items.clear();
-        }
-
-        public ShapeType poll() {
-            if (items.size() == 0) {
-                refill();
-            }
-            return items.remove(random.nextInt(items.size()));
-        }
-    }
+    // blocks that are being broken when the filled lines are removed
+    // (this collection is made unmodifiable)
+    private List<Block> brokenBlocks = Collections.emptyList();
+    // the blocks of the row that is dropped and their heights, the blocks
+    // are grouped by their heights in these buffers
+    private final Block[] dropBlocks;
+    private final double[] dropHeights;
 
     /**
      * Creates an empty instance of a game field.
      *
      * @param   coords coordinates of the game field relative to the
      *          parent entity.
+     * @param   shapeTypes shapes the game is played with, they are dealt
+     *          from a bag with a single copy of each of them.
      */
     public GameField(GameState gameState, DoubleVector coords,
             int widthInBlocks, int heightInBlocks, Entity parentEntity,
-            Random random) {
+            long seed, ShapeType[] shapeTypes) {
         this.gameState = gameState;
         this.widthInBlocks = widthInBlocks;
         this.heightInBlocks = heightInBlocks;
         this.parentEntity = parentEntity;
-        this.random = random;
 
         this.coords = coords;
         this.rotationAngle = 0;
 
+        lockedBlocks = new ChunkedGrid<>(widthInBlocks, heightInBlocks);
+        dropBlocks = new Block[widthInBlocks];
+        dropHeights = new double[widthInBlocks];
+
         animationManager = gameState.getAnimationManager();
-        randomBag = new RandomBag<>(TetrisShapeType.class);
-        nextShapeType = randomBag.poll();
+        animationManager.addBlockGroup(lockedBlocksGroup);
+        gameLogic = new GameLogic(widthInBlocks, heightInBlocks, seed,
+                new BagRandomizer(shapeTypes), 1);
+        gameLogic.addListener(new GameLogicAnimator());
+        gameLogic.getScore().subscribe((score, lines, level) ->
+                gameState.getKeyManager().setAutofireRate(
+                        gameLogic.getTimings().get(
+                                TimingTable.Timing.AUTOFIRE, level)));
     }
 
     /**
      * Creates a game field with no parent entity.
      */
     public GameField(GameState gameState, DoubleVector coords,
-            int widthInBlocks, int heightInBlocks, Random random) {
-        this(gameState, coords, widthInBlocks, heightInBlocks, null, random);
+            int widthInBlocks, int heightInBlocks, long seed,
+            ShapeType[] shapeTypes) {
+        this(gameState, coords, widthInBlocks, heightInBlocks, null, seed,
+                shapeTypes);
     }
 
     public void start() {
-        score.reset();
-        statesQueue.offer(SHAPE_SPAWN_READY);
+        gameLogic.start();
+    }
+
+    public GameLogic getGameLogic() {
+        return gameLogic;
     }
 
     /**
-     * Changes the state of the game and performs some additional operations
-     * if needed (e.g. when the state is changed to the
-     * {@code SHAPE_SPAWN_READY}, the code that spawns a new shape runs).
+     * Sends the garbage rows with the hole in the specified column to the
+     * game field. The rows are inserted at the bottom of the game field
+     * before the next shape spawns, all of the garbage received by then
+     * is inserted at once.
      *
-     * This method relies on the correctness of the calling code, it will
-     * allow any transitions between the states of the game regardless of
-     * if they are even possible.
+     * @throws  IllegalArgumentException in case the count is negative or
+     *          the hole column is out of the game field bounds.
      */
-    private void changeState(GameFieldState newState) {
-        state = newState;
-
-        switch (newState) {
-            case SHAPE_SPAWN_READY:
-                droppedBlocks = Collections.emptyList();
-                droppedBlocksOldKeys = Collections.emptyList();
-
-                if (spawnNewActiveShape()) {
-                    statesQueue.offer(SHAPE_SOFT_DROP);
-                } else {
-                    statesQueue.offer(STOPPED);
-                    nextShapeDisplay.gameOverDisplay();
-                    nextShapeDisplay.startTransitionAnimation();
-                }
-                break;
-
-            case SHAPE_SOFT_DROP:
-            case SHAPE_FORCED_DROP:
-                state = SHAPE_SOFT_DROP;
-                if (lastInputs != null
-                        && lastInputs.containsKey(InputKey.ARROW_DOWN)
-                        && lastInputs.get(InputKey.ARROW_DOWN).isActive()) {
-                    state = SHAPE_FORCED_DROP;
-                }
-
-                if (Shape.fits(activeShape, activeShape.getShapeType(),
-                        activeShape.getTileCoords().add(iVect(0, 1)),
-                        activeShape.getRotation(), this)) {
-
-                    final int frameSize
-                            = activeShape.getShapeType().getFrameSize();
-                    // needed for collision detection
-                    Collection<Block> neighborBlocks = activeShape == null
-                            ? Collections.emptyList()
-                            : lockedBlocks.subMap(
-                            activeShape.getTileCoords().add(-2, -2), true,
-                            activeShape.getTileCoords()
-                                    .add(frameSize + 2, frameSize + 2), true
-                    ).values();
-
-                    activeShape.tileShift(iVect(0, 1));
-                    int duration = state == SHAPE_FORCED_DROP
-                            ? forcedDropDuration
-                            : softDropDuration;
-                    activeShape.startDropAnimation(duration,
-                        reason -> {
-                            if (reason.finished())
-                                statesQueue.offer(state);
-                        }, neighborBlocks, state == SHAPE_SOFT_DROP);
-
-                    // make the ghost shape invisible once it gets too close
-                    if (Math.abs(activeShape.getTileCoords().getY()
-                                - ghostShape.getTileCoords().getY())
-                            < frameSize) {
-                        ghostShape.startOpacityAnimation(0,
-                                userControlDuration);
-                    }
-                    lastMovementIsRotation = false;
-                } else {
-                    statesQueue.offer(SHAPE_FELL);
-                }
-                break;
-
-            case SHAPE_FELL:
-                animationManager.addAnimation(activeShape,
-                        ActiveShapeAnimationType.LOCK_DELAY,
-                        new BlankAnimation<>(lockDelayDuration),
-                        reason -> {
-                            if (!reason.interrupted()) {
-                                statesQueue.offer(SHAPE_LOCKED);
-                            }
-                        });
-                break;
-
-            case SHAPE_LOCKED:
-                if (exitLockDelayIfFits()) {
-                    break;
-                }
-                // wait until all of the animations are gone
-                for (ActiveShapeAnimationType animationType
-                        : ActiveShapeAnimationType.values()) {
-                    if (animationManager.getAnimation(
-                            activeShape, animationType) != null) {
-                        animationManager.addAnimationCallback(activeShape,
-                                animationType,
-                                reason -> statesQueue.offer(SHAPE_LOCKED));
-                        return;
-                    }
-                }
-                statesQueue.offer(CLEARING_FILLED_LINES);
-                break;
-
-            case CLEARING_FILLED_LINES:
-                final int startY = activeShape.getTileCoords().getY();
-                // lock the active shape
-                for (Block block : activeShape.getBlocks(this)) {
-                    lockedBlocks.put(block.getTileCoords(), block);
-                    animationManager.addLockedBlock(block);
-                }
-                animationManager.removeActiveShape(activeShape);
-                animationManager.removeActiveShape(ghostShape);
-                score.update(removeFilledRows(startY, startY + 3));
-                activeShape = null;
-                ghostShape = null;
-
-                for (Block block : brokenBlocks) {
-                    block.startBreakAnimation(blockBreakDuration);
-                }
-                if (!brokenBlocks.isEmpty()) {
-                    // add callback only for one block, since all blocks take
-                    // the same time to disappear
-                    animationManager.addAnimationCallback(brokenBlocks.get(0),
-                            LockedBlockAnimationType.BREAK,
-                            reason -> statesQueue.offer(DROPPING_BLOCKS));
-                }
-                if (brokenBlocks.isEmpty()) {
-                    statesQueue.offer(SHAPE_SPAWN_READY);
-                }
-                break;
-
-            case DROPPING_BLOCKS:
-                for (Block block : brokenBlocks) {
-                    lockedBlocks.remove(block.getTileCoords());
-                    animationManager.removeLockedBlock(block);
-                }
-                brokenBlocks = Collections.emptyList();
-
-                for (Block block : droppedBlocks) {
-                    block.startDropAnimation();
-                }
-                if (!droppedBlocks.isEmpty()) {
-                    // add callback only for the highest block, since it will
-                    // take the longest time to drop down among all other blocks
-                    animationManager.addAnimationCallback(droppedBlocks.get(0),
-                            LockedBlockAnimationType.DROP,
-                            reason -> statesQueue.offer(SHAPE_SPAWN_READY));
-                }
-                for (int i = droppedBlocksOldKeys.size() - 1; i >= 0; i--) {
-                    Block block = droppedBlocks.get(i);
-                    lockedBlocks.remove(droppedBlocksOldKeys.get(i));
-                    lockedBlocks.put(block.getTileCoords(), block);
-                }
-                if (droppedBlocks.isEmpty()) {
-                    statesQueue.offer(SHAPE_SPAWN_READY);
-                }
-                break;
-        }
+    public void addGarbage(int count, int holeColumn) {
+        gameLogic.addGarbage(count, holeColumn);
     }
 
     /**
-     * Tries to spawn a new active shape (of a random color and type) at the top
-     * of the game field. In case it successes it also adds the newly spawned
-     * active shape to the animation manager.
-     *
-     * Returns {@code false} in case it fails to do so (either it is spawned
-     * so that it overlaps some of the fallen blocks, or it is spawned
-     * completely out of player sight).
-     *
-     * (Spawn locations should probably be defined in the shape types
-     * themselves, but for now they are just hard-coded into the game field
-     * object.)
+     * Creates the locked blocks and the active shape out of the state of
+     * the game logic and updates the next shape display. This is meant
+     * for the game logic whose state has been replaced without the game
+     * field being notified (e.g. it has been loaded from a save slot), so
+     * it must be called before the first tick of the game field. The
+     * blocks of the filled rows start breaking right away.
      */
-    private boolean spawnNewActiveShape() {
-        ShapeType shapeType = nextShapeType;
-        nextShapeType = randomBag.poll();
-        BlockColor color
-                = Util.getRandomInstance(random, BlockColor.class);
-        BlockColor[] blockColors
-                = Shape.generateColorsArray(shapeType, color);
-
-        int shapeWidth = shapeType.getPreciseAABBMax().getX()
-                - shapeType.getPreciseAABBMin().getX() + 1;
-        IntVector spawnCoords = new IntVector(
-                (int) Math.ceil((widthInBlocks - shapeWidth - 1) / 2.0)
-                    - (shapeType.getFrameSize() - shapeWidth),
-                1 - shapeType.getPreciseAABBMin().getY());
-
-        if (!Shape.fits(shapeType, spawnCoords, Rotation.INITIAL, this)) {
-            return false;
+    public void rebuildEntities() {
+        for (int y = 0; y < heightInBlocks; y++) {
+            if (gameLogic.getRowBlocksCount(y) == 0) {
+                continue;
+            }
+            for (int x = 0; x < widthInBlocks; x++) {
+                final BlockColor color = gameLogic.getBlockColor(x, y);
+                if (color == null) {
+                    continue;
+                }
+                Block block = new Block(gameState, iVect(x, y),
+                        dVect(x + 0.5, y + 0.5), color, this, dVect(x, y));
+                lockBlock(block);
+                animationManager.addLockedBlock(block);
+            }
         }
-        activeShape = new Shape(gameState, shapeType, Rotation.INITIAL,
-                spawnCoords, blockColors, this);
-        animationManager.addActiveShape(activeShape);
-        activeShape.setOpacity(0);
-        activeShape.startOpacityAnimation(1, userControlDuration);
-
-        IntVector ghostShapeCoords
-                = Shape.getGhostShapeCoords(activeShape, this);
-        ghostShape = new Shape(gameState, shapeType, Rotation.INITIAL,
-                ghostShapeCoords, blockColors, this);
-        animationManager.addActiveShape(ghostShape);
-
-        int frameSize = activeShape.getShapeType().getFrameSize();
-        if (Math.abs(activeShape.getTileCoords().getY()
-                    - ghostShapeCoords.getY()) < 3 * frameSize / 2) {
-            ghostShape.setOpacity(0);
-        } else {
-            ghostShape.setOpacity(0);
-            ghostShape.startOpacityAnimation(GHOST_SHAPE_OPACITY,
-                    userControlDuration);
+        // the filled rows are only kept until they are removed
+        List<Block> brokenBlocks = new ArrayList<>();
+        for (int y = 0; y < heightInBlocks; y++) {
+            if (gameLogic.getRowBlocksCount(y) == widthInBlocks) {
+                brokenBlocks.addAll(getLockedBlocks(y, y));
+                startBreakAnimation(getLockedBlocks(y, y));
+            }
+        }
+        this.brokenBlocks = Collections.unmodifiableList(brokenBlocks);
+
+        final ShapeType shapeType = gameLogic.getActiveShapeType();
+        if (shapeType != null) {
+            BlockColor[] blockColors = Shape.generateColorsArray(shapeType,
+                    gameLogic.getActiveShapeColor());
+            activeShape = new Shape(gameState, shapeType,
+                    gameLogic.getActiveShapeRotation(),
+                    gameLogic.getActiveShapeCoords(), blockColors, this);
+            animationManager.addActiveShape(activeShape);
+            ghostShape = new Shape(gameState, shapeType,
+                    gameLogic.getActiveShapeRotation(),
+                    gameLogic.getGhostShapeCoords(), blockColors, this);
+            animationManager.addActiveShape(ghostShape);
+            if (Math.abs(activeShape.getTileCoords().getY()
+                        - ghostShape.getTileCoords().getY())
+                    < shapeType.getFrameSize()) {
+                ghostShape.setOpacity(0);
+            } else {
+                ghostShape.setOpacity(GHOST_SHAPE_OPACITY);
+            }
         }
-
-        lastMovementIsRotation = false;
-        score.resetCombo();
 
         if (nextShapeDisplay != null) {
-            nextShapeDisplay.setNextShape(nextShapeType);
+            if (gameLogic.getState() == STOPPED) {
+                nextShapeDisplay.gameOverDisplay();
+            } else {
+                nextShapeDisplay.setNextShape(gameLogic.getNextShapeType());
+            }
             nextShapeDisplay.startTransitionAnimation();
         }
-        return true;
+    }
+
+    private void lockBlock(Block block) {
+        final int x = block.getTileCoords().getX();
+        final int y = block.getTileCoords().getY();
+        lockedBlocks.set(x, y, block);
+        block.setGroup(lockedBlocksGroup);
     }
 
     /**
-     * There is no need in checking the whole set of the blocks, since
-     * when the shape falls it can make at most 4 filled rows, so
-     * we can restrict the searching area to 4 specific rows
-     * (from startY to endY, boundaries included).
-     *
-     * This method also updates the score, number of cleared lines and the
-     * level of the game.
+     * Breaks the blocks with a single animation (the blocks are expected to
+     * be the blocks of a filled row).
+     */
+    private void startBreakAnimation(Collection<Block> blocks) {
+        final BlockSet blockSet
+                = new BlockSet(LockedBlockAnimationType.BREAK, dVect(0, 0));
+        animationManager.addBlockSet(blockSet, blocks);
+        animationManager.addAnimation(blockSet,
+                animationManager.obtain(BlockBreakAnimation.class).reset(
+                        blockSet.getRotationAngle(), blockSet.getScale(),
+                        gameLogic.getBlockBreakDuration()),
+                reason -> animationManager.removeBlockSet(blockSet));
+    }
+
+    /**
+     * Drops the blocks of a row, the blocks that are at the same height
+     * share a single animation. (Usually all of them are, but some of them
+     * might still be dropping after the previous rows removal.)
      *
-     * @return  number of lines cleared.
+     * @param   endY maps the current vertical coordinate of the blocks to
+     *          the one they are dropped to.
      */
-    private int removeFilledRows(int startY, int endY) {
-        assert startY <= endY;
-
-        final int width = getWidthInBlocks();
-        IntVector startCoords = new IntVector(0, startY);
-        IntVector endCoords = new IntVector(width - 1, endY);
-        // the iterator returns the blocks from top the top
-        // ones down to the bottom ones
-        Collection<Block> removalCandidates
-                = lockedBlocks.subMap(startCoords, true, endCoords, true)
-                .values();
-        int currentRow = startY - 1;
-
-        // line indices are sorted from the top to the bottom
-        ArrayList<Integer> clearedLinesIndices = new ArrayList<>();
-        brokenBlocks = new ArrayList<>();
-        // current same-row-blocks-streak
-        ArrayList<Block> currentRowBlocks = new ArrayList<>();
-        for (Block block : removalCandidates) {
-            if (currentRow != block.getTileCoords().getY()) {
-                if (currentRowBlocks.size() == width) {
-                    brokenBlocks.addAll(currentRowBlocks);
-                    clearedLinesIndices.add(currentRow);
+    private void startDropAnimation(Collection<Block> rowBlocks,
+            DoubleUnaryOperator endY) {
+        int count = 0;
+        for (Block block : rowBlocks) {
+            dropBlocks[count] = block;
+            dropHeights[count++] = block.getCoords().getY();
+        }
+        // the blocks of the same height as the first block of the rest are
+        // moved next to it, so that each height makes a run in the buffers
+        int start = 0;
+        while (start < count) {
+            final double startY = dropHeights[start];
+            int end = start + 1;
+            for (int i = end; i < count; i++) {
+                if (dropHeights[i] == startY) {
+                    final Block block = dropBlocks[i];
+                    dropBlocks[i] = dropBlocks[end];
+                    dropHeights[i] = dropHeights[end];
+                    dropBlocks[end] = block;
+                    dropHeights[end++] = startY;
                 }
-                currentRowBlocks.clear();
-                currentRowBlocks.add(block);
-                currentRow = block.getTileCoords().getY();
-            } else {
-                currentRowBlocks.add(block);
             }
+            final BlockSet blockSet = new BlockSet(
+                    LockedBlockAnimationType.DROP, dVect(0, startY));
+            animationManager.addBlockSet(blockSet);
+            for (int i = start; i < end; i++) {
+                animationManager.addBlockSetMember(blockSet, dropBlocks[i]);
+            }
+            animationManager.addAnimation(blockSet,
+                    animationManager.obtain(AcceleratedMoveAnimation.class)
+                            .reset(dVect(0, startY),
+                                    dVect(0, endY.applyAsDouble(startY)),
+                                    0.0),
+                    reason -> animationManager.removeBlockSet(blockSet));
+            start = end;
+        }
+        // the removed blocks must not be kept by the buffer
+        Arrays.fill(dropBlocks, 0, count, null);
+    }
+
+    /**
+     * Moves the rows that were above the removed rows down. Drop
+     * animations are started for all of the moved blocks, one per row.
+     *
+     * @param   rowTranslation new indices of the rows, see
+     *          {@link BitBoard#computeRowTranslation}.
+     */
+    private void removeRows(int[] removedRows, int count,
+            int[] rowTranslation) {
+        if (count == 0) {
+            return;
+        }
+        for (int y = removedRows[count - 1]; y >= 0; y--) {
+            if (rowTranslation[y] == -1) {
+                continue;
+            }
+            final int newY = rowTranslation[y];
+            for (Block block : getLockedBlocks(y, y)) {
+                block.tileShift(iVect(0, newY - y));
+            }
+            startDropAnimation(getLockedBlocks(y, y), startY -> newY);
+        }
+        lockedBlocks.removeRows(removedRows, count);
+    }
+
+    /**
+     * Moves the locked blocks up and creates the blocks of the garbage rows
+     * below them. The blocks are moved to their new places right away and
+     * a single rise animation of the whole group of the locked blocks
+     * makes up for the shift.
+     *
+     * @param   holeColumns see
+     *          {@link GameLogicListener#garbageInserted}.
+     */
+    private void insertGarbageRows(int[] holeColumns, int count) {
+        if (count == 0) {
+            return;
         }
-        // the last row
-        if (currentRowBlocks.size() == width) {
-            brokenBlocks.addAll(currentRowBlocks);
-            clearedLinesIndices.add(currentRow);
+        // blocks that have been pushed out of the game field
+        for (Block block : getLockedBlocks(0, count - 1)) {
+            animationManager.removeLockedBlock(block);
         }
-        brokenBlocks = Collections.unmodifiableList(brokenBlocks);
-
-        // move down rows that were above the cleared rows
-        if (clearedLinesIndices.size() != 0) {
-            final int bottomLine = clearedLinesIndices
-                    .get(clearedLinesIndices.size() - 1) - 1;
-            droppedBlocks = new ArrayList<>(lockedBlocks.subMap(
-                    new IntVector(0, 0), true,
-                    new IntVector(width - 1, bottomLine), true).values());
-            // these has not yet been removed from the fallenBlocks mapping
-            droppedBlocks.removeAll(brokenBlocks);
-
-            int removedLinesLeft = clearedLinesIndices.size();
-            final int removedLinesCount = clearedLinesIndices.size();
-            droppedBlocksOldKeys = new ArrayList<>();
-            for (Block block : droppedBlocks) {
-                // skip through the cleared lines to the one that is right
-                // under the current block
-                while (block.getTileCoords().getY()
-                        > clearedLinesIndices
-                        .get(removedLinesCount - removedLinesLeft)) {
-                    removedLinesLeft--;
-                    if (removedLinesLeft == 0) {
-                        break;
-                    }
-                }
-                if (removedLinesLeft == 0) {
-                    break;
+        for (Block block : getLockedBlocks(count, heightInBlocks - 1)) {
+            block.tileShift(iVect(0, -count));
+            block.setCoords(block.getCoords().add(0, -count));
+        }
+        lockedBlocks.insertRows(count);
+
+        for (int i = 0; i < count; i++) {
+            final int y = heightInBlocks - count + i;
+            for (int x = 0; x < widthInBlocks; x++) {
+                if (x == holeColumns[i]) {
+                    continue;
                 }
-                droppedBlocksOldKeys.add(block.getTileCoords());
-                block.tileShift(iVect(0, removedLinesLeft));
+                Block block = new Block(gameState, iVect(x, y),
+                        dVect(x + 0.5, y + 0.5), GameLogic.GARBAGE_COLOR,
+                        this, dVect(x, y));
+                lockBlock(block);
+                animationManager.addLockedBlock(block);
             }
         }
-        droppedBlocks = Collections.unmodifiableList(droppedBlocks);
-        droppedBlocksOldKeys
-                = Collections.unmodifiableList(droppedBlocksOldKeys);
 
-        return clearedLinesIndices.size();
+        // the rise continues from wherever the previous one has stopped
+        final double offset = lockedBlocksGroup.getCoords().getY() + count;
+        lockedBlocksGroup.setCoords(dVect(0, offset));
+        animationManager.addAnimation(lockedBlocksGroup,
+                LockedBlockAnimationType.RISE,
+                animationManager.obtain(MoveAnimation.class).reset(
+                        dVect(0, offset), dVect(0, 0),
+                        gameLogic.getUserControlDuration(), 1.0));
+    }
+
+    /**
+     * Returns the locked blocks that are close to the active shape, these
+     * are needed for the collision detection of the animations.
+     */
+    private Collection<Block> getNeighborBlocks() {
+        if (activeShape == null) {
+            return Collections.emptyList();
+        }
+        final int frameSize = activeShape.getShapeType().getFrameSize();
+        return getLockedBlocks(activeShape.getTileCoords().getY() - 2,
+                activeShape.getTileCoords().getY() + frameSize + 2);
+    }
+
+    /**
+     * Returns a view of the locked blocks placed in the rows from
+     * {@code startY} to {@code endY} (boundaries included). The blocks are
+     * ordered from the top ones down to the bottom ones.
+     */
+    private Collection<Block> getLockedBlocks(int startY, int endY) {
+        return lockedBlocks.view(0, startY, widthInBlocks - 1, endY);
+    }
+
+    /**
+     * Returns the locked blocks that might be visible on the screen (and
+     * within the clip of the graphics context, if it is set), so that only
+     * the chunks of the game field that are on the screen are visited.
+     */
+    private Collection<Block> getVisibleBlocks(Graphics2D g, int blockWidth) {
+        final Resolution resolution = gameState.getResolution();
+        // the screen is taken in the device space, since the blocks replace
+        // the transform of the graphics context anyway
+        Rectangle2D screen = new Rectangle2D.Double(0, 0,
+                resolution.getWidth(), resolution.getHeight());
+        if (g.getClip() != null) {
+            screen = screen.createIntersection(g.getTransform()
+                    .createTransformedShape(g.getClip()).getBounds2D());
+        }
+        // the transform maps the pixels of the game field onto the screen
+        final Rectangle2D visible;
+        try {
+            visible = getGlobalTransform().tScale(blockWidth).getTransform()
+                    .createInverse().createTransformedShape(screen)
+                    .getBounds2D();
+        } catch (NoninvertibleTransformException ex) {
+            return getLockedBlocks(0, heightInBlocks - 1);
+        }
+        // the locked blocks are drawn lower than their tiles while they
+        // rise along with the garbage or fall off the game field
+        int topMargin = CULLING_MARGIN
+                + (int) Math.ceil(lockedBlocksGroup.getCoords().getY());
+        if (clearing) {
+            topMargin += GameLogic.CLEARING_DROP_DISTANCE;
+        }
+        return lockedBlocks.view(
+                (int) Math.floor(visible.getMinX() / blockWidth) - 1,
+                (int) Math.floor(visible.getMinY() / blockWidth) - topMargin,
+                (int) Math.ceil(visible.getMaxX() / blockWidth) + 1,
+                (int) Math.ceil(visible.getMaxY() / blockWidth)
+                        + CULLING_MARGIN);
     }
 
     @Override
@@ -677,14 +419,58 @@ public class GameField extends Entity implements TileField, Controllable {
         return heightInBlocks;
     }
 
+    /**
+     * Returns a lazy view of the locked blocks and the active shape, so
+     * nothing is copied.
+     */
     @Override
     public Collection<? extends TileFieldObject> getObjects() {
-        ArrayList<TileFieldObject> objects
-                = new ArrayList<>(lockedBlocks.values());
-        if (activeShape != null) {
-            objects.add(activeShape);
+        final Collection<Block> blocks = getLockedBlocks(0, heightInBlocks - 1);
+        if (activeShape == null) {
+            return blocks;
+        }
+        final Shape shape = activeShape;
+        return new AbstractCollection<TileFieldObject>() {
+            @Override
+            public Iterator<TileFieldObject> iterator() {
+                final Iterator<Block> blocksIterator = blocks.iterator();
+                return new Iterator<TileFieldObject>() {
+                    private boolean shapeReturned;
+
+                    @Override
+                    public boolean hasNext() {
+                        return blocksIterator.hasNext() || !shapeReturned;
+                    }
+
+                    @Override
+                    public TileFieldObject next() {
+                        if (blocksIterator.hasNext()) {
+                            return blocksIterator.next();
+                        }
+                        if (shapeReturned) {
+                            throw new NoSuchElementException();
+                        }
+                        shapeReturned = true;
+                        return shape;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return blocks.size() + 1;
+            }
+        };
+    }
+
+    @Override
+    public boolean isOccupied(int x, int y, TileFieldObject excludedObject) {
+        if (gameLogic.getOccupancy().get(x, y)
+                && lockedBlocks.get(x, y) != excludedObject) {
+            return true;
         }
-        return objects;
+        return activeShape != null && activeShape != excludedObject
+                && activeShape.checkCollision(new IntVector(x, y));
     }
 
     @Override
@@ -692,7 +478,6 @@ public class GameField extends Entity implements TileField, Controllable {
         return parentEntity;
     }
 
-
     @Override
     public Transform getLocalTransform() {
         DoubleVector rotationPivot
@@ -704,9 +489,18 @@ public class GameField extends Entity implements TileField, Controllable {
     @Override
     public Transform getAdditionalTransform(Entity entity) {
         if (entity == activeShape) {
-            // fit the shape into the game field
-            DoubleVector[] convexHull = activeShape.getConvexHull();
+            return getAdditionalTransform(entity,
+                    activeShape.getConvexHull());
+        } else {
+            return new Transform();
+        }
+    }
 
+    @Override
+    public Transform getAdditionalTransform(Entity entity,
+            DoubleVector[] convexHull) {
+        if (entity == activeShape) {
+            // fit the shape into the game field
             // (x1, y1) - upper left corner of the game field
             // (x2, y2) - bottom right corner of the game field
             double x1 = 0, y1 = 0;
@@ -754,7 +548,7 @@ public class GameField extends Entity implements TileField, Controllable {
         g.drawImage(frame, -blockWidth, -blockWidth, null);
         g.dispose();
 
-        for (Block block : lockedBlocks.values()) {
+        for (Block block : getVisibleBlocks(gOriginal, blockWidth)) {
             block.render(gOriginal, interpolation);
         }
         if (activeShape != null) {
@@ -774,7 +568,6 @@ public class GameField extends Entity implements TileField, Controllable {
             DoubleVector.dVect(widthInBlocks, heightInBlocks),
             DoubleVector.dVect(widthInBlocks, 0)});
     }
-
     @Override
     public void tick() {
         if (activeShape != null) {
@@ -783,277 +576,215 @@ public class GameField extends Entity implements TileField, Controllable {
         if (ghostShape != null) {
             ghostShape.tick();
         }
-        for (Block block : lockedBlocks.values()) {
-            block.tick();
-        }
-        if (!statesQueue.isEmpty()) {
-            changeState(statesQueue.poll());
-        }
+        // the locked blocks are animated by the animation manager and have
+        // nothing to tick on their own, so they are not visited at all
+        gameLogic.tick();
     }
 
     @Override
     public void control(EnumMap<InputKey, KeyState> inputs) {
-        lastInputs = inputs;
-
-        int xShift = 0;
-        int yShift = 0;
-        Rotation rotationDirection = Rotation.INITIAL;
-        boolean shapeControllable = state.shapeControllable()
-                && (statesQueue.peek() == null
-                        || statesQueue.peek().shapeControllable());
-
-        final int frameSize = activeShape == null
-                ? 0
-                : activeShape.getShapeType().getFrameSize();
-        Collection<Block> neighborBlocks = activeShape == null
-                ? Collections.emptyList()
-                : lockedBlocks.subMap(
-                    activeShape.getTileCoords().add(-2, -2), true,
-                    activeShape.getTileCoords()
-                            .add(frameSize + 2, frameSize + 2), true
-                ).values();
-
-        for (EnumMap.Entry<InputKey, KeyState> key : inputs.entrySet()) {
-            if (key.getValue().fired()) {
-                switch (key.getKey()) {
-                    case ARROW_DOWN:
-                        if (!shapeControllable || state == SHAPE_FELL) {
-                            break;
-                        }
-                        state = SHAPE_FORCED_DROP;
-                        activeShape.startDropAnimation(forcedDropDuration,
-                                neighborBlocks, false);
-                        break;
-                    case ARROW_LEFT:
-                        xShift--;
-                        break;
-                    case ARROW_RIGHT:
-                        xShift++;
-                        break;
-                    case W:
-                        rotationDirection
-                                = rotationDirection.add(Rotation.LEFT);
-                        break;
-                    case S:
-                        rotationDirection
-                                = rotationDirection.add(Rotation.RIGHT);
-                        break;
-                    case SPACE:
-                        if (!shapeControllable || state == SHAPE_FELL) {
-                            break;
-                        }
-                        state = SHAPE_HARD_DROP;
-                        xShift = 0;
-                        rotationDirection = Rotation.INITIAL;
-                        yShift = Shape.getGhostShapeCoords(activeShape, this)
-                                .getY() - activeShape.getTileCoords().getY();
-                        ghostShape.startOpacityAnimation(0,
-                                userControlDuration);
-                        activeShape.tileShift(new IntVector(0, yShift));
-                        activeShape.startHardDropAnimation(hardDropDuration);
-                        animationManager.addAnimationCallback(activeShape,
-                                ActiveShapeAnimationType.DROP,
-                                reason -> statesQueue.offer(SHAPE_LOCKED));
-                        lastMovementIsRotation = false;
-                        shapeControllable = false;
-                        break;
-                    case R:
-                        if (state == STOPPED) {
-                            for (Block block : lockedBlocks.values()) {
-                                animationManager.addAnimation(block,
-                                        LockedBlockAnimationType.DROP,
-                                        new AcceleratedMoveAnimation(
-                                                block.getCoords(),
-                                                block.getCoords()
-                                                        .add(0, 25), 0));
-                            }
-                            if (!lockedBlocks.isEmpty()) {
-                                state = CLEARING_GAMEFIELD;
-                                animationManager.addAnimationCallback(
-                                        lockedBlocks.firstEntry().getValue(),
-                                        LockedBlockAnimationType.DROP,
-                                        reason -> {
-                                            for (Block block : lockedBlocks.values()) {
-                                                animationManager.removeLockedBlock(block);
-                                            }
-                                            lockedBlocks.clear();
-                                            start();
-                                        });
-                            } else {
-                                start();
-                            }
-                        }
-                }
+        gameLogic.control(inputs);
+    }
+
+    public void setNextShapeDisplay(NextShapeDisplay nextShapeDisplay) {
+        this.nextShapeDisplay = nextShapeDisplay;
+        nextShapeDisplay.gameOverDisplay();
+        nextShapeDisplay.startTransitionAnimation();
+    }
+
+    public void setScoreDisplay(ScoreDisplay scoreDisplay) {
+        gameLogic.getScore().subscribe(scoreDisplay);
+    }
+
+    /**
+     * Animates the changes made by the game logic.
+     */
+    private class GameLogicAnimator implements GameLogicListener {
+        @Override
+        public void shapeSpawned(ShapeType shapeType, IntVector tileCoords,
+                BlockColor color, ShapeType nextShapeType) {
+            final int userControlDuration
+                    = gameLogic.getUserControlDuration();
+            BlockColor[] blockColors
+                    = Shape.generateColorsArray(shapeType, color);
+
+            activeShape = new Shape(gameState, shapeType, Rotation.INITIAL,
+                    tileCoords, blockColors, GameField.this);
+            animationManager.addActiveShape(activeShape);
+            activeShape.setOpacity(0);
+            activeShape.startOpacityAnimation(1, userControlDuration);
+
+            IntVector ghostShapeCoords = gameLogic.getGhostShapeCoords();
+            ghostShape = new Shape(gameState, shapeType, Rotation.INITIAL,
+                    ghostShapeCoords, blockColors, GameField.this);
+            animationManager.addActiveShape(ghostShape);
+
+            int frameSize = shapeType.getFrameSize();
+            if (Math.abs(tileCoords.getY() - ghostShapeCoords.getY())
+                    < 3 * frameSize / 2) {
+                ghostShape.setOpacity(0);
+            } else {
+                ghostShape.setOpacity(0);
+                ghostShape.startOpacityAnimation(GHOST_SHAPE_OPACITY,
+                        userControlDuration);
             }
-            if (key.getValue() == KeyState.RELEASED) {
-                switch (key.getKey()) {
-                    case ARROW_DOWN:
-                        if (!shapeControllable || state == SHAPE_FELL) {
-                            break;
-                        }
-                        state = SHAPE_SOFT_DROP;
-                        activeShape.startDropAnimation(softDropDuration,
-                                neighborBlocks, true);
-                        break;
-                }
+
+            if (nextShapeDisplay != null) {
+                nextShapeDisplay.setNextShape(nextShapeType);
+                nextShapeDisplay.startTransitionAnimation();
             }
         }
 
-        if (xShift != 0 && shapeControllable) {
-            if (Shape.fits(activeShape, activeShape.getShapeType(),
-                    activeShape.getTileCoords().add(iVect(xShift, 0)),
-                    activeShape.getRotation(), this)) {
-                activeShape.tileShift(iVect(xShift, 0));
-
-                ghostShape.tileMove(
-                        Shape.getGhostShapeCoords(activeShape, this));
-                ghostShape.startUserControlAnimation(
-                        userControlDuration, neighborBlocks,
-                        false);
-                ghostShape
-                    .startWallKickAnimation(userControlDuration);
-                if (Math.abs(activeShape.getTileCoords().getY()
-                            - ghostShape.getTileCoords().getY())
-                        >= 3 * frameSize / 2) {
-                    ghostShape.startOpacityAnimation(GHOST_SHAPE_OPACITY,
-                            userControlDuration);
-                }
+        @Override
+        public void gameOver() {
+            if (nextShapeDisplay != null) {
+                nextShapeDisplay.gameOverDisplay();
+                nextShapeDisplay.startTransitionAnimation();
+            }
+        }
 
-                activeShape.startUserControlAnimation(
-                        userControlDuration, neighborBlocks,
-                        state == SHAPE_SOFT_DROP);
-                lastMovementIsRotation = false;
-                exitLockDelayIfFits();
+        @Override
+        public void shapeDropped(boolean forced) {
+            Collection<Block> neighborBlocks = getNeighborBlocks();
+            activeShape.tileShift(iVect(0, 1));
+            int duration = forced
+                    ? gameLogic.getForcedDropDuration()
+                    : gameLogic.getSoftDropDuration();
+            activeShape.startDropAnimation(duration, neighborBlocks, !forced);
+
+            // make the ghost shape invisible once it gets too close
+            if (Math.abs(activeShape.getTileCoords().getY()
+                        - ghostShape.getTileCoords().getY())
+                    < activeShape.getShapeType().getFrameSize()) {
+                ghostShape.startOpacityAnimation(0,
+                        gameLogic.getUserControlDuration());
             }
         }
 
+        @Override
+        public void dropSpeedChanged(boolean forced) {
+            int duration = forced
+                    ? gameLogic.getForcedDropDuration()
+                    : gameLogic.getSoftDropDuration();
+            activeShape.startDropAnimation(duration, getNeighborBlocks(),
+                    !forced);
+        }
 
-        if (shapeControllable && (rotationDirection == Rotation.LEFT
-                    || rotationDirection == Rotation.RIGHT)) {
-            boolean isClockwise = rotationDirection == Rotation.LEFT;
-            double angleShift = isClockwise ? -Math.PI / 2 : Math.PI / 2;
-            Rotation newRotation
-                    = activeShape.getRotation().add(rotationDirection);
-
-            if (Shape.fits(activeShape, activeShape.getShapeType(),
-                    activeShape.getTileCoords(), newRotation, this)) {
-                activeShape.rotate(rotationDirection);
-                activeShape.startRotationAnimation(angleShift, isClockwise,
-                        userControlDuration, neighborBlocks);
-
-                ghostShape.tileMove(
-                        Shape.getGhostShapeCoords(activeShape, this));
-                ghostShape.rotate(rotationDirection);
-                ghostShape.startRotationAnimation(angleShift, isClockwise,
+        @Override
+        public void shapeMoved(int xShift) {
+            final int userControlDuration
+                    = gameLogic.getUserControlDuration();
+            Collection<Block> neighborBlocks = getNeighborBlocks();
+            activeShape.tileShift(iVect(xShift, 0));
+
+            ghostShape.tileMove(gameLogic.getGhostShapeCoords());
+            ghostShape.startUserControlAnimation(userControlDuration,
+                    neighborBlocks, false);
+            ghostShape.startWallKickAnimation(userControlDuration);
+            if (Math.abs(activeShape.getTileCoords().getY()
+                        - ghostShape.getTileCoords().getY())
+                    >= 3 * activeShape.getShapeType().getFrameSize() / 2) {
+                ghostShape.startOpacityAnimation(GHOST_SHAPE_OPACITY,
                         userControlDuration);
-                ghostShape.startUserControlAnimation(
-                        userControlDuration, neighborBlocks,
-                        false);
-                ghostShape.startWallKickAnimation(userControlDuration);
-                exitLockDelayIfFits();
-                lastMovementIsRotation = true;
-            } else {
-                IntVector[] wallKicks = rotationDirection == Rotation.RIGHT
-                        ? activeShape.getRightWallKicks()
-                        : activeShape.getLeftWallKicks();
-                for (IntVector shift : wallKicks) {
-                    if (Shape.fits(activeShape, activeShape.getShapeType(),
-                            activeShape.getTileCoords().add(shift),
-                            newRotation, this)) {
-
-                        // rotate and wall kick
-                        activeShape.rotate(rotationDirection);
-                        activeShape.startRotationAnimation(angleShift,
-                                isClockwise, userControlDuration,
-                                neighborBlocks);
-
-                        activeShape.tileShift(shift);
-                        activeShape.startWallKickAnimation(
-                                userControlDuration,
-                                reason -> statesQueue.offer(SHAPE_SOFT_DROP));
-
-                        animationManager.interruptAnimation(activeShape,
-                                ActiveShapeAnimationType.DROP);
-                        animationManager.interruptAnimation(activeShape,
-                                ActiveShapeAnimationType.LEFT_RIGHT);
-
-                        if (ghostShape != null) {
-                            ghostShape.tileMove(Shape
-                                    .getGhostShapeCoords(activeShape, this));
-                            ghostShape.rotate(rotationDirection);
-                            ghostShape.startRotationAnimation(angleShift,
-                                    isClockwise, userControlDuration);
-                            ghostShape.startUserControlAnimation(
-                                    userControlDuration,
-                                    neighborBlocks, false);
-                            ghostShape.startWallKickAnimation(
-                                    userControlDuration);
-                        }
-
-                        statesQueue.offer(SHAPE_WALL_KICKED);
-                        exitLockDelayIfFits();
-                        lastMovementIsRotation = true;
-                        break;
-                    }
-                }
             }
-        }
-    }
 
-    private boolean exitLockDelayIfFits() {
-        if (state != SHAPE_SOFT_DROP && state != SHAPE_FORCED_DROP
-                && Shape.fits(activeShape, activeShape.getShapeType(),
-                        activeShape.getTileCoords().add(iVect(0, 1)),
-                        activeShape.getRotation(), this)) {
-            animationManager.interruptAnimation(activeShape,
-                    ActiveShapeAnimationType.LOCK_DELAY);
-
-            changeState(SHAPE_SOFT_DROP);
-            return true;
+            activeShape.startUserControlAnimation(userControlDuration,
+                    neighborBlocks, gameLogic.getState() == SHAPE_SOFT_DROP);
         }
-        return false;
-    }
 
-    public void setNextShapeDisplay(NextShapeDisplay nextShapeDisplay) {
-        this.nextShapeDisplay = nextShapeDisplay;
-        nextShapeDisplay.gameOverDisplay();
-        nextShapeDisplay.startTransitionAnimation();
-    }
+        @Override
+        public void shapeRotated(Rotation rotationDirection,
+                IntVector wallKick) {
+            final int userControlDuration
+                    = gameLogic.getUserControlDuration();
+            Collection<Block> neighborBlocks = getNeighborBlocks();
+            boolean isClockwise = rotationDirection == Rotation.LEFT;
+            double angleShift = isClockwise ? -Math.PI / 2 : Math.PI / 2;
 
-    public void setScoreDisplay(ScoreDisplay scoreDisplay) {
-        score.subscribe(scoreDisplay);
-    }
+            activeShape.rotate(rotationDirection);
+            activeShape.startRotationAnimation(angleShift, isClockwise,
+                    userControlDuration, neighborBlocks);
+            if (wallKick != null) {
+                activeShape.tileShift(wallKick);
+                activeShape.startWallKickAnimation(userControlDuration);
+                animationManager.interruptAnimation(activeShape,
+                        ActiveShapeAnimationType.DROP);
+                animationManager.interruptAnimation(activeShape,
+                        ActiveShapeAnimationType.LEFT_RIGHT);
+            }
 
-    private static class StatesQueue extends AbstractQueue<GameFieldState> {
-        private Queue<GameFieldState> queue = new ArrayDeque<>();
+            ghostShape.tileMove(gameLogic.getGhostShapeCoords());
+            ghostShape.rotate(rotationDirection);
+            ghostShape.startRotationAnimation(angleShift, isClockwise,
+                    userControlDuration);
+            ghostShape.startUserControlAnimation(userControlDuration,
+                    neighborBlocks, false);
+            ghostShape.startWallKickAnimation(userControlDuration);
+        }
 
         @Override
-        public Iterator<GameFieldState> iterator() {
-            return queue.iterator();
+        public void shapeHardDropped(int distance) {
+            ghostShape.startOpacityAnimation(0,
+                    gameLogic.getUserControlDuration());
+            activeShape.tileShift(new IntVector(0, distance));
+            activeShape.startHardDropAnimation(
+                    gameLogic.getHardDropDuration(distance));
         }
 
         @Override
-        public int size() {
-            return queue.size();
+        public void shapeLocked() {
+            for (Block block : activeShape.getBlocks(GameField.this)) {
+                lockBlock(block);
+                animationManager.addLockedBlock(block);
+            }
+            animationManager.removeActiveShape(activeShape);
+            animationManager.removeActiveShape(ghostShape);
+            activeShape = null;
+            ghostShape = null;
         }
 
         @Override
-        public boolean offer(GameFieldState gameFieldState) {
-            if (queue.isEmpty()
-                    || queue.peek().transitionPossible(gameFieldState)) {
-                return queue.offer(gameFieldState);
+        public void rowsFilled(int[] rows, int count) {
+            List<Block> brokenBlocks = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                brokenBlocks.addAll(getLockedBlocks(rows[i], rows[i]));
+                startBreakAnimation(getLockedBlocks(rows[i], rows[i]));
             }
-            return false;
+            GameField.this.brokenBlocks
+                    = Collections.unmodifiableList(brokenBlocks);
         }
 
         @Override
-        public GameFieldState poll() {
-            return queue.poll();
+        public void rowsRemoved(int[] rows, int count,
+                int[] rowTranslation) {
+            for (Block block : brokenBlocks) {
+                animationManager.removeLockedBlock(block);
+            }
+            brokenBlocks = Collections.emptyList();
+            removeRows(rows, count, rowTranslation);
         }
 
         @Override
-        public GameFieldState peek() {
-            return queue.peek();
+        public void garbageInserted(int[] holeColumns, int count) {
+            insertGarbageRows(holeColumns, count);
+        }
+
+        @Override
+        public void gameFieldClearing() {
+            clearing = true;
+            for (int y = 0; y < heightInBlocks; y++) {
+                startDropAnimation(getLockedBlocks(y, y), startY
+                        -> startY + GameLogic.CLEARING_DROP_DISTANCE);
+            }
+        }
+
+        @Override
+        public void gameFieldCleared() {
+            for (Block block : getLockedBlocks(0, heightInBlocks - 1)) {
+                animationManager.removeLockedBlock(block);
+            }
+            lockedBlocks.clear();
+            clearing = false;
         }
     }
 }
@@ -106,9 +106,11 @@ public class NextShapeDisplay extends Entity implements AnimatedDisplay {
     }
 
     public void startTransitionAnimation() {
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        animationManager.addAnimation(this,
                 DisplayAnimationType.TRANSITION,
-                new TransitionAnimation(8),
+                animationManager.obtain(TransitionAnimation.class).reset(8),
                 reason -> {
                     if (!reason.interrupted()) {
                         currentImage = nextImage;
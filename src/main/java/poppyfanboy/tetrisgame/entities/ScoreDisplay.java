@@ -7,6 +7,7 @@ import java.awt.Graphics2D;
 import poppyfanboy.tetrisgame.graphics.Assets;
 import poppyfanboy.tetrisgame.graphics.displayanimation.AnimatedDisplay;
 import poppyfanboy.tetrisgame.graphics.displayanimation.TransitionAnimation;
+import poppyfanboy.tetrisgame.logic.ScoreSubscriber;
 import poppyfanboy.tetrisgame.states.GameState;
 import poppyfanboy.tetrisgame.util.DoubleVector;
 import poppyfanboy.tetrisgame.util.Transform;
@@ -16,7 +17,7 @@ import poppyfanboy.tetrisgame.util.Transform;
  * in the game.
  */
 public class ScoreDisplay extends Entity implements AnimatedDisplay,
-        GameField.ScoreSubscriber {
+        ScoreSubscriber {
     public static final int DEFAULT_WIDTH = 7, DEFAULT_HEIGHT = 4;
 
     private final GameState gameState;
@@ -101,9 +102,11 @@ public class ScoreDisplay extends Entity implements AnimatedDisplay,
     }
 
     public void startTransitionAnimation() {
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        animationManager.addAnimation(this,
                 DisplayAnimationType.TRANSITION,
-                new TransitionAnimation(25),
+                animationManager.obtain(TransitionAnimation.class).reset(25),
                 reason -> {
                     if (!reason.interrupted()) {
                         score = nextScore;
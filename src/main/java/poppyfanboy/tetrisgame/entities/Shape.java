@@ -11,12 +11,15 @@ import poppyfanboy.tetrisgame.graphics.AnimationEndHandler;
 import poppyfanboy.tetrisgame.graphics.animation2D.AcceleratedMoveAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.GhostModeAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.OpacityAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.Pose2D;
+import poppyfanboy.tetrisgame.logic.GameLogic;
 import poppyfanboy.tetrisgame.states.GameState;
 import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
 import poppyfanboy.tetrisgame.graphics.animation2D.HVLinearAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.MoveAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.RotationAnimation;
 import poppyfanboy.tetrisgame.graphics.animation2D.Animated2D;
+import poppyfanboy.tetrisgame.util.BitBoard;
 import poppyfanboy.tetrisgame.util.IntVector;
 import poppyfanboy.tetrisgame.util.DoubleVector;
 import poppyfanboy.tetrisgame.util.Rotation;
@@ -140,9 +143,12 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
 
     public void startDropAnimation(int duration, AnimationEndHandler callback,
             Collection<Block> neighborBlocks, boolean enableGhostMode) {
-        HVLinearAnimation animation = HVLinearAnimation.getVerticalAnimation(
-                coords.getY(), tileCoords.getY(), duration, 1.0);
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        HVLinearAnimation animation = animationManager
+                .obtain(HVLinearAnimation.class)
+                .resetVertical(coords.getY(), tileCoords.getY(), duration, 1.0);
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.DROP,
                 animation, callback);
 
@@ -158,9 +164,12 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
 
     public void startUserControlAnimation(int duration,
             Collection<Block> neighborBlocks, boolean enableGhostMode) {
-        HVLinearAnimation animation = HVLinearAnimation.getHorizontalAnimation(
-                coords.getX(), tileCoords.getX(), duration, 1.0);
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        HVLinearAnimation animation = animationManager
+                .obtain(HVLinearAnimation.class).resetHorizontal(
+                        coords.getX(), tileCoords.getX(), duration, 1.0);
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.LEFT_RIGHT,
                 animation);
 
@@ -169,84 +178,143 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
         }
     }
 
+    /**
+     * Drops the shape onto its tile coordinates. The shape is thrown faster
+     * than usual in case it has to get there in less than the time it
+     * takes to fall with the {@link GameLogic#DROP_ACCELERATION}.
+     *
+     * @param   duration the number of ticks the drop must take at most.
+     */
     public void startHardDropAnimation(int duration) {
-        AcceleratedMoveAnimation animation = new AcceleratedMoveAnimation(
-                coords, tileCoords.toDouble(), 1.0);
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        final double distance
+                = tileCoords.toDouble().subtract(coords).length();
+        final double a = GameLogic.DROP_ACCELERATION;
+        // S = v0 * t + a * t^2 / 2
+        final int time = Math.max(duration, 1);
+        final double initialSpeed = Math.max(
+                GameLogic.HARD_DROP_INITIAL_SPEED,
+                distance / time - a * time / 2);
+        AcceleratedMoveAnimation animation = animationManager
+                .obtain(AcceleratedMoveAnimation.class)
+                .reset(coords, tileCoords.toDouble(), initialSpeed);
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.DROP, animation);
     }
 
     public void startRotationAnimation(double angleShift, boolean isClockwise,
             int duration, Collection<Block> neighborBlocks) {
-        RotationAnimation animation = new RotationAnimation(rotationAngle,
-                rotationAngle + angleShift, isClockwise, duration, Math.PI / 2);
-        gameState.getAnimationManager().addAnimation(this,
-                ActiveShapeAnimationType.ROTATION, animation);
-
+        startRotationAnimation(angleShift, isClockwise, duration);
         enterGhostMode(neighborBlocks, duration);
     }
 
     public void startRotationAnimation(double angleShift, boolean isClockwise,
             int duration) {
-        RotationAnimation animation = new RotationAnimation(rotationAngle,
-                rotationAngle + angleShift, isClockwise, duration, Math.PI / 2);
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        RotationAnimation animation = animationManager
+                .obtain(RotationAnimation.class).reset(rotationAngle,
+                        rotationAngle + angleShift, isClockwise, duration,
+                        Math.PI / 2);
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.ROTATION, animation);
     }
 
+    /**
+     * Starts the ghost mode animation in case the shape is going to pass
+     * through any of the neighbor blocks within the next {@code duration}
+     * ticks. The running animations of the shape are sampled a few times
+     * over this period (see {@link AnimationManager#sampleAt}), the shape
+     * itself is not changed.
+     */
     private void enterGhostMode(Collection<Block> neighborBlocks,
             int duration) {
         final double eps = 0.025;
         final int samplesCount = 3;
-        DoubleVector oldCoords = coords;
-        double oldRotationAngle = rotationAngle;
 
-        for (int i = 0; i < samplesCount; i++) {
-            gameState.getAnimationManager().tempFastForward(this,
-                    (double) i / samplesCount * duration);
-            DoubleVector[] shapeConvexHull = shapeType.getConvexHull();
+        // the neighbor blocks stay where they are while the shape moves, so
+        // their bounding boxes (unit squares) are computed once, only the
+        // upper left corners are kept
+        final double[] neighborCorners = new double[2 * neighborBlocks.size()];
+        int neighborsCount = 0;
+        for (Block block : neighborBlocks) {
+            final DoubleVector corner = block.getGlobalTransform()
+                    .apply(new DoubleVector(0, 0));
+            neighborCorners[2 * neighborsCount] = corner.getX();
+            neighborCorners[2 * neighborsCount + 1] = corner.getY();
+            neighborsCount++;
+        }
+        if (neighborsCount == 0) {
+            return;
+        }
 
+        final DoubleVector[] shapeConvexHull = shapeType.getConvexHull();
+        final DoubleVector[] sampledConvexHull
+                = new DoubleVector[shapeConvexHull.length];
+        final Pose2D pose = new Pose2D();
+        for (int i = 0; i < samplesCount; i++) {
+            gameState.getAnimationManager().sampleAt(this,
+                    (double) i / samplesCount * duration, pose.set(this));
+            final Transform localTransform = getLocalTransform(
+                    pose.getCoords(), pose.getRotationAngle());
             for (int j = 0; j < shapeConvexHull.length; j++) {
-                shapeConvexHull[j]
-                        = getGlobalTransform().apply(shapeConvexHull[j]);
+                sampledConvexHull[j] = localTransform.apply(shapeConvexHull[j]);
             }
-
-            for (DoubleVector shapeCoords : shapeConvexHull) {
-                DoubleVector coords1 = new DoubleVector(
-                        shapeCoords.getX() + eps, shapeCoords. getY() + eps);
-                DoubleVector coords2 = new DoubleVector(
-                        shapeCoords.getX() - eps, shapeCoords. getY() - eps);
-
-                for (Block block : neighborBlocks) {
-                    if (aabbInside(coords1, block.getGlobalTransform()
-                                    .apply(new DoubleVector(0, 0)))
-                            && aabbInside(coords2, block.getGlobalTransform()
-                                    .apply(new DoubleVector(0, 0)))) {
-                        this.startGhostModeAnimation(duration + 5);
-                        coords = oldCoords;
-                        rotationAngle = oldRotationAngle;
+            final Transform globalTransform
+                    = getGlobalTransform(localTransform, sampledConvexHull);
+            final double cos = globalTransform.getRotation().getCos();
+            final double sin = globalTransform.getRotation().getSin();
+            final double dx = globalTransform.getTranslation().getX();
+            final double dy = globalTransform.getTranslation().getY();
+
+            for (DoubleVector point : shapeConvexHull) {
+                final double x = dx + (cos * point.getX() - sin * point.getY());
+                final double y = dy + (sin * point.getX() + cos * point.getY());
+                for (int k = 0; k < neighborsCount; k++) {
+                    final double left = neighborCorners[2 * k];
+                    final double top = neighborCorners[2 * k + 1];
+                    if (aabbInside(x + eps, y + eps, left, top)
+                            && aabbInside(x - eps, y - eps, left, top)) {
+                        startGhostModeAnimation(duration + 5);
                         return;
                     }
                 }
             }
         }
-        coords = oldCoords;
-        rotationAngle = oldRotationAngle;
     }
 
     public static boolean aabbInside(DoubleVector point,
             DoubleVector leftCorner) {
-        return leftCorner.getX() < point.getX()
-                && point.getX() < leftCorner.getX() + 1
-                && leftCorner.getY() < point.getY()
-                && point.getY() < leftCorner.getY() + 1;
+        return aabbInside(point.getX(), point.getY(),
+                leftCorner.getX(), leftCorner.getY());
+    }
+
+    // checks if the point lies inside the unit square
+    private static boolean aabbInside(double x, double y,
+            double left, double top) {
+        return left < x && x < left + 1 && top < y && y < top + 1;
+    }
+
+    // global transform of the shape as if it had the specified local
+    // transform and the convex hull
+    private Transform getGlobalTransform(Transform localTransform,
+            DoubleVector[] convexHull) {
+        if (parentEntity == null) {
+            return localTransform;
+        }
+        return localTransform.combine(parentEntity.getGlobalTransform()
+                .combine(parentEntity.getAdditionalTransform(this,
+                        convexHull)));
     }
 
     public void startWallKickAnimation(int duration,
             AnimationEndHandler callback) {
-        MoveAnimation animation = new MoveAnimation(coords,
-                tileCoords.toDouble(), duration, 1.0);
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        MoveAnimation animation = animationManager.obtain(MoveAnimation.class)
+                .reset(coords, tileCoords.toDouble(), duration, 1.0);
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.WALL_KICK, animation, callback);
     }
 
@@ -255,15 +323,21 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
     }
 
     public void startGhostModeAnimation(int duration) {
-        GhostModeAnimation animation = new GhostModeAnimation(duration);
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        GhostModeAnimation animation = animationManager
+                .obtain(GhostModeAnimation.class).reset(duration);
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.GHOST_MODE, animation);
     }
 
     public void startOpacityAnimation(double endOpacity, int duration) {
-        gameState.getAnimationManager().addAnimation(this,
+        final AnimationManager animationManager
+                = gameState.getAnimationManager();
+        animationManager.addAnimation(this,
                 ActiveShapeAnimationType.OPACITY_CHANGE,
-                new OpacityAnimation(this.getOpacity(), endOpacity, duration));
+                animationManager.obtain(OpacityAnimation.class)
+                        .reset(this.getOpacity(), endOpacity, duration));
     }
 
     @Override
@@ -329,6 +403,11 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
 
     @Override
     public Transform getLocalTransform() {
+        return getLocalTransform(coords, rotationAngle);
+    }
+
+    private Transform getLocalTransform(DoubleVector coords,
+            double rotationAngle) {
         DoubleVector rotationPivot = coords.add(shapeType.getRotationPivot());
         return new Transform(coords)
             .combine(Transform.getRotation(rotationAngle, rotationPivot));
@@ -428,21 +507,19 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
         for (int x = 0; x < frameSize; x++) {
             for (int y = 0; y < frameSize; y++) {
                 if (shapeType.isSolid(x, y, rotation)) {
-                    IntVector blockCoords = tileCoords.add(x, y);
+                    final int blockX = tileCoords.getX() + x;
+                    final int blockY = tileCoords.getY() + y;
                     // check, if the object fits into the game field
                     // boundaries
-                    if (blockCoords.getX() < x1 || blockCoords.getY() < y1
-                            || blockCoords.getX() >= x2
-                            || blockCoords.getY() >= y2) {
+                    if (blockX < x1 || blockY < y1
+                            || blockX >= x2 || blockY >= y2) {
                         return false;
                     }
                     // check, if it interferes with any other objects
                     // on the field
-                    for (TileFieldObject object : tileField.getObjects()) {
-                        if (object != excludedObject
-                                && object.checkCollision(blockCoords)) {
-                            return false;
-                        }
+                    if (tileField.isOccupied(blockX, blockY,
+                            excludedObject)) {
+                        return false;
                     }
                 }
             }
@@ -455,6 +532,35 @@ public class Shape extends Entity implements TileFieldObject, Animated2D {
         return fits(null, shapeType, tileCoords, rotation, tileField);
     }
 
+    /**
+     * Checks, if the shape with the specified parameters fits into the
+     * tile field represented by the bit board of its occupied tiles.
+     * Unlike the {@code TileField} version of this method it tests whole
+     * rows of the shape at once against the rows of the board and does
+     * not allocate anything.
+     */
+    public static boolean fits(ShapeType shapeType, IntVector tileCoords,
+            Rotation rotation, BitBoard occupancy) {
+        return occupancy.fits(shapeType.getRowMasks(rotation),
+                tileCoords.getX(), tileCoords.getY());
+    }
+
+    /**
+     * Returns the coordinates at which the shape with the specified
+     * parameters lands, if it is dropped straight down from the
+     * {@code tileCoords} position.
+     */
+    public static IntVector getGhostShapeCoords(ShapeType shapeType,
+            IntVector tileCoords, Rotation rotation, BitBoard occupancy) {
+        final int[] rowMasks = shapeType.getRowMasks(rotation);
+        final int x = tileCoords.getX();
+        int y = tileCoords.getY();
+        while (occupancy.fits(rowMasks, x, y + 1)) {
+            y++;
+        }
+        return new IntVector(x, y);
+    }
+
     public static IntVector getGhostShapeCoords(Shape activeShape,
             TileField tileField) {
         ShapeType shapeType = activeShape.getShapeType();
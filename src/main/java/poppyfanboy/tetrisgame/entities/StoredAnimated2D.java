@@ -0,0 +1,30 @@
+package poppyfanboy.tetrisgame.entities;
+
+import poppyfanboy.tetrisgame.graphics.animation2D.Animated2D;
+
+/**
+ * An animated object that keeps its animated properties in an
+ * {@link AnimationStore} for as long as it is added to the store. The
+ * accessors of the {@link Animated2D} interface read and write the arrays
+ * of the store then.
+ */
+interface StoredAnimated2D extends Animated2D {
+    /**
+     * Called by the store once the object is added to it. The object is
+     * expected to copy its properties into the specified slot of the store
+     * and to use the store from now on.
+     */
+    void attach(AnimationStore store, int slot);
+
+    /**
+     * Called by the store once the object is removed from it. The object
+     * is expected to copy its properties back from the store.
+     */
+    void detach();
+
+    /**
+     * Returns the slot of the object in the store or {@code -1} in case the
+     * object is not added to any store.
+     */
+    int getSlot();
+}
@@ -35,4 +35,22 @@ public interface TileField {
      * check, if it collides with any of the objects on the field.
      */
     Collection<? extends TileFieldObject> getObjects();
+
+    /**
+     * Checks, if the specified tile is occupied by any of the objects
+     * present on the tile field.
+     *
+     * @param   excludedObject this object is excluded when checking for
+     *          collisions. Set this argument to {@code null} if no object
+     *          needs to be excluded.
+     */
+    default boolean isOccupied(int x, int y, TileFieldObject excludedObject) {
+        IntVector tile = new IntVector(x, y);
+        for (TileFieldObject object : getObjects()) {
+            if (object != excludedObject && object.checkCollision(tile)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
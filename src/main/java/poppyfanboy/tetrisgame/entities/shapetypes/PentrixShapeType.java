@@ -107,6 +107,10 @@ public enum PentrixShapeType implements ShapeType {
     private boolean[][] initial, left, right, upsideDown;
     private DoubleVector pivot;
     private DoubleVector[] convexHull;
+    // row masks of the shape indexed by the ordinal of the rotation
+    private int[][] rowMasks;
+    // bottom profiles of the shape indexed by the ordinal of the rotation
+    private int[][] columnBottoms;
 
     /**
      * Loads the {@code boolean[][]} representations of the shapes for
@@ -146,6 +150,15 @@ public enum PentrixShapeType implements ShapeType {
             shape.upsideDown = Util.rotate(shape.initial,
                     shape.pivot, Rotation.UPSIDE_DOWN);
             shape.convexHull = ShapeType.getConvexHull(shape);
+
+            shape.rowMasks = new int[Rotation.values().length][];
+            shape.columnBottoms = new int[Rotation.values().length][];
+            for (Rotation rotation : Rotation.values()) {
+                shape.rowMasks[rotation.ordinal()]
+                        = ShapeType.getRowMasks(shape, rotation);
+                shape.columnBottoms[rotation.ordinal()]
+                        = ShapeType.getColumnBottoms(shape, rotation);
+            }
         }
         // these arrays are not needed anymore
         shapes = null;
@@ -213,6 +226,16 @@ public enum PentrixShapeType implements ShapeType {
         return pivot;
     }
 
+    @Override
+    public int[] getRowMasks(Rotation rotation) {
+        return rowMasks[rotation.ordinal()];
+    }
+
+    @Override
+    public int[] getColumnBottoms(Rotation rotation) {
+        return columnBottoms[rotation.ordinal()];
+    }
+
     @Override
     public DoubleVector[] getConvexHull() {
         return Arrays.copyOf(convexHull, convexHull.length);
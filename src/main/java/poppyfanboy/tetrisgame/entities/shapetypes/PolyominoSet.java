@@ -0,0 +1,598 @@
+package poppyfanboy.tetrisgame.entities.shapetypes;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import poppyfanboy.tetrisgame.util.DoubleVector;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+import static java.lang.Math.round;
+
+/**
+ * A set of polyominoes (of {@value #MIN_BLOCKS} to {@value #MAX_BLOCKS}
+ * blocks) loaded from a shape set file, so that the game can be played with
+ * other shapes than the built-in ones. The rotations, the row masks, the
+ * AABBs and the convex hulls of the shapes are computed once by the
+ * loader. The compiled set can be cached in a binary file, the later loads
+ * of the same shape set file read the cache instead of computing
+ * everything anew. Sets are immutable.
+ *
+ * The shape set file is a text file. Empty lines and the lines starting
+ * with {@code #} are ignored. A table of the clockwise wall kicks starts
+ * with the {@code kicks <name>} line followed by a line for each of the
+ * rotations the shape is rotated from. A line lists the offsets that are
+ * tried in turn:
+ *
+ * <pre>
+ * kicks three
+ * initial -1,0 -1,-1 0,2 -1,2
+ * left 1,0 1,1 0,-2 1,-2
+ * upside_down 1,0 1,-1 0,2 1,2
+ * right -1,0 -1,1 0,-2 -1,-2
+ * </pre>
+ *
+ * A shape starts with the {@code shape <name> [<kicks name>] [spin]} line
+ * followed by the rows of its square frame in the initial rotation:
+ * {@code .} is an empty tile and {@code *} is a solid block. The pivot of
+ * the rotation is marked with {@code x} for a solid block and with
+ * {@code o} for an empty tile, in case there are several marks the pivot
+ * lies in the middle of them. The shape can only use the kicks defined
+ * above it, the shapes with no kicks are just not kicked. The shapes
+ * marked with {@code spin} score the spins just like the T-shape of the
+ * classic game does (so {@code spin} can not be the name of the kicks):
+ *
+ * <pre>
+ * shape T three spin
+ * . * .
+ * * x *
+ * . . .
+ * </pre>
+ */
+public final class PolyominoSet {
+    public static final int MIN_BLOCKS = 3, MAX_BLOCKS = 7;
+
+    private static final Rotation[] ROTATIONS = Rotation.values();
+
+    // the shape set files bundled with the game
+    private static final String BUNDLED_SETS_PATH = "/shapes/%s.txt";
+
+    private static final int CACHE_MAGIC = 0x54475053;
+    private static final int CACHE_VERSION = 2;
+
+    private final PolyominoShapeType[] shapes;
+
+    private PolyominoSet(PolyominoShapeType[] shapes) {
+        this.shapes = shapes;
+    }
+
+    /**
+     * Reads the shape set file (see the description of the format above).
+     *
+     * @throws  IOException in case the file can not be read or it is not
+     *          a valid shape set file.
+     */
+    public static PolyominoSet load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Reads one of the shape sets bundled with the game from the class
+     * path (so it also works when the game is packaged into a jar): the
+     * {@code triominoes}, {@code tetrominoes}, {@code pentominoes},
+     * {@code hexominoes} or {@code heptominoes}. The bundled sets can not
+     * be cached next to their files, so they are compiled on each load.
+     *
+     * @throws  IOException in case there is no such bundled set or it can
+     *          not be read.
+     */
+    public static PolyominoSet loadBundled(String name) throws IOException {
+        final InputStream in = PolyominoSet.class.getResourceAsStream(
+                String.format(BUNDLED_SETS_PATH, name));
+        if (in == null) {
+            throw new IOException(String.format(
+                    "There is no bundled shape set named %s.", name));
+        }
+        try (Reader reader = new InputStreamReader(in,
+                StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Reads the shape set file, the compiled shapes are taken from the
+     * cache file in case it has been written for the same contents of the
+     * shape set file. Otherwise the shapes are compiled and the cache file
+     * is (re)written, unless it can not be written.
+     *
+     * @throws  IOException in case the shape set file can not be read or
+     *          it is not a valid shape set file.
+     */
+    public static PolyominoSet load(Path path, Path cachePath)
+            throws IOException {
+        final byte[] source = Files.readAllBytes(path);
+        final CRC32 crc = new CRC32();
+        crc.update(source);
+        final long checksum = crc.getValue();
+
+        try {
+            return readCache(Files.readAllBytes(cachePath), checksum);
+        } catch (IOException ex) {
+            // the cache does not exist yet, or it is stale or damaged, so
+            // it is written anew
+        }
+        final PolyominoSet set = load(new InputStreamReader(
+                new ByteArrayInputStream(source), StandardCharsets.UTF_8));
+        try {
+            Files.write(cachePath, set.writeCache(checksum));
+        } catch (IOException ex) {
+            // the cache only saves the time of the next load, so the set
+            // is used without it (e.g. the directory might be read-only),
+            // a partly written cache is rejected by the next load
+        }
+        return set;
+    }
+
+    /**
+     * Reads the shape set (see the description of the format above). The
+     * reader is not closed.
+     *
+     * @throws  IOException in case the reader fails or the data is not
+     *          a valid shape set.
+     */
+    public static PolyominoSet load(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        Map<String, IntVector[][]> kickTables = new HashMap<>();
+        List<PolyominoShapeType> shapes = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        // the table or the shape which is being read, along with its name
+        // and the line it has started at
+        IntVector[][] kicks = null;
+        String[] rows = null;
+        String[] header = null;
+        String kicksName = null;
+        boolean spinShape = false;
+        int rowsCount = 0, headerLine = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] tokens = line.split("\\s+");
+            if (kicks != null) {
+                readKicks(kicks, tokens, lineNumber);
+                if (++rowsCount == ROTATIONS.length) {
+                    kickTables.put(header[1], kicks);
+                    kicks = null;
+                }
+                continue;
+            }
+            if (rows != null) {
+                if (rowsCount == 0) {
+                    rows = new String[tokens.length];
+                }
+                if (tokens.length != rows.length) {
+                    throw new IOException(String.format(
+                            "Line %d: expected %d tiles, got %d", lineNumber,
+                            rows.length, tokens.length));
+                }
+                rows[rowsCount++] = line;
+                if (rowsCount == rows.length) {
+                    shapes.add(compile(header[1], rows,
+                            kickTables.get(kicksName), spinShape,
+                            headerLine));
+                    rows = null;
+                }
+                continue;
+            }
+
+            header = tokens;
+            headerLine = lineNumber;
+            rowsCount = 0;
+            if (tokens[0].equals("kicks") && tokens.length == 2
+                    && !tokens[1].equals("spin")) {
+                if (kickTables.containsKey(tokens[1])) {
+                    throw new IOException(String.format(
+                            "Line %d: duplicate kicks: %s", lineNumber,
+                            tokens[1]));
+                }
+                kicks = new IntVector[ROTATIONS.length][];
+            } else if (tokens[0].equals("shape") && tokens.length >= 2
+                    && tokens.length <= 4) {
+                spinShape = tokens.length > 2
+                        && tokens[tokens.length - 1].equals("spin");
+                final int optionsCount = tokens.length - (spinShape ? 3 : 2);
+                if (optionsCount > 1) {
+                    throw new IOException(String.format(
+                            "Line %d: expected a shape or kicks, got: %s",
+                            lineNumber, line));
+                }
+                kicksName = optionsCount == 1 ? tokens[2] : null;
+                for (PolyominoShapeType shape : shapes) {
+                    if (shape.getName().equals(tokens[1])) {
+                        throw new IOException(String.format(
+                                "Line %d: duplicate shape: %s", lineNumber,
+                                tokens[1]));
+                    }
+                }
+                if (kicksName != null
+                        && !kickTables.containsKey(kicksName)) {
+                    throw new IOException(String.format(
+                            "Line %d: unknown kicks: %s", lineNumber,
+                            kicksName));
+                }
+                // the size of the frame is known once the first row is read
+                rows = new String[0];
+            } else {
+                throw new IOException(String.format(
+                        "Line %d: expected a shape or kicks, got: %s",
+                        lineNumber, line));
+            }
+        }
+        if (kicks != null || rows != null) {
+            throw new IOException(String.format(
+                    "Line %d: %s is incomplete", headerLine, header[1]));
+        }
+        if (shapes.isEmpty()) {
+            throw new IOException("The shape set has no shapes.");
+        }
+        return new PolyominoSet(shapes.toArray(new PolyominoShapeType[0]));
+    }
+
+    private static void readKicks(IntVector[][] kicks, String[] tokens,
+            int lineNumber) throws IOException {
+        final Rotation rotation;
+        try {
+            rotation = Rotation.valueOf(tokens[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(String.format(
+                    "Line %d: unknown rotation: %s", lineNumber, tokens[0]),
+                    ex);
+        }
+        if (kicks[rotation.ordinal()] != null) {
+            throw new IOException(String.format(
+                    "Line %d: duplicate rotation: %s", lineNumber,
+                    tokens[0]));
+        }
+        final IntVector[] offsets = new IntVector[tokens.length - 1];
+        for (int i = 0; i < offsets.length; i++) {
+            final String[] coords = tokens[i + 1].split(",");
+            try {
+                if (coords.length != 2) {
+                    throw new NumberFormatException();
+                }
+                offsets[i] = new IntVector(Integer.parseInt(coords[0]),
+                        Integer.parseInt(coords[1]));
+            } catch (NumberFormatException ex) {
+                throw new IOException(String.format(
+                        "Line %d: not an offset: %s", lineNumber,
+                        tokens[i + 1]), ex);
+            }
+        }
+        kicks[rotation.ordinal()] = offsets;
+    }
+
+    /**
+     * Derives everything about the shape from its rows in the initial
+     * rotation.
+     *
+     * @param   kicks the kicks of the shape or {@code null} in case it is
+     *          not kicked.
+     */
+    private static PolyominoShapeType compile(String name, String[] rows,
+            IntVector[][] kicks, boolean spinShape, int lineNumber)
+            throws IOException {
+        final int frameSize = rows.length;
+        if (frameSize > Integer.SIZE) {
+            throw new IOException(String.format(
+                    "Line %d: the frame of %s must not be larger than %d,"
+                    + " got %d", lineNumber, name, Integer.SIZE, frameSize));
+        }
+        final int[] initial = new int[frameSize];
+        double xPivot = 0, yPivot = 0;
+        int pivotMarks = 0, blocksCount = 0;
+        for (int y = 0; y < frameSize; y++) {
+            final String[] tiles = rows[y].split("\\s+");
+            for (int x = 0; x < frameSize; x++) {
+                switch (tiles[x]) {
+                    case "x":
+                    case "o":
+                        xPivot += x;
+                        yPivot += y;
+                        pivotMarks++;
+                        break;
+                    case "*":
+                    case ".":
+                        break;
+                    default:
+                        throw new IOException(String.format(
+                                "Line %d: unknown tile of %s: %s",
+                                lineNumber, name, tiles[x]));
+                }
+                if (tiles[x].equals("*") || tiles[x].equals("x")) {
+                    initial[y] |= 1 << x;
+                    blocksCount++;
+                }
+            }
+        }
+        if (blocksCount < MIN_BLOCKS || blocksCount > MAX_BLOCKS) {
+            throw new IOException(String.format(
+                    "Line %d: %s must be built of %d to %d blocks, got %d",
+                    lineNumber, name, MIN_BLOCKS, MAX_BLOCKS, blocksCount));
+        }
+        if (!isConnected(initial, blocksCount)) {
+            throw new IOException(String.format(
+                    "Line %d: the blocks of %s are not connected",
+                    lineNumber, name));
+        }
+        if (pivotMarks == 0) {
+            throw new IOException(String.format(
+                    "Line %d: %s has no pivot", lineNumber, name));
+        }
+        final DoubleVector pivot = new DoubleVector(
+                xPivot / pivotMarks + 0.5, yPivot / pivotMarks + 0.5);
+
+        final int[][] rowMasks = new int[ROTATIONS.length][];
+        for (Rotation rotation : ROTATIONS) {
+            rowMasks[rotation.ordinal()]
+                    = rotate(initial, pivot, rotation, name, lineNumber);
+        }
+
+        int xMin = frameSize, yMin = frameSize, xMax = -1, yMax = -1;
+        for (int y = 0; y < frameSize; y++) {
+            if (initial[y] != 0) {
+                yMin = Math.min(yMin, y);
+                yMax = y;
+                xMin = Math.min(xMin, Integer.numberOfTrailingZeros(
+                        initial[y]));
+                xMax = Math.max(xMax, Integer.SIZE - 1
+                        - Integer.numberOfLeadingZeros(initial[y]));
+            }
+        }
+
+        if (kicks == null) {
+            kicks = new IntVector[ROTATIONS.length][0];
+        }
+        final IntVector aabbMin = new IntVector(xMin, yMin);
+        final IntVector aabbMax = new IntVector(xMax, yMax);
+        // the convex hull is computed through the methods of the shape
+        final DoubleVector[] convexHull = ShapeType.getConvexHull(
+                new PolyominoShapeType(name, frameSize, pivot, rowMasks,
+                        kicks, null, aabbMin, aabbMax, spinShape));
+        return new PolyominoShapeType(name, frameSize, pivot, rowMasks,
+                kicks, convexHull, aabbMin, aabbMax, spinShape);
+    }
+
+    /**
+     * Rotates the rows of the shape around the pivot, just like
+     * {@link poppyfanboy.tetrisgame.util.Util#rotate} does.
+     */
+    private static int[] rotate(int[] rows, DoubleVector pivot,
+            Rotation rotation, String name, int lineNumber)
+            throws IOException {
+        final int frameSize = rows.length;
+        final int[] rotated = new int[frameSize];
+        for (int y = 0; y < frameSize; y++) {
+            for (int x = 0; x < frameSize; x++) {
+                if ((rows[y] & (1 << x)) == 0) {
+                    continue;
+                }
+                DoubleVector coords = new DoubleVector(x + 0.5, y + 0.5)
+                        .subtract(pivot).rotate(rotation).add(pivot);
+                final int xRotated = (int) round(coords.getX() - 0.5);
+                final int yRotated = (int) round(coords.getY() - 0.5);
+                if (xRotated < 0 || xRotated >= frameSize
+                        || yRotated < 0 || yRotated >= frameSize) {
+                    throw new IOException(String.format(
+                            "Line %d: %s leaves its frame once rotated"
+                            + " %s", lineNumber, name,
+                            rotation.name().toLowerCase(Locale.ROOT)));
+                }
+                rotated[yRotated] |= 1 << xRotated;
+            }
+        }
+        return rotated;
+    }
+
+    private static boolean isConnected(int[] rows, int blocksCount) {
+        final int[] visited = new int[rows.length];
+        // start from the lowest block of the first non-empty row
+        int y = 0;
+        while (rows[y] == 0) {
+            y++;
+        }
+        visited[y] = Integer.lowestOneBit(rows[y]);
+        int visitedCount = 1;
+        // grow the visited area until it stops changing, the shapes are
+        // tiny, so this takes a few passes at most
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < rows.length; i++) {
+                int grown = visited[i] | visited[i] << 1 | visited[i] >>> 1;
+                if (i > 0) {
+                    grown |= visited[i - 1];
+                }
+                if (i + 1 < rows.length) {
+                    grown |= visited[i + 1];
+                }
+                grown &= rows[i];
+                if (grown != visited[i]) {
+                    visitedCount += Integer.bitCount(grown ^ visited[i]);
+                    visited[i] = grown;
+                    changed = true;
+                }
+            }
+        }
+        return visitedCount == blocksCount;
+    }
+
+    /**
+     * Cache format: the magic number, the version of the format and the
+     * checksum of the shape set file it has been compiled from, followed
+     * by the shapes. A shape is stored as its name, whether it scores the
+     * spins, the size of its frame, its pivot, its row masks for each of
+     * the rotations, its AABB, its convex hull and its clockwise wall kicks
+     * for each of the rotations.
+     */
+    private byte[] writeCache(long checksum) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(CACHE_MAGIC);
+        out.writeByte(CACHE_VERSION);
+        out.writeLong(checksum);
+        out.writeInt(shapes.length);
+        for (PolyominoShapeType shape : shapes) {
+            out.writeUTF(shape.getName());
+            out.writeBoolean(shape.isSpinShape());
+            out.writeByte(shape.getFrameSize());
+            out.writeDouble(shape.getRotationPivot().getX());
+            out.writeDouble(shape.getRotationPivot().getY());
+            for (Rotation rotation : ROTATIONS) {
+                for (int mask : shape.getRowMasks(rotation)) {
+                    out.writeInt(mask);
+                }
+            }
+            writeVector(out, shape.getPreciseAABBMin());
+            writeVector(out, shape.getPreciseAABBMax());
+            final DoubleVector[] convexHull = shape.getConvexHull();
+            out.writeInt(convexHull.length);
+            for (DoubleVector point : convexHull) {
+                out.writeDouble(point.getX());
+                out.writeDouble(point.getY());
+            }
+            for (Rotation rotation : ROTATIONS) {
+                final IntVector[] kicks = shape.getRightWallKicks(rotation);
+                out.writeInt(kicks.length);
+                for (IntVector kick : kicks) {
+                    writeVector(out, kick);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws  IOException in case the cache is damaged or it has been
+     *          compiled from another shape set file.
+     */
+    private static PolyominoSet readCache(byte[] cache, long checksum)
+            throws IOException {
+        DataInputStream in
+                = new DataInputStream(new ByteArrayInputStream(cache));
+        if (in.readInt() != CACHE_MAGIC || in.readByte() != CACHE_VERSION
+                || in.readLong() != checksum) {
+            throw new IOException("The cache is stale.");
+        }
+        final PolyominoShapeType[] shapes
+                = new PolyominoShapeType[readCount(in, cache.length)];
+        for (int i = 0; i < shapes.length; i++) {
+            final String name = in.readUTF();
+            final boolean spinShape = in.readBoolean();
+            final int frameSize = in.readByte();
+            if (frameSize <= 0 || frameSize > Integer.SIZE) {
+                throw new IOException(String.format(
+                        "Frame size must be between 1 and %d. Got: %d",
+                        Integer.SIZE, frameSize));
+            }
+            final DoubleVector pivot
+                    = new DoubleVector(in.readDouble(), in.readDouble());
+            final int[][] rowMasks = new int[ROTATIONS.length][frameSize];
+            for (int[] masks : rowMasks) {
+                for (int y = 0; y < frameSize; y++) {
+                    masks[y] = in.readInt();
+                }
+            }
+            final IntVector aabbMin = readVector(in);
+            final IntVector aabbMax = readVector(in);
+            final DoubleVector[] convexHull
+                    = new DoubleVector[readCount(in, cache.length)];
+            for (int j = 0; j < convexHull.length; j++) {
+                convexHull[j]
+                        = new DoubleVector(in.readDouble(), in.readDouble());
+            }
+            final IntVector[][] kicks = new IntVector[ROTATIONS.length][];
+            for (int r = 0; r < kicks.length; r++) {
+                kicks[r] = new IntVector[readCount(in, cache.length)];
+                for (int j = 0; j < kicks[r].length; j++) {
+                    kicks[r][j] = readVector(in);
+                }
+            }
+            shapes[i] = new PolyominoShapeType(name, frameSize, pivot,
+                    rowMasks, kicks, convexHull, aabbMin, aabbMax,
+                    spinShape);
+        }
+        if (in.read() != -1) {
+            throw new IOException("The cache has trailing bytes.");
+        }
+        return new PolyominoSet(shapes);
+    }
+
+    // a count can not be larger than the cache itself
+    private static int readCount(DataInputStream in, int max)
+            throws IOException {
+        final int count = in.readInt();
+        if (count < 0 || count > max) {
+            throw new IOException(String.format(
+                    "Count must be between 0 and %d. Got: %d", max, count));
+        }
+        return count;
+    }
+
+    private static void writeVector(DataOutputStream out, IntVector vector)
+            throws IOException {
+        out.writeInt(vector.getX());
+        out.writeInt(vector.getY());
+    }
+
+    private static IntVector readVector(DataInputStream in)
+            throws IOException {
+        return new IntVector(in.readInt(), in.readInt());
+    }
+
+    /**
+     * Returns the shapes of the set in the order they are listed in the
+     * shape set file.
+     */
+    public ShapeType[] getShapeTypes() {
+        return shapes.clone();
+    }
+
+    /**
+     * Returns the shape by its name or {@code null} in case there is no
+     * such shape in the set.
+     */
+    public ShapeType getShapeType(String name) {
+        for (PolyominoShapeType shape : shapes) {
+            if (shape.getName().equals(name)) {
+                return shape;
+            }
+        }
+        return null;
+    }
+
+    public int getShapeTypesCount() {
+        return shapes.length;
+    }
+}
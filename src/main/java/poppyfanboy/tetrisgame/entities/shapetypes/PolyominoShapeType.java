@@ -0,0 +1,182 @@
+package poppyfanboy.tetrisgame.entities.shapetypes;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import poppyfanboy.tetrisgame.util.DoubleVector;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * A shape loaded from a shape set file (see {@link PolyominoSet}). Unlike
+ * the enumerations of the shapes, everything about the shape is computed
+ * by the loader (or read from its cache), this class only holds the
+ * results, so the lookups cost just the same as for the enumerations.
+ */
+public final class PolyominoShapeType implements ShapeType {
+    private static final Rotation[] ROTATIONS = Rotation.values();
+    private static final AtomicLong nextId = new AtomicLong();
+
+    // the names are only unique within a set, the ids are unique among all
+    // of the loaded shapes
+    private final long id = nextId.getAndIncrement();
+    private final String name;
+    private final boolean spinShape;
+    private final int frameSize;
+    private final DoubleVector pivot;
+    // solid[rotation.ordinal()][y][x]
+    private final boolean[][][] solid;
+    private final int[][] rowMasks;
+    private final int[][] columnBottoms;
+    // clockwise and counter-clockwise wall kicks indexed by the ordinal of
+    // the initial rotation
+    private final IntVector[][] rightWallKicks;
+    private final IntVector[][] leftWallKicks;
+    private final DoubleVector[] convexHull;
+    private final IntVector aabbMin, aabbMax;
+    private final int solidBlocksNumber;
+
+    /**
+     * Creates the shape from its row masks for each of the rotations. Only
+     * the things that are cheap to compute (the bottom profiles, the
+     * counter-clockwise wall kicks, etc) are derived here, the rest is
+     * expected to be computed by the loader.
+     *
+     * @param   rowMasks row masks of the shape indexed by the ordinal of
+     *          the rotation.
+     * @param   rightWallKicks clockwise wall kicks indexed by the ordinal
+     *          of the initial rotation.
+     * @param   spinShape whether the shape scores the spins.
+     */
+    PolyominoShapeType(String name, int frameSize, DoubleVector pivot,
+            int[][] rowMasks, IntVector[][] rightWallKicks,
+            DoubleVector[] convexHull, IntVector aabbMin, IntVector aabbMax,
+            boolean spinShape) {
+        this.name = name;
+        this.spinShape = spinShape;
+        this.frameSize = frameSize;
+        this.pivot = pivot;
+        this.rowMasks = rowMasks;
+        this.rightWallKicks = rightWallKicks;
+        this.convexHull = convexHull;
+        this.aabbMin = aabbMin;
+        this.aabbMax = aabbMax;
+
+        solid = new boolean[ROTATIONS.length][frameSize][frameSize];
+        columnBottoms = new int[ROTATIONS.length][frameSize];
+        for (Rotation rotation : ROTATIONS) {
+            final int r = rotation.ordinal();
+            Arrays.fill(columnBottoms[r], -1);
+            for (int y = 0; y < frameSize; y++) {
+                for (int x = 0; x < frameSize; x++) {
+                    if ((rowMasks[r][y] & (1 << x)) != 0) {
+                        solid[r][y][x] = true;
+                        columnBottoms[r][x] = y;
+                    }
+                }
+            }
+        }
+        leftWallKicks = new IntVector[ROTATIONS.length][];
+        for (Rotation rotation : ROTATIONS) {
+            final IntVector[] kicks = rightWallKicks[
+                    rotation.add(Rotation.LEFT).ordinal()];
+            leftWallKicks[rotation.ordinal()] = new IntVector[kicks.length];
+            for (int i = 0; i < kicks.length; i++) {
+                leftWallKicks[rotation.ordinal()][i] = kicks[i].negate();
+            }
+        }
+        int blocksCount = 0;
+        for (int mask : rowMasks[Rotation.INITIAL.ordinal()]) {
+            blocksCount += Integer.bitCount(mask);
+        }
+        solidBlocksNumber = blocksCount;
+    }
+
+    /**
+     * Returns the name of the shape given to it in the shape set file.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number that tells this shape apart from all of the other
+     * shapes loaded while the game runs, including the shapes of the other
+     * sets with the same name.
+     */
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isSolid(int x, int y) {
+        return solid[0][y][x];
+    }
+
+    @Override
+    public boolean isSolid(int x, int y, Rotation rotation) {
+        return solid[rotation.ordinal()][y][x];
+    }
+
+    @Override
+    public int[] getRowMasks(Rotation rotation) {
+        return rowMasks[rotation.ordinal()];
+    }
+
+    @Override
+    public int[] getColumnBottoms(Rotation rotation) {
+        return columnBottoms[rotation.ordinal()];
+    }
+
+    @Override
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    @Override
+    public IntVector[] getRightWallKicks(Rotation initialRotation) {
+        final IntVector[] kicks = rightWallKicks[initialRotation.ordinal()];
+        return Arrays.copyOf(kicks, kicks.length);
+    }
+
+    @Override
+    public IntVector[] getLeftWallKicks(Rotation initialRotation) {
+        final IntVector[] kicks = leftWallKicks[initialRotation.ordinal()];
+        return Arrays.copyOf(kicks, kicks.length);
+    }
+
+    @Override
+    public DoubleVector getRotationPivot() {
+        return pivot;
+    }
+
+    @Override
+    public DoubleVector[] getConvexHull() {
+        return Arrays.copyOf(convexHull, convexHull.length);
+    }
+
+    @Override
+    public IntVector getPreciseAABBMin() {
+        return aabbMin;
+    }
+
+    @Override
+    public IntVector getPreciseAABBMax() {
+        return aabbMax;
+    }
+
+    @Override
+    public int getSolidBlocksNumber() {
+        return solidBlocksNumber;
+    }
+
+    @Override
+    public boolean isSpinShape() {
+        return spinShape;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,6 +1,9 @@
 package poppyfanboy.tetrisgame.entities.shapetypes;
 
 import java.util.ArrayList;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
 import poppyfanboy.tetrisgame.util.IntVector;
 import poppyfanboy.tetrisgame.util.DoubleVector;
 import poppyfanboy.tetrisgame.util.Rotation;
@@ -20,6 +23,27 @@ public interface ShapeType {
 
     boolean isSolid(int x, int y, Rotation rotation);
 
+    /**
+     * Returns the rows of the shape in the specified rotation packed
+     * into bitmasks: the {@code x}-th bit of the {@code y}-th mask is set
+     * in case {@code isSolid(x, y, rotation)} returns {@code true}.
+     *
+     * The masks are computed once, so the returned array is shared and
+     * must not be modified.
+     */
+    int[] getRowMasks(Rotation rotation);
+
+    /**
+     * Returns the bottom profile of the shape in the specified rotation:
+     * the {@code x}-th element is the {@code y} coordinate of the lowest
+     * solid block in the {@code x}-th column of the frame, or {@code -1}
+     * in case the column is empty.
+     *
+     * The profiles are computed once, so the returned array is shared and
+     * must not be modified.
+     */
+    int[] getColumnBottoms(Rotation rotation);
+
     /**
      * Size of the {@code boolean[][]} array returned by the
      * {@code getShape} methods.
@@ -79,6 +103,94 @@ public interface ShapeType {
         return solidBlocksCount;
     }
 
+    /**
+     * Tells if the shape scores the spins, i.e. if it counts as T-spinned
+     * once it is rotated into a place with at least three of the four
+     * tiles diagonal to its pivot occupied.
+     */
+    default boolean isSpinShape() {
+        return false;
+    }
+
+    /**
+     * Returns the checksum of everything the game logic knows about the
+     * shapes: their order, the blocks and the wall kicks of every rotation
+     * and whether they are spin shapes. So the games played with the
+     * different shapes (e.g. the recorded ones) can be told apart.
+     */
+    static long getChecksum(ShapeType[] shapeTypes) {
+        final CRC32 crc = new CRC32();
+        final IntConsumer write = value -> {
+            crc.update(value >>> 24);
+            crc.update(value >>> 16);
+            crc.update(value >>> 8);
+            crc.update(value);
+        };
+        write.accept(shapeTypes.length);
+        for (ShapeType shapeType : shapeTypes) {
+            write.accept(shapeType.getFrameSize());
+            write.accept(shapeType.isSpinShape() ? 1 : 0);
+            for (Rotation rotation : Rotation.values()) {
+                for (int rowMask : shapeType.getRowMasks(rotation)) {
+                    write.accept(rowMask);
+                }
+                for (IntVector[] kicks : new IntVector[][] {
+                        shapeType.getRightWallKicks(rotation),
+                        shapeType.getLeftWallKicks(rotation) }) {
+                    write.accept(kicks.length);
+                    for (IntVector kick : kicks) {
+                        write.accept(kick.getX());
+                        write.accept(kick.getY());
+                    }
+                }
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Packs the rows of the specified shape into bitmasks. This method is
+     * not supposed to be used anywhere except for the static initializer
+     * blocks of the implementations of the {@code ShapeType} interface.
+     */
+    static int[] getRowMasks(ShapeType shapeType, Rotation rotation) {
+        final int frameSize = shapeType.getFrameSize();
+        if (frameSize > Integer.SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "Frame size of the shape is too big to be packed into"
+                    + " the row masks. Got: frameSize = %d", frameSize));
+        }
+        int[] rowMasks = new int[frameSize];
+        for (int y = 0; y < frameSize; y++) {
+            for (int x = 0; x < frameSize; x++) {
+                if (shapeType.isSolid(x, y, rotation)) {
+                    rowMasks[y] |= 1 << x;
+                }
+            }
+        }
+        return rowMasks;
+    }
+
+    /**
+     * Computes the bottom profile of the specified shape. This method is
+     * not supposed to be used anywhere except for the static initializer
+     * blocks of the implementations of the {@code ShapeType} interface.
+     */
+    static int[] getColumnBottoms(ShapeType shapeType, Rotation rotation) {
+        final int frameSize = shapeType.getFrameSize();
+        int[] columnBottoms = new int[frameSize];
+        for (int x = 0; x < frameSize; x++) {
+            columnBottoms[x] = -1;
+            for (int y = frameSize - 1; y >= 0; y--) {
+                if (shapeType.isSolid(x, y, rotation)) {
+                    columnBottoms[x] = y;
+                    break;
+                }
+            }
+        }
+        return columnBottoms;
+    }
+
     /**
      * Returns a set normalized coordinates of the convex hull of the
      * specified shape. This method is not supposed to be used
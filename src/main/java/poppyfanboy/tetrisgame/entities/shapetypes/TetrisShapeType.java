@@ -81,6 +81,10 @@ public enum TetrisShapeType implements ShapeType {
     private boolean[][] initial, left, right, upsideDown;
     private DoubleVector pivot;
     private DoubleVector[] convexHull;
+    // row masks of the shape indexed by the ordinal of the rotation
+    private int[][] rowMasks;
+    // bottom profiles of the shape indexed by the ordinal of the rotation
+    private int[][] columnBottoms;
     
     /**
      * Loads the {@code boolean[][]} representations of the shapes
@@ -121,6 +125,15 @@ public enum TetrisShapeType implements ShapeType {
             shape.upsideDown = Util.rotate(shape.initial,
                     shape.pivot, Rotation.UPSIDE_DOWN);
             shape.convexHull = ShapeType.getConvexHull(shape);
+
+            shape.rowMasks = new int[Rotation.values().length][];
+            shape.columnBottoms = new int[Rotation.values().length][];
+            for (Rotation rotation : Rotation.values()) {
+                shape.rowMasks[rotation.ordinal()]
+                        = ShapeType.getRowMasks(shape, rotation);
+                shape.columnBottoms[rotation.ordinal()]
+                        = ShapeType.getColumnBottoms(shape, rotation);
+            }
         }
         // these arrays are not needed anymore
         shapes = null;
@@ -184,6 +197,16 @@ public enum TetrisShapeType implements ShapeType {
         return pivot;
     }
 
+    @Override
+    public int[] getRowMasks(Rotation rotation) {
+        return rowMasks[rotation.ordinal()];
+    }
+
+    @Override
+    public int[] getColumnBottoms(Rotation rotation) {
+        return columnBottoms[rotation.ordinal()];
+    }
+
     @Override
     public DoubleVector[] getConvexHull() {
         return Arrays.copyOf(convexHull, convexHull.length);
@@ -215,6 +238,11 @@ public enum TetrisShapeType implements ShapeType {
         return 4;
     }
 
+    @Override
+    public boolean isSpinShape() {
+        return this == T_SHAPE;
+    }
+
     @Override
     public String toString() {
         return Util.booleanMatrixToString(initial);
@@ -9,6 +9,8 @@ import poppyfanboy.tetrisgame.graphics.AnimationEndHandler.AnimationEndReason;
 
 /**
  * A wrapper-class for the animation and the animations related to this object.
+ * The wrappers of the animations are kept once they are over and reused for
+ * the next animations of the same type.
  */
 public final class AnimatedObject<T, K extends Enum<K>> {
     private final Class<K> animationTypes;
@@ -34,9 +36,12 @@ public final class AnimatedObject<T, K extends Enum<K>> {
                 = animations.values().iterator();
         while (animationsIterator.hasNext()) {
             AnimationWrapper<T> animation = animationsIterator.next();
+            if (animation.finished()) {
+                continue;
+            }
             animation.tick();
             if (animation.finished()) {
-                animationsIterator.remove();
+                animation.clear();
             }
         }
         isIterating = false;
@@ -45,9 +50,14 @@ public final class AnimatedObject<T, K extends Enum<K>> {
         }
     }
 
-    public void tempFastForward(double ticksCount) {
+    /**
+     * Writes the state of the object the specified number of ticks ahead
+     * into the pose, which is expected to hold the current state of the
+     * object. The object itself is not changed.
+     */
+    public void sampleAt(T pose, double ticksCount) {
         for (AnimationWrapper<T> animation : animations.values()) {
-            animation.tempFastForward(ticksCount);
+            animation.sampleAt(pose, ticksCount);
         }
     }
 
@@ -80,23 +90,26 @@ public final class AnimatedObject<T, K extends Enum<K>> {
                     endHandler));
             return;
         }
-        AnimationWrapper<T> newAnimation = endHandler == null
-                ? new AnimationWrapper<>(object, animation)
-                : new AnimationWrapper<>(object, animation, endHandler);
-        if (animations.containsKey(animationType)) {
-            AnimationWrapper<T> oldAnimation = animations.get(animationType);
-            if (!oldAnimation.conflicts(newAnimation)) {
-                newAnimation = oldAnimation.affect(newAnimation);
-            } else {
-                oldAnimation.interrupt(
-                        AnimationEndReason.INTERRUPTED_BY_ANIMATION);
+        AnimationWrapper<T> wrapper = animations.get(animationType);
+        if (wrapper == null) {
+            animations.put(animationType, endHandler == null
+                    ? new AnimationWrapper<>(object, animation)
+                    : new AnimationWrapper<>(object, animation, endHandler));
+            return;
+        }
+        if (!wrapper.finished()) {
+            if (!wrapper.conflicts(animation)) {
+                wrapper.combine(animation, endHandler);
+                return;
             }
+            wrapper.interrupt(AnimationEndReason.INTERRUPTED_BY_ANIMATION);
         }
-        animations.put(animationType, newAnimation);
+        wrapper.reset(object, animation, endHandler);
     }
 
     public void addCallback(K animationType, AnimationEndHandler endHandler) {
-        if (!animations.containsKey(animationType)) {
+        if (!animations.containsKey(animationType)
+                || animations.get(animationType).finished()) {
             throw new IllegalArgumentException(String.format("There is no "
                     + "animation of the specified %s type on the list",
                     animationType));
@@ -116,7 +129,7 @@ public final class AnimatedObject<T, K extends Enum<K>> {
         if (animations.containsKey(animationType)) {
             animations.get(animationType)
                     .interrupt(AnimationEndReason.INTERRUPTED);
-            animations.remove(animationType);
+            animations.get(animationType).clear();
         }
     }
 
@@ -127,10 +140,18 @@ public final class AnimatedObject<T, K extends Enum<K>> {
         if (animations.containsKey(animationType)) {
             animations.get(animationType)
                     .interrupt(AnimationEndReason.FORCE_FINISHED);
-            animations.remove(animationType);
+            animations.get(animationType).clear();
         }
     }
 
+    /**
+     * Removes all of the animations without triggering their callbacks,
+     * the animations are recycled.
+     */
+    public void clear() {
+        animations.values().forEach(AnimationWrapper::clear);
+    }
+
     public Animation<T> getAnimation(K animationType) {
         if (!animations.containsKey(animationType)
                 || animations.get(animationType).finished()) {
@@ -1,11 +1,50 @@
 package poppyfanboy.tetrisgame.graphics;
 
 public abstract class Animation<AnimatedObject> {
+    // set for the animations created by a pool (see AnimationPool)
+    AnimationPool<?> pool;
+    boolean released;
+    AnimationPool.LeakTracker leakTracker;
+
+    private Easing easing = Easing.LINEAR;
+
+    /**
+     * Sets the curve the animation follows, the linear one is the default
+     * (the animations obtained from a pool are reset to it as well).
+     */
+    public Animation<AnimatedObject> setEasing(Easing easing) {
+        if (easing == null) {
+            throw new IllegalArgumentException("Easing cannot be null.");
+        }
+        this.easing = easing;
+        return this;
+    }
+
+    public Easing getEasing() {
+        return easing;
+    }
+
     public abstract void perform(AnimatedObject object, int currentDuration,
             double interpolation);
 
     public abstract boolean isFinished(int currentDuration);
 
+    /**
+     * Writes the state of the animated object at the specified moment of
+     * the animation into the {@code pose}, the pose is expected to hold the
+     * current state of the object. Neither the animation nor the animated
+     * object are changed.
+     *
+     * By default the animation is performed on the pose, which is fine for
+     * the animations whose state at any moment is computed right from the
+     * moment and the passed object (as opposed to the animations that
+     * update themselves as they are performed).
+     */
+    public void sampleAt(AnimatedObject pose, int currentDuration,
+            double interpolation) {
+        perform(pose, currentDuration, interpolation);
+    }
+
     public abstract void finish(AnimatedObject object);
 
     /**
@@ -29,7 +68,8 @@ public abstract class Animation<AnimatedObject> {
      * rotation right where this animation currently is.)
      *
      * Note that for this method to be called the {@code this.conflicts(other)}
-     * must return {@code false}.
+     * must return {@code false}. The {@code other} animation can be reset
+     * and returned as the result, since it is not used anywhere else.
      */
     public Animation<AnimatedObject> affect(int thisDuration,
             Animation<AnimatedObject> other) {
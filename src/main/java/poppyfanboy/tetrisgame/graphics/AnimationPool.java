@@ -0,0 +1,165 @@
+package poppyfanboy.tetrisgame.graphics;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A pool of the animations of a single class. The animations obtained from
+ * the pool are set up with their {@code reset} methods instead of the
+ * constructors, and once an animation is over it is released back into
+ * the pool by the animation manager (see {@link #recycle}), so that no
+ * animations are allocated once the pool has warmed up.
+ *
+ * In the debug mode the pool keeps track of the obtained animations: an
+ * animation that has been thrown away without being released is reported
+ * along with the place where it was obtained, once it is garbage
+ * collected.
+ */
+public class AnimationPool<A extends Animation<?>> {
+    // the pool does not grow bigger than that, the animations released
+    // into a full pool are left for the garbage collector
+    private static final int MAX_FREE_COUNT = 1024;
+
+    private final Supplier<A> factory;
+    private Animation<?>[] free = new Animation<?>[16];
+    private int freeCount = 0;
+
+    private long createdCount = 0, obtainedCount = 0;
+
+    private boolean debug = false;
+    private final ReferenceQueue<Animation<?>> collected
+            = new ReferenceQueue<>();
+    private final Set<LeakTracker> trackers = new HashSet<>();
+    private long leaksCount = 0;
+
+    /**
+     * @param   factory creates new animations in case the pool is empty.
+     */
+    public AnimationPool(Supplier<A> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Returns an animation from the pool or a new one in case the pool is
+     * empty. The animation must be set up with its {@code reset} method.
+     */
+    @SuppressWarnings("unchecked")
+    public A obtain() {
+        final A animation;
+        if (freeCount != 0) {
+            animation = (A) free[--freeCount];
+            free[freeCount] = null;
+        } else {
+            animation = factory.get();
+            animation.pool = this;
+            createdCount++;
+        }
+        animation.released = false;
+        animation.setEasing(Easing.LINEAR);
+        obtainedCount++;
+        if (debug) {
+            pollLeaks();
+            animation.leakTracker = new LeakTracker(animation, collected);
+            trackers.add(animation.leakTracker);
+        }
+        return animation;
+    }
+
+    /**
+     * Puts the animation back into its pool. Does nothing for the
+     * animations that have not been obtained from a pool or that are
+     * {@code null}.
+     *
+     * @throws  IllegalStateException in case the animation has already
+     *          been released.
+     */
+    public static void recycle(Animation<?> animation) {
+        if (animation != null && animation.pool != null) {
+            animation.pool.release(animation);
+        }
+    }
+
+    private void release(Animation<?> animation) {
+        if (animation.released) {
+            throw new IllegalStateException(String.format(
+                    "The animation has already been released: %s",
+                    animation));
+        }
+        animation.released = true;
+        if (animation.leakTracker != null) {
+            trackers.remove(animation.leakTracker);
+            animation.leakTracker.clear();
+            animation.leakTracker = null;
+        }
+        if (freeCount == MAX_FREE_COUNT) {
+            return;
+        }
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, 2 * free.length);
+        }
+        free[freeCount++] = animation;
+    }
+
+    /**
+     * Turns the leak detection on or off. Only the animations obtained
+     * while the detection is on are tracked.
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+        if (!debug) {
+            trackers.clear();
+        }
+    }
+
+    /**
+     * Returns the number of the animations created by the pool (as opposed
+     * to the ones reused).
+     */
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getObtainedCount() {
+        return obtainedCount;
+    }
+
+    /**
+     * Returns the number of the leaked animations detected so far. Only
+     * the animations that have already been garbage collected are
+     * detected.
+     */
+    public long getLeaksCount() {
+        pollLeaks();
+        return leaksCount;
+    }
+
+    private void pollLeaks() {
+        Reference<? extends Animation<?>> reference;
+        while ((reference = collected.poll()) != null) {
+            // the trackers of the released animations are cleared, so they
+            // never get here
+            if (trackers.remove(reference)) {
+                leaksCount++;
+                ((LeakTracker) reference).trace.printStackTrace();
+            }
+        }
+    }
+
+    static final class LeakTracker extends WeakReference<Animation<?>> {
+        private final Throwable trace;
+
+        private LeakTracker(Animation<?> animation,
+                ReferenceQueue<Animation<?>> queue) {
+            super(animation, queue);
+            trace = new Throwable(String.format(
+                    "The %s animation has not been released, it was"
+                    + " obtained here:",
+                    animation.getClass().getSimpleName()));
+        }
+    }
+}
@@ -9,16 +9,28 @@ import poppyfanboy.tetrisgame.graphics.AnimationEndHandler.AnimationEndReason;
 /**
  * A wrapper class for the animation, an object related to it and the
  * callbacks that are triggered when the animation ends.
+ *
+ * The wrapper can be reused for the next animations once its animation is
+ * over (see {@link #reset}). The animations are recycled (see
+ * {@link AnimationPool#recycle}) as soon as the wrapper lets go of them.
  */
 public class AnimationWrapper<T> {
-    private final Animation<T> animation;
-    private final T object;
+    private Animation<T> animation;
+    private T object;
 
     private int duration = 0;
     // might not have the same value as animation.isFinished(duration)
     private boolean isFinished;
     private List<AnimationEndHandler> endHandlers;
 
+    /**
+     * Creates a finished wrapper with no animation, it is meant to be
+     * {@link #reset} later.
+     */
+    public AnimationWrapper() {
+        isFinished = true;
+    }
+
     public AnimationWrapper(T object, Animation<T> animation) {
         if (object == null || animation == null) {
             throw new IllegalArgumentException("Neither animation, nor"
@@ -39,12 +51,46 @@ public class AnimationWrapper<T> {
         endHandlers = new ArrayList<>(Collections.singleton(endHandler));
     }
 
-    private AnimationWrapper(T object, Animation<T> animation,
-            boolean isFinished, List<AnimationEndHandler> endHandlers) {
-        this.animation = animation;
+    /**
+     * Replaces the animation of the wrapper with a new one, the old
+     * animation is recycled without being finished and its callbacks are
+     * dropped.
+     *
+     * @param   endHandler can be {@code null}.
+     */
+    public void reset(T object, Animation<T> animation,
+            AnimationEndHandler endHandler) {
+        if (object == null || animation == null) {
+            throw new IllegalArgumentException("Neither animation, nor"
+                    + " animated objects can be null.");
+        }
+        if (this.animation != animation) {
+            AnimationPool.recycle(this.animation);
+        }
         this.object = object;
-        this.endHandlers = endHandlers;
-        this.isFinished = isFinished;
+        this.animation = animation;
+        duration = 0;
+        isFinished = false;
+        if (endHandlers != null) {
+            endHandlers.clear();
+        }
+        if (endHandler != null) {
+            notifyOnAnimationEnd(endHandler);
+        }
+    }
+
+    /**
+     * Recycles the animation and drops the callbacks, the wrapper is
+     * finished afterwards. Does not trigger the callbacks.
+     */
+    public void clear() {
+        AnimationPool.recycle(animation);
+        animation = null;
+        object = null;
+        isFinished = true;
+        if (endHandlers != null) {
+            endHandlers.clear();
+        }
     }
 
     public void tick() {
@@ -55,23 +101,31 @@ public class AnimationWrapper<T> {
         if (animation.isFinished(duration)) {
             animation.finish(object);
             isFinished = true;
-            if (endHandlers != null) {
-                endHandlers.forEach(endHandler -> endHandler.handleAnimationEnd(
-                        AnimationEndReason.PROPERLY_FINISHED));
-            }
+            notifyEndHandlers(AnimationEndReason.PROPERLY_FINISHED);
         }
     }
 
-    public void tempFastForward(double ticksCount) {
-        animation.perform(object, duration + (int) ticksCount,
+    /**
+     * Samples the animation the specified number of ticks ahead on the
+     * pose (see {@link Animation#sampleAt}), does nothing in case the
+     * animation is over.
+     */
+    public void sampleAt(T pose, double ticksCount) {
+        if (isFinished) {
+            return;
+        }
+        animation.sampleAt(pose, duration + (int) ticksCount,
                 ticksCount - ((int) ticksCount));
     }
 
     public void perform() {
-        animation.perform(object, duration, 0.0);
+        perform(0.0);
     }
 
     public void perform(double interpolation) {
+        if (isFinished) {
+            return;
+        }
         animation.perform(object, duration, interpolation);
     }
 
@@ -80,13 +134,13 @@ public class AnimationWrapper<T> {
     }
 
     public void finish() {
+        if (animation == null) {
+            return;
+        }
         animation.finish(object);
         if (!isFinished) {
             isFinished = true;
-            if (endHandlers != null) {
-                endHandlers.forEach(endHandler -> endHandler
-                        .handleAnimationEnd(AnimationEndReason.FORCE_FINISHED));
-            }
+            notifyEndHandlers(AnimationEndReason.FORCE_FINISHED);
         }
     }
 
@@ -102,10 +156,7 @@ public class AnimationWrapper<T> {
         }
         if (!isFinished) {
             isFinished = true;
-            if (endHandlers != null) {
-                endHandlers.forEach(endHandler -> endHandler.
-                        handleAnimationEnd(AnimationEndReason.INTERRUPTED));
-            }
+            notifyEndHandlers(AnimationEndReason.INTERRUPTED);
         }
     }
 
@@ -124,29 +175,48 @@ public class AnimationWrapper<T> {
         return animation;
     }
 
-    public boolean conflicts(AnimationWrapper<T> other) {
-        return this.animation.conflicts(this.duration, other.animation);
+    public boolean conflicts(Animation<T> other) {
+        return this.animation.conflicts(this.duration, other);
     }
 
-    public AnimationWrapper<T> affect(AnimationWrapper<T> other) {
-        if (this.object != other.object) {
-            return other;
+    /**
+     * Combines the running animation of the wrapper with the {@code other}
+     * one (see {@link Animation#affect}) and starts the result over. The
+     * callbacks of the running animation are kept. Must only be called in
+     * case the animations do not conflict.
+     *
+     * @param   endHandler can be {@code null}.
+     */
+    public void combine(Animation<T> other, AnimationEndHandler endHandler) {
+        final Animation<T> affectedAnimation
+                = this.animation.affect(this.duration, other);
+        if (affectedAnimation != animation) {
+            AnimationPool.recycle(animation);
         }
-        Animation<T> affectedAnimation = this.animation.affect(this.duration,
-                other.animation);
-        List<AnimationEndHandler> newEndHandlers = new ArrayList<>();
-        if (!this.isFinished && this.endHandlers != null) {
-            newEndHandlers.addAll(this.endHandlers);
+        if (affectedAnimation != other) {
+            AnimationPool.recycle(other);
         }
-        if (!other.isFinished && other.endHandlers != null) {
-            newEndHandlers.addAll(other.endHandlers);
+        animation = affectedAnimation;
+        duration = 0;
+        isFinished = false;
+        if (endHandler != null) {
+            notifyOnAnimationEnd(endHandler);
         }
-        return new AnimationWrapper<>(object, affectedAnimation,
-                other.isFinished, newEndHandlers);
     }
 
-
     public T getObject() {
         return object;
     }
+
+    // the handlers might reset the wrapper, the handlers added by the
+    // reset are not notified then
+    private void notifyEndHandlers(AnimationEndReason reason) {
+        if (endHandlers == null) {
+            return;
+        }
+        final int count = endHandlers.size();
+        for (int i = 0; i < count && i < endHandlers.size(); i++) {
+            endHandlers.get(i).handleAnimationEnd(reason);
+        }
+    }
 }
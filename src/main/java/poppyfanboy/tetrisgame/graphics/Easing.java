@@ -0,0 +1,71 @@
+package poppyfanboy.tetrisgame.graphics;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Easing curves of the animations: they map the progress of an animation
+ * (from 0 to 1) to the progress of the animated property. The curves are
+ * tabulated once and linearly interpolated between the samples, so any
+ * curve costs the same per frame no matter how complex it is, and the
+ * animations pick their curves as plain values (see
+ * {@link Animation#setEasing}) instead of overriding their math.
+ */
+public enum Easing {
+    /**
+     * The progress is passed as it is, it is not clamped either.
+     */
+    LINEAR(null),
+    /**
+     * Uniformly accelerated motion from rest.
+     */
+    ACCELERATED(progress -> progress * progress),
+    EASE_IN_OUT(progress -> (1 - Math.cos(Math.PI * progress)) / 2),
+    /**
+     * Goes a bit past the end and comes back.
+     */
+    OVERSHOOT(progress -> {
+        final double t = progress - 1;
+        return 1 + 2.70158 * t * t * t + 1.70158 * t * t;
+    }),
+    /**
+     * Goes from 0 up to 1 in the middle and back down to 0.
+     */
+    BUMP(progress -> 4 * progress * (1 - progress));
+
+    // number of the intervals between the samples of the curves
+    private static final int TABLE_SIZE = 256;
+
+    // table[i] is the value of the curve at i / TABLE_SIZE
+    private final double[] table;
+
+    Easing(DoubleUnaryOperator curve) {
+        if (curve == null) {
+            table = null;
+            return;
+        }
+        table = new double[TABLE_SIZE + 1];
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            table[i] = curve.applyAsDouble((double) i / TABLE_SIZE);
+        }
+    }
+
+    /**
+     * Returns the value of the curve. The progress is clamped to the
+     * {@code [0, 1]} interval (except for the linear curve).
+     */
+    public double apply(double progress) {
+        if (table == null) {
+            return progress;
+        }
+        if (progress <= 0) {
+            return table[0];
+        }
+        if (progress >= 1) {
+            return table[TABLE_SIZE];
+        }
+        final double position = progress * TABLE_SIZE;
+        final int index = (int) position;
+        return table[index]
+                + (table[index + 1] - table[index]) * (position - index);
+    }
+}
@@ -1,41 +1,78 @@
 package poppyfanboy.tetrisgame.graphics.animation2D;
 
 import poppyfanboy.tetrisgame.graphics.Animation;
+import poppyfanboy.tetrisgame.graphics.Easing;
+import poppyfanboy.tetrisgame.logic.GameLogic;
 import poppyfanboy.tetrisgame.util.DoubleVector;
 
+/**
+ * Moves the object along a straight line with a constant acceleration.
+ * The motion is evaluated as a curve of the progress over the time it
+ * takes to cover the distance: a mix of the linear and the
+ * {@link Easing#ACCELERATED} curves, weighted by how much of the distance
+ * is covered due to the initial speed.
+ */
 public class AcceleratedMoveAnimation extends Animation<Animated2D> {
     // acceleration is specified in terms of the blocks as measurement units
-    private static final double ACCELERATION = 0.03;
+    private static final double ACCELERATION = GameLogic.DROP_ACCELERATION;
 
-    private final DoubleVector startCoords, endCoords;
+    private DoubleVector startCoords, endCoords;
     private double initialSpeed;
+    // computed once the animation is reset
+    private DoubleVector direction;
+    private double length;
+    // the (fractional) number of ticks it takes to cover the distance and
+    // the part of the distance covered due to the initial speed
+    private double moveDuration;
+    private double linearWeight;
+
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public AcceleratedMoveAnimation() {
+    }
 
     public AcceleratedMoveAnimation(DoubleVector startCoords,
             DoubleVector endCoords, double initialSpeed) {
+        reset(startCoords, endCoords, initialSpeed);
+    }
+
+    public AcceleratedMoveAnimation reset(DoubleVector startCoords,
+            DoubleVector endCoords, double initialSpeed) {
         this.startCoords = startCoords;
         this.endCoords = endCoords;
         this.initialSpeed = initialSpeed;
+        length = endCoords.subtract(startCoords).length();
+        direction = length == 0
+                ? new DoubleVector(0, 0)
+                : endCoords.subtract(startCoords).normalize();
+        // v0 * t + a * t^2 / 2 = length
+        moveDuration = (Math.sqrt(initialSpeed * initialSpeed
+                + 2 * ACCELERATION * length) - initialSpeed) / ACCELERATION;
+        linearWeight = length == 0
+                ? 1.0
+                : initialSpeed * moveDuration / length;
+        return this;
     }
 
     @Override
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
-        double currentDistance
-                = getDistance(currentDuration + interpolation, initialSpeed,
-                ACCELERATION);
-        if (currentDistance < endCoords.subtract(startCoords).length()) {
-            object.setCoords(startCoords.add(endCoords
-                    .subtract(startCoords).normalize()
-                    .times(currentDistance)));
-        } else {
+        final double time = currentDuration + interpolation;
+        if (time >= moveDuration) {
             object.setCoords(endCoords);
+            return;
         }
+        final double progress = getEasing().apply(time / moveDuration);
+        final double currentDistance = length * (linearWeight * progress
+                + (1 - linearWeight) * Easing.ACCELERATED.apply(progress));
+        object.setCoords(startCoords.add(direction.times(currentDistance)));
     }
 
     @Override
     public boolean isFinished(int duration) {
-        return getDistance(duration, initialSpeed, ACCELERATION)
-                >= endCoords.subtract(startCoords).length();
+        return getDistance(duration, initialSpeed, ACCELERATION) >= length;
     }
 
     @Override
@@ -9,22 +9,36 @@ public class BlockBreakAnimation extends Animation<Animated2D> {
     private static final double FINAL_ROTATION_ANGLE = -Math.PI / 3;
     private static final double SCALE_COEFFICIENT = 0.3;
 
-    private final double startScale, startAngle;
+    private double startScale, startAngle;
     private int duration;
 
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public BlockBreakAnimation() {
+    }
+
     public BlockBreakAnimation(double startAngle, double startScale,
             int duration) {
+        reset(startAngle, startScale, duration);
+    }
+
+    public BlockBreakAnimation reset(double startAngle, double startScale,
+            int duration) {
         this.duration = duration;
         this.startAngle = startAngle;
         this.startScale = startScale;
+        return this;
     }
 
     @Override
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
-        double progress = duration == 0
+        double progress = getEasing().apply(duration == 0
                 ? 1.0
-                : (currentDuration + interpolation) / duration;
+                : Math.min((currentDuration + interpolation) / duration,
+                        1.0));
         object.setOpacity(1.0 - progress);
         object.setScale(startScale
                 + progress * (SCALE_COEFFICIENT * startScale - startScale));
@@ -39,7 +53,7 @@ public class BlockBreakAnimation extends Animation<Animated2D> {
     @Override
     public void finish(Animated2D object) {
         object.setOpacity(0.0);
-        object.setScale(SCALE_COEFFICIENT * startAngle);
+        object.setScale(SCALE_COEFFICIENT * startScale);
         object.setRotationAngle(startAngle + FINAL_ROTATION_ANGLE);
     }
 }
@@ -1,33 +1,52 @@
 package poppyfanboy.tetrisgame.graphics.animation2D;
 
 import poppyfanboy.tetrisgame.graphics.Animation;
+import poppyfanboy.tetrisgame.graphics.Easing;
 
 import static java.lang.Math.min;
 import static java.lang.Math.max;
 
 public class GhostModeAnimation extends Animation<Animated2D> {
-    private final double startProgress;
-    private final int duration;
+    private double startProgress;
+    private int duration;
+
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public GhostModeAnimation() {
+    }
 
     public GhostModeAnimation(int duration) {
-        this.duration = duration;
-        startProgress = 0;
+        reset(duration, 0);
     }
 
     public GhostModeAnimation(int duration, double startProgress) {
+        reset(duration, startProgress);
+    }
+
+    public GhostModeAnimation reset(int duration) {
+        return reset(duration, 0);
+    }
+
+    public GhostModeAnimation reset(int duration, double startProgress) {
         this.duration = duration;
         this.startProgress = max(min(startProgress, 1), 0);
+        return this;
     }
 
     @Override
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
-        double progress = duration == 0
+        double progress = getEasing().apply(duration == 0
                 ? 1.0
                 : min(max((currentDuration + interpolation) / duration,
-                        startProgress), 1);
-        object.setScale(3 * progress * progress - 3 * progress + 1);
-        object.setBrightness(-4 * progress * progress + 4 * progress);
+                        startProgress), 1));
+        // the shape shrinks to a quarter of its size and lights up in the
+        // middle of the animation
+        final double bump = Easing.BUMP.apply(progress);
+        object.setScale(1 - 0.75 * bump);
+        object.setBrightness(bump);
     }
 
     @Override
@@ -51,7 +70,7 @@ public class GhostModeAnimation extends Animation<Animated2D> {
         double currentProgress = duration == 0
                 ? 1.0
                 : min(max((double) thisDuration / duration, startProgress), 1);
-        return new GhostModeAnimation(otherAnimation.duration, currentProgress);
+        return otherAnimation.reset(otherAnimation.duration, currentProgress);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package poppyfanboy.tetrisgame.graphics.animation2D;
 
 import poppyfanboy.tetrisgame.graphics.Animation;
+import poppyfanboy.tetrisgame.graphics.Easing;
 import poppyfanboy.tetrisgame.util.DoubleVector;
 
 import static java.lang.Math.min;
@@ -11,18 +12,41 @@ import static java.lang.Math.min;
  * not changing the x coordinate as well.
  */
 public class HVLinearAnimation extends Animation<Animated2D> {
-    private final double startCoords, endCoords;
-    private final int defaultDuration;
-    private final double defaultShift;
+    private double startCoords, endCoords;
+    private int defaultDuration;
+    private double defaultShift;
 
     private int duration;
     private boolean isHorizontal;
 
+    /**
+     * Creates an animation that must be set up with the
+     * {@link #resetHorizontal} or {@link #resetVertical} method, meant for
+     * the animation pools.
+     */
+    public HVLinearAnimation() {
+    }
+
+    private HVLinearAnimation(double startCoords, double endCoords,
+            int duration, double defaultShift, boolean isHorizontal) {
+        reset(startCoords, endCoords, duration, defaultShift, isHorizontal);
+    }
+
+    public HVLinearAnimation resetHorizontal(double startCoords,
+            double endCoords, int duration, double defaultShift) {
+        return reset(startCoords, endCoords, duration, defaultShift, true);
+    }
+
+    public HVLinearAnimation resetVertical(double startCoords,
+            double endCoords, int duration, double defaultShift) {
+        return reset(startCoords, endCoords, duration, defaultShift, false);
+    }
+
     /**
      * @param   isHorizontal {@code true} for the horizontal movement,
      *          {@code false} for the vertical movement.
      */
-    private HVLinearAnimation(double startCoords, double endCoords,
+    private HVLinearAnimation reset(double startCoords, double endCoords,
             int duration, double defaultShift, boolean isHorizontal) {
         this.startCoords = startCoords;
         this.endCoords = endCoords;
@@ -33,13 +57,14 @@ public class HVLinearAnimation extends Animation<Animated2D> {
         double distance = Math.abs(endCoords - startCoords);
         this.duration
                 = (int) (min(distance / defaultShift, 1.0) * duration);
+        return this;
     }
 
     @Override
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
         double currCoords = getCurrentCoords(startCoords, endCoords,
-                currentDuration, duration, interpolation);
+                currentDuration, duration, interpolation, getEasing());
         if (isHorizontal) {
             // y coordinate remains unchanged
             object.setCoords(new DoubleVector(
@@ -80,8 +105,9 @@ public class HVLinearAnimation extends Animation<Animated2D> {
         }
 
         double currentCoords = getCurrentCoords(this.startCoords,
-                this.endCoords, thisDuration, this.duration, 0.0);
-        return new HVLinearAnimation(currentCoords, otherAnimation.endCoords,
+                this.endCoords, thisDuration, this.duration, 0.0,
+                getEasing());
+        return otherAnimation.reset(currentCoords, otherAnimation.endCoords,
                 otherAnimation.defaultDuration, defaultShift, isHorizontal);
     }
 
@@ -106,10 +132,10 @@ public class HVLinearAnimation extends Animation<Animated2D> {
 
     private static double getCurrentCoords(double startCoords,
             double endCoords, int currentDuration, int duration,
-            double interpolation) {
-        double progress = duration == 0
+            double interpolation, Easing easing) {
+        double progress = easing.apply(duration == 0
                 ? 1.0
-                : Math.min((currentDuration + interpolation) / duration, 1.0);
+                : Math.min((currentDuration + interpolation) / duration, 1.0));
         return startCoords * (1 - progress) + endCoords * progress;
     }
 }
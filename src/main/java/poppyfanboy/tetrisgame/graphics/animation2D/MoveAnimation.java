@@ -6,8 +6,15 @@ import poppyfanboy.tetrisgame.util.DoubleVector;
 import static java.lang.Math.min;
 
 public class MoveAnimation extends Animation<Animated2D> {
-    private final int duration;
-    private final DoubleVector startCoords, endCoords;
+    private int duration;
+    private DoubleVector startCoords, endCoords;
+
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public MoveAnimation() {
+    }
 
     /**
      * Creates an animation instance that linearly moves the object from
@@ -25,19 +32,25 @@ public class MoveAnimation extends Animation<Animated2D> {
      */
     public MoveAnimation(DoubleVector startCoords, DoubleVector endCoords,
             int duration, double defaultShift) {
+        reset(startCoords, endCoords, duration, defaultShift);
+    }
+
+    public MoveAnimation reset(DoubleVector startCoords,
+            DoubleVector endCoords, int duration, double defaultShift) {
         double distance = endCoords.subtract(startCoords).length();
         this.duration
             = (int) (min(distance / defaultShift, 1.0) * duration);
         this.startCoords = startCoords;
         this.endCoords = endCoords;
+        return this;
     }
 
     @Override
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
-        double progress = duration == 0
+        double progress = getEasing().apply(duration == 0
                 ? 1.0
-                : Math.min((currentDuration + interpolation) / duration, 1.0);
+                : Math.min((currentDuration + interpolation) / duration, 1.0));
 
         DoubleVector currCoords = startCoords.times(1 - progress)
                 .add(endCoords.times(progress));
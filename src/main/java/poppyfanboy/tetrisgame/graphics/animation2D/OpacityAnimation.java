@@ -3,22 +3,36 @@ package poppyfanboy.tetrisgame.graphics.animation2D;
 import poppyfanboy.tetrisgame.graphics.Animation;
 
 public class OpacityAnimation extends Animation<Animated2D> {
-    private final int duration;
-    private final double startOpacity, endOpacity;
+    private int duration;
+    private double startOpacity, endOpacity;
+
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public OpacityAnimation() {
+    }
 
     public OpacityAnimation(double startOpacity,
             double endOpacity, int duration) {
+        reset(startOpacity, endOpacity, duration);
+    }
+
+    public OpacityAnimation reset(double startOpacity, double endOpacity,
+            int duration) {
         this.startOpacity = startOpacity;
         this.endOpacity = endOpacity;
         this.duration = duration;
+        return this;
     }
 
     @Override
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
-        double progress = duration == 0
+        double progress = getEasing().apply(duration == 0
                 ? 1.0
-                : (currentDuration + interpolation) / duration;
+                : Math.min((currentDuration + interpolation) / duration,
+                        1.0));
         object.setOpacity(
                 startOpacity * (1 - progress) + endOpacity * progress);
     }
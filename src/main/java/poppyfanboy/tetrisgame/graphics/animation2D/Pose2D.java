@@ -0,0 +1,90 @@
+package poppyfanboy.tetrisgame.graphics.animation2D;
+
+import poppyfanboy.tetrisgame.util.DoubleVector;
+
+/**
+ * A detached copy of the animated properties of an object. The animations
+ * can be sampled on a pose (see
+ * {@link poppyfanboy.tetrisgame.graphics.Animation#sampleAt}) to find out
+ * where the object is going to be without touching the object itself.
+ */
+public final class Pose2D implements Animated2D {
+    private DoubleVector coords = new DoubleVector(0, 0);
+    private double rotationAngle = 0;
+    private double scale = 1.0;
+    private double opacity = 1.0;
+    private double brightness = 0.0;
+
+    /**
+     * Copies the properties of the object into the pose. The brightness
+     * cannot be read from the objects, so it is reset.
+     */
+    public Pose2D set(Animated2D object) {
+        coords = object.getCoords();
+        rotationAngle = object.getRotationAngle();
+        scale = object.getScale();
+        opacity = object.getOpacity();
+        brightness = 0.0;
+        return this;
+    }
+
+    @Override
+    public void setCoords(DoubleVector newCoords) {
+        coords = newCoords;
+    }
+
+    @Override
+    public DoubleVector getCoords() {
+        return coords;
+    }
+
+    @Override
+    public void setRotationAngle(double newRotationAngle) {
+        rotationAngle = newRotationAngle;
+    }
+
+    @Override
+    public double getRotationAngle() {
+        return rotationAngle;
+    }
+
+    @Override
+    public void setScale(double newScale) {
+        if (newScale < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "The scale value must be non-negative."
+                    + " Got: newScale = %f.", newScale));
+        }
+        scale = newScale;
+    }
+
+    @Override
+    public double getScale() {
+        return scale;
+    }
+
+    @Override
+    public void setOpacity(double newOpacity) {
+        opacity = Math.max(Math.min(newOpacity, 1.0), 0);
+    }
+
+    @Override
+    public double getOpacity() {
+        return opacity;
+    }
+
+    @Override
+    public void setBrightness(double newBrightness) {
+        brightness = Math.max(Math.min(newBrightness, 1.0), 0);
+    }
+
+    public double getBrightness() {
+        return brightness;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[ pose, coords: %s, rotation angle: %f ]",
+                coords, rotationAngle);
+    }
+}
@@ -4,15 +4,23 @@ import static java.lang.Math.abs;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import poppyfanboy.tetrisgame.graphics.Animation;
+import poppyfanboy.tetrisgame.graphics.Easing;
 import poppyfanboy.tetrisgame.util.Rotation;
 
 public class RotationAnimation extends Animation<Animated2D> {
-    private final double startAngle, endAngle;
-    private final double defaultAngle;
-    private final int defaultDuration;
+    private double startAngle, endAngle;
+    private double defaultAngle;
+    private int defaultDuration;
 
     private int duration;
 
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public RotationAnimation() {
+    }
+
     /**
      * {@code defaultAngle} is the default angle at which the
      * entity is rotated. For more information see {@link MoveAnimation}
@@ -20,12 +28,18 @@ public class RotationAnimation extends Animation<Animated2D> {
      */
     public RotationAnimation(double startAngle, double endAngle,
             boolean isClockwise, int duration, double defaultAngle) {
+        reset(startAngle, endAngle, isClockwise, duration, defaultAngle);
+    }
+
+    public RotationAnimation reset(double startAngle, double endAngle,
+            boolean isClockwise, int duration, double defaultAngle) {
         double progress = abs(endAngle - startAngle) / defaultAngle;
         this.defaultDuration = duration;
         this.duration = (int) max((min(progress, 1.0) * duration), 1);
         this.startAngle = startAngle;
         this.endAngle = endAngle;
         this.defaultAngle = defaultAngle;
+        return this;
     }
 
     public double getStartAngle() {
@@ -40,7 +54,7 @@ public class RotationAnimation extends Animation<Animated2D> {
     public void perform(Animated2D object, int currentDuration,
             double interpolation) {
         object.setRotationAngle(getCurrentAngle(startAngle, endAngle,
-                currentDuration, duration, interpolation));
+                currentDuration, duration, interpolation, getEasing()));
     }
 
     @Override
@@ -71,14 +85,14 @@ public class RotationAnimation extends Animation<Animated2D> {
         }
         RotationAnimation otherAnimation = (RotationAnimation) other;
         double currentAngle = getCurrentAngle(this.startAngle, this.endAngle,
-                thisDuration, duration, 0.0);
+                thisDuration, duration, 0.0, getEasing());
         double newStart = currentAngle;
         double newEnd = this.endAngle
                 + (otherAnimation.endAngle - otherAnimation.startAngle);
 
         if (this.startAngle >= this.endAngle
                 == otherAnimation.startAngle >= otherAnimation.endAngle) {
-            return new RotationAnimation(newStart, newEnd,
+            return otherAnimation.reset(newStart, newEnd,
                 this.startAngle >= this.endAngle,
                 otherAnimation.defaultDuration,
                 this.defaultAngle + otherAnimation.defaultAngle
@@ -87,7 +101,7 @@ public class RotationAnimation extends Animation<Animated2D> {
             newStart = Rotation.normalizeAngle(newStart);
             newEnd = Rotation.normalizeAngle(newEnd);
             double newDelta = Rotation.normalizeAngle(newEnd - newStart);
-            return new RotationAnimation(newStart, newStart + newDelta,
+            return otherAnimation.reset(newStart, newStart + newDelta,
                     newDelta < 0, defaultDuration, defaultAngle);
         }
     }
@@ -98,10 +112,11 @@ public class RotationAnimation extends Animation<Animated2D> {
     }
 
     private static double getCurrentAngle(double startAngle, double endAngle,
-            int currentDuration, int duration, double interpolation) {
-        double progress = duration == 0
+            int currentDuration, int duration, double interpolation,
+            Easing easing) {
+        double progress = easing.apply(duration == 0
                 ? 1.0
-                : Math.min((currentDuration + interpolation) / duration, 1.0);
+                : Math.min((currentDuration + interpolation) / duration, 1.0));
         return startAngle + (endAngle - startAngle) * progress;
     }
 }
@@ -3,24 +3,40 @@ package poppyfanboy.tetrisgame.graphics.displayanimation;
 import poppyfanboy.tetrisgame.graphics.Animation;
 
 public class TransitionAnimation extends Animation<AnimatedDisplay> {
-    private final int duration;
-    private final double startProgress;
+    private int duration;
+    private double startProgress;
+
+    /**
+     * Creates an animation that must be set up with the {@link #reset}
+     * method, meant for the animation pools.
+     */
+    public TransitionAnimation() {
+    }
 
     public TransitionAnimation(int duration) {
         this(duration, 0);
     }
 
     public TransitionAnimation(int duration, double startProgress) {
+        reset(duration, startProgress);
+    }
+
+    public TransitionAnimation reset(int duration) {
+        return reset(duration, 0);
+    }
+
+    public TransitionAnimation reset(int duration, double startProgress) {
         this.duration = duration;
         this.startProgress = startProgress;
+        return this;
     }
 
     @Override
     public void perform(AnimatedDisplay object, int currentDuration,
             double interpolation) {
-        double progress = duration == 0
+        double progress = getEasing().apply(duration == 0
                 ? 1.0
-                : ((currentDuration + interpolation) / duration);
+                : ((currentDuration + interpolation) / duration));
         object.setTransitionProgress(startProgress
                 + progress * (1 - startProgress));
 
@@ -42,9 +58,9 @@ public class TransitionAnimation extends Animation<AnimatedDisplay> {
         if (!(other instanceof TransitionAnimation)) {
             return other;
         }
-        double currentProgress = startProgress
-                + (1 - startProgress) * ((double) thisDuration / duration);
-        return new TransitionAnimation(
+        double currentProgress = startProgress + (1 - startProgress)
+                * getEasing().apply((double) thisDuration / duration);
+        return ((TransitionAnimation) other).reset(
                 (int) ((1 - currentProgress) * duration), currentProgress);
     }
 
@@ -0,0 +1,115 @@
+package poppyfanboy.tetrisgame.input;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+
+/**
+ * Records the inputs passed to the wrapped object, so that the game can be
+ * replayed later with the {@link InputReplayer}.
+ *
+ * Only the changes of the inputs are stored. The recording starts with a
+ * header (magic number, format version, seed of the game, the size of the
+ * game field and the checksums of the shapes and of the timings the game
+ * is played with) followed by the records. Each record consists of the
+ * number of ticks during which the inputs did not change (varint), the
+ * number of changed keys (byte) and the changes themselves: a byte per key,
+ * which holds the ordinal of the key in the upper bits and the ordinal of
+ * its new state (or {@code NO_STATE}, if the key is not present anymore)
+ * in the lower three bits. A record with zero changes marks the end of the
+ * recording.
+ */
+public class InputRecorder implements Controllable, Closeable {
+    static final int MAGIC = 0x54524543;
+    static final int VERSION = 2;
+    static final int STATE_BITS = 3;
+    static final int NO_STATE = (1 << STATE_BITS) - 1;
+
+    private final Controllable target;
+    private final DataOutputStream out;
+
+    private EnumMap<InputKey, KeyState> lastInputs
+            = new EnumMap<>(InputKey.class);
+    private int unchangedTicks = 0;
+    private final byte[] changes = new byte[InputKey.values().length];
+
+    /**
+     * Writes the header of the recording and returns the recorder.
+     *
+     * @param   target object the recorded inputs are passed to.
+     * @param   shapesChecksum checksum of the shapes the game is played
+     *          with (see {@code ShapeType.getChecksum}).
+     * @param   timingsChecksum checksum of the timings of the game (see
+     *          {@code TimingTable.getChecksum}).
+     */
+    public InputRecorder(Controllable target, OutputStream out, long seed,
+            int widthInBlocks, int heightInBlocks, long shapesChecksum,
+            long timingsChecksum) throws IOException {
+        this.target = target;
+        this.out = new DataOutputStream(out);
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeLong(seed);
+        writeVarint(this.out, widthInBlocks);
+        writeVarint(this.out, heightInBlocks);
+        this.out.writeLong(shapesChecksum);
+        this.out.writeLong(timingsChecksum);
+        this.out.flush();
+    }
+
+    /**
+     * Records the inputs and passes them to the wrapped object. The record
+     * is flushed right away, so that the recording survives the game being
+     * terminated abruptly.
+     *
+     * @throws  UncheckedIOException in case the inputs cannot be written.
+     */
+    @Override
+    public void control(EnumMap<InputKey, KeyState> inputs) {
+        int changesCount = 0;
+        for (InputKey key : InputKey.values()) {
+            KeyState state = inputs.get(key);
+            if (state != lastInputs.get(key)) {
+                changes[changesCount++] = (byte) (key.ordinal() << STATE_BITS
+                        | (state == null ? NO_STATE : state.ordinal()));
+            }
+        }
+        if (changesCount == 0) {
+            unchangedTicks++;
+        } else {
+            try {
+                writeVarint(out, unchangedTicks);
+                out.writeByte(changesCount);
+                out.write(changes, 0, changesCount);
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            unchangedTicks = 0;
+            lastInputs = new EnumMap<>(inputs);
+        }
+        target.control(inputs);
+    }
+
+    /**
+     * Writes the end of the recording and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        writeVarint(out, unchangedTicks);
+        out.writeByte(0);
+        out.close();
+    }
+
+    private static void writeVarint(DataOutputStream out, int value)
+            throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,156 @@
+package poppyfanboy.tetrisgame.input;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.NoSuchElementException;
+
+import static poppyfanboy.tetrisgame.input.InputRecorder.*;
+
+/**
+ * Reads the inputs recorded by the {@link InputRecorder} tick by tick. The
+ * recording is allowed to lack the end record (e.g. if the game has been
+ * terminated abruptly), in that case it ends right after the last change
+ * of the inputs.
+ */
+public class InputReplayer implements Closeable {
+    private static final KeyState[] KEY_STATES = KeyState.values();
+    private static final InputKey[] INPUT_KEYS = InputKey.values();
+
+    private final DataInputStream in;
+    private final long seed;
+    private final int widthInBlocks, heightInBlocks;
+    private final long shapesChecksum, timingsChecksum;
+
+    private EnumMap<InputKey, KeyState> inputs
+            = new EnumMap<>(InputKey.class);
+    // number of ticks left before the pending changes are applied
+    private int unchangedTicks;
+    private final byte[] pendingChanges = new byte[INPUT_KEYS.length];
+    private int pendingChangesCount;
+
+    /**
+     * Reads the header of the recording.
+     *
+     * @throws  IOException in case the stream does not contain a recording
+     *          of a supported version.
+     */
+    public InputReplayer(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != MAGIC) {
+            throw new IOException("The stream is not an inputs recording.");
+        }
+        final int version = this.in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException(String.format(
+                    "Unsupported recording version: %d", version));
+        }
+        seed = this.in.readLong();
+        widthInBlocks = readVarint(this.in);
+        heightInBlocks = readVarint(this.in);
+        shapesChecksum = this.in.readLong();
+        timingsChecksum = this.in.readLong();
+        readRecord();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidthInBlocks() {
+        return widthInBlocks;
+    }
+
+    public int getHeightInBlocks() {
+        return heightInBlocks;
+    }
+
+    public long getShapesChecksum() {
+        return shapesChecksum;
+    }
+
+    public long getTimingsChecksum() {
+        return timingsChecksum;
+    }
+
+    public boolean hasNext() {
+        return unchangedTicks > 0 || pendingChangesCount > 0;
+    }
+
+    /**
+     * Returns the inputs of the next tick. The returned map is not used by
+     * the replayer afterwards, so it can be freely modified.
+     *
+     * @throws  NoSuchElementException in case the recording has ended.
+     */
+    public EnumMap<InputKey, KeyState> next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (unchangedTicks > 0) {
+            unchangedTicks--;
+        } else {
+            for (int i = 0; i < pendingChangesCount; i++) {
+                final int change = pendingChanges[i] & 0xFF;
+                final int keyIndex = change >>> STATE_BITS;
+                final int stateIndex = change & NO_STATE;
+                if (keyIndex >= INPUT_KEYS.length
+                        || stateIndex != NO_STATE
+                            && stateIndex >= KEY_STATES.length) {
+                    throw new IOException(String.format(
+                            "Malformed input change: %d", change));
+                }
+                if (stateIndex == NO_STATE) {
+                    inputs.remove(INPUT_KEYS[keyIndex]);
+                } else {
+                    inputs.put(INPUT_KEYS[keyIndex], KEY_STATES[stateIndex]);
+                }
+            }
+            readRecord();
+        }
+        return new EnumMap<>(inputs);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readRecord() throws IOException {
+        final int firstByte = in.read();
+        if (firstByte == -1) {
+            unchangedTicks = 0;
+            pendingChangesCount = 0;
+            return;
+        }
+        unchangedTicks = readVarint(in, firstByte);
+        pendingChangesCount = in.readUnsignedByte();
+        if (pendingChangesCount > pendingChanges.length) {
+            throw new IOException(String.format(
+                    "Malformed record: %d changes", pendingChangesCount));
+        }
+        in.readFully(pendingChanges, 0, pendingChangesCount);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        return readVarint(in, in.readUnsignedByte());
+    }
+
+    private static int readVarint(DataInputStream in, int firstByte)
+            throws IOException {
+        int value = firstByte & 0x7F;
+        int shift = 7;
+        int currentByte = firstByte;
+        while ((currentByte & 0x80) != 0) {
+            if (shift >= Integer.SIZE) {
+                throw new IOException("Malformed varint.");
+            }
+            currentByte = in.readUnsignedByte();
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,74 @@
+package poppyfanboy.tetrisgame.logic;
+
+/**
+ * States of the game logic. See {@link GameLogic#changeState} for the
+ * description of what happens when the game enters each of the states.
+ */
+public enum GameFieldState {
+    STOPPED, CLEARING_GAMEFIELD, PAUSED,
+    SHAPE_SOFT_DROP, SHAPE_FORCED_DROP, SHAPE_WALL_KICKED, SHAPE_HARD_DROP,
+    SHAPE_FELL, SHAPE_LOCKED,
+    CLEARING_FILLED_LINES, DROPPING_BLOCKS,
+    SHAPE_SPAWN_READY;
+
+    // the sets of the states are stored as the bit masks of their ordinals,
+    // so that the checks are a single table lookup
+
+    // states in which the player can still control the active shape
+    private static final int SHAPE_CONTROLLABLE
+            = mask(SHAPE_SOFT_DROP, SHAPE_FORCED_DROP, SHAPE_FELL);
+
+    // states each of the states can be changed to (indexed by the ordinal
+    // of the state)
+    private static final int[] possibleTransitions = new int[values().length];
+
+    static {
+        possibleTransitions[STOPPED.ordinal()]
+                = mask(SHAPE_SPAWN_READY, CLEARING_GAMEFIELD);
+        possibleTransitions[CLEARING_GAMEFIELD.ordinal()]
+                = mask(SHAPE_SPAWN_READY);
+        possibleTransitions[PAUSED.ordinal()] = mask(values());
+        possibleTransitions[SHAPE_SOFT_DROP.ordinal()] = mask(
+                SHAPE_SOFT_DROP, SHAPE_HARD_DROP, SHAPE_FORCED_DROP,
+                SHAPE_FELL);
+        possibleTransitions[SHAPE_FORCED_DROP.ordinal()] = mask(
+                SHAPE_SOFT_DROP, SHAPE_HARD_DROP, SHAPE_FORCED_DROP,
+                SHAPE_FELL);
+        possibleTransitions[SHAPE_WALL_KICKED.ordinal()] = mask(
+                SHAPE_SOFT_DROP, SHAPE_HARD_DROP, SHAPE_FORCED_DROP,
+                SHAPE_FELL);
+        possibleTransitions[SHAPE_HARD_DROP.ordinal()] = mask(SHAPE_LOCKED);
+        possibleTransitions[SHAPE_FELL.ordinal()]
+                = mask(SHAPE_LOCKED, SHAPE_SOFT_DROP,
+                SHAPE_FORCED_DROP, SHAPE_HARD_DROP, SHAPE_WALL_KICKED,
+                SHAPE_FELL);
+        possibleTransitions[SHAPE_LOCKED.ordinal()]
+                = mask(CLEARING_FILLED_LINES, SHAPE_SPAWN_READY);
+        possibleTransitions[CLEARING_FILLED_LINES.ordinal()]
+                = mask(DROPPING_BLOCKS, SHAPE_SPAWN_READY);
+        possibleTransitions[DROPPING_BLOCKS.ordinal()]
+                = mask(SHAPE_SPAWN_READY);
+        possibleTransitions[SHAPE_SPAWN_READY.ordinal()] = SHAPE_CONTROLLABLE;
+    }
+
+    private static int mask(GameFieldState... states) {
+        int mask = 0;
+        for (GameFieldState state : states) {
+            mask |= 1 << state.ordinal();
+        }
+        return mask;
+    }
+
+    public boolean shapeFalling() {
+        return this == SHAPE_SOFT_DROP || this == SHAPE_FORCED_DROP
+                || this == SHAPE_HARD_DROP || this == SHAPE_SPAWN_READY;
+    }
+
+    public boolean shapeControllable() {
+        return (SHAPE_CONTROLLABLE & 1 << ordinal()) != 0;
+    }
+
+    public boolean transitionPossible(GameFieldState other) {
+        return (possibleTransitions[ordinal()] & 1 << other.ordinal()) != 0;
+    }
+}
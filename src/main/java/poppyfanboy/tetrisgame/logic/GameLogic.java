@@ -0,0 +1,1692 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import poppyfanboy.tetrisgame.entities.BlockColor;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+import poppyfanboy.tetrisgame.input.Controllable;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+import poppyfanboy.tetrisgame.logic.randomizers.BagRandomizer;
+import poppyfanboy.tetrisgame.logic.randomizers.ShapeQueue;
+import poppyfanboy.tetrisgame.logic.randomizers.ShapeRandomizer;
+import poppyfanboy.tetrisgame.util.BitBoard;
+import poppyfanboy.tetrisgame.util.BitReader;
+import poppyfanboy.tetrisgame.util.BitWriter;
+import poppyfanboy.tetrisgame.util.DoubleVector;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.RestorableRandom;
+import poppyfanboy.tetrisgame.util.Rotation;
+import poppyfanboy.tetrisgame.util.Varint;
+
+import static poppyfanboy.tetrisgame.logic.GameFieldState.*;
+
+/**
+ * Rules of the game: the game field with the locked blocks, the active
+ * shape, the score and the states machine that drives all of them. The
+ * game logic does not depend on any of the graphics, so it can be run
+ * without a display, e.g. to simulate lots of games at once.
+ *
+ * The game logic is driven by the ticks: all of the delays (e.g. gravity
+ * or the lock delay) are measured in ticks, so that the game logic never
+ * has to wait for the animations to end. The views (see
+ * {@link poppyfanboy.tetrisgame.entities.GameField}) are notified about
+ * all of the changes via the {@link GameLogicListener} interface and
+ * animate them, the timings of the game logic are chosen so that the
+ * animations end right at the time the game logic proceeds.
+ */
+public class GameLogic implements Controllable {
+    // blocks that are dropped down (hard dropped shapes and the blocks that
+    // were above the cleared rows) fall with a constant acceleration
+    // (measured in blocks per tick squared)
+    public static final double DROP_ACCELERATION = 0.03;
+    public static final double HARD_DROP_INITIAL_SPEED = 1.0;
+    // distance the locked blocks fall when the game field is cleared
+    public static final int CLEARING_DROP_DISTANCE = 25;
+    public static final BlockColor GARBAGE_COLOR = BlockColor.DARK_BLUE;
+
+    // binary format of the state (see writeState)
+    private static final int STATE_MAGIC = 0x54475354;
+    private static final int STATE_VERSION = 1;
+
+    private static final GameFieldState[] STATES = GameFieldState.values();
+    private static final Rotation[] ROTATIONS = Rotation.values();
+    private static final BlockColor[] COLORS = BlockColor.values();
+    private static final InputKey[] INPUT_KEYS = InputKey.values();
+    private static final KeyState[] KEY_STATES = KeyState.values();
+    // number of the bits needed to store the ordinal of a color
+    static final int COLOR_BITS
+            = Integer.SIZE - Integer.numberOfLeadingZeros(COLORS.length - 1);
+
+    private final int widthInBlocks, heightInBlocks;
+    private final RestorableRandom random;
+    // an array instead of a list, so that notifying the listeners does not
+    // allocate the iterators
+    private GameLogicListener[] listeners = new GameLogicListener[0];
+    private EnumMap<InputKey, KeyState> lastInputs;
+
+    private GameFieldState state = STOPPED;
+    private StatesQueue statesQueue = new StatesQueue();
+    // state that is offered to the states queue once the timer runs out
+    // (the timer is stopped if it is null)
+    private GameFieldState scheduledState;
+    private int stateTimer, stateTimerDuration;
+    // ticks left until the last movement of the active shape made by
+    // the player is finished, the shape cannot be locked until then
+    private int movementTimer;
+
+    private final BitBoard occupancy;
+    // y coordinate of the highest locked block in each of the columns
+    // (equals to the height of the game field for the empty columns)
+    private final int[] columnTops;
+    // number of the locked blocks in each of the rows
+    private final int[] rowBlocksCounts;
+    // colors of the locked blocks: the i-th bit of the ordinal of the color
+    // of a block is stored in the i-th plane (the planes are empty where
+    // there are no blocks)
+    private final BitBoard[] colorPlanes;
+    private ShapeType activeShapeType;
+    private BlockColor activeShapeColor;
+    private Rotation activeShapeRotation;
+    private int activeShapeX, activeShapeY;
+    // upcoming shapes, the head of the queue is the next shape
+    private final ShapeQueue shapeQueue;
+    // spawn coordinates and wall kicks of the shape types, they are
+    // computed once, so that the shapes are spawned and rotated without
+    // allocating anything
+    private final Map<ShapeType, ShapeData> shapesData
+            = new IdentityHashMap<>();
+
+    private Score score = new Score();
+    // used when scoring the T-spins
+    private boolean lastMovementIsRotation;
+
+    private TimingTable timings = TimingTable.DEFAULT;
+    // current timings (updated as the player score is going up)
+    private int softDropDuration, forcedDropDuration, userControlDuration;
+    private int hardDropDuration, blockBreakDuration, lockDelayDuration;
+    // number of the rows the active shape falls at once
+    private int gravity;
+
+    // indices of the filled rows that are removed after the blocks are
+    // broken (sorted from the top to the bottom)
+    private int[] filledRows;
+    private int filledRowsCount = 0;
+    // new indices of the rows after the filled rows are removed
+    private int[] rowTranslation;
+
+    // hole columns of the garbage rows that are inserted before the next
+    // shape spawns, in the order the rows have been received
+    private final int[] pendingGarbage;
+    private int pendingGarbageCount;
+
+    /**
+     * Creates the game logic with an empty game field. All of the random
+     * events of the game (the order of the shapes, their colors, etc) are
+     * determined by the seed. The shapes are dealt from the 7-bag of the
+     * tetrominoes and only the next shape is known to the player.
+     */
+    public GameLogic(int widthInBlocks, int heightInBlocks, long seed) {
+        this(widthInBlocks, heightInBlocks, seed,
+                new BagRandomizer(TetrisShapeType.values()), 1);
+    }
+
+    /**
+     * Creates the game logic with an empty game field, whose shapes are
+     * generated by the specified randomizer. The randomizer is owned by
+     * the game logic after that and must not be used anywhere else.
+     *
+     * @param   previewSize number of the upcoming shapes known to the
+     *          player.
+     * @throws  IllegalArgumentException in case the preview size is not
+     *          positive.
+     */
+    public GameLogic(int widthInBlocks, int heightInBlocks, long seed,
+            ShapeRandomizer randomizer, int previewSize) {
+        this.widthInBlocks = widthInBlocks;
+        this.heightInBlocks = heightInBlocks;
+        this.random = new RestorableRandom(seed);
+
+        occupancy = new BitBoard(widthInBlocks, heightInBlocks);
+        columnTops = new int[widthInBlocks];
+        Arrays.fill(columnTops, heightInBlocks);
+        rowBlocksCounts = new int[heightInBlocks];
+        colorPlanes = new BitBoard[COLOR_BITS];
+        for (int i = 0; i < COLOR_BITS; i++) {
+            colorPlanes[i] = new BitBoard(widthInBlocks, heightInBlocks);
+        }
+        filledRows = new int[heightInBlocks];
+        rowTranslation = new int[heightInBlocks];
+        pendingGarbage = new int[heightInBlocks];
+        updateTimings();
+
+        shapeQueue = new ShapeQueue(randomizer, previewSize, random);
+        for (int i = 0; i < randomizer.getShapeTypesCount(); i++) {
+            getShapeData(randomizer.getShapeType(i));
+        }
+    }
+
+    /**
+     * Creates the game logic in the state saved in the snapshot. The
+     * listeners and the score subscribers are not a part of the snapshot.
+     */
+    public GameLogic(Snapshot snapshot) {
+        this(snapshot.widthInBlocks, snapshot.heightInBlocks, 0,
+                snapshot.shapeQueue.getRandomizer().copy(),
+                snapshot.shapeQueue.getSize());
+        restore(snapshot);
+    }
+
+    /**
+     * A saved state of the game logic. Snapshots are immutable and share
+     * the rows of the game field with the game logic and with each other,
+     * so taking a snapshot every tick is cheap.
+     */
+    public static final class Snapshot {
+        private final int widthInBlocks, heightInBlocks;
+        private final BitBoard occupancy;
+        private final int[] columnTops, rowBlocksCounts;
+        private final BitBoard[] colorPlanes;
+        private final long randomState;
+        private final ShapeQueue shapeQueue;
+        private final Score score;
+        private final TimingTable timings;
+
+        private final GameFieldState state;
+        private final GameFieldState[] queuedStates;
+        private final GameFieldState scheduledState;
+        private final int stateTimer, stateTimerDuration, movementTimer;
+        private final EnumMap<InputKey, KeyState> lastInputs;
+
+        private final ShapeType activeShapeType;
+        private final BlockColor activeShapeColor;
+        private final Rotation activeShapeRotation;
+        private final int activeShapeX, activeShapeY;
+        private final boolean lastMovementIsRotation;
+
+        private final int[] filledRows;
+        private final int filledRowsCount;
+
+        private final int[] pendingGarbage;
+
+        private Snapshot(GameLogic game) {
+            widthInBlocks = game.widthInBlocks;
+            heightInBlocks = game.heightInBlocks;
+            occupancy = game.occupancy.copy();
+            columnTops = game.columnTops.clone();
+            rowBlocksCounts = game.rowBlocksCounts.clone();
+            colorPlanes = new BitBoard[COLOR_BITS];
+            for (int i = 0; i < COLOR_BITS; i++) {
+                colorPlanes[i] = game.colorPlanes[i].copy();
+            }
+            randomState = game.random.getState();
+            shapeQueue = game.shapeQueue.copy();
+            score = new Score(game.score);
+            timings = game.timings;
+
+            state = game.state;
+            queuedStates = game.statesQueue.toArray(new GameFieldState[0]);
+            scheduledState = game.scheduledState;
+            stateTimer = game.stateTimer;
+            stateTimerDuration = game.stateTimerDuration;
+            movementTimer = game.movementTimer;
+            lastInputs = game.lastInputs == null
+                    ? null
+                    : new EnumMap<>(game.lastInputs);
+
+            activeShapeType = game.activeShapeType;
+            activeShapeColor = game.activeShapeColor;
+            activeShapeRotation = game.activeShapeRotation;
+            activeShapeX = game.activeShapeX;
+            activeShapeY = game.activeShapeY;
+            lastMovementIsRotation = game.lastMovementIsRotation;
+
+            filledRows = Arrays.copyOf(game.filledRows, game.filledRowsCount);
+            filledRowsCount = game.filledRowsCount;
+
+            pendingGarbage = Arrays.copyOf(game.pendingGarbage,
+                    game.pendingGarbageCount);
+        }
+
+        public int getWidthInBlocks() {
+            return widthInBlocks;
+        }
+
+        public int getHeightInBlocks() {
+            return heightInBlocks;
+        }
+    }
+
+    /**
+     * Saves the current state of the game logic.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Restores the state of the game logic saved in the snapshot. Score
+     * subscribers are notified about the restored score, but the
+     * listeners are not notified about anything else, so this method is
+     * meant for the game logic that has no views attached to it (e.g. for
+     * rolling back or searching through the possible moves).
+     *
+     * @throws  IllegalArgumentException in case the snapshot has been taken
+     *          from a game field of a different size or from a game logic
+     *          with a differently configured randomizer or preview.
+     */
+    public void restore(Snapshot snapshot) {
+        if (snapshot.widthInBlocks != widthInBlocks
+                || snapshot.heightInBlocks != heightInBlocks) {
+            throw new IllegalArgumentException(String.format(
+                    "The snapshot game field size differs from the game field"
+                    + " size. Got: %dx%d, expected: %dx%d",
+                    snapshot.widthInBlocks, snapshot.heightInBlocks,
+                    widthInBlocks, heightInBlocks));
+        }
+        occupancy.copyFrom(snapshot.occupancy);
+        System.arraycopy(snapshot.columnTops, 0, columnTops, 0,
+                widthInBlocks);
+        System.arraycopy(snapshot.rowBlocksCounts, 0, rowBlocksCounts, 0,
+                heightInBlocks);
+        for (int i = 0; i < COLOR_BITS; i++) {
+            colorPlanes[i].copyFrom(snapshot.colorPlanes[i]);
+        }
+        random.setState(snapshot.randomState);
+        shapeQueue.copyFrom(snapshot.shapeQueue);
+
+        state = snapshot.state;
+        statesQueue.setStates(snapshot.queuedStates);
+        scheduledState = snapshot.scheduledState;
+        stateTimer = snapshot.stateTimer;
+        stateTimerDuration = snapshot.stateTimerDuration;
+        movementTimer = snapshot.movementTimer;
+        lastInputs = snapshot.lastInputs == null
+                ? null
+                : new EnumMap<>(snapshot.lastInputs);
+
+        activeShapeType = snapshot.activeShapeType;
+        activeShapeColor = snapshot.activeShapeColor;
+        activeShapeRotation = snapshot.activeShapeRotation;
+        activeShapeX = snapshot.activeShapeX;
+        activeShapeY = snapshot.activeShapeY;
+        lastMovementIsRotation = snapshot.lastMovementIsRotation;
+
+        System.arraycopy(snapshot.filledRows, 0, filledRows, 0,
+                snapshot.filledRowsCount);
+        filledRowsCount = snapshot.filledRowsCount;
+        System.arraycopy(snapshot.pendingGarbage, 0, pendingGarbage, 0,
+                snapshot.pendingGarbage.length);
+        pendingGarbageCount = snapshot.pendingGarbage.length;
+
+        timings = snapshot.timings;
+        score.restore(snapshot.score);
+        updateTimings();
+    }
+
+    /**
+     * Writes the state of the game logic to the buffer in a compact binary
+     * format. The format starts with a magic number and the version of the
+     * format followed by the size of the game field, the states machine,
+     * the active shape, the state of the random number generator and of
+     * the shape queue, the score, the game field and the rows that are
+     * about to be removed or inserted. The integers are written as varints
+     * (see {@link Varint}), the shapes as their indices in the randomizer.
+     *
+     * The game field is written as the number of the empty rows at the
+     * top followed by the rest of the rows packed bit by bit and by the
+     * colors of the blocks in the same order: a single bit for the block
+     * of the same color as the previous one, otherwise the bit is followed
+     * by the ordinal of the color. A 10x20 game field takes at most 126
+     * bytes, the rest of the state usually takes 40 to 50 bytes, so the
+     * whole state of a 10x20 game takes about 70 bytes on average and
+     * about 120 bytes close to the top-out.
+     *
+     * The listeners, the score subscribers, the timings and the
+     * configuration of the randomizer are not written.
+     *
+     * @throws  java.nio.BufferOverflowException in case there is not
+     *          enough room in the buffer.
+     */
+    public void writeState(ByteBuffer buffer) {
+        writeState(buffer, true);
+    }
+
+    /**
+     * Writes the state in the format of {@link #writeState(ByteBuffer)},
+     * but without the game field in case {@code withGameField} is
+     * {@code false} (e.g. for the {@link SaveSlot} that stores the rows of
+     * the game field on its own).
+     */
+    void writeState(ByteBuffer buffer, boolean withGameField) {
+        buffer.putInt(STATE_MAGIC);
+        buffer.put((byte) STATE_VERSION);
+        Varint.writeUnsigned(buffer, widthInBlocks);
+        Varint.writeUnsigned(buffer, heightInBlocks);
+
+        Varint.writeUnsigned(buffer, state.ordinal());
+        Varint.writeUnsigned(buffer, statesQueue.size());
+        for (GameFieldState queuedState : statesQueue) {
+            Varint.writeUnsigned(buffer, queuedState.ordinal());
+        }
+        // zero for no scheduled state
+        Varint.writeUnsigned(buffer,
+                scheduledState == null ? 0 : scheduledState.ordinal() + 1);
+        Varint.writeSigned(buffer, stateTimer);
+        Varint.writeSigned(buffer, stateTimerDuration);
+        Varint.writeSigned(buffer, movementTimer);
+        // zero for no inputs, otherwise the number of the keys plus one
+        Varint.writeUnsigned(buffer,
+                lastInputs == null ? 0 : lastInputs.size() + 1);
+        if (lastInputs != null) {
+            for (Map.Entry<InputKey, KeyState> input : lastInputs.entrySet()) {
+                Varint.writeUnsigned(buffer, input.getKey().ordinal());
+                Varint.writeUnsigned(buffer, input.getValue().ordinal());
+            }
+        }
+
+        // zero for no active shape
+        final ShapeRandomizer randomizer = shapeQueue.getRandomizer();
+        if (activeShapeType == null) {
+            Varint.writeUnsigned(buffer, 0);
+        } else {
+            final int shapeIndex = randomizer.indexOf(activeShapeType);
+            if (shapeIndex == -1) {
+                throw new IllegalStateException(String.format(
+                        "The active shape is not generated by the"
+                        + " randomizer. Got: %s", activeShapeType));
+            }
+            Varint.writeUnsigned(buffer, shapeIndex + 1);
+            Varint.writeUnsigned(buffer, activeShapeRotation.ordinal());
+            Varint.writeSigned(buffer, activeShapeX);
+            Varint.writeSigned(buffer, activeShapeY);
+            Varint.writeUnsigned(buffer, activeShapeColor.ordinal());
+        }
+        buffer.put((byte) (lastMovementIsRotation ? 1 : 0));
+
+        // the state of the random number generator takes 48 bits
+        final long randomState = random.getState();
+        buffer.putShort((short) (randomState >>> Integer.SIZE));
+        buffer.putInt((int) randomState);
+        shapeQueue.writeState(buffer);
+        score.writeState(buffer);
+
+        if (withGameField) {
+            writeGameField(buffer);
+        }
+        Varint.writeUnsigned(buffer, filledRowsCount);
+        for (int i = 0; i < filledRowsCount; i++) {
+            Varint.writeUnsigned(buffer, filledRows[i]);
+        }
+        Varint.writeUnsigned(buffer, pendingGarbageCount);
+        for (int i = 0; i < pendingGarbageCount; i++) {
+            Varint.writeUnsigned(buffer, pendingGarbage[i]);
+        }
+    }
+
+    private void writeGameField(ByteBuffer buffer) {
+        int topY = 0;
+        while (topY < heightInBlocks && occupancy.isRowEmpty(topY)) {
+            topY++;
+        }
+        Varint.writeUnsigned(buffer, topY);
+        final BitWriter bits = new BitWriter(buffer);
+        for (int y = topY; y < heightInBlocks; y++) {
+            for (int x = 0; x < widthInBlocks; x++) {
+                bits.write(occupancy.get(x, y));
+            }
+        }
+        int previousColor = -1;
+        for (int y = topY; y < heightInBlocks; y++) {
+            for (int x = 0; x < widthInBlocks; x++) {
+                if (!occupancy.get(x, y)) {
+                    continue;
+                }
+                final int color = getColorOrdinal(x, y);
+                bits.write(color == previousColor);
+                if (color != previousColor) {
+                    bits.write(color, COLOR_BITS);
+                    previousColor = color;
+                }
+            }
+        }
+        bits.flush();
+    }
+
+    /**
+     * Restores the state written by {@link #writeState}. The game logic
+     * must be configured in the same way as the one that has written the
+     * state (the size of the game field, the randomizer and the preview
+     * size). The timings of the game logic are kept. Just like
+     * {@link #restore(Snapshot)}, only the score subscribers are notified.
+     *
+     * In case the data is malformed or truncated, the state of the game
+     * logic is left unchanged.
+     *
+     * @throws  IllegalArgumentException in case the data is not a valid
+     *          state or it has been written by a differently configured
+     *          game logic.
+     * @throws  java.nio.BufferUnderflowException in case the data is
+     *          truncated.
+     */
+    public void readState(ByteBuffer buffer) {
+        readState(buffer, true);
+    }
+
+    /**
+     * Restores the state written by {@link #writeState(ByteBuffer, boolean)}
+     * with the same {@code withGameField} value. Without the game field
+     * the locked blocks are kept as they are.
+     */
+    void readState(ByteBuffer buffer, boolean withGameField) {
+        final Snapshot backup = snapshot();
+        try {
+            readStateUnchecked(buffer, withGameField);
+        } catch (RuntimeException ex) {
+            restore(backup);
+            throw ex;
+        }
+    }
+
+    private void readStateUnchecked(ByteBuffer buffer,
+            boolean withGameField) {
+        final int magic = buffer.getInt();
+        final int version = buffer.get();
+        if (magic != STATE_MAGIC || version != STATE_VERSION) {
+            throw new IllegalArgumentException(String.format(
+                    "Unsupported state format. Got: magic = 0x%08X,"
+                    + " version = %d", magic, version));
+        }
+        final int width = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        final int height = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        if (width != widthInBlocks || height != heightInBlocks) {
+            throw new IllegalArgumentException(String.format(
+                    "The state game field size differs from the game field"
+                    + " size. Got: %dx%d, expected: %dx%d", width, height,
+                    widthInBlocks, heightInBlocks));
+        }
+
+        state = STATES[Varint.readUnsigned(buffer, STATES.length - 1)];
+        // each of the states takes at least a byte
+        final GameFieldState[] queuedStates = new GameFieldState[
+                Varint.readUnsigned(buffer, buffer.remaining())];
+        for (int i = 0; i < queuedStates.length; i++) {
+            queuedStates[i]
+                    = STATES[Varint.readUnsigned(buffer, STATES.length - 1)];
+        }
+        statesQueue.setStates(queuedStates);
+        final int scheduledStateCode
+                = Varint.readUnsigned(buffer, STATES.length);
+        scheduledState = scheduledStateCode == 0
+                ? null
+                : STATES[scheduledStateCode - 1];
+        stateTimer = Varint.readSignedInt(buffer);
+        stateTimerDuration = Varint.readSignedInt(buffer);
+        movementTimer = Varint.readSignedInt(buffer);
+        final int inputsCode
+                = Varint.readUnsigned(buffer, INPUT_KEYS.length + 1);
+        if (inputsCode == 0) {
+            lastInputs = null;
+        } else {
+            lastInputs = new EnumMap<>(InputKey.class);
+            for (int i = 0; i < inputsCode - 1; i++) {
+                lastInputs.put(
+                        INPUT_KEYS[Varint.readUnsigned(buffer,
+                                INPUT_KEYS.length - 1)],
+                        KEY_STATES[Varint.readUnsigned(buffer,
+                                KEY_STATES.length - 1)]);
+            }
+        }
+
+        final ShapeRandomizer randomizer = shapeQueue.getRandomizer();
+        final int shapeCode = Varint.readUnsigned(buffer,
+                randomizer.getShapeTypesCount());
+        if (shapeCode == 0) {
+            activeShapeType = null;
+        } else {
+            activeShapeType = randomizer.getShapeType(shapeCode - 1);
+            activeShapeRotation = ROTATIONS[Varint.readUnsigned(buffer,
+                    ROTATIONS.length - 1)];
+            activeShapeX = Varint.readSignedInt(buffer);
+            activeShapeY = Varint.readSignedInt(buffer);
+            activeShapeColor
+                    = COLORS[Varint.readUnsigned(buffer, COLORS.length - 1)];
+        }
+        lastMovementIsRotation = buffer.get() != 0;
+
+        final long randomState = (buffer.getShort() & 0xFFFFL)
+                << Integer.SIZE | buffer.getInt() & 0xFFFFFFFFL;
+        random.setState(randomState);
+        shapeQueue.readState(buffer);
+        score.readState(buffer);
+
+        if (withGameField) {
+            readGameField(buffer);
+        }
+        filledRowsCount = Varint.readUnsigned(buffer, heightInBlocks);
+        for (int i = 0; i < filledRowsCount; i++) {
+            filledRows[i] = Varint.readUnsigned(buffer, heightInBlocks - 1);
+        }
+        pendingGarbageCount = Varint.readUnsigned(buffer, heightInBlocks);
+        for (int i = 0; i < pendingGarbageCount; i++) {
+            pendingGarbage[i]
+                    = Varint.readUnsigned(buffer, widthInBlocks - 1);
+        }
+        updateTimings();
+    }
+
+    private void readGameField(ByteBuffer buffer) {
+        clearGameField();
+        final int topY = Varint.readUnsigned(buffer, heightInBlocks);
+        final BitReader bits = new BitReader(buffer);
+        for (int y = topY; y < heightInBlocks; y++) {
+            for (int x = 0; x < widthInBlocks; x++) {
+                if (bits.readBit()) {
+                    occupancy.set(x, y);
+                    rowBlocksCounts[y]++;
+                    columnTops[x] = Math.min(columnTops[x], y);
+                }
+            }
+        }
+        int previousColor = -1;
+        for (int y = topY; y < heightInBlocks; y++) {
+            for (int x = 0; x < widthInBlocks; x++) {
+                if (!occupancy.get(x, y)) {
+                    continue;
+                }
+                final boolean sameColor = bits.readBit();
+                if (sameColor && previousColor == -1) {
+                    throw new IllegalArgumentException(
+                            "The first block has no color.");
+                }
+                if (!sameColor) {
+                    previousColor = bits.read(COLOR_BITS);
+                    if (previousColor >= COLORS.length) {
+                        throw new IllegalArgumentException(String.format(
+                                "Unknown color. Got: %d", previousColor));
+                    }
+                }
+                setColor(x, y, COLORS[previousColor]);
+            }
+        }
+    }
+
+    /**
+     * Removes all of the locked blocks, the listeners are not notified.
+     */
+    void clearGameField() {
+        occupancy.clear();
+        for (BitBoard colorPlane : colorPlanes) {
+            colorPlane.clear();
+        }
+        Arrays.fill(columnTops, heightInBlocks);
+        Arrays.fill(rowBlocksCounts, 0);
+    }
+
+    /**
+     * Locks a block of the specified color onto the empty tile, the
+     * listeners are not notified.
+     *
+     * @throws  IllegalArgumentException in case the tile is occupied.
+     */
+    void setBlock(int x, int y, BlockColor color) {
+        if (occupancy.get(x, y)) {
+            throw new IllegalArgumentException(String.format(
+                    "The tile must be empty. Got: x = %d, y = %d", x, y));
+        }
+        occupancy.set(x, y);
+        setColor(x, y, color);
+        rowBlocksCounts[y]++;
+        columnTops[x] = Math.min(columnTops[x], y);
+    }
+
+    /**
+     * Replaces the timings of the game. The timings of the current level
+     * are applied right away.
+     */
+    public void setTimings(TimingTable timings) {
+        this.timings = timings;
+        updateTimings();
+    }
+
+    public TimingTable getTimings() {
+        return timings;
+    }
+
+    public void addListener(GameLogicListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener(GameLogicListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GameLogicListener[] newListeners
+                        = new GameLogicListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i,
+                        newListeners.length - i);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    public void start() {
+        pendingGarbageCount = 0;
+        score.reset();
+        updateTimings();
+        statesQueue.offer(SHAPE_SPAWN_READY);
+    }
+
+    public void tick() {
+        if (movementTimer > 0) {
+            movementTimer--;
+        }
+        if (scheduledState != null) {
+            stateTimer--;
+            if (stateTimer <= 0) {
+                GameFieldState newState = scheduledState;
+                scheduledState = null;
+                statesQueue.offer(newState);
+            }
+        }
+        if (!statesQueue.isEmpty()) {
+            changeState(statesQueue.poll());
+        }
+    }
+
+    /**
+     * Changes the state of the game and performs some additional operations
+     * if needed (e.g. when the state is changed to the
+     * {@code SHAPE_SPAWN_READY}, the code that spawns a new shape runs).
+     *
+     * This method relies on the correctness of the calling code, it will
+     * allow any transitions between the states of the game regardless of
+     * if they are even possible.
+     */
+    private void changeState(GameFieldState newState) {
+        final GameFieldState oldState = state;
+        state = newState;
+
+        switch (newState) {
+            case CLEARING_GAMEFIELD:
+                for (GameLogicListener listener : listeners) {
+                    listener.gameFieldClearing();
+                }
+                scheduleState(SHAPE_SPAWN_READY,
+                        getDropDuration(CLEARING_DROP_DISTANCE, 0));
+                break;
+
+            case SHAPE_SPAWN_READY:
+                if (oldState == CLEARING_GAMEFIELD) {
+                    clearGameField();
+                    for (GameLogicListener listener : listeners) {
+                        listener.gameFieldCleared();
+                    }
+                    score.reset();
+                    updateTimings();
+                    pendingGarbageCount = 0;
+                }
+                if (pendingGarbageCount != 0 && !insertPendingGarbage()) {
+                    // the blocks have been pushed out of the game field
+                    statesQueue.offer(STOPPED);
+                    for (GameLogicListener listener : listeners) {
+                        listener.gameOver();
+                    }
+                } else if (spawnNewActiveShape()) {
+                    statesQueue.offer(SHAPE_SOFT_DROP);
+                } else {
+                    statesQueue.offer(STOPPED);
+                    for (GameLogicListener listener : listeners) {
+                        listener.gameOver();
+                    }
+                }
+                break;
+
+            case SHAPE_SOFT_DROP:
+            case SHAPE_FORCED_DROP:
+                state = SHAPE_SOFT_DROP;
+                if (lastInputs != null
+                        && lastInputs.containsKey(InputKey.ARROW_DOWN)
+                        && lastInputs.get(InputKey.ARROW_DOWN).isActive()) {
+                    state = SHAPE_FORCED_DROP;
+                }
+
+                final int rowsDropped = getDropDistance(occupancy,
+                        activeShapeType.getRowMasks(activeShapeRotation),
+                        activeShapeX, activeShapeY, gravity);
+                if (rowsDropped != 0) {
+                    final boolean forced = state == SHAPE_FORCED_DROP;
+                    scheduleState(state,
+                            forced ? forcedDropDuration : softDropDuration);
+                    lastMovementIsRotation = false;
+                    // with the high gravity the shape falls several rows
+                    // at once, each of them is reported separately
+                    for (int i = 0; i < rowsDropped; i++) {
+                        activeShapeY++;
+                        for (GameLogicListener listener : listeners) {
+                            listener.shapeDropped(forced);
+                        }
+                    }
+                } else {
+                    statesQueue.offer(SHAPE_FELL);
+                }
+                break;
+
+            case SHAPE_FELL:
+                scheduleState(SHAPE_LOCKED, lockDelayDuration);
+                break;
+
+            case SHAPE_LOCKED:
+                if (exitLockDelayIfFits()) {
+                    break;
+                }
+                // wait until the last movement of the shape is finished
+                if (movementTimer > 0) {
+                    scheduleState(SHAPE_LOCKED, movementTimer);
+                    break;
+                }
+                statesQueue.offer(CLEARING_FILLED_LINES);
+                break;
+
+            case CLEARING_FILLED_LINES:
+                // the shape might have been locked before the lock delay
+                // expired (e.g. after a hard drop), so the pending timer
+                // would fire once there is no active shape anymore
+                scheduledState = null;
+                final int startY = activeShapeY;
+                final int endY = startY + activeShapeType.getFrameSize() - 1;
+                lockActiveShape();
+                for (GameLogicListener listener : listeners) {
+                    listener.shapeLocked();
+                }
+                final int linesCleared = findFilledRows(startY, endY);
+                if (linesCleared != 0) {
+                    final boolean isTSpin = isTSpin();
+                    score.update(linesCleared, isTSpin);
+                    updateTimings();
+                    for (GameLogicListener listener : listeners) {
+                        listener.linesCleared(linesCleared, isTSpin);
+                    }
+                }
+                activeShapeType = null;
+
+                if (filledRowsCount != 0) {
+                    for (GameLogicListener listener : listeners) {
+                        listener.rowsFilled(filledRows, filledRowsCount);
+                    }
+                    scheduleState(DROPPING_BLOCKS, blockBreakDuration);
+                } else {
+                    statesQueue.offer(SHAPE_SPAWN_READY);
+                }
+                break;
+
+            case DROPPING_BLOCKS:
+                final int dropDistance = removeFilledRows();
+                if (dropDistance != 0) {
+                    scheduleState(SHAPE_SPAWN_READY,
+                            getDropDuration(dropDistance, 0));
+                } else {
+                    statesQueue.offer(SHAPE_SPAWN_READY);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Returns the coordinates of the upper-left corner of the frame of the
+     * shape at the moment it spawns on the game field of the specified
+     * width.
+     */
+    public static IntVector getSpawnCoords(ShapeType shapeType,
+            int widthInBlocks) {
+        final int shapeWidth = shapeType.getPreciseAABBMax().getX()
+                - shapeType.getPreciseAABBMin().getX() + 1;
+        final int spawnX
+                = (int) Math.ceil((widthInBlocks - shapeWidth - 1) / 2.0)
+                - (shapeType.getFrameSize() - shapeWidth);
+        final int spawnY = 1 - shapeType.getPreciseAABBMin().getY();
+        return new IntVector(spawnX, spawnY);
+    }
+
+    /**
+     * Makes the {@code newState} to be offered to the states queue after
+     * the specified number of ticks. Replaces the previously scheduled
+     * state if there is one.
+     */
+    private void scheduleState(GameFieldState newState, int duration) {
+        scheduledState = newState;
+        stateTimer = duration;
+        stateTimerDuration = duration;
+    }
+
+    /**
+     * Changes the duration of the current drop of the active shape
+     * preserving the part of the drop that is already done.
+     */
+    private void changeDropDuration(int newDuration) {
+        if (scheduledState != SHAPE_SOFT_DROP
+                && scheduledState != SHAPE_FORCED_DROP) {
+            return;
+        }
+        scheduledState = state;
+        stateTimer = stateTimerDuration == 0
+                ? 0
+                : (int) ((double) stateTimer / stateTimerDuration * newDuration);
+        stateTimerDuration = newDuration;
+    }
+
+    /**
+     * Tries to spawn a new active shape (of a random color and type) at the
+     * top of the game field.
+     *
+     * Returns {@code false} in case it fails to do so (either it is spawned
+     * so that it overlaps some of the fallen blocks, or it is spawned
+     * completely out of player sight).
+     *
+     * (Spawn locations should probably be defined in the shape types
+     * themselves, but for now they are just hard-coded into the game
+     * logic.)
+     */
+    private boolean spawnNewActiveShape() {
+        ShapeType shapeType = shapeQueue.poll(random);
+        // two numbers are drawn just like Util.getRandomInstance does it,
+        // so that the recorded games stay the same
+        random.nextInt(COLORS.length);
+        BlockColor color = COLORS[random.nextInt(COLORS.length)];
+
+        final IntVector spawnCoords = getShapeData(shapeType).spawnCoords;
+        final int spawnX = spawnCoords.getX(), spawnY = spawnCoords.getY();
+
+        if (!occupancy.fits(shapeType.getRowMasks(Rotation.INITIAL),
+                spawnX, spawnY)) {
+            return false;
+        }
+        activeShapeType = shapeType;
+        activeShapeColor = color;
+        activeShapeRotation = Rotation.INITIAL;
+        activeShapeX = spawnX;
+        activeShapeY = spawnY;
+        lastMovementIsRotation = false;
+        movementTimer = 0;
+        score.resetCombo();
+
+        for (GameLogicListener listener : listeners) {
+            listener.shapeSpawned(shapeType, spawnCoords,
+                    color, shapeQueue.peek(0));
+        }
+        return true;
+    }
+
+    private void lockActiveShape() {
+        final int[] rowMasks = activeShapeType.getRowMasks(activeShapeRotation);
+        for (int i = 0; i < rowMasks.length; i++) {
+            for (int j = 0; j < rowMasks.length; j++) {
+                if ((rowMasks[i] & (1 << j)) != 0) {
+                    occupancy.set(activeShapeX + j, activeShapeY + i);
+                    setColor(activeShapeX + j, activeShapeY + i,
+                            activeShapeColor);
+                    rowBlocksCounts[activeShapeY + i]++;
+                    columnTops[activeShapeX + j] = Math.min(
+                            columnTops[activeShapeX + j], activeShapeY + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * There is no need in checking the whole game field, since when the
+     * shape falls it can only fill the rows it occupies, so we can restrict
+     * the searching area to the specific rows (from startY to endY,
+     * boundaries included).
+     *
+     * @return  number of filled rows.
+     */
+    private int findFilledRows(int startY, int endY) {
+        assert startY <= endY;
+
+        startY = Math.max(startY, 0);
+        endY = Math.min(endY, heightInBlocks - 1);
+        filledRowsCount = 0;
+        for (int y = startY; y <= endY; y++) {
+            if (rowBlocksCounts[y] == widthInBlocks) {
+                filledRows[filledRowsCount++] = y;
+            }
+        }
+        return filledRowsCount;
+    }
+
+    /**
+     * Removes the rows found by the {@link GameLogic#findFilledRows} method
+     * and moves the rows that were above them down.
+     *
+     * @return  number of rows the highest of the moved blocks has fallen,
+     *          or zero in case there are no blocks above the removed rows.
+     */
+    private int removeFilledRows() {
+        if (filledRowsCount == 0) {
+            return 0;
+        }
+        BitBoard.computeRowTranslation(filledRows, filledRowsCount,
+                rowTranslation);
+        // the highest of the moved rows is moved the farthest
+        int dropDistance = 0;
+        for (int y = 0; y < filledRows[filledRowsCount - 1]; y++) {
+            if (rowBlocksCounts[y] != 0 && rowTranslation[y] != -1) {
+                dropDistance = rowTranslation[y] - y;
+                break;
+            }
+        }
+        // the rows are only moved down, so they can be moved in place
+        // starting from the bottom ones
+        for (int y = filledRows[filledRowsCount - 1]; y >= 0; y--) {
+            if (rowTranslation[y] != -1) {
+                rowBlocksCounts[rowTranslation[y]] = rowBlocksCounts[y];
+            }
+        }
+        Arrays.fill(rowBlocksCounts, 0, filledRowsCount, 0);
+        occupancy.removeRows(filledRows, filledRowsCount);
+        for (BitBoard colorPlane : colorPlanes) {
+            colorPlane.removeRows(filledRows, filledRowsCount);
+        }
+        updateColumnTops();
+        for (GameLogicListener listener : listeners) {
+            listener.rowsRemoved(filledRows, filledRowsCount,
+                    rowTranslation);
+        }
+        filledRowsCount = 0;
+        return dropDistance;
+    }
+
+    /**
+     * Queues the garbage rows with the hole in the specified column. The
+     * queued rows are inserted at the bottom of the game field right before
+     * the next shape spawns. Rows that do not fit into the game field
+     * anyway are discarded.
+     *
+     * @throws  IllegalArgumentException in case the count is negative or
+     *          the hole column is out of the game field bounds.
+     */
+    public void addGarbage(int count, int holeColumn) {
+        if (count < 0 || holeColumn < 0 || holeColumn >= widthInBlocks) {
+            throw new IllegalArgumentException(String.format(
+                    "Count must be non-negative and the hole column must be"
+                    + " within the game field. Got: count = %d,"
+                    + " holeColumn = %d", count, holeColumn));
+        }
+        while (count > 0 && pendingGarbageCount < heightInBlocks) {
+            pendingGarbage[pendingGarbageCount++] = holeColumn;
+            count--;
+        }
+    }
+
+    /**
+     * Returns the number of the garbage rows waiting to be inserted.
+     */
+    public int getPendingGarbageCount() {
+        return pendingGarbageCount;
+    }
+
+    /**
+     * Moves the locked blocks up and inserts the pending garbage rows
+     * below them, the rows received earlier end up higher. Returns
+     * {@code false} in case some of the blocks have been pushed out of the
+     * game field.
+     */
+    private boolean insertPendingGarbage() {
+        final int count = pendingGarbageCount;
+        pendingGarbageCount = 0;
+        final boolean fits = occupancy.insertRows(count);
+        for (BitBoard colorPlane : colorPlanes) {
+            colorPlane.insertRows(count);
+        }
+        System.arraycopy(rowBlocksCounts, count, rowBlocksCounts, 0,
+                heightInBlocks - count);
+        for (int x = 0; x < widthInBlocks; x++) {
+            int y = columnTops[x];
+            if (y >= heightInBlocks) {
+                continue;
+            }
+            if (y >= count) {
+                columnTops[x] = y - count;
+                continue;
+            }
+            // the top block has been pushed out, scan for the next one
+            y = 0;
+            while (y < heightInBlocks && !occupancy.get(x, y)) {
+                y++;
+            }
+            columnTops[x] = y;
+        }
+        for (int i = 0; i < count; i++) {
+            final int y = heightInBlocks - count + i;
+            final int holeColumn = pendingGarbage[i];
+            occupancy.fillRow(y);
+            occupancy.clear(holeColumn, y);
+            for (int plane = 0; plane < COLOR_BITS; plane++) {
+                if ((GARBAGE_COLOR.ordinal() & (1 << plane)) != 0) {
+                    colorPlanes[plane].fillRow(y);
+                    colorPlanes[plane].clear(holeColumn, y);
+                }
+            }
+            rowBlocksCounts[y] = widthInBlocks - 1;
+            for (int x = 0; x < widthInBlocks; x++) {
+                if (x != holeColumn) {
+                    columnTops[x] = Math.min(columnTops[x], y);
+                }
+            }
+        }
+        for (GameLogicListener listener : listeners) {
+            listener.garbageInserted(pendingGarbage, count);
+        }
+        return fits;
+    }
+
+    /**
+     * Updates the column tops after the rows have been removed. In case
+     * the top block of a column has been removed, the column is scanned
+     * starting from its previous top, since the blocks can only move down.
+     */
+    private void updateColumnTops() {
+        for (int x = 0; x < widthInBlocks; x++) {
+            int y = columnTops[x];
+            if (y < heightInBlocks && rowTranslation[y] != -1) {
+                columnTops[x] = rowTranslation[y];
+                continue;
+            }
+            while (y < heightInBlocks && !occupancy.get(x, y)) {
+                y++;
+            }
+            columnTops[x] = y;
+        }
+    }
+
+    /**
+     * Checks if the last locked shape has been T-spinned into its place.
+     */
+    private boolean isTSpin() {
+        return isTSpin(occupancy, activeShapeType, activeShapeX, activeShapeY,
+                lastMovementIsRotation);
+    }
+
+    /**
+     * Checks if the shape placed at the {@code (x, y)} tile counts as
+     * T-spinned: it must be a spin shape (see
+     * {@link ShapeType#isSpinShape}) that was rotated last and at least
+     * three of the four tiles diagonal to the tile of its pivot must be
+     * occupied (the walls and the floor count as occupied too). The spin
+     * shapes are expected not to cover these tiles (the T-shape does not),
+     * so it does not matter whether the shape itself has already been put
+     * onto the board.
+     */
+    public static boolean isTSpin(BitBoard occupancy, ShapeType shapeType,
+            int x, int y, boolean rotatedLast) {
+        if (!rotatedLast || !shapeType.isSpinShape()) {
+            return false;
+        }
+        final int width = occupancy.getWidth();
+        final int height = occupancy.getHeight();
+        final DoubleVector pivot = shapeType.getRotationPivot();
+        final int centerX = x + (int) Math.floor(pivot.getX());
+        final int centerY = y + (int) Math.floor(pivot.getY());
+        int collisionsCount = 0;
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                final int cornerX = centerX + 2 * i - 1;
+                final int cornerY = centerY + 2 * j - 1;
+                if (cornerX <= 0 || cornerX >= width - 1
+                        || cornerY <= 0 || cornerY >= height - 1
+                        || occupancy.get(cornerX, cornerY)) {
+                    collisionsCount++;
+                }
+            }
+        }
+        return collisionsCount >= 3;
+    }
+
+    private boolean fits(int x, int y, Rotation rotation) {
+        return occupancy.fits(activeShapeType.getRowMasks(rotation), x, y);
+    }
+
+    /**
+     * Returns the number of rows the shape at the {@code (x, y)} tile falls
+     * by a single drop: as many as the gravity allows, but no further than
+     * the shape can go. Returns 0 in case the shape has landed.
+     */
+    public static int getDropDistance(BitBoard occupancy, int[] rowMasks,
+            int x, int y, int gravity) {
+        int distance = 0;
+        while (distance < gravity
+                && occupancy.fits(rowMasks, x, y + distance + 1)) {
+            distance++;
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the first of the wall kicks, with which the rotated shape
+     * fits onto the board at the {@code (x, y)} tile, or {@code null} in
+     * case there is no such wall kick. The wall kicks are tried in the
+     * same order as when the active shape is rotated.
+     *
+     * @param   rowMasks the row masks of the shape in the new rotation.
+     */
+    public static IntVector getWallKick(BitBoard occupancy, int[] rowMasks,
+            int x, int y, IntVector[] wallKicks) {
+        for (IntVector shift : wallKicks) {
+            if (occupancy.fits(rowMasks, x + shift.getX(), y + shift.getY())) {
+                return shift;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the row the active shape lands onto if it is dropped straight
+     * down. In case the active shape is above the highest blocks of all of
+     * the columns it occupies, the landing row is found from the bottom
+     * profile of the shape and the column tops. Otherwise the shape is
+     * tucked under some of the blocks, and it is moved down row by row.
+     */
+    private int getGhostShapeY() {
+        final int[] columnBottoms
+                = activeShapeType.getColumnBottoms(activeShapeRotation);
+        int landingY = Integer.MAX_VALUE;
+        for (int j = 0; j < columnBottoms.length; j++) {
+            if (columnBottoms[j] == -1) {
+                continue;
+            }
+            final int columnTop = columnTops[activeShapeX + j];
+            if (columnTop <= activeShapeY + columnBottoms[j]) {
+                return getGhostShapeYStepwise();
+            }
+            landingY = Math.min(landingY, columnTop - 1 - columnBottoms[j]);
+        }
+        return landingY;
+    }
+
+    private int getGhostShapeYStepwise() {
+        final int[] rowMasks = activeShapeType.getRowMasks(activeShapeRotation);
+        int y = activeShapeY;
+        while (occupancy.fits(rowMasks, activeShapeX, y + 1)) {
+            y++;
+        }
+        return y;
+    }
+
+    private void updateTimings() {
+        final int level = score.getLevel();
+        softDropDuration = timings.get(TimingTable.Timing.SOFT_DROP, level);
+        forcedDropDuration
+                = timings.get(TimingTable.Timing.FORCED_DROP, level);
+        userControlDuration
+                = timings.get(TimingTable.Timing.USER_CONTROL, level);
+        hardDropDuration = timings.get(TimingTable.Timing.HARD_DROP, level);
+        blockBreakDuration
+                = timings.get(TimingTable.Timing.BLOCK_BREAK, level);
+        lockDelayDuration = timings.get(TimingTable.Timing.LOCK_DELAY, level);
+        gravity = timings.get(TimingTable.Timing.GRAVITY, level);
+    }
+
+    @Override
+    public void control(EnumMap<InputKey, KeyState> inputs) {
+        lastInputs = inputs;
+
+        int xShift = 0;
+        Rotation rotationDirection = Rotation.INITIAL;
+        boolean shapeControllable = state.shapeControllable()
+                && (statesQueue.peek() == null
+                        || statesQueue.peek().shapeControllable());
+
+        // the keys are looked up one by one rather than iterated over, since
+        // the iterator of an enum map allocates its entries
+        for (InputKey key : INPUT_KEYS) {
+            final KeyState keyState = inputs.get(key);
+            if (keyState == null) {
+                continue;
+            }
+            if (keyState.fired()) {
+                switch (key) {
+                    case ARROW_DOWN:
+                        if (!shapeControllable || state == SHAPE_FELL) {
+                            break;
+                        }
+                        state = SHAPE_FORCED_DROP;
+                        changeDropDuration(forcedDropDuration);
+                        for (GameLogicListener listener : listeners) {
+                            listener.dropSpeedChanged(true);
+                        }
+                        break;
+                    case ARROW_LEFT:
+                        xShift--;
+                        break;
+                    case ARROW_RIGHT:
+                        xShift++;
+                        break;
+                    case W:
+                        rotationDirection
+                                = rotationDirection.add(Rotation.LEFT);
+                        break;
+                    case S:
+                        rotationDirection
+                                = rotationDirection.add(Rotation.RIGHT);
+                        break;
+                    case SPACE:
+                        if (!shapeControllable || state == SHAPE_FELL) {
+                            break;
+                        }
+                        xShift = 0;
+                        rotationDirection = Rotation.INITIAL;
+                        hardDrop();
+                        shapeControllable = false;
+                        break;
+                    case R:
+                        if (state == STOPPED) {
+                            if (isGameFieldEmpty()) {
+                                start();
+                            } else {
+                                statesQueue.offer(CLEARING_GAMEFIELD);
+                            }
+                        }
+                }
+            }
+            if (keyState == KeyState.RELEASED) {
+                switch (key) {
+                    case ARROW_DOWN:
+                        if (!shapeControllable || state == SHAPE_FELL) {
+                            break;
+                        }
+                        state = SHAPE_SOFT_DROP;
+                        changeDropDuration(softDropDuration);
+                        for (GameLogicListener listener : listeners) {
+                            listener.dropSpeedChanged(false);
+                        }
+                        break;
+                }
+            }
+        }
+
+        if (xShift != 0 && shapeControllable) {
+            moveShape(xShift);
+        }
+        if (shapeControllable && (rotationDirection == Rotation.LEFT
+                    || rotationDirection == Rotation.RIGHT)) {
+            rotateShape(rotationDirection);
+        }
+    }
+
+    private void moveShape(int xShift) {
+        if (!fits(activeShapeX + xShift, activeShapeY, activeShapeRotation)) {
+            return;
+        }
+        activeShapeX += xShift;
+        movementTimer = userControlDuration;
+        for (GameLogicListener listener : listeners) {
+            listener.shapeMoved(xShift);
+        }
+        lastMovementIsRotation = false;
+        exitLockDelayIfFits();
+    }
+
+    private void rotateShape(Rotation rotationDirection) {
+        Rotation newRotation = activeShapeRotation.add(rotationDirection);
+
+        if (fits(activeShapeX, activeShapeY, newRotation)) {
+            activeShapeRotation = newRotation;
+            movementTimer = userControlDuration;
+            for (GameLogicListener listener : listeners) {
+                listener.shapeRotated(rotationDirection, null);
+            }
+            exitLockDelayIfFits();
+            lastMovementIsRotation = true;
+            return;
+        }
+        final ShapeData shapeData = getShapeData(activeShapeType);
+        IntVector[] wallKicks = rotationDirection == Rotation.RIGHT
+                ? shapeData.rightWallKicks[activeShapeRotation.ordinal()]
+                : shapeData.leftWallKicks[activeShapeRotation.ordinal()];
+        final IntVector shift = getWallKick(occupancy,
+                activeShapeType.getRowMasks(newRotation), activeShapeX,
+                activeShapeY, wallKicks);
+        if (shift == null) {
+            return;
+        }
+        activeShapeRotation = newRotation;
+        activeShapeX += shift.getX();
+        activeShapeY += shift.getY();
+        movementTimer = userControlDuration;
+        // the shape continues to fall once the wall kick is over
+        statesQueue.offer(SHAPE_WALL_KICKED);
+        scheduleState(SHAPE_SOFT_DROP, userControlDuration);
+        for (GameLogicListener listener : listeners) {
+            listener.shapeRotated(rotationDirection, shift);
+        }
+        lastMovementIsRotation = true;
+    }
+
+    private void hardDrop() {
+        state = SHAPE_HARD_DROP;
+        final int distance = getGhostShapeY() - activeShapeY;
+        activeShapeY += distance;
+        scheduleState(SHAPE_LOCKED, getHardDropDuration(distance));
+        lastMovementIsRotation = false;
+        for (GameLogicListener listener : listeners) {
+            listener.shapeHardDropped(distance);
+        }
+    }
+
+    private boolean exitLockDelayIfFits() {
+        if (state != SHAPE_SOFT_DROP && state != SHAPE_FORCED_DROP
+                && fits(activeShapeX, activeShapeY + 1, activeShapeRotation)) {
+            changeState(SHAPE_SOFT_DROP);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isGameFieldEmpty() {
+        for (int y = 0; y < heightInBlocks; y++) {
+            if (rowBlocksCounts[y] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of ticks it takes for a block to fall down by the
+     * specified number of rows with the {@link GameLogic#DROP_ACCELERATION}.
+     *
+     * @param   initialSpeed initial speed of the block measured in blocks
+     *          per tick.
+     */
+    public static int getDropDuration(int distance, double initialSpeed) {
+        // S = v0 * t + a * t^2 / 2
+        final double a = DROP_ACCELERATION;
+        int duration = (int) Math.ceil((Math.sqrt(
+                initialSpeed * initialSpeed + 2 * a * distance)
+                - initialSpeed) / a);
+        // compensate for the rounding errors
+        while (duration > 0 && initialSpeed * (duration - 1)
+                + a * (duration - 1) * (duration - 1) / 2 >= distance) {
+            duration--;
+        }
+        return Math.max(duration, 1);
+    }
+
+    public GameFieldState getState() {
+        return state;
+    }
+
+    public int getWidthInBlocks() {
+        return widthInBlocks;
+    }
+
+    public int getHeightInBlocks() {
+        return heightInBlocks;
+    }
+
+    /**
+     * Returns the bit board of the locked blocks. The returned board must
+     * not be modified.
+     */
+    public BitBoard getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Returns the {@code index}-th bit plane of the colors of the locked
+     * blocks: a tile is set in case the {@code index}-th bit of the ordinal
+     * of the color of its block is set. The returned board must not be
+     * modified.
+     */
+    BitBoard getColorPlane(int index) {
+        return colorPlanes[index];
+    }
+
+    /**
+     * Returns the y coordinate of the highest locked block in the specified
+     * column, or the height of the game field in case the column is empty.
+     */
+    public int getColumnTop(int x) {
+        return columnTops[x];
+    }
+
+    /**
+     * Returns the number of the locked blocks in the specified row.
+     */
+    public int getRowBlocksCount(int y) {
+        return rowBlocksCounts[y];
+    }
+
+    /**
+     * Returns the color of the locked block or {@code null} in case the
+     * tile is empty.
+     */
+    public BlockColor getBlockColor(int x, int y) {
+        return occupancy.get(x, y) ? COLORS[getColorOrdinal(x, y)] : null;
+    }
+
+    private int getColorOrdinal(int x, int y) {
+        int ordinal = 0;
+        for (int i = 0; i < COLOR_BITS; i++) {
+            if (colorPlanes[i].get(x, y)) {
+                ordinal |= 1 << i;
+            }
+        }
+        return ordinal;
+    }
+
+    // the tile must be empty
+    private void setColor(int x, int y, BlockColor color) {
+        for (int i = 0; i < COLOR_BITS; i++) {
+            if ((color.ordinal() & (1 << i)) != 0) {
+                colorPlanes[i].set(x, y);
+            }
+        }
+    }
+
+    /**
+     * Returns the type of the active shape or {@code null} in case there is
+     * no active shape at the moment.
+     */
+    public ShapeType getActiveShapeType() {
+        return activeShapeType;
+    }
+
+    public BlockColor getActiveShapeColor() {
+        return activeShapeColor;
+    }
+
+    public Rotation getActiveShapeRotation() {
+        return activeShapeRotation;
+    }
+
+    public IntVector getActiveShapeCoords() {
+        return new IntVector(activeShapeX, activeShapeY);
+    }
+
+    /**
+     * Returns the coordinates where the active shape would land if it was
+     * hard dropped.
+     */
+    public IntVector getGhostShapeCoords() {
+        return new IntVector(activeShapeX, getGhostShapeY());
+    }
+
+    public ShapeType getNextShapeType() {
+        return shapeQueue.peek(0);
+    }
+
+    /**
+     * Returns the {@code index}-th of the upcoming shapes, the next shape
+     * has the index 0.
+     *
+     * @throws  IndexOutOfBoundsException in case the index is not less than
+     *          the preview size.
+     */
+    public ShapeType getPreviewShapeType(int index) {
+        return shapeQueue.peek(index);
+    }
+
+    /**
+     * Returns the number of the upcoming shapes known to the player.
+     */
+    public int getPreviewSize() {
+        return shapeQueue.getSize();
+    }
+
+    public Score getScore() {
+        return score;
+    }
+
+    public int getSoftDropDuration() {
+        return softDropDuration;
+    }
+
+    public int getForcedDropDuration() {
+        return forcedDropDuration;
+    }
+
+    public int getUserControlDuration() {
+        return userControlDuration;
+    }
+
+    /**
+     * Returns the number of rows the active shape falls by a single drop.
+     */
+    public int getGravity() {
+        return gravity;
+    }
+
+    public int getBlockBreakDuration() {
+        return blockBreakDuration;
+    }
+
+    /**
+     * Returns the number of ticks it takes the shape to be hard dropped by
+     * the specified number of rows: it falls with the
+     * {@link #DROP_ACCELERATION}, but it takes no longer than the
+     * {@code HARD_DROP} timing of the current level.
+     */
+    public int getHardDropDuration(int distance) {
+        return Math.min(hardDropDuration,
+                getDropDuration(distance, HARD_DROP_INITIAL_SPEED));
+    }
+
+    private ShapeData getShapeData(ShapeType shapeType) {
+        ShapeData shapeData = shapesData.get(shapeType);
+        if (shapeData == null) {
+            shapeData = new ShapeData(shapeType, widthInBlocks);
+            shapesData.put(shapeType, shapeData);
+        }
+        return shapeData;
+    }
+
+    private static class ShapeData {
+        final IntVector spawnCoords;
+        // indexed by the ordinal of the rotation the shape is rotated from
+        final IntVector[][] rightWallKicks, leftWallKicks;
+
+        ShapeData(ShapeType shapeType, int widthInBlocks) {
+            spawnCoords = getSpawnCoords(shapeType, widthInBlocks);
+            rightWallKicks = new IntVector[ROTATIONS.length][];
+            leftWallKicks = new IntVector[ROTATIONS.length][];
+            for (Rotation rotation : ROTATIONS) {
+                rightWallKicks[rotation.ordinal()]
+                        = shapeType.getRightWallKicks(rotation);
+                leftWallKicks[rotation.ordinal()]
+                        = shapeType.getLeftWallKicks(rotation);
+            }
+        }
+    }
+
+    /**
+     * Queue of the states that only accepts the states the head of the
+     * queue can be changed to. The ordinals of the states are kept in a
+     * ring buffer, so that offering and polling the states allocates
+     * nothing.
+     */
+    private static class StatesQueue extends AbstractQueue<GameFieldState> {
+        // the capacity is a power of two, so that the indices are wrapped
+        // with a mask
+        private int[] states = new int[8];
+        private int head, size;
+
+        // replaces the contents of the queue without checking the transitions
+        void setStates(GameFieldState[] newStates) {
+            head = 0;
+            size = 0;
+            for (GameFieldState state : newStates) {
+                push(state);
+            }
+        }
+
+        private void push(GameFieldState state) {
+            if (size == states.length) {
+                int[] newStates = new int[2 * states.length];
+                for (int i = 0; i < size; i++) {
+                    newStates[i] = states[(head + i) & (states.length - 1)];
+                }
+                states = newStates;
+                head = 0;
+            }
+            states[(head + size) & (states.length - 1)] = state.ordinal();
+            size++;
+        }
+
+        @Override
+        public Iterator<GameFieldState> iterator() {
+            return new Iterator<GameFieldState>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public GameFieldState next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return STATES[states[(head + index++)
+                            & (states.length - 1)]];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean offer(GameFieldState gameFieldState) {
+            if (size == 0 || peek().transitionPossible(gameFieldState)) {
+                push(gameFieldState);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public GameFieldState poll() {
+            if (size == 0) {
+                return null;
+            }
+            final GameFieldState state = STATES[states[head]];
+            head = (head + 1) & (states.length - 1);
+            size--;
+            return state;
+        }
+
+        @Override
+        public GameFieldState peek() {
+            return size == 0 ? null : STATES[states[head]];
+        }
+    }
+}
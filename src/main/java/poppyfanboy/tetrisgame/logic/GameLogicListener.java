@@ -0,0 +1,124 @@
+package poppyfanboy.tetrisgame.logic;
+
+import poppyfanboy.tetrisgame.entities.BlockColor;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * Receives the notifications about the changes made by the game logic.
+ * The notifications are sent right after the state of the game logic
+ * has been changed, so the listener can query the new state from the
+ * {@link GameLogic} object. All of the methods do nothing by default.
+ */
+public interface GameLogicListener {
+    /**
+     * A new active shape has been spawned at the top of the game field.
+     */
+    default void shapeSpawned(ShapeType shapeType, IntVector tileCoords,
+            BlockColor color, ShapeType nextShapeType) {
+    }
+
+    /**
+     * A new shape could not be spawned, the game is stopped.
+     */
+    default void gameOver() {
+    }
+
+    /**
+     * The active shape has fallen down by one row.
+     *
+     * @param   forced {@code true} if the shape was forced to drop by
+     *          the player.
+     */
+    default void shapeDropped(boolean forced) {
+    }
+
+    /**
+     * The player started or stopped forcing the active shape to drop.
+     */
+    default void dropSpeedChanged(boolean forced) {
+    }
+
+    default void shapeMoved(int xShift) {
+    }
+
+    /**
+     * The active shape has been rotated.
+     *
+     * @param   wallKick shift that has been applied to the shape after
+     *          the rotation, or {@code null} in case the shape was not
+     *          wall kicked.
+     */
+    default void shapeRotated(Rotation rotationDirection, IntVector wallKick) {
+    }
+
+    /**
+     * The active shape has been hard dropped by the specified number of
+     * rows.
+     */
+    default void shapeHardDropped(int distance) {
+    }
+
+    /**
+     * The active shape has been locked onto the game field.
+     */
+    default void shapeLocked() {
+    }
+
+    /**
+     * Lines have been cleared by the locked shape. Called before the
+     * {@link GameLogicListener#rowsFilled} call.
+     */
+    default void linesCleared(int linesCount, boolean isTSpin) {
+    }
+
+    /**
+     * Some of the rows have been filled. They are removed later on, which
+     * is signaled by the {@link GameLogicListener#rowsRemoved} call.
+     *
+     * @param   rows indices of the filled rows sorted in the ascending
+     *          order, only the first {@code count} of them are valid.
+     *          The array must not be modified.
+     */
+    default void rowsFilled(int[] rows, int count) {
+    }
+
+    /**
+     * The filled rows have been removed and the rows above them have been
+     * moved down.
+     *
+     * @param   rows same as in {@link GameLogicListener#rowsFilled}.
+     * @param   rowTranslation new indices of the rows (see
+     *          {@link poppyfanboy.tetrisgame.util.BitBoard#computeRowTranslation}).
+     *          The array must not be modified.
+     */
+    default void rowsRemoved(int[] rows, int count, int[] rowTranslation) {
+    }
+
+    /**
+     * The locked blocks have been moved up by {@code count} rows and the
+     * garbage rows have been inserted at the bottom of the game field.
+     * The garbage rows are filled except for a single tile.
+     *
+     * @param   holeColumns columns of the empty tiles of the garbage rows,
+     *          the {@code i}-th element corresponds to the row
+     *          {@code height - count + i}. Only the first {@code count}
+     *          elements are valid. The array must not be modified.
+     */
+    default void garbageInserted(int[] holeColumns, int count) {
+    }
+
+    /**
+     * All of the locked blocks are about to be removed from the game field
+     * before starting a new game.
+     */
+    default void gameFieldClearing() {
+    }
+
+    /**
+     * All of the locked blocks have been removed.
+     */
+    default void gameFieldCleared() {
+    }
+}
@@ -0,0 +1,350 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import poppyfanboy.tetrisgame.entities.BlockColor;
+import poppyfanboy.tetrisgame.util.BitBoard;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A save file of the game logic mapped into the memory. Saving the game
+ * only copies its state into the mapped memory, which is written to the
+ * disk by the operating system in the background, so the game can be
+ * saved as often as needed without waiting for the disk. The state gets
+ * to the disk right away only once the slot is forced or closed.
+ *
+ * Each of the rows of the game field has a fixed place in the file and
+ * only the rows that have changed since the last save are written. The
+ * changed rows are found by comparing the words of the bit boards of the
+ * game field with their copies made by the last save, so only these rows
+ * are encoded. The rest of the state is written in the format of
+ * {@link GameLogic#writeState} without the game field, also only the
+ * changed bytes of it are written.
+ *
+ * The file starts with a magic number (4 bytes), the version of the
+ * format (1 byte), the status of the slot (1 byte), the length of the rest
+ * of the state (2 bytes) and the size of the game field (4 bytes for the
+ * width and for the height). The header is followed by the rows from the
+ * top to the bottom and then by the rest of the state. Each tile of a row
+ * is packed into {@code TILE_BITS} bits: zero for an empty tile,
+ * otherwise the ordinal of the color of the block plus one. A save that
+ * has been interrupted (e.g. the game has been killed in the middle of
+ * it) is marked by the status, such a slot is treated as an empty one.
+ */
+public class SaveSlot implements Closeable {
+    private static final int MAGIC = 0x54475356;
+    private static final int VERSION = 1;
+    private static final byte STATUS_EMPTY = 0, STATUS_SAVED = 1;
+    private static final byte STATUS_WRITING = 2;
+
+    private static final int VERSION_OFFSET = 4, STATUS_OFFSET = 5;
+    private static final int REST_LENGTH_OFFSET = 6, WIDTH_OFFSET = 8;
+    private static final int HEIGHT_OFFSET = 12, HEADER_SIZE = 16;
+    // room for the state apart from the game field (it typically takes
+    // less than 50 bytes)
+    private static final int REST_CAPACITY = 4096;
+
+    private static final BlockColor[] COLORS = BlockColor.values();
+    // number of the bits needed to store a tile of a row
+    private static final int TILE_BITS
+            = Integer.SIZE - Integer.numberOfLeadingZeros(COLORS.length);
+
+    private final int widthInBlocks, heightInBlocks;
+    // size of a row in bytes
+    private final int rowSize;
+    private final int restOffset;
+    private MappedByteBuffer mapped;
+
+    // copies of the rows and of the rest of the state as they are in the
+    // file, the saved state is compared against them
+    private final byte[] savedRows;
+    private final byte[] savedRest = new byte[REST_CAPACITY];
+    // the rows and the rest of the state are encoded into these buffers
+    // before they are compared with the saved ones
+    private final byte[] row;
+    private final ByteBuffer rest = ByteBuffer.allocate(REST_CAPACITY);
+    // words of the occupancy and of the color planes of the game field
+    // as they were during the last save indexed as (y, plane, word), the
+    // array is created by the first save
+    private long[] savedWords;
+    // false until the saved words match the rows in the file
+    private boolean savedWordsValid;
+
+    /**
+     * Opens the save file, the file is created if it does not exist yet.
+     *
+     * @throws  IOException in case the file can not be opened or it is
+     *          not a save file of a game field of the specified size.
+     * @throws  IllegalArgumentException in case the size of the game field
+     *          is not positive.
+     */
+    public SaveSlot(Path path, int widthInBlocks, int heightInBlocks)
+            throws IOException {
+        if (widthInBlocks <= 0 || heightInBlocks <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "The game field size must be positive. Got: %dx%d",
+                    widthInBlocks, heightInBlocks));
+        }
+        this.widthInBlocks = widthInBlocks;
+        this.heightInBlocks = heightInBlocks;
+        rowSize = (widthInBlocks * TILE_BITS + Byte.SIZE - 1) / Byte.SIZE;
+        restOffset = HEADER_SIZE + heightInBlocks * rowSize;
+        row = new byte[rowSize];
+        savedRows = new byte[heightInBlocks * rowSize];
+
+        final int fileSize = restOffset + REST_CAPACITY;
+        final boolean created;
+        try (FileChannel channel
+                = FileChannel.open(path, CREATE, READ, WRITE)) {
+            final long size = channel.size();
+            if (size != 0 && size != fileSize) {
+                throw new IOException(String.format(
+                        "The file is not a save file of a %dx%d game field.",
+                        widthInBlocks, heightInBlocks));
+            }
+            created = size == 0;
+            // the mapping stays valid once the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    fileSize);
+        }
+        if (created) {
+            mapped.putInt(0, MAGIC);
+            mapped.put(VERSION_OFFSET, (byte) VERSION);
+            mapped.put(STATUS_OFFSET, STATUS_EMPTY);
+            mapped.putInt(WIDTH_OFFSET, widthInBlocks);
+            mapped.putInt(HEIGHT_OFFSET, heightInBlocks);
+        } else if (mapped.getInt(0) != MAGIC
+                || mapped.get(VERSION_OFFSET) != VERSION
+                || mapped.getInt(WIDTH_OFFSET) != widthInBlocks
+                || mapped.getInt(HEIGHT_OFFSET) != heightInBlocks) {
+            throw new IOException(String.format(
+                    "The file is not a save file of a %dx%d game field.",
+                    widthInBlocks, heightInBlocks));
+        }
+        mapped.position(HEADER_SIZE);
+        mapped.get(savedRows);
+        mapped.get(savedRest);
+    }
+
+    /**
+     * Returns {@code true} in case the slot holds a saved game.
+     */
+    public boolean hasSavedGame() {
+        checkOpen();
+        return mapped.get(STATUS_OFFSET) == STATUS_SAVED;
+    }
+
+    /**
+     * Saves the state of the game logic into the slot. Only the parts of
+     * the state that have changed since the last save are written.
+     *
+     * @throws  IllegalArgumentException in case the game field size of the
+     *          game logic differs from the one of the slot.
+     * @throws  IllegalStateException in case the slot is closed.
+     */
+    public void save(GameLogic game) {
+        checkOpen();
+        checkSize(game);
+        // the state is encoded before anything is written, so that the
+        // slot is left intact in case it fails
+        rest.clear();
+        game.writeState(rest, false);
+
+        mapped.put(STATUS_OFFSET, STATUS_WRITING);
+        for (int y = 0; y < heightInBlocks; y++) {
+            if (!updateSavedWords(game, y) && savedWordsValid) {
+                continue;
+            }
+            encodeRow(game, y);
+            final int offset = y * rowSize;
+            boolean changed = false;
+            for (int i = 0; i < rowSize && !changed; i++) {
+                changed = row[i] != savedRows[offset + i];
+            }
+            if (changed) {
+                System.arraycopy(row, 0, savedRows, offset, rowSize);
+                mapped.position(HEADER_SIZE + offset);
+                mapped.put(row);
+            }
+        }
+        savedWordsValid = true;
+
+        // only the changed range of the bytes is written
+        final byte[] restBytes = rest.array();
+        final int restLength = rest.position();
+        int start = 0, end = restLength;
+        while (start < end && restBytes[start] == savedRest[start]) {
+            start++;
+        }
+        while (end > start && restBytes[end - 1] == savedRest[end - 1]) {
+            end--;
+        }
+        if (start < end) {
+            System.arraycopy(restBytes, start, savedRest, start, end - start);
+            mapped.position(restOffset + start);
+            mapped.put(restBytes, start, end - start);
+        }
+        mapped.putShort(REST_LENGTH_OFFSET, (short) restLength);
+        mapped.put(STATUS_OFFSET, STATUS_SAVED);
+    }
+
+    /**
+     * Restores the saved game into the game logic. Just like
+     * {@link GameLogic#readState}, only the score subscribers are
+     * notified.
+     *
+     * @return  {@code false} in case the slot holds no saved game, the game
+     *          logic is left unchanged then.
+     * @throws  IllegalArgumentException in case the game field size of the
+     *          game logic differs from the one of the slot or the saved
+     *          game is malformed (the game logic is left unchanged).
+     * @throws  IllegalStateException in case the slot is closed.
+     */
+    public boolean load(GameLogic game) {
+        checkOpen();
+        checkSize(game);
+        if (!hasSavedGame()) {
+            return false;
+        }
+        final int restLength = mapped.getShort(REST_LENGTH_OFFSET) & 0xFFFF;
+        if (restLength > REST_CAPACITY) {
+            throw new IllegalArgumentException(String.format(
+                    "The saved state is too long. Got: %d", restLength));
+        }
+        final GameLogic.Snapshot backup = game.snapshot();
+        try {
+            game.clearGameField();
+            for (int y = 0; y < heightInBlocks; y++) {
+                for (int x = 0; x < widthInBlocks; x++) {
+                    final int tile = getTile(x, y);
+                    if (tile > COLORS.length) {
+                        throw new IllegalArgumentException(String.format(
+                                "Unknown color. Got: %d", tile - 1));
+                    }
+                    if (tile != 0) {
+                        game.setBlock(x, y, COLORS[tile - 1]);
+                    }
+                }
+            }
+            game.readState(ByteBuffer.wrap(savedRest, 0, restLength), false);
+        } catch (RuntimeException ex) {
+            game.restore(backup);
+            throw ex;
+        }
+        return true;
+    }
+
+    /**
+     * Empties the slot, the saved game is discarded.
+     */
+    public void clear() {
+        checkOpen();
+        mapped.put(STATUS_OFFSET, STATUS_EMPTY);
+    }
+
+    /**
+     * Writes the saved game to the disk. Unlike the saving itself, this
+     * might take a while.
+     */
+    public void force() {
+        checkOpen();
+        mapped.force();
+    }
+
+    /**
+     * Writes the saved game to the disk and closes the slot. Does nothing
+     * in case the slot is already closed.
+     */
+    @Override
+    public void close() {
+        if (mapped == null) {
+            return;
+        }
+        mapped.force();
+        mapped = null;
+    }
+
+    /**
+     * Copies the words of the {@code y}-th row of the game field into the
+     * saved words. Returns {@code true} in case any of them has changed.
+     */
+    private boolean updateSavedWords(GameLogic game, int y) {
+        final int wordsPerRow = game.getOccupancy().getWordsPerRow();
+        final int planesCount = GameLogic.COLOR_BITS + 1;
+        if (savedWords == null) {
+            savedWords = new long[heightInBlocks * planesCount * wordsPerRow];
+        }
+        boolean changed = false;
+        int index = y * planesCount * wordsPerRow;
+        for (int plane = 0; plane < planesCount; plane++) {
+            final BitBoard board = plane == 0
+                    ? game.getOccupancy()
+                    : game.getColorPlane(plane - 1);
+            for (int i = 0; i < wordsPerRow; i++, index++) {
+                final long word = board.getWord(y, i);
+                if (word != savedWords[index]) {
+                    savedWords[index] = word;
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private void encodeRow(GameLogic game, int y) {
+        Arrays.fill(row, (byte) 0);
+        if (game.getRowBlocksCount(y) == 0) {
+            return;
+        }
+        final BitBoard occupancy = game.getOccupancy();
+        for (int x = 0; x < widthInBlocks; x++) {
+            if (!occupancy.get(x, y)) {
+                continue;
+            }
+            final int tile = game.getBlockColor(x, y).ordinal() + 1;
+            for (int i = 0; i < TILE_BITS; i++) {
+                if ((tile & (1 << i)) != 0) {
+                    final int bit = x * TILE_BITS + i;
+                    row[bit / Byte.SIZE] |= 1 << (bit % Byte.SIZE);
+                }
+            }
+        }
+    }
+
+    private int getTile(int x, int y) {
+        final int offset = y * rowSize;
+        int tile = 0;
+        for (int i = 0; i < TILE_BITS; i++) {
+            final int bit = x * TILE_BITS + i;
+            if ((savedRows[offset + bit / Byte.SIZE]
+                    & (1 << (bit % Byte.SIZE))) != 0) {
+                tile |= 1 << i;
+            }
+        }
+        return tile;
+    }
+
+    private void checkSize(GameLogic game) {
+        if (game.getWidthInBlocks() != widthInBlocks
+                || game.getHeightInBlocks() != heightInBlocks) {
+            throw new IllegalArgumentException(String.format(
+                    "The game field size differs from the save slot game"
+                    + " field size. Got: %dx%d, expected: %dx%d",
+                    game.getWidthInBlocks(), game.getHeightInBlocks(),
+                    widthInBlocks, heightInBlocks));
+        }
+    }
+
+    private void checkOpen() {
+        if (mapped == null) {
+            throw new IllegalStateException("The save slot is closed.");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import poppyfanboy.tetrisgame.util.Varint;
+
+/**
+ * Score, number of the cleared lines and the current level of the game.
+ * The timings of the game get shorter as the level goes up (see
+ * {@link TimingTable}).
+ *
+ * Score is calculated based on this bonuses rules:
+ *  - 1 line cleared => 1 point
+ *  - 2 lines cleared => 3 points
+ *  - 3 lines cleared => 5 points
+ *  - 4 lines cleared (a tetris) => 8 points
+ *  - 1 line cleared with a T-spin => 3 points
+ *  - 2 lines cleared with a T-spin => 7 points
+ *  - 3 lines cleared with a T-spin => 6 points
+ *  - second "difficult" (T-spin or tetris) lines clear in a row(B2B)
+ *          => 12 points
+ */
+public class Score {
+    private static final int GOAL_COEFF = 5;
+    private static final int SCORE_COEFF = 100;
+    private static final int LOCK_DELAY_COEFF = 3;
+
+    private List<ScoreSubscriber> subscriptions = new ArrayList<>();
+    // default values
+    private int score = 0, lines = 0, level = 1;
+    private int combo = 0;
+
+    private int currentGoal = GOAL_COEFF * level * SCORE_COEFF;
+
+    public Score() {
+    }
+
+    /**
+     * Creates a copy of the score. The subscribers are not copied.
+     */
+    Score(Score other) {
+        score = other.score;
+        lines = other.lines;
+        level = other.level;
+        combo = other.combo;
+        currentGoal = other.currentGoal;
+    }
+
+    /**
+     * Copies the values of the other score and notifies the subscribers.
+     */
+    void restore(Score other) {
+        score = other.score;
+        lines = other.lines;
+        level = other.level;
+        combo = other.combo;
+        currentGoal = other.currentGoal;
+        notifySubscribers();
+    }
+
+    void writeState(ByteBuffer buffer) {
+        Varint.writeUnsigned(buffer, score);
+        Varint.writeUnsigned(buffer, lines);
+        Varint.writeUnsigned(buffer, level);
+        Varint.writeUnsigned(buffer, combo);
+        Varint.writeUnsigned(buffer, currentGoal);
+    }
+
+    /**
+     * Reads the values written by {@link #writeState} and notifies the
+     * subscribers.
+     *
+     * @throws  IllegalArgumentException in case the values are out of
+     *          range.
+     */
+    void readState(ByteBuffer buffer) {
+        final int score = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        final int lines = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        final int level = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        final int combo = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        final int currentGoal
+                = Varint.readUnsigned(buffer, Integer.MAX_VALUE);
+        if (level == 0) {
+            throw new IllegalArgumentException("Level must be positive.");
+        }
+        this.score = score;
+        this.lines = lines;
+        this.level = level;
+        this.combo = combo;
+        this.currentGoal = currentGoal;
+        notifySubscribers();
+    }
+
+    public void subscribe(ScoreSubscriber subscriber) {
+        subscriptions.add(subscriber);
+        subscriber.updateScore(score, lines, level);
+    }
+
+    public void unsubscribe(ScoreSubscriber subscriber) {
+        subscriptions.remove(subscriber);
+    }
+
+    void reset() {
+        score = 0;
+        lines = 0;
+        level = 1;
+        combo = 0;
+        currentGoal = GOAL_COEFF * level * SCORE_COEFF;
+        notifySubscribers();
+    }
+
+    void resetCombo() {
+        combo = 0;
+    }
+
+    void update(int linesCleared, boolean isTSpin) {
+        if (linesCleared != 0) {
+            calculateScore(linesCleared, isTSpin);
+            notifySubscribers();
+        }
+    }
+
+    private void notifySubscribers() {
+        // indexed loop, so that no iterator is allocated on each update
+        for (int i = 0; i < subscriptions.size(); i++) {
+            subscriptions.get(i).updateScore(score, lines, level);
+        }
+    }
+
+    private void calculateScore(int linesCleared, boolean isTSpin) {
+        // update score/lines/level
+        lines += linesCleared;
+
+        // update combo counter
+        if (isTSpin || linesCleared == 4) {
+            combo += 1;
+        } else {
+            combo = 0;
+        }
+
+        int scoreAdded = 0;
+        if (linesCleared != 0) {
+            if (isTSpin) {
+                if (linesCleared < 3) {
+                    scoreAdded += 4 * linesCleared - 1;
+                } else {
+                    scoreAdded += 6;
+                }
+            } else {
+                if (linesCleared < 4) {
+                    scoreAdded += 2 * linesCleared - 1;
+                } else {
+                    scoreAdded += 2 * linesCleared;
+                }
+            }
+            if (combo >= 2) {
+                scoreAdded = 12;
+            }
+        }
+        score += scoreAdded * SCORE_COEFF;
+        while (score >= currentGoal) {
+            level++;
+            currentGoal = currentGoal + GOAL_COEFF * level * SCORE_COEFF;
+        }
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+}
@@ -0,0 +1,6 @@
+package poppyfanboy.tetrisgame.logic;
+
+@FunctionalInterface
+public interface ScoreSubscriber {
+    void updateScore(int score, int lines, int level);
+}
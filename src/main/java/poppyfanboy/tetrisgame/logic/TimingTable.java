@@ -0,0 +1,239 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+import poppyfanboy.tetrisgame.Game;
+
+/**
+ * Timings of the game for each of the levels, computed once (or loaded
+ * from a file), so that the level-up is just a table lookup. The levels
+ * that are above the last level of the table use the timings of the last
+ * level. Tables are immutable.
+ *
+ * The timing curve file is a text file. Empty lines and the lines starting
+ * with {@code #} are ignored. The first line lists the names of the
+ * columns (the names of the {@link Timing} constants in any case, e.g.
+ * {@code soft_drop}), each of the following lines lists the timings of a
+ * level in the order of the columns, starting from the first level:
+ *
+ * <pre>
+ * # 20G from the start
+ * soft_drop forced_drop hard_drop user_control block_break lock_delay autofire gravity
+ * 0 0 0 10 12 15 2 20
+ * </pre>
+ *
+ * The {@code gravity} column is optional (one row per drop by default),
+ * all of the other columns are required.
+ */
+public class TimingTable {
+    /**
+     * All of the timings are durations measured in ticks, except for the
+     * {@code GRAVITY}, which is the number of rows the active shape falls
+     * at once. So the duration of 0 means that the shape falls every tick,
+     * and the gravity of 20 (or the height of the game field) means that
+     * it lands right away (the 20G mode). The {@code HARD_DROP} is the
+     * longest the hard drop may take, the shape falls with the constant
+     * acceleration until then, so 0 means that it is locked as soon as
+     * possible.
+     */
+    public enum Timing {
+        SOFT_DROP, FORCED_DROP, HARD_DROP, USER_CONTROL, BLOCK_BREAK,
+        LOCK_DELAY, AUTOFIRE, GRAVITY;
+
+        private static final Timing[] VALUES = values();
+    }
+
+    // number of the levels in the default table: starting from the level 13
+    // all of the default timings stay equal to the minimum anyway
+    private static final int DEFAULT_LEVELS_COUNT = 20;
+
+    /**
+     * The timings the game has always had, the soft drop duration is
+     * computed by the formula from the Tetris guideline.
+     */
+    public static final TimingTable DEFAULT = createDefault();
+
+    // timings[timing.ordinal()][level - 1]
+    private final int[][] timings;
+    private final int levelsCount;
+
+    private TimingTable(int[][] timings) {
+        this.timings = timings;
+        levelsCount = timings[0].length;
+    }
+
+    private static TimingTable createDefault() {
+        final int[][] timings
+                = new int[Timing.VALUES.length][DEFAULT_LEVELS_COUNT];
+        final int ticksPerSecond = Game.TICKS_PER_SECOND;
+        for (int i = 0; i < DEFAULT_LEVELS_COUNT; i++) {
+            final int softDrop = (int) (Math.pow(0.8 - i * 0.007, i)
+                    * ticksPerSecond);
+            final int userControl = (int) Math.min(0.25 * ticksPerSecond,
+                    softDrop / 1.5);
+            timings[Timing.SOFT_DROP.ordinal()][i] = softDrop;
+            timings[Timing.FORCED_DROP.ordinal()][i] = (int) Math.min(
+                    0.06 * ticksPerSecond, softDrop / 4.0);
+            // long enough for the shape to fall through the usual game
+            // field with the acceleration of the game
+            timings[Timing.HARD_DROP.ordinal()][i] = ticksPerSecond;
+            timings[Timing.USER_CONTROL.ordinal()][i] = userControl;
+            timings[Timing.BLOCK_BREAK.ordinal()][i] = (int) Math.min(
+                    0.25 * ticksPerSecond, softDrop);
+            timings[Timing.LOCK_DELAY.ordinal()][i] = userControl;
+            timings[Timing.AUTOFIRE.ordinal()][i] = userControl / 4;
+            timings[Timing.GRAVITY.ordinal()][i] = 1;
+        }
+        return new TimingTable(timings);
+    }
+
+    /**
+     * Reads the timing curve file (see the description of the format
+     * above).
+     *
+     * @throws  IOException in case the file can not be read or it is not
+     *          a valid timing curve file.
+     */
+    public static TimingTable load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * Reads the timing curve (see the description of the format above).
+     * The reader is not closed.
+     *
+     * @throws  IOException in case the reader fails or the data is not
+     *          a valid timing curve.
+     */
+    public static TimingTable load(Reader reader) throws IOException {
+        BufferedReader in = new BufferedReader(reader);
+        Timing[] columns = null;
+        List<int[]> levels = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final String[] tokens = line.split("\\s+");
+            if (columns == null) {
+                columns = parseHeader(tokens, lineNumber);
+                continue;
+            }
+            if (tokens.length != columns.length) {
+                throw new IOException(String.format(
+                        "Line %d: expected %d values, got %d", lineNumber,
+                        columns.length, tokens.length));
+            }
+            final int[] values = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                try {
+                    values[i] = Integer.parseInt(tokens[i]);
+                } catch (NumberFormatException ex) {
+                    throw new IOException(String.format(
+                            "Line %d: not an integer: %s", lineNumber,
+                            tokens[i]), ex);
+                }
+                final int min = columns[i] == Timing.GRAVITY ? 1 : 0;
+                if (values[i] < min) {
+                    throw new IOException(String.format(
+                            "Line %d: %s must not be less than %d, got %d",
+                            lineNumber,
+                            columns[i].name().toLowerCase(Locale.ROOT), min,
+                            values[i]));
+                }
+            }
+            levels.add(values);
+        }
+        if (levels.isEmpty()) {
+            throw new IOException("The timing curve has no levels.");
+        }
+
+        final int[][] timings = new int[Timing.VALUES.length][levels.size()];
+        // gravity defaults to one row
+        Arrays.fill(timings[Timing.GRAVITY.ordinal()], 1);
+        for (int i = 0; i < columns.length; i++) {
+            for (int level = 0; level < levels.size(); level++) {
+                timings[columns[i].ordinal()][level] = levels.get(level)[i];
+            }
+        }
+        return new TimingTable(timings);
+    }
+
+    private static Timing[] parseHeader(String[] tokens, int lineNumber)
+            throws IOException {
+        final Timing[] columns = new Timing[tokens.length];
+        final boolean[] present = new boolean[Timing.VALUES.length];
+        for (int i = 0; i < tokens.length; i++) {
+            try {
+                columns[i] = Timing.valueOf(
+                        tokens[i].toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IOException(String.format(
+                        "Line %d: unknown column: %s", lineNumber, tokens[i]),
+                        ex);
+            }
+            if (present[columns[i].ordinal()]) {
+                throw new IOException(String.format(
+                        "Line %d: duplicate column: %s", lineNumber,
+                        tokens[i]));
+            }
+            present[columns[i].ordinal()] = true;
+        }
+        for (Timing timing : Timing.VALUES) {
+            if (!present[timing.ordinal()] && timing != Timing.GRAVITY) {
+                throw new IOException(String.format(
+                        "Line %d: missing column: %s", lineNumber,
+                        timing.name().toLowerCase(Locale.ROOT)));
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the timing for the specified level (starting from 1).
+     */
+    public int get(Timing timing, int level) {
+        final int index = Math.max(0, Math.min(level, levelsCount) - 1);
+        return timings[timing.ordinal()][index];
+    }
+
+    /**
+     * Returns the number of the levels that have their own timings.
+     */
+    public int getLevelsCount() {
+        return levelsCount;
+    }
+
+    /**
+     * Returns the checksum of the timings of all of the levels, the tables
+     * with the same timings have the same checksums.
+     */
+    public long getChecksum() {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES
+                * (1 + Timing.VALUES.length * levelsCount));
+        buffer.putInt(levelsCount);
+        for (int[] levelTimings : timings) {
+            for (int timing : levelTimings) {
+                buffer.putInt(timing);
+            }
+        }
+        crc.update(buffer.array());
+        return crc.getValue();
+    }
+}
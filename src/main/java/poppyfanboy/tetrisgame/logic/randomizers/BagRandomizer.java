@@ -0,0 +1,124 @@
+package poppyfanboy.tetrisgame.logic.randomizers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.util.Varint;
+
+/**
+ * Deals the shapes from a bag that contains the specified number of copies
+ * of each of the shapes. Once the bag is empty, it is refilled. So with
+ * one copy of each tetromino (the 7-bag) the same shape can not come more
+ * than twice in a row, and with two copies (the 14-bag) the sequence is
+ * less predictable, but still evenly distributed.
+ *
+ * The shapes are drawn from the bag at random indices, the order of the
+ * remaining shapes is kept. For the 7-bag of the {@code TetrisShapeType}
+ * constants this yields the same sequence the game has always used, so
+ * the older recordings of the games are replayed correctly.
+ */
+public class BagRandomizer implements ShapeRandomizer {
+    private final ShapeType[] shapes;
+    private final int copies;
+
+    // shapes left in the bag are the first itemsCount ones
+    private final ShapeType[] items;
+    private int itemsCount;
+
+    /**
+     * @throws  IllegalArgumentException in case the array of the shapes is
+     *          empty or the number of the copies is not positive.
+     */
+    public BagRandomizer(ShapeType[] shapes, int copies) {
+        if (shapes.length == 0 || copies <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "At least one shape type and at least one copy must be"
+                    + " specified. Got: shapes count = %d, copies = %d",
+                    shapes.length, copies));
+        }
+        this.shapes = shapes.clone();
+        this.copies = copies;
+        items = new ShapeType[shapes.length * copies];
+    }
+
+    /**
+     * Creates the bag with a single copy of each of the shapes.
+     */
+    public BagRandomizer(ShapeType[] shapes) {
+        this(shapes, 1);
+    }
+
+    @Override
+    public ShapeType next(Random random) {
+        if (itemsCount == 0) {
+            for (int i = 0; i < copies; i++) {
+                System.arraycopy(shapes, 0, items, i * shapes.length,
+                        shapes.length);
+            }
+            itemsCount = items.length;
+        }
+        final int index = random.nextInt(itemsCount);
+        final ShapeType shape = items[index];
+        System.arraycopy(items, index + 1, items, index,
+                itemsCount - index - 1);
+        items[--itemsCount] = null;
+        return shape;
+    }
+
+    @Override
+    public BagRandomizer copy() {
+        BagRandomizer copy = new BagRandomizer(shapes, copies);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    @Override
+    public void copyFrom(ShapeRandomizer other) {
+        if (!(other instanceof BagRandomizer)
+                || ((BagRandomizer) other).copies != copies
+                || !Arrays.equals(((BagRandomizer) other).shapes, shapes)) {
+            throw new IllegalArgumentException(String.format(
+                    "Randomizers must be configured in the same way."
+                    + " Got: %s, expected: %s", other, this));
+        }
+        BagRandomizer bag = (BagRandomizer) other;
+        System.arraycopy(bag.items, 0, items, 0, items.length);
+        itemsCount = bag.itemsCount;
+    }
+
+    @Override
+    public int getShapeTypesCount() {
+        return shapes.length;
+    }
+
+    @Override
+    public ShapeType getShapeType(int index) {
+        return shapes[index];
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        Varint.writeUnsigned(buffer, itemsCount);
+        for (int i = 0; i < itemsCount; i++) {
+            Varint.writeUnsigned(buffer, indexOf(items[i]));
+        }
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        final int itemsCount = Varint.readUnsigned(buffer, items.length);
+        for (int i = 0; i < itemsCount; i++) {
+            items[i] = shapes[Varint.readUnsigned(buffer, shapes.length - 1)];
+        }
+        Arrays.fill(items, itemsCount, items.length, null);
+        this.itemsCount = itemsCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BagRandomizer(%d shapes, %d copies)",
+                shapes.length, copies);
+    }
+}
@@ -0,0 +1,155 @@
+package poppyfanboy.tetrisgame.logic.randomizers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+import poppyfanboy.tetrisgame.util.Varint;
+
+/**
+ * Randomizer in the style of the Tetris The Grand Master games: it
+ * remembers the last few generated shapes and rerolls the shape up to the
+ * specified number of times in case it is one of them. The last roll is
+ * accepted anyway, so any shape can come at any time, but the repeats are
+ * rare.
+ */
+public class HistoryRandomizer implements ShapeRandomizer {
+    private final ShapeType[] shapes;
+    private final int rolls;
+    private final ShapeType[] initialHistory;
+
+    // ring buffer of the last generated shapes
+    private final ShapeType[] history;
+    private int historyStart;
+
+    /**
+     * @param   initialHistory shapes the history is filled with before the
+     *          first shape is generated, its length is the length of the
+     *          history.
+     * @throws  IllegalArgumentException in case the array of the shapes is
+     *          empty or the number of the rolls is not positive.
+     */
+    public HistoryRandomizer(ShapeType[] shapes, int rolls,
+            ShapeType... initialHistory) {
+        if (shapes.length == 0 || rolls <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "At least one shape type and at least one roll must be"
+                    + " specified. Got: shapes count = %d, rolls = %d",
+                    shapes.length, rolls));
+        }
+        this.shapes = shapes.clone();
+        this.rolls = rolls;
+        this.initialHistory = initialHistory.clone();
+        history = initialHistory.clone();
+    }
+
+    /**
+     * Creates the randomizer of the TGM2 game: the history of four shapes
+     * initially filled with the S and Z shapes and six rolls.
+     */
+    public static HistoryRandomizer createTgm() {
+        return new HistoryRandomizer(TetrisShapeType.values(), 6,
+                TetrisShapeType.Z_SHAPE, TetrisShapeType.S_SHAPE,
+                TetrisShapeType.S_SHAPE, TetrisShapeType.Z_SHAPE);
+    }
+
+    @Override
+    public ShapeType next(Random random) {
+        ShapeType shape = null;
+        for (int i = 0; i < rolls; i++) {
+            shape = shapes[random.nextInt(shapes.length)];
+            if (!inHistory(shape)) {
+                break;
+            }
+        }
+        if (history.length != 0) {
+            history[historyStart] = shape;
+            historyStart = (historyStart + 1) % history.length;
+        }
+        return shape;
+    }
+
+    private boolean inHistory(ShapeType shape) {
+        for (ShapeType historyShape : history) {
+            if (historyShape == shape) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public HistoryRandomizer copy() {
+        HistoryRandomizer copy
+                = new HistoryRandomizer(shapes, rolls, initialHistory);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    @Override
+    public void copyFrom(ShapeRandomizer other) {
+        if (!(other instanceof HistoryRandomizer)
+                || ((HistoryRandomizer) other).rolls != rolls
+                || !Arrays.equals(((HistoryRandomizer) other).shapes, shapes)
+                || !Arrays.equals(((HistoryRandomizer) other).initialHistory,
+                        initialHistory)) {
+            throw new IllegalArgumentException(String.format(
+                    "Randomizers must be configured in the same way."
+                    + " Got: %s, expected: %s", other, this));
+        }
+        HistoryRandomizer randomizer = (HistoryRandomizer) other;
+        System.arraycopy(randomizer.history, 0, history, 0, history.length);
+        historyStart = randomizer.historyStart;
+    }
+
+    @Override
+    public int getShapeTypesCount() {
+        return shapes.length;
+    }
+
+    @Override
+    public ShapeType getShapeType(int index) {
+        return shapes[index];
+    }
+
+    /**
+     * The history is written as the indices of its shapes. The initial
+     * history may contain the shapes that are never generated, these are
+     * written as the indices in the initial history following the indices
+     * of the generated shapes.
+     */
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        Varint.writeUnsigned(buffer, historyStart);
+        for (ShapeType shape : history) {
+            int index = indexOf(shape);
+            if (index == -1) {
+                index = shapes.length
+                        + Arrays.asList(initialHistory).indexOf(shape);
+            }
+            Varint.writeUnsigned(buffer, index);
+        }
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        final int historyStart = Varint.readUnsigned(buffer,
+                Math.max(0, history.length - 1));
+        final int maxIndex = shapes.length + initialHistory.length - 1;
+        for (int i = 0; i < history.length; i++) {
+            final int index = Varint.readUnsigned(buffer, maxIndex);
+            history[i] = index < shapes.length
+                    ? shapes[index]
+                    : initialHistory[index - shapes.length];
+        }
+        this.historyStart = historyStart;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistoryRandomizer(%d shapes, %d rolls,"
+                + " history of %d)", shapes.length, rolls, history.length);
+    }
+}
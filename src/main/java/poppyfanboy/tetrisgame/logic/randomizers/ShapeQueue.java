@@ -0,0 +1,134 @@
+package poppyfanboy.tetrisgame.logic.randomizers;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.util.Varint;
+
+/**
+ * The upcoming shapes that are already known to the player. The shapes are
+ * kept in a fixed-size ring buffer which is refilled from the randomizer
+ * as the shapes are taken from it, so the queue is always full.
+ */
+public class ShapeQueue {
+    private final ShapeRandomizer randomizer;
+    private final ShapeType[] shapes;
+    // index of the head of the queue in the ring buffer
+    private int head;
+
+    /**
+     * Creates the queue and fills it with the shapes generated by the
+     * randomizer.
+     *
+     * @throws  IllegalArgumentException in case the size of the queue is
+     *          not positive.
+     */
+    public ShapeQueue(ShapeRandomizer randomizer, int size, Random random) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Size of the queue must be a positive integer."
+                    + " Got: size = %d", size));
+        }
+        this.randomizer = randomizer;
+        shapes = new ShapeType[size];
+        for (int i = 0; i < size; i++) {
+            shapes[i] = randomizer.next(random);
+        }
+    }
+
+    private ShapeQueue(ShapeQueue other) {
+        randomizer = other.randomizer.copy();
+        shapes = other.shapes.clone();
+        head = other.head;
+    }
+
+    /**
+     * Takes the shape from the head of the queue and appends a newly
+     * generated one to its tail.
+     */
+    public ShapeType poll(Random random) {
+        final ShapeType shape = shapes[head];
+        shapes[head] = randomizer.next(random);
+        head = (head + 1) % shapes.length;
+        return shape;
+    }
+
+    /**
+     * Returns the {@code index}-th shape of the queue without removing it,
+     * the shape at the head of the queue has the index 0.
+     */
+    public ShapeType peek(int index) {
+        if (index < 0 || index >= shapes.length) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Index must be between 0 and %d. Got: index = %d",
+                    shapes.length - 1, index));
+        }
+        return shapes[(head + index) % shapes.length];
+    }
+
+    public int getSize() {
+        return shapes.length;
+    }
+
+    /**
+     * Returns the randomizer the queue is refilled from. It must not be
+     * used to generate the shapes, since that would change the sequence
+     * of the queue.
+     */
+    public ShapeRandomizer getRandomizer() {
+        return randomizer;
+    }
+
+    /**
+     * Returns a copy of the queue along with its randomizer.
+     */
+    public ShapeQueue copy() {
+        return new ShapeQueue(this);
+    }
+
+    /**
+     * Writes the shapes of the queue (as their indices in the randomizer)
+     * followed by the state of the randomizer.
+     */
+    public void writeState(ByteBuffer buffer) {
+        for (int i = 0; i < shapes.length; i++) {
+            Varint.writeUnsigned(buffer, randomizer.indexOf(peek(i)));
+        }
+        randomizer.writeState(buffer);
+    }
+
+    /**
+     * Reads the state written by a queue of the same size with a randomizer
+     * configured in the same way.
+     *
+     * @throws  IllegalArgumentException in case the data is not a valid
+     *          state of the queue.
+     */
+    public void readState(ByteBuffer buffer) {
+        final int maxIndex = randomizer.getShapeTypesCount() - 1;
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = randomizer.getShapeType(
+                    Varint.readUnsigned(buffer, maxIndex));
+        }
+        head = 0;
+        randomizer.readState(buffer);
+    }
+
+    /**
+     * Makes the queue and its randomizer equal to the other queue.
+     *
+     * @throws  IllegalArgumentException in case the queues are of different
+     *          sizes or their randomizers are configured differently.
+     */
+    public void copyFrom(ShapeQueue other) {
+        if (other.shapes.length != shapes.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Queues must be of the same size. Got: %d and %d",
+                    shapes.length, other.shapes.length));
+        }
+        randomizer.copyFrom(other.randomizer);
+        System.arraycopy(other.shapes, 0, shapes, 0, shapes.length);
+        head = other.head;
+    }
+}
@@ -0,0 +1,76 @@
+package poppyfanboy.tetrisgame.logic.randomizers;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+
+/**
+ * Generates the sequence of the shapes the game is played with. The
+ * randomizers do not own a random number generator: the numbers are drawn
+ * from the one passed to them, so the sequence is fully determined by its
+ * seed (and by the state of the randomizer). Generating a shape must not
+ * allocate anything.
+ */
+public interface ShapeRandomizer {
+    /**
+     * Returns the next shape of the sequence.
+     */
+    ShapeType next(Random random);
+
+    /**
+     * Returns a copy of the randomizer in its current state.
+     */
+    ShapeRandomizer copy();
+
+    /**
+     * Makes the state of this randomizer equal to the state of the other
+     * one.
+     *
+     * @throws  IllegalArgumentException in case the other randomizer is
+     *          configured differently (it is of a different type or
+     *          generates a different set of shapes).
+     */
+    void copyFrom(ShapeRandomizer other);
+
+    /**
+     * Returns the number of the shape types the randomizer generates.
+     */
+    int getShapeTypesCount();
+
+    /**
+     * Returns the shape type by its index, the shape types are indexed in
+     * the order they have been passed to the randomizer.
+     *
+     * @throws  IndexOutOfBoundsException in case there is no such index.
+     */
+    ShapeType getShapeType(int index);
+
+    /**
+     * Returns the index of the shape type or {@code -1} in case the
+     * randomizer does not generate it.
+     */
+    default int indexOf(ShapeType shapeType) {
+        for (int i = 0; i < getShapeTypesCount(); i++) {
+            if (getShapeType(i) == shapeType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the state of the randomizer (but not its configuration), the
+     * shapes are written as their indices.
+     */
+    void writeState(ByteBuffer buffer);
+
+    /**
+     * Reads the state written by a randomizer that is configured in the
+     * same way.
+     *
+     * @throws  IllegalArgumentException in case the data is not a valid
+     *          state of the randomizer.
+     */
+    void readState(ByteBuffer buffer);
+}
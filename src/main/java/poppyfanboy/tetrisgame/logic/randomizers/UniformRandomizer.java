@@ -0,0 +1,73 @@
+package poppyfanboy.tetrisgame.logic.randomizers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+
+/**
+ * Picks each of the shapes independently with equal probabilities, so
+ * there is no limit on how long the droughts and the floods of a shape
+ * can be.
+ */
+public class UniformRandomizer implements ShapeRandomizer {
+    private final ShapeType[] shapes;
+
+    /**
+     * @throws  IllegalArgumentException in case the array of the shapes is
+     *          empty.
+     */
+    public UniformRandomizer(ShapeType[] shapes) {
+        if (shapes.length == 0) {
+            throw new IllegalArgumentException(
+                    "At least one shape type must be specified.");
+        }
+        this.shapes = shapes.clone();
+    }
+
+    @Override
+    public ShapeType next(Random random) {
+        return shapes[random.nextInt(shapes.length)];
+    }
+
+    @Override
+    public UniformRandomizer copy() {
+        return new UniformRandomizer(shapes);
+    }
+
+    @Override
+    public void copyFrom(ShapeRandomizer other) {
+        if (!(other instanceof UniformRandomizer)
+                || !Arrays.equals(((UniformRandomizer) other).shapes,
+                        shapes)) {
+            throw new IllegalArgumentException(String.format(
+                    "Randomizers must be configured in the same way."
+                    + " Got: %s", other));
+        }
+    }
+
+    @Override
+    public int getShapeTypesCount() {
+        return shapes.length;
+    }
+
+    @Override
+    public ShapeType getShapeType(int index) {
+        return shapes[index];
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        // stateless
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UniformRandomizer(%d shapes)", shapes.length);
+    }
+}
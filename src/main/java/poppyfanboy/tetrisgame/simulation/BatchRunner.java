@@ -0,0 +1,169 @@
+package poppyfanboy.tetrisgame.simulation;
+
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import poppyfanboy.tetrisgame.Game;
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+import poppyfanboy.tetrisgame.entities.GameField;
+import poppyfanboy.tetrisgame.input.Controllable;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+import poppyfanboy.tetrisgame.logic.GameFieldState;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.logic.Score;
+
+/**
+ * Plays lots of headless games in parallel. Each game is seeded with its
+ * own seed (so the results are reproducible) and is driven by an input
+ * policy created by the specified factory. A game lasts until it is over
+ * or until the limit of ticks is reached.
+ */
+public class BatchRunner {
+    // an hour of playing
+    public static final long DEFAULT_MAX_TICKS
+            = 60 * 60 * Game.TICKS_PER_SECOND;
+    // ranges of seeds that are smaller than this are simulated sequentially
+    private static final int SEQUENTIAL_THRESHOLD = 8;
+
+    private final int widthInBlocks, heightInBlocks;
+    private final long maxTicks;
+    private final PolicyFactory policyFactory;
+    private final ForkJoinPool pool;
+
+    @FunctionalInterface
+    public interface PolicyFactory {
+        /**
+         * Creates an input policy that passes its inputs to the game. The
+         * random is seeded by the seed of the game.
+         */
+        Controllable create(GameLogic game, Random random);
+    }
+
+    public BatchRunner(int widthInBlocks, int heightInBlocks, long maxTicks,
+            PolicyFactory policyFactory, ForkJoinPool pool) {
+        if (maxTicks <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Max ticks must be a positive integer."
+                    + " Got: maxTicks = %d", maxTicks));
+        }
+        this.widthInBlocks = widthInBlocks;
+        this.heightInBlocks = heightInBlocks;
+        this.maxTicks = maxTicks;
+        this.policyFactory = policyFactory;
+        this.pool = pool;
+    }
+
+    public BatchRunner(int widthInBlocks, int heightInBlocks, long maxTicks,
+            PolicyFactory policyFactory) {
+        this(widthInBlocks, heightInBlocks, maxTicks, policyFactory,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plays the games seeded with the seeds from {@code baseSeed} to
+     * {@code baseSeed + gamesCount - 1}.
+     */
+    public SimulationResult run(int gamesCount, long baseSeed) {
+        if (gamesCount < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Games count must be a non-negative integer."
+                    + " Got: gamesCount = %d", gamesCount));
+        }
+        return pool.invoke(
+                new SimulationTask(baseSeed, baseSeed + gamesCount));
+    }
+
+    /**
+     * Plays a single game with the specified seed.
+     */
+    public SimulationResult runGame(long seed) {
+        GameLogic game = new GameLogic(widthInBlocks, heightInBlocks, seed);
+        final int[] piecesCount = {0};
+        game.addListener(new GameLogicListener() {
+            @Override
+            public void shapeLocked() {
+                piecesCount[0]++;
+            }
+        });
+        Controllable policy = policyFactory.create(game, new Random(~seed));
+
+        game.start();
+        long ticks = 0;
+        while (ticks < maxTicks) {
+            game.tick();
+            ticks++;
+            if (game.getState() == GameFieldState.STOPPED) {
+                break;
+            }
+            policy.control(new EnumMap<>(InputKey.class));
+        }
+        Score score = game.getScore();
+        return new SimulationResult(score.getLines(), score.getScore(),
+                score.getLevel(), piecesCount[0], ticks);
+    }
+
+    private class SimulationTask extends RecursiveTask<SimulationResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final long startSeed, endSeed;
+
+        SimulationTask(long startSeed, long endSeed) {
+            this.startSeed = startSeed;
+            this.endSeed = endSeed;
+        }
+
+        @Override
+        protected SimulationResult compute() {
+            if (endSeed - startSeed <= SEQUENTIAL_THRESHOLD) {
+                SimulationResult result = SimulationResult.empty();
+                for (long seed = startSeed; seed < endSeed; seed++) {
+                    result = result.combine(runGame(seed));
+                }
+                return result;
+            }
+            long middleSeed = startSeed + (endSeed - startSeed) / 2;
+            SimulationTask left = new SimulationTask(startSeed, middleSeed);
+            left.fork();
+            SimulationResult rightResult
+                    = new SimulationTask(middleSeed, endSeed).compute();
+            return left.join().combine(rightResult);
+        }
+    }
+
+    /**
+     * Runs a batch of games and reports the throughput. Arguments: number
+     * of games, base seed, max ticks per game, input policy ("random" or
+     * "autoplay").
+     */
+    public static void main(String[] args) {
+        int gamesCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long baseSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        long maxTicks = args.length > 2
+                ? Long.parseLong(args[2])
+                : DEFAULT_MAX_TICKS;
+
+        // games are already played in parallel, so the bot evaluates the
+        // placements on the same thread
+        PolicyFactory policyFactory
+                = args.length > 3 && args[3].equals("autoplay")
+                ? (game, random) -> new AutoPlayer(game, game,
+                        new BoardEvaluator(), 1, false, false)
+                : (game, random) -> new RandomInputPolicy(game, random, 0.3);
+        BatchRunner runner = new BatchRunner(GameField.DEFAULT_WIDTH,
+                GameField.DEFAULT_HEIGHT, maxTicks, policyFactory);
+        long startTime = System.nanoTime();
+        SimulationResult result = runner.run(gamesCount, baseSeed);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.println(result);
+        System.out.println(String.format(
+                "%.3f s, %.1f games/sec, %.1f pieces/sec", seconds,
+                result.getGamesCount() / seconds,
+                result.getPieces() / seconds));
+    }
+}
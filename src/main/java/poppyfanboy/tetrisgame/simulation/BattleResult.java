@@ -0,0 +1,81 @@
+package poppyfanboy.tetrisgame.simulation;
+
+/**
+ * Outcome of a battle played by the {@link BattleRunner}.
+ */
+public class BattleResult {
+    private final long ticks;
+    private final long[] eliminationTicks;
+    private final int[] linesSent, pieces;
+
+    /**
+     * @param   ticks length of the battle in ticks.
+     * @param   eliminationTicks ticks at which the fields have topped out,
+     *          or {@code -1} for the fields that have survived.
+     */
+    BattleResult(long ticks, long[] eliminationTicks, int[] linesSent,
+            int[] pieces) {
+        this.ticks = ticks;
+        this.eliminationTicks = eliminationTicks;
+        this.linesSent = linesSent;
+        this.pieces = pieces;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getFieldsCount() {
+        return eliminationTicks.length;
+    }
+
+    /**
+     * Returns the tick at which the field has topped out, or {@code -1} in
+     * case it has survived.
+     */
+    public long getEliminationTick(int field) {
+        return eliminationTicks[field];
+    }
+
+    public int getLinesSent(int field) {
+        return linesSent[field];
+    }
+
+    public int getPieces(int field) {
+        return pieces[field];
+    }
+
+    public int getSurvivorsCount() {
+        int survivorsCount = 0;
+        for (long tick : eliminationTicks) {
+            if (tick == -1) {
+                survivorsCount++;
+            }
+        }
+        return survivorsCount;
+    }
+
+    /**
+     * Returns the total number of the ticks the fields have been played
+     * for.
+     */
+    public long getFieldTicks() {
+        long fieldTicks = 0;
+        for (long tick : eliminationTicks) {
+            fieldTicks += tick == -1 ? ticks : tick + 1;
+        }
+        return fieldTicks;
+    }
+
+    @Override
+    public String toString() {
+        long totalLinesSent = 0, totalPieces = 0;
+        for (int i = 0; i < eliminationTicks.length; i++) {
+            totalLinesSent += linesSent[i];
+            totalPieces += pieces[i];
+        }
+        return String.format("fields: %d, survivors: %d, ticks: %d,"
+                + " lines sent: %d, pieces: %d", eliminationTicks.length,
+                getSurvivorsCount(), ticks, totalLinesSent, totalPieces);
+    }
+}
@@ -0,0 +1,302 @@
+package poppyfanboy.tetrisgame.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+
+import poppyfanboy.tetrisgame.Game;
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+import poppyfanboy.tetrisgame.entities.GameField;
+import poppyfanboy.tetrisgame.input.Controllable;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.logic.GameFieldState;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.util.Util;
+
+/**
+ * Plays a battle of many headless games against each other in one
+ * process. Each cleared line (except for the single ones) sends the garbage
+ * rows to a random opponent that is still in the game, the field that
+ * tops out is eliminated. The battle lasts until a single field is left or
+ * until the limit of ticks is reached.
+ *
+ * The fields are split into the shards, one per worker thread. Every tick
+ * the workers tick their own fields and then wait for each other on the
+ * barrier, so the fields are always at the same tick. The garbage is sent
+ * through the lock-free inbound queues of the fields: the attacks sent
+ * during a tick are received at the beginning of the next one, and they
+ * are applied in the order of the senders. So the result of the battle
+ * only depends on the seed and not on the number of the threads or on
+ * their timing.
+ */
+public class BattleRunner {
+    private final int fieldsCount;
+    private final int widthInBlocks, heightInBlocks;
+    private final long maxTicks;
+    private final BatchRunner.PolicyFactory policyFactory;
+    private final int threadsCount;
+
+    public BattleRunner(int fieldsCount, int widthInBlocks,
+            int heightInBlocks, long maxTicks,
+            BatchRunner.PolicyFactory policyFactory, int threadsCount) {
+        if (fieldsCount <= 0 || threadsCount <= 0 || maxTicks <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Fields count, threads count and max ticks must be"
+                    + " positive integers. Got: fieldsCount = %d,"
+                    + " threadsCount = %d, maxTicks = %d", fieldsCount,
+                    threadsCount, maxTicks));
+        }
+        this.fieldsCount = fieldsCount;
+        this.widthInBlocks = widthInBlocks;
+        this.heightInBlocks = heightInBlocks;
+        this.maxTicks = maxTicks;
+        this.policyFactory = policyFactory;
+        this.threadsCount = Math.min(threadsCount, fieldsCount);
+    }
+
+    /**
+     * Returns the number of the garbage rows sent for the cleared lines.
+     */
+    public static int getAttack(int linesCleared, boolean isTSpin) {
+        if (isTSpin) {
+            return 2 * linesCleared;
+        }
+        // a tetris (or more with the bigger shapes) sends all of the lines
+        return linesCleared >= 4 ? linesCleared : linesCleared - 1;
+    }
+
+    /**
+     * Plays the battle, the fields are seeded with the seeds from
+     * {@code seed} to {@code seed + fieldsCount - 1}.
+     */
+    public BattleResult run(long seed) {
+        return new Battle(seed).run();
+    }
+
+    private static final class Attack {
+        private final int sender, sequence;
+        private final int lines, holeColumn;
+
+        private Attack(int sender, int sequence, int lines, int holeColumn) {
+            this.sender = sender;
+            this.sequence = sequence;
+            this.lines = lines;
+            this.holeColumn = holeColumn;
+        }
+    }
+
+    private final class Battle {
+        private final Field[] fields;
+        private final Phaser phaser;
+        // fields that were in the game at the end of the previous tick,
+        // only changed between the ticks
+        private final boolean[] alive;
+        private int aliveCount;
+        private long tick;
+        private volatile Throwable failure;
+
+        private Battle(long seed) {
+            fields = new Field[fieldsCount];
+            for (int i = 0; i < fieldsCount; i++) {
+                fields[i] = new Field(i, seed + i);
+            }
+            alive = new boolean[fieldsCount];
+            Arrays.fill(alive, true);
+            aliveCount = fieldsCount;
+            phaser = new Phaser(threadsCount) {
+                // runs in one of the workers, once all of them have
+                // finished the tick
+                @Override
+                protected boolean onAdvance(int phase, int parties) {
+                    for (Field field : fields) {
+                        if (alive[field.index] && field.eliminated) {
+                            alive[field.index] = false;
+                            aliveCount--;
+                        }
+                    }
+                    tick++;
+                    return tick >= maxTicks || aliveCount == 0
+                            || fieldsCount > 1 && aliveCount == 1;
+                }
+            };
+        }
+
+        private BattleResult run() {
+            for (Field field : fields) {
+                field.game.start();
+            }
+            Thread[] workers = new Thread[threadsCount - 1];
+            for (int i = 0; i < workers.length; i++) {
+                final int shard = i + 1;
+                workers[i] = new Thread(() -> work(shard),
+                        "battle-worker-" + shard);
+                workers[i].start();
+            }
+            work(0);
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(
+                            "Interrupted while waiting for the workers.", ex);
+                }
+            }
+            if (failure != null) {
+                throw new IllegalStateException("A battle worker failed.",
+                        failure);
+            }
+
+            long[] eliminationTicks = new long[fieldsCount];
+            int[] linesSent = new int[fieldsCount];
+            int[] pieces = new int[fieldsCount];
+            for (Field field : fields) {
+                eliminationTicks[field.index] = field.eliminated
+                        ? field.eliminationTick
+                        : -1;
+                linesSent[field.index] = field.linesSent;
+                pieces[field.index] = field.pieces;
+            }
+            return new BattleResult(tick, eliminationTicks, linesSent,
+                    pieces);
+        }
+
+        // ticks the fields of the shard until the battle is over
+        private void work(int shard) {
+            try {
+                do {
+                    for (int i = shard; i < fieldsCount; i += threadsCount) {
+                        if (!fields[i].eliminated) {
+                            fields[i].tick();
+                        }
+                    }
+                    phaser.arriveAndAwaitAdvance();
+                } while (!phaser.isTerminated());
+            } catch (Throwable ex) {
+                failure = ex;
+                phaser.forceTermination();
+            }
+        }
+
+        private final class Field implements GameLogicListener {
+            private final int index;
+            private final GameLogic game;
+            private final Controllable policy;
+            // picks the targets of the attacks and the holes of the garbage
+            private final Random random;
+
+            // attacks sent during the even and the odd ticks: one of the
+            // queues is being filled, while the other one is drained
+            private final List<Queue<Attack>> inbound = Arrays.asList(
+                    new ConcurrentLinkedQueue<>(),
+                    new ConcurrentLinkedQueue<>());
+            private final List<Attack> received = new ArrayList<>();
+            private int attacksCount;
+
+            private boolean eliminated;
+            private long eliminationTick;
+            private int linesSent, pieces;
+
+            private Field(int index, long seed) {
+                this.index = index;
+                game = new GameLogic(widthInBlocks, heightInBlocks, seed);
+                game.addListener(this);
+                policy = policyFactory.create(game, new Random(~seed));
+                random = new Random(Util.mix64(seed));
+            }
+
+            private void tick() {
+                // receive the attacks sent during the previous tick
+                final Queue<Attack> queue = inbound.get((int) (tick + 1) & 1);
+                for (Attack attack = queue.poll(); attack != null;
+                        attack = queue.poll()) {
+                    received.add(attack);
+                }
+                if (!received.isEmpty()) {
+                    received.sort((a, b) -> a.sender != b.sender
+                            ? Integer.compare(a.sender, b.sender)
+                            : Integer.compare(a.sequence, b.sequence));
+                    for (Attack attack : received) {
+                        game.addGarbage(attack.lines, attack.holeColumn);
+                    }
+                    received.clear();
+                }
+
+                game.tick();
+                if (game.getState() == GameFieldState.STOPPED) {
+                    eliminated = true;
+                    eliminationTick = tick;
+                    return;
+                }
+                policy.control(new EnumMap<>(InputKey.class));
+            }
+
+            @Override
+            public void shapeLocked() {
+                pieces++;
+            }
+
+            @Override
+            public void linesCleared(int linesCount, boolean isTSpin) {
+                final int lines = getAttack(linesCount, isTSpin);
+                final int opponentsCount = aliveCount - (alive[index] ? 1 : 0);
+                if (lines <= 0 || opponentsCount == 0) {
+                    return;
+                }
+                int target = random.nextInt(opponentsCount);
+                for (int i = 0; i < fieldsCount; i++) {
+                    if (i != index && alive[i] && target-- == 0) {
+                        fields[i].inbound.get((int) tick & 1).offer(
+                                new Attack(index, attacksCount++, lines,
+                                        random.nextInt(widthInBlocks)));
+                        linesSent += lines;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays a battle and reports the throughput. Arguments: number of the
+     * fields, seed, number of the threads, max ticks, input policy
+     * ("autoplay" or "random").
+     */
+    public static void main(String[] args) {
+        int fieldsCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int threadsCount = args.length > 2
+                ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        long maxTicks = args.length > 3
+                ? Long.parseLong(args[3])
+                : 10 * 60 * Game.TICKS_PER_SECOND;
+
+        // the fields are already ticked in parallel, so the bots evaluate
+        // the placements on the same thread
+        BatchRunner.PolicyFactory policyFactory
+                = args.length > 4 && args[4].equals("random")
+                ? (game, random) -> new RandomInputPolicy(game, random, 0.3)
+                : (game, random) -> new AutoPlayer(game, game,
+                        new BoardEvaluator(), 1, false, false);
+        BattleRunner runner = new BattleRunner(fieldsCount,
+                GameField.DEFAULT_WIDTH, GameField.DEFAULT_HEIGHT, maxTicks,
+                policyFactory, threadsCount);
+        long startTime = System.nanoTime();
+        BattleResult result = runner.run(seed);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        System.out.println(result);
+        System.out.println(String.format(
+                "%.3f s, %d threads, %.1f ticks/sec, %.1f field ticks/sec",
+                seconds, runner.threadsCount, result.getTicks() / seconds,
+                result.getFieldTicks() / seconds));
+    }
+}
@@ -0,0 +1,52 @@
+package poppyfanboy.tetrisgame.simulation;
+
+import java.util.EnumMap;
+import java.util.Random;
+
+import poppyfanboy.tetrisgame.input.Controllable;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+
+/**
+ * Input policy that presses random keys and passes them to the wrapped
+ * object along with the inputs it receives. Each key is pressed for a
+ * single tick and released on the next one.
+ */
+public class RandomInputPolicy implements Controllable {
+    private static final InputKey[] KEYS = {
+        InputKey.ARROW_LEFT, InputKey.ARROW_RIGHT, InputKey.ARROW_DOWN,
+        InputKey.W, InputKey.S, InputKey.SPACE
+    };
+
+    private final Controllable target;
+    private final Random random;
+    // probability of pressing a key during a tick
+    private final double pressProbability;
+
+    private InputKey pressedKey;
+
+    public RandomInputPolicy(Controllable target, Random random,
+            double pressProbability) {
+        if (pressProbability < 0 || pressProbability > 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Probability must lie within [0, 1] range."
+                    + " Got: pressProbability = %f", pressProbability));
+        }
+        this.target = target;
+        this.random = random;
+        this.pressProbability = pressProbability;
+    }
+
+    @Override
+    public void control(EnumMap<InputKey, KeyState> inputs) {
+        EnumMap<InputKey, KeyState> newInputs = new EnumMap<>(inputs);
+        if (pressedKey != null) {
+            newInputs.put(pressedKey, KeyState.RELEASED);
+            pressedKey = null;
+        } else if (random.nextDouble() < pressProbability) {
+            pressedKey = KEYS[random.nextInt(KEYS.length)];
+            newInputs.put(pressedKey, KeyState.PRESSED);
+        }
+        target.control(newInputs);
+    }
+}
@@ -0,0 +1,166 @@
+package poppyfanboy.tetrisgame.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.PolyominoSet;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+import poppyfanboy.tetrisgame.input.InputReplayer;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.logic.Score;
+import poppyfanboy.tetrisgame.logic.TimingTable;
+import poppyfanboy.tetrisgame.logic.randomizers.BagRandomizer;
+
+/**
+ * Replays the recorded games as fast as possible without rendering them.
+ * Since the game logic is deterministic, replaying a recording gives
+ * exactly the same game as the one that was recorded.
+ */
+public class ReplayRunner {
+    private ReplayRunner() {
+    }
+
+    /**
+     * Creates the game logic with the seed and the game field size of the
+     * recording played with the tetrominoes and the default timings.
+     *
+     * @throws  IllegalArgumentException in case the recording has been
+     *          made with other shapes or timings.
+     */
+    public static GameLogic createGame(InputReplayer inputReplayer) {
+        return createGame(inputReplayer, TetrisShapeType.values(),
+                TimingTable.DEFAULT);
+    }
+
+    /**
+     * Creates the game logic with the seed and the game field size of the
+     * recording played with the specified shapes and timings, the same way
+     * the game window creates it.
+     *
+     * @throws  IllegalArgumentException in case the recording has been
+     *          made with other shapes or timings.
+     */
+    public static GameLogic createGame(InputReplayer inputReplayer,
+            ShapeType[] shapeTypes, TimingTable timings) {
+        if (inputReplayer.getShapesChecksum()
+                        != ShapeType.getChecksum(shapeTypes)
+                || inputReplayer.getTimingsChecksum()
+                        != timings.getChecksum()) {
+            throw new IllegalArgumentException(String.format(
+                    "The recording has been made with other shapes or"
+                    + " timings. Got: shapes checksum = %08x,"
+                    + " timings checksum = %08x",
+                    inputReplayer.getShapesChecksum(),
+                    inputReplayer.getTimingsChecksum()));
+        }
+        GameLogic game = new GameLogic(inputReplayer.getWidthInBlocks(),
+                inputReplayer.getHeightInBlocks(), inputReplayer.getSeed(),
+                new BagRandomizer(shapeTypes), 1);
+        game.setTimings(timings);
+        return game;
+    }
+
+    /**
+     * Passes all of the remaining inputs of the recording to the game.
+     * The ticks are passed to the game logic in the same order as in the
+     * window: the game logic is ticked first and then the inputs of the
+     * tick are processed.
+     *
+     * @return  number of the replayed ticks.
+     */
+    public static long replay(InputReplayer inputReplayer, GameLogic game)
+            throws IOException {
+        long ticks = 0;
+        while (inputReplayer.hasNext()) {
+            game.tick();
+            game.control(inputReplayer.next());
+            ticks++;
+        }
+        return ticks;
+    }
+
+    /**
+     * Replays the specified recording file played with the specified
+     * shapes and timings and returns the statistics of the game.
+     *
+     * @throws  IllegalArgumentException in case the recording has been
+     *          made with other shapes or timings.
+     */
+    public static SimulationResult replay(Path recordingFile,
+            ShapeType[] shapeTypes, TimingTable timings) throws IOException {
+        try (InputStream in = new BufferedInputStream(
+                    Files.newInputStream(recordingFile))) {
+            InputReplayer inputReplayer = new InputReplayer(in);
+            GameLogic game = createGame(inputReplayer, shapeTypes, timings);
+            final int[] piecesCount = {0};
+            game.addListener(new GameLogicListener() {
+                @Override
+                public void shapeLocked() {
+                    piecesCount[0]++;
+                }
+            });
+            long ticks = replay(inputReplayer, game);
+            Score score = game.getScore();
+            return new SimulationResult(score.getLines(), score.getScore(),
+                    score.getLevel(), piecesCount[0], ticks);
+        }
+    }
+
+    /**
+     * Replays the recording files passed as the arguments in parallel and
+     * prints the statistics of each of the games. The files can be
+     * preceded by the same {@code --shapes <file>},
+     * {@code --shape-set <name>} and {@code --timings <file>} options the
+     * games have been recorded with.
+     */
+    public static void main(String[] args) throws IOException {
+        ShapeType[] shapeTypes = TetrisShapeType.values();
+        TimingTable timings = TimingTable.DEFAULT;
+        int i = 0;
+        for (; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--shapes")) {
+                final Path shapesFile = Paths.get(args[i + 1]);
+                shapeTypes = PolyominoSet.load(shapesFile,
+                        shapesFile.resolveSibling(shapesFile.getFileName()
+                                + ".cache")).getShapeTypes();
+            } else if (args[i].equals("--shape-set")) {
+                shapeTypes = PolyominoSet.loadBundled(args[i + 1])
+                        .getShapeTypes();
+            } else if (args[i].equals("--timings")) {
+                timings = TimingTable.load(Paths.get(args[i + 1]));
+            } else {
+                break;
+            }
+        }
+        final ShapeType[] gameShapeTypes = shapeTypes;
+        final TimingTable gameTimings = timings;
+        List<Path> files = Arrays.stream(args, i, args.length)
+                .map(Paths::get).collect(Collectors.toList());
+        long startTime = System.nanoTime();
+        List<SimulationResult> results = files.parallelStream()
+                .map(file -> {
+                    try {
+                        return replay(file, gameShapeTypes, gameTimings);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }).collect(Collectors.toList());
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+
+        for (int j = 0; j < files.size(); j++) {
+            System.out.println(files.get(j) + ": " + results.get(j));
+        }
+        System.out.println(String.format("%d games replayed in %.3f s",
+                files.size(), seconds));
+    }
+}
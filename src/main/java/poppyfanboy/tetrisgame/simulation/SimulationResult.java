@@ -0,0 +1,101 @@
+package poppyfanboy.tetrisgame.simulation;
+
+/**
+ * Aggregated statistics of one or several simulated games.
+ */
+public class SimulationResult {
+    private final int gamesCount;
+    private final long lines, score, levels, pieces, ticks;
+    private final int maxLevel;
+
+    /**
+     * Creates the statistics of a single game.
+     *
+     * @param   ticks length of the game in ticks.
+     */
+    public SimulationResult(int lines, int score, int level, int pieces,
+            long ticks) {
+        this(1, lines, score, level, level, pieces, ticks);
+    }
+
+    private SimulationResult(int gamesCount, long lines, long score,
+            long levels, int maxLevel, long pieces, long ticks) {
+        this.gamesCount = gamesCount;
+        this.lines = lines;
+        this.score = score;
+        this.levels = levels;
+        this.maxLevel = maxLevel;
+        this.pieces = pieces;
+        this.ticks = ticks;
+    }
+
+    /**
+     * Returns the statistics of no games at all.
+     */
+    public static SimulationResult empty() {
+        return new SimulationResult(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Returns the statistics of both this and the other set of games.
+     */
+    public SimulationResult combine(SimulationResult other) {
+        return new SimulationResult(gamesCount + other.gamesCount,
+                lines + other.lines, score + other.score,
+                levels + other.levels, Math.max(maxLevel, other.maxLevel),
+                pieces + other.pieces, ticks + other.ticks);
+    }
+
+    public int getGamesCount() {
+        return gamesCount;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    public long getPieces() {
+        return pieces;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    public double getAverageLines() {
+        return gamesCount == 0 ? 0 : (double) lines / gamesCount;
+    }
+
+    public double getAverageScore() {
+        return gamesCount == 0 ? 0 : (double) score / gamesCount;
+    }
+
+    public double getAverageLevel() {
+        return gamesCount == 0 ? 0 : (double) levels / gamesCount;
+    }
+
+    public double getAveragePieces() {
+        return gamesCount == 0 ? 0 : (double) pieces / gamesCount;
+    }
+
+    public double getAverageTicks() {
+        return gamesCount == 0 ? 0 : (double) ticks / gamesCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games: %d, lines: %.2f, score: %.2f,"
+                + " level: %.2f (max %d), pieces: %.2f, ticks: %.2f"
+                + " (averages per game)", gamesCount, getAverageLines(),
+                getAverageScore(), getAverageLevel(), maxLevel,
+                getAveragePieces(), getAverageTicks());
+    }
+}
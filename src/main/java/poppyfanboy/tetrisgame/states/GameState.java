@@ -1,16 +1,29 @@
 package poppyfanboy.tetrisgame.states;
 
+import java.awt.Font;
 import java.awt.Graphics2D;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Random;
 
 import poppyfanboy.tetrisgame.Game;
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
 import poppyfanboy.tetrisgame.entities.AnimationManager;
 import poppyfanboy.tetrisgame.entities.GameField;
 import poppyfanboy.tetrisgame.entities.NextShapeDisplay;
 import poppyfanboy.tetrisgame.entities.ScoreDisplay;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
 import poppyfanboy.tetrisgame.graphics.Assets;
+import poppyfanboy.tetrisgame.input.Controllable;
+import poppyfanboy.tetrisgame.input.InputRecorder;
+import poppyfanboy.tetrisgame.input.InputReplayer;
 import poppyfanboy.tetrisgame.input.KeyManager;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.logic.SaveSlot;
+import poppyfanboy.tetrisgame.logic.TimingTable;
 import poppyfanboy.tetrisgame.util.DoubleVector;
 
 public class GameState extends State {
@@ -21,15 +34,48 @@ public class GameState extends State {
     private ScoreDisplay scoreDisplay;
 
     private AnimationManager animationManager = new AnimationManager();
-    private Random random = new Random();
+    private final long seed;
+    // checksum of the shapes the game is played with
+    private final long shapesChecksum;
+
+    // inputs recorder or replayer (at most one of them is present)
+    private InputRecorder inputRecorder;
+    private InputReplayer inputReplayer;
+
+    // slot the game is autosaved to, might be null
+    private SaveSlot saveSlot;
+    // a shape has been locked since the last save
+    private boolean autosavePending;
 
     public GameState(Game game) throws IOException {
+        this(game, new Random().nextLong());
+    }
+
+    /**
+     * Creates a game state whose random events (the order of the shapes,
+     * their colors, etc) are determined by the specified seed. The game is
+     * played with the tetrominoes.
+     */
+    public GameState(Game game, long seed) throws IOException {
+        this(game, seed, TetrisShapeType.values());
+    }
+
+    /**
+     * Creates a game state played with the specified shapes (e.g. the ones
+     * loaded from a shape set file).
+     */
+    public GameState(Game game, long seed, ShapeType[] shapeTypes)
+            throws IOException {
         super(game);
+        this.seed = seed;
+        shapesChecksum = ShapeType.getChecksum(shapeTypes);
+        animationManager.setDebug(game.isDebug());
         assets = new Assets(game.getResolution(), GameField.DEFAULT_WIDTH,
                 GameField.DEFAULT_HEIGHT);
 
         gameField = new GameField(this, new DoubleVector(11, 4),
-                GameField.DEFAULT_WIDTH, GameField.DEFAULT_HEIGHT, random);
+                GameField.DEFAULT_WIDTH, GameField.DEFAULT_HEIGHT, seed,
+                shapeTypes);
         // provide inputs for the game field
         game.getKeyManager().addListener(gameField);
 
@@ -45,6 +91,148 @@ public class GameState extends State {
         gameField.setScoreDisplay(scoreDisplay);
     }
 
+    /**
+     * Replaces the timings of the levels of the game. Must be called before
+     * the first tick of the game state and before the inputs are recorded
+     * or replayed.
+     */
+    public void setTimings(TimingTable timings) {
+        gameField.getGameLogic().setTimings(timings);
+    }
+
+    /**
+     * Starts recording the player inputs passed to the game field. Must
+     * be called before the first tick of the game state, so that the
+     * recording covers the whole game.
+     */
+    public void recordInputs(OutputStream out) throws IOException {
+        inputRecorder = new InputRecorder(gameField, out, seed,
+                gameField.getWidthInBlocks(), gameField.getHeightInBlocks(),
+                shapesChecksum, getTimingsChecksum());
+        getKeyManager().removeListener(gameField);
+        getKeyManager().addListener(inputRecorder);
+    }
+
+    /**
+     * Replays the recorded inputs in place of the player inputs. Once the
+     * recording ends, the player takes over the game. Must be called
+     * before the first tick of the game state.
+     *
+     * @throws  IllegalArgumentException in case the game state has not been
+     *          created with the seed, the game field size, the shapes and
+     *          the timings of the recording.
+     */
+    public void replayInputs(InputReplayer inputReplayer) {
+        if (inputReplayer.getSeed() != seed
+                || inputReplayer.getWidthInBlocks()
+                        != gameField.getWidthInBlocks()
+                || inputReplayer.getHeightInBlocks()
+                        != gameField.getHeightInBlocks()
+                || inputReplayer.getShapesChecksum() != shapesChecksum
+                || inputReplayer.getTimingsChecksum()
+                        != getTimingsChecksum()) {
+            throw new IllegalArgumentException(String.format(
+                    "The recording does not match the game state."
+                    + " Got: seed = %d, width = %d, height = %d,"
+                    + " shapes checksum = %08x, timings checksum = %08x",
+                    inputReplayer.getSeed(), inputReplayer.getWidthInBlocks(),
+                    inputReplayer.getHeightInBlocks(),
+                    inputReplayer.getShapesChecksum(),
+                    inputReplayer.getTimingsChecksum()));
+        }
+        if (inputReplayer.hasNext()) {
+            this.inputReplayer = inputReplayer;
+            getKeyManager().removeListener(gameField);
+        }
+    }
+
+    private long getTimingsChecksum() {
+        return gameField.getGameLogic().getTimings().getChecksum();
+    }
+
+    /**
+     * Lets the built-in bot play the game in place of the player. The game
+     * is restarted by the bot once it is over. In case the inputs are
+     * being recorded, the inputs of the bot are recorded. Must be called
+     * after the {@link GameState#recordInputs} method, if it is called at
+     * all.
+     */
+    public void startAutoplay() {
+        Controllable controlled = inputRecorder != null
+                ? inputRecorder
+                : gameField;
+        getKeyManager().removeListener(controlled);
+        getKeyManager().addListener(new AutoPlayer(controlled,
+                gameField.getGameLogic(), new BoardEvaluator(), 1, true,
+                true));
+    }
+
+    /**
+     * Makes the game to be autosaved into the save file each time a shape
+     * is locked, the file is created if it does not exist. In case the
+     * file holds a saved game, the game is resumed from it. Must be called
+     * before the first tick of the game state. The inputs of a resumed
+     * game can not be replayed, so the game should not be recorded.
+     *
+     * @return  {@code true} in case the game has been resumed.
+     * @throws  IOException in case the file is not a save file of the
+     *          game field of this size.
+     * @throws  IllegalArgumentException in case the saved game is
+     *          malformed. The game is started from scratch then, but it is
+     *          still autosaved into the file.
+     */
+    public boolean useSaveFile(Path saveFile) throws IOException {
+        saveSlot = new SaveSlot(saveFile, gameField.getWidthInBlocks(),
+                gameField.getHeightInBlocks());
+        gameField.getGameLogic().addListener(new GameLogicListener() {
+            @Override
+            public void shapeLocked() {
+                autosavePending = true;
+            }
+        });
+        if (!saveSlot.load(gameField.getGameLogic())) {
+            return false;
+        }
+        gameField.rebuildEntities();
+        return true;
+    }
+
+    /**
+     * Saves the game into the save file right away. The game thread does
+     * not wait for the disk, the saved game is written to it by the
+     * operating system (or by the {@link #close} method at the latest).
+     * Does nothing in case there is no save file.
+     */
+    public void suspend() {
+        if (saveSlot != null) {
+            saveSlot.save(gameField.getGameLogic());
+        }
+    }
+
+    /**
+     * Finishes the recording or the replay of the inputs, if there is one.
+     * The game is saved into the save file and the file is closed.
+     */
+    public void close() throws IOException {
+        if (saveSlot != null) {
+            saveSlot.save(gameField.getGameLogic());
+            saveSlot.close();
+            saveSlot = null;
+        }
+        if (inputRecorder != null) {
+            inputRecorder.close();
+            inputRecorder = null;
+        }
+        if (inputReplayer != null) {
+            inputReplayer.close();
+            inputReplayer = null;
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
     public Assets getAssets() {
         return assets;
     }
@@ -66,6 +254,34 @@ public class GameState extends State {
         animationManager.tick();
         gameField.tick();
         nextShapeDisplay.tick();
+        if (inputReplayer != null) {
+            try {
+                gameField.control(inputReplayer.next());
+                if (!inputReplayer.hasNext()) {
+                    stopReplay();
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                stopReplay();
+            }
+        }
+        // the game is saved once the tick is over, since the state of the
+        // game logic is incomplete while the shape is being locked
+        if (saveSlot != null && autosavePending) {
+            autosavePending = false;
+            saveSlot.save(gameField.getGameLogic());
+        }
+    }
+
+    // gives the control over the game field back to the player
+    private void stopReplay() {
+        try {
+            inputReplayer.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        inputReplayer = null;
+        getKeyManager().addListener(gameField);
     }
 
     @Override
@@ -80,5 +296,20 @@ public class GameState extends State {
         gameField.render(g, interpolation);
         nextShapeDisplay.render(g, interpolation);
         scoreDisplay.render(g, interpolation);
+        if (animationManager.isDebug()) {
+            renderDebugInfo(g);
+        }
+    }
+
+    // the number of the animations allocated per tick, it should stay at
+    // zero once the animation pools have warmed up
+    private void renderDebugInfo(Graphics2D g) {
+        final int glyphWidth = getResolution().getFontPixelSize();
+        g.setFont(new Font(Assets.FONT_NAME, Font.PLAIN,
+                getResolution().getFontSize()));
+        g.setColor(Assets.FONT_COLOR);
+        g.drawString(String.format("ALLOC/TICK %.2f",
+                animationManager.getAllocationRate()),
+                glyphWidth, getResolution().getHeight() - glyphWidth);
     }
 }
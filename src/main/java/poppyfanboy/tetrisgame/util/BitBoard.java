@@ -0,0 +1,463 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.util.Arrays;
+
+/**
+ * A rectangular grid of bits stored row by row. Each row is a bitmask
+ * split into 64-bit words: the bit {@code x % 64} of the word
+ * {@code x / 64} corresponds to the {@code x}-th column of the row. So
+ * for the fields up to 64 tiles wide every row is just a single
+ * {@code long} value, and all of the row-wise operations (checking if
+ * a row is filled, removing rows, etc.) boil down to a few word
+ * operations.
+ *
+ * Copies of a board share the rows with it: a row is copied only once one
+ * of the boards that share it is about to modify it, so copying a board
+ * only costs O(height).
+ *
+ * The board keeps its Zobrist hash up to date: the hash is the XOR of the
+ * keys of all the set tiles, where each tile has its own pseudo-random
+ * 64-bit key. Setting or clearing a tile costs a single XOR, removing the
+ * rows costs O(number of the set tiles that are moved or removed).
+ */
+public class BitBoard {
+    private static final int WORD_SIZE = Long.SIZE;
+
+    private final int width, height;
+    private final int wordsPerRow;
+    // mask of the valid bits of the last word in a row
+    private final long lastWordMask;
+
+    private long[][] rows;
+    // false for the rows that might be shared with other boards
+    private boolean[] ownedRows;
+    // Zobrist hash of the set tiles
+    private long hash;
+    // the removed rows are put aside here while the rows are being moved,
+    // the arrays are created once the rows are removed or inserted for the
+    // first time
+    private long[][] removedBuffer;
+    private boolean[] removedOwnedBuffer;
+
+    public BitBoard(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Width and height must be positive integers."
+                    + " Got: width = %d, height = %d", width, height));
+        }
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + WORD_SIZE - 1) / WORD_SIZE;
+        lastWordMask = width % WORD_SIZE == 0
+                ? -1L
+                : (1L << (width % WORD_SIZE)) - 1;
+        rows = new long[height][wordsPerRow];
+        ownedRows = new boolean[height];
+        Arrays.fill(ownedRows, true);
+    }
+
+    /**
+     * Returns a copy of this board. The copy shares the rows with this
+     * board until either of them is modified.
+     */
+    public BitBoard copy() {
+        return new BitBoard(this);
+    }
+
+    // shares the rows of the other board instead of allocating new ones
+    private BitBoard(BitBoard other) {
+        width = other.width;
+        height = other.height;
+        wordsPerRow = other.wordsPerRow;
+        lastWordMask = other.lastWordMask;
+        rows = other.rows.clone();
+        ownedRows = new boolean[height];
+        Arrays.fill(other.ownedRows, false);
+        hash = other.hash;
+    }
+
+    /**
+     * Makes this board equal to the other one. The boards share the rows
+     * until either of them is modified.
+     *
+     * @throws  IllegalArgumentException in case the boards are of
+     *          different sizes.
+     */
+    public void copyFrom(BitBoard other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException(String.format(
+                    "Boards must be of the same size. Got: %dx%d and %dx%d",
+                    width, height, other.width, other.height));
+        }
+        System.arraycopy(other.rows, 0, rows, 0, height);
+        Arrays.fill(ownedRows, false);
+        Arrays.fill(other.ownedRows, false);
+        hash = other.hash;
+    }
+
+    // makes the row safe to be modified
+    private long[] ownRow(int y) {
+        if (!ownedRows[y]) {
+            rows[y] = rows[y].clone();
+            ownedRows[y] = true;
+        }
+        return rows[y];
+    }
+
+    /**
+     * Returns the Zobrist key of the tile. The keys do not depend on the
+     * size of the board, so that the boards of the same size with the same
+     * set tiles have equal hashes.
+     */
+    public static long getTileKey(int x, int y) {
+        return Util.mix64((((long) y << 32) | (x & 0xFFFFFFFFL))
+                * 0x9E3779B97F4A7C15L);
+    }
+
+    // XOR of the keys of the set tiles of the row, as if it were
+    // positioned at the y-th row
+    private long getRowKey(long[] row, int y) {
+        long key = 0;
+        for (int i = 0; i < wordsPerRow; i++) {
+            long word = row[i];
+            while (word != 0) {
+                key ^= getTileKey(i * WORD_SIZE
+                        + Long.numberOfTrailingZeros(word), y);
+                word &= word - 1;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Returns the Zobrist hash of the board. Boards of the same size that
+     * have the same tiles set have equal hashes.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Returns the {@code wordIndex}-th word of the {@code y}-th row.
+     */
+    public long getWord(int y, int wordIndex) {
+        return rows[y][wordIndex];
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /**
+     * Returns {@code true} in case the specified bit is set. Tiles out of
+     * the board bounds are considered unset.
+     */
+    public boolean get(int x, int y) {
+        if (!inBounds(x, y)) {
+            return false;
+        }
+        return (rows[y][x / WORD_SIZE] & (1L << (x % WORD_SIZE))) != 0;
+    }
+
+    public void set(int x, int y) {
+        final long bit = 1L << (x % WORD_SIZE);
+        if ((rows[y][x / WORD_SIZE] & bit) == 0) {
+            ownRow(y)[x / WORD_SIZE] |= bit;
+            hash ^= getTileKey(x, y);
+        }
+    }
+
+    public void clear(int x, int y) {
+        final long bit = 1L << (x % WORD_SIZE);
+        if ((rows[y][x / WORD_SIZE] & bit) != 0) {
+            ownRow(y)[x / WORD_SIZE] &= ~bit;
+            hash ^= getTileKey(x, y);
+        }
+    }
+
+    /**
+     * Resets all bits of the board.
+     */
+    public void clear() {
+        for (int y = 0; y < height; y++) {
+            if (ownedRows[y]) {
+                Arrays.fill(rows[y], 0);
+            } else {
+                rows[y] = new long[wordsPerRow];
+                ownedRows[y] = true;
+            }
+        }
+        hash = 0;
+    }
+
+    public boolean isRowFilled(int y) {
+        final long[] row = rows[y];
+        for (int i = 0; i < wordsPerRow - 1; i++) {
+            if (row[i] != -1L) {
+                return false;
+            }
+        }
+        return row[wordsPerRow - 1] == lastWordMask;
+    }
+
+    public boolean isRowEmpty(int y) {
+        for (long word : rows[y]) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks, if the object represented by the row masks can be placed
+     * onto the board so that its upper-left corner is positioned at the
+     * {@code (x, y)} tile. That is all of its bits must lie within the
+     * board bounds and must not overlap any of the set bits of the board.
+     *
+     * @param   rowMasks rows of the object: the {@code i}-th bit of the
+     *          {@code j}-th mask corresponds to the {@code (x + i, y + j)}
+     *          tile of the board.
+     */
+    public boolean fits(int[] rowMasks, int x, int y) {
+        for (int i = 0; i < rowMasks.length; i++) {
+            int mask = rowMasks[i];
+            if (mask == 0) {
+                continue;
+            }
+            final int rowY = y + i;
+            if (rowY < 0 || rowY >= height) {
+                return false;
+            }
+            int startX = x;
+            if (startX < 0) {
+                // some of the bits are to the left of the board
+                if (-startX >= Integer.SIZE
+                        || (mask & ((1 << -startX) - 1)) != 0) {
+                    return false;
+                }
+                mask >>>= -startX;
+                startX = 0;
+            }
+            // the highest set bit is to the right of the board
+            if (startX + Integer.SIZE - Integer.numberOfLeadingZeros(mask)
+                    > width) {
+                return false;
+            }
+            final long[] row = rows[rowY];
+            final int wordIndex = startX / WORD_SIZE;
+            final int offset = startX % WORD_SIZE;
+            final long unsignedMask = mask & 0xFFFFFFFFL;
+            if ((row[wordIndex] & (unsignedMask << offset)) != 0) {
+                return false;
+            }
+            // the mask overlaps the boundary between two words
+            if (offset + Integer.SIZE > WORD_SIZE
+                    && wordIndex + 1 < wordsPerRow
+                    && (row[wordIndex + 1]
+                            & (unsignedMask >>> (WORD_SIZE - offset))) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the specified rows and moves down all the rows that were
+     * above them, so that there are no gaps left. Empty rows are inserted
+     * at the top of the board.
+     *
+     * @param   removedRows indices of the rows sorted in the ascending
+     *          order. Only the first {@code count} of them are removed.
+     */
+    public void removeRows(int[] removedRows, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (removedBuffer == null) {
+            removedBuffer = new long[height][];
+            removedOwnedBuffer = new boolean[height];
+        }
+        final long[][] removed = removedBuffer;
+        final boolean[] removedOwned = removedOwnedBuffer;
+        int shift = 0;
+        for (int y = removedRows[count - 1]; y >= 0; y--) {
+            if (shift < count && removedRows[count - 1 - shift] == y) {
+                removed[shift] = rows[y];
+                removedOwned[shift] = ownedRows[y];
+                hash ^= getRowKey(rows[y], y);
+                shift++;
+            } else {
+                if (shift != 0) {
+                    hash ^= getRowKey(rows[y], y)
+                            ^ getRowKey(rows[y], y + shift);
+                }
+                rows[y + shift] = rows[y];
+                ownedRows[y + shift] = ownedRows[y];
+            }
+        }
+        // the removed rows are reused as the empty rows at the top
+        for (int i = 0; i < count; i++) {
+            if (removedOwned[i]) {
+                rows[i] = removed[i];
+                Arrays.fill(rows[i], 0);
+            } else {
+                rows[i] = new long[wordsPerRow];
+            }
+            ownedRows[i] = true;
+        }
+    }
+
+    /**
+     * Moves all of the rows up by {@code count} rows, the rows that are
+     * moved past the top of the board are dropped, and empty rows are
+     * inserted at the bottom.
+     *
+     * @return  {@code false} in case some of the dropped rows were not
+     *          empty.
+     */
+    public boolean insertRows(int count) {
+        if (count < 0 || count > height) {
+            throw new IllegalArgumentException(String.format(
+                    "Rows count must be between 0 and %d. Got: count = %d",
+                    height, count));
+        }
+        if (count == 0) {
+            return true;
+        }
+        if (removedBuffer == null) {
+            removedBuffer = new long[height][];
+            removedOwnedBuffer = new boolean[height];
+        }
+        final long[][] dropped = removedBuffer;
+        final boolean[] droppedOwned = removedOwnedBuffer;
+        boolean fits = true;
+        for (int y = 0; y < count; y++) {
+            if (!isRowEmpty(y)) {
+                fits = false;
+                hash ^= getRowKey(rows[y], y);
+            }
+            dropped[y] = rows[y];
+            droppedOwned[y] = ownedRows[y];
+        }
+        for (int y = count; y < height; y++) {
+            hash ^= getRowKey(rows[y], y) ^ getRowKey(rows[y], y - count);
+            rows[y - count] = rows[y];
+            ownedRows[y - count] = ownedRows[y];
+        }
+        // the dropped rows are reused as the empty rows at the bottom
+        for (int i = 0; i < count; i++) {
+            final int y = height - count + i;
+            if (droppedOwned[i]) {
+                rows[y] = dropped[i];
+                Arrays.fill(rows[y], 0);
+            } else {
+                rows[y] = new long[wordsPerRow];
+            }
+            ownedRows[y] = true;
+        }
+        return fits;
+    }
+
+    /**
+     * Sets all of the bits of the row.
+     */
+    public void fillRow(int y) {
+        final long[] row = ownRow(y);
+        hash ^= getRowKey(row, y);
+        Arrays.fill(row, 0, wordsPerRow - 1, -1L);
+        row[wordsPerRow - 1] = lastWordMask;
+        hash ^= getRowKey(row, y);
+    }
+
+    /**
+     * Computes where each of the rows ends up after the specified rows are
+     * removed and the rows above them are moved down.
+     *
+     * @param   removedRows indices of the rows sorted in the ascending
+     *          order. Only the first {@code count} of them are removed.
+     * @param   rowTranslation array the result is written to, its length
+     *          must be equal to the number of rows. Its {@code y}-th element
+     *          is set to the new index of the {@code y}-th row, or to
+     *          {@code -1} in case the row is removed.
+     */
+    public static void computeRowTranslation(int[] removedRows, int count,
+            int[] rowTranslation) {
+        // number of the removed rows below the current row
+        int shift = 0;
+        for (int y = rowTranslation.length - 1; y >= 0; y--) {
+            if (shift < count && removedRows[count - 1 - shift] == y) {
+                rowTranslation[y] = -1;
+                shift++;
+            } else {
+                rowTranslation[y] = y + shift;
+            }
+        }
+    }
+
+    /**
+     * Removes the specified rows from the {@code rows} array and moves
+     * the rows above them down. The removed rows are placed at the top
+     * of the array in place of the rows that were moved down, so that
+     * the row arrays can be reused.
+     *
+     * @param   removedRows indices of the rows sorted in the ascending
+     *          order. Only the first {@code count} of them are removed.
+     */
+    public static <T> void removeRows(T[] rows, int[] removedRows,
+            int count) {
+        if (count == 0) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        T[] removed = (T[]) new Object[count];
+        // traverse the rows from the bottom to the top keeping the number of
+        // the removed rows that are below the current row
+        int shift = 0;
+        for (int y = removedRows[count - 1]; y >= 0; y--) {
+            if (shift < count && removedRows[count - 1 - shift] == y) {
+                removed[shift] = rows[y];
+                shift++;
+            } else {
+                rows[y + shift] = rows[y];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            rows[i] = removed[i];
+        }
+    }
+
+    /**
+     * Moves the rows of the {@code rows} array up by {@code count} rows.
+     * The top {@code count} rows are placed at the bottom of the array in
+     * place of the rows that were moved up, so that the row arrays can be
+     * reused.
+     */
+    public static <T> void insertRows(T[] rows, int count) {
+        if (count < 0 || count > rows.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Rows count must be between 0 and %d. Got: count = %d",
+                    rows.length, count));
+        }
+        if (count == 0) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        T[] dropped = (T[]) new Object[count];
+        System.arraycopy(rows, 0, dropped, 0, count);
+        System.arraycopy(rows, count, rows, 0, rows.length - count);
+        System.arraycopy(dropped, 0, rows, rows.length - count, count);
+    }
+}
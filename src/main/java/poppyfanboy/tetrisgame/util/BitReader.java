@@ -0,0 +1,47 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the values packed by the {@link BitWriter}. The bytes are taken
+ * from the buffer only when their bits are needed, so once the packed
+ * values have been read, the buffer is positioned right after them.
+ */
+public class BitReader {
+    private final ByteBuffer buffer;
+    private long bits;
+    private int bitsCount;
+
+    public BitReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads {@code count} bits as an unsigned value.
+     *
+     * @throws  IllegalArgumentException in case the count is not between
+     *          0 and 32.
+     */
+    public int read(int count) {
+        if (count < 0 || count > Integer.SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "Bits count must be between 0 and %d. Got: count = %d",
+                    Integer.SIZE, count));
+        }
+        if (count == 0) {
+            return 0;
+        }
+        while (bitsCount < count) {
+            bits |= (buffer.get() & 0xFFL) << bitsCount;
+            bitsCount += Byte.SIZE;
+        }
+        final int value = (int) (bits & (-1L >>> (Long.SIZE - count)));
+        bits >>>= count;
+        bitsCount -= count;
+        return value;
+    }
+
+    public boolean readBit() {
+        return read(1) != 0;
+    }
+}
@@ -0,0 +1,58 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs the values bit by bit into a byte buffer, the bits are written
+ * starting from the lowest bits of the bytes. The last byte is padded with
+ * zeros once the writer is flushed. Read the bits back with the
+ * {@link BitReader}.
+ */
+public class BitWriter {
+    private final ByteBuffer buffer;
+    private long bits;
+    private int bitsCount;
+
+    public BitWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Writes the lowest {@code count} bits of the value.
+     *
+     * @throws  IllegalArgumentException in case the count is not between
+     *          0 and 32.
+     */
+    public void write(int value, int count) {
+        if (count < 0 || count > Integer.SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "Bits count must be between 0 and %d. Got: count = %d",
+                    Integer.SIZE, count));
+        }
+        if (count == 0) {
+            return;
+        }
+        bits |= (value & (-1L >>> (Long.SIZE - count))) << bitsCount;
+        bitsCount += count;
+        while (bitsCount >= Byte.SIZE) {
+            buffer.put((byte) bits);
+            bits >>>= Byte.SIZE;
+            bitsCount -= Byte.SIZE;
+        }
+    }
+
+    public void write(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Writes the bits left in the last incomplete byte.
+     */
+    public void flush() {
+        if (bitsCount != 0) {
+            buffer.put((byte) bits);
+            bits = 0;
+            bitsCount = 0;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A rectangular grid of objects stored row by row, each row is split into
+ * chunks of {@code CHUNK_SIZE} tiles. The chunks are created once some
+ * object is put into them, and the grid keeps the number of the objects
+ * of every row and of every chunk. So the grid of a huge field that is
+ * mostly empty takes little memory, and iterating over a region of the
+ * grid skips the empty rows and the empty chunks.
+ *
+ * The rows are moved around as a whole, just like the rows of the
+ * {@link BitBoard}, so removing or inserting rows costs O(height) no matter
+ * how wide the grid is.
+ */
+public class ChunkedGrid<T> {
+    public static final int CHUNK_SIZE = 64;
+
+    private final int width, height;
+    private final int chunksPerRow;
+    private final Row[] rows;
+
+    private static final class Row {
+        // chunks[i][j] is the object in the (i * CHUNK_SIZE + j)-th column,
+        // the chunks are created lazily
+        final Object[][] chunks;
+        final int[] chunkCounts;
+        int count;
+
+        Row(int chunksCount) {
+            chunks = new Object[chunksCount][];
+            chunkCounts = new int[chunksCount];
+        }
+
+        void clear() {
+            for (int i = 0; i < chunks.length && count != 0; i++) {
+                if (chunkCounts[i] != 0) {
+                    Arrays.fill(chunks[i], null);
+                    count -= chunkCounts[i];
+                    chunkCounts[i] = 0;
+                }
+            }
+        }
+    }
+
+    public ChunkedGrid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Width and height must be positive integers."
+                    + " Got: width = %d, height = %d", width, height));
+        }
+        this.width = width;
+        this.height = height;
+        chunksPerRow = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        rows = new Row[height];
+        for (int y = 0; y < height; y++) {
+            rows[y] = new Row(chunksPerRow);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int x, int y) {
+        final Object[] chunk = rows[y].chunks[x / CHUNK_SIZE];
+        return chunk == null ? null : (T) chunk[x % CHUNK_SIZE];
+    }
+
+    /**
+     * Puts the object into the tile, {@code null} empties the tile.
+     */
+    public void set(int x, int y, T value) {
+        final Row row = rows[y];
+        final int chunkIndex = x / CHUNK_SIZE;
+        Object[] chunk = row.chunks[chunkIndex];
+        if (chunk == null) {
+            if (value == null) {
+                return;
+            }
+            chunk = row.chunks[chunkIndex] = new Object[CHUNK_SIZE];
+        }
+        final Object previous = chunk[x % CHUNK_SIZE];
+        chunk[x % CHUNK_SIZE] = value;
+        final int delta = (value != null ? 1 : 0) - (previous != null ? 1 : 0);
+        row.chunkCounts[chunkIndex] += delta;
+        row.count += delta;
+    }
+
+    /**
+     * Returns the number of the objects in the row.
+     */
+    public int getRowCount(int y) {
+        return rows[y].count;
+    }
+
+    public void clearRow(int y) {
+        rows[y].clear();
+    }
+
+    public void clear() {
+        for (Row row : rows) {
+            row.clear();
+        }
+    }
+
+    /**
+     * Removes the specified rows and moves down all the rows that were
+     * above them. Empty rows are inserted at the top of the grid.
+     *
+     * @param   removedRows indices of the rows sorted in the ascending
+     *          order. Only the first {@code count} of them are removed.
+     */
+    public void removeRows(int[] removedRows, int count) {
+        for (int i = 0; i < count; i++) {
+            rows[removedRows[i]].clear();
+        }
+        BitBoard.removeRows(rows, removedRows, count);
+    }
+
+    /**
+     * Moves all of the rows up by {@code count} rows, the rows that are
+     * moved past the top of the grid are dropped, and empty rows are
+     * inserted at the bottom.
+     *
+     * @throws  IllegalArgumentException in case the count is negative or
+     *          greater than the height of the grid.
+     */
+    public void insertRows(int count) {
+        if (count < 0 || count > height) {
+            throw new IllegalArgumentException(String.format(
+                    "Rows count must be between 0 and %d. Got: count = %d",
+                    height, count));
+        }
+        for (int y = 0; y < count; y++) {
+            rows[y].clear();
+        }
+        BitBoard.insertRows(rows, count);
+    }
+
+    /**
+     * Returns a lazy view of the objects placed in the specified region
+     * (boundaries included, the parts of the region outside of the grid
+     * are ignored). The objects are ordered row by row from the top ones
+     * down to the bottom ones. Only the non-empty rows and chunks that
+     * overlap the region are visited.
+     */
+    public Collection<T> view(int startX, int startY, int endX, int endY) {
+        return new RegionView(Math.max(startX, 0), Math.max(startY, 0),
+                Math.min(endX, width - 1), Math.min(endY, height - 1));
+    }
+
+    private class RegionView extends AbstractCollection<T> {
+        private final int startX, startY, endX, endY;
+
+        RegionView(int startX, int startY, int endX, int endY) {
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                // position of the next object, y > endY once there are no
+                // more objects
+                private int x = startX - 1, y = startY;
+
+                {
+                    if (startX > endX) {
+                        y = endY + 1;
+                    }
+                    advance();
+                }
+
+                private void advance() {
+                    x++;
+                    while (y <= endY) {
+                        final Row row = rows[y];
+                        while (row.count != 0 && x <= endX) {
+                            final int chunkIndex = x / CHUNK_SIZE;
+                            if (row.chunkCounts[chunkIndex] == 0) {
+                                // skip to the next chunk
+                                x = (chunkIndex + 1) * CHUNK_SIZE;
+                                continue;
+                            }
+                            if (row.chunks[chunkIndex][x % CHUNK_SIZE]
+                                    != null) {
+                                return;
+                            }
+                            x++;
+                        }
+                        x = startX;
+                        y++;
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return y <= endY;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final T value = (T) rows[y].chunks[x / CHUNK_SIZE]
+                            [x % CHUNK_SIZE];
+                    advance();
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            if (startX == 0 && endX == width - 1) {
+                int size = 0;
+                for (int y = startY; y <= endY; y++) {
+                    size += rows[y].count;
+                }
+                return size;
+            }
+            int size = 0;
+            for (T ignored : this) {
+                size++;
+            }
+            return size;
+        }
+    }
+}
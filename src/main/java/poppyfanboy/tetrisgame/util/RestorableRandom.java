@@ -0,0 +1,51 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.util.Random;
+
+/**
+ * A random number generator whose state can be saved and restored. It
+ * uses the same linear congruential generator as {@link Random} does, so
+ * for the same seed both of them produce the same sequence of numbers.
+ *
+ * Unlike {@link Random}, this class is not thread-safe.
+ */
+public class RestorableRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // not initialized here, since the constructor of the superclass sets
+    // it with the setSeed call
+    private long state;
+
+    public RestorableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Returns the current state of the generator. Passing it to the
+     * {@link RestorableRandom#setState} method later on makes the
+     * generator repeat the same sequence of numbers.
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -21,11 +21,14 @@ public enum Rotation {
     // rotations are ordered in the counter-clockwise order
     INITIAL, LEFT, UPSIDE_DOWN, RIGHT;
 
+    // values() makes a copy of the array on each call
+    private static final Rotation[] VALUES = values();
+
     /**
      * Adds to rotations of the figure and returns the result.
      */
     public Rotation add(Rotation rotation) {
-        return values()[(this.ordinal() + rotation.ordinal()) % 4];
+        return VALUES[(this.ordinal() + rotation.ordinal()) % 4];
     }
 
     /**
@@ -172,6 +172,16 @@ public class Util {
         return copy;
     }
 
+    /**
+     * Scrambles the bits of the value (the finalizer of the SplitMix64
+     * generator), so that close values are mapped to unrelated ones.
+     */
+    public static long mix64(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
     @SafeVarargs
     public static <E extends Enum<?>> E getRandomInstance(
             Random random, Class<? extends E>... enums) {
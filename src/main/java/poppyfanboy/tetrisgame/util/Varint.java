@@ -0,0 +1,80 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length encoding of the integers: seven bits per byte, starting
+ * from the lowest ones, the highest bit of a byte is set in case more
+ * bytes follow. So the small values take a single byte. The signed values
+ * are zigzag-encoded first, so that the small negative values are short
+ * too.
+ */
+public final class Varint {
+    // a 64-bit value takes at most ten bytes
+    private static final int MAX_LENGTH = 10;
+
+    private Varint() {
+    }
+
+    public static void writeUnsigned(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static void writeSigned(ByteBuffer buffer, long value) {
+        writeUnsigned(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * @throws  IllegalArgumentException in case the value is longer than
+     *          ten bytes.
+     */
+    public static long readUnsigned(ByteBuffer buffer) {
+        long value = 0;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            final byte b = buffer.get();
+            value |= (long) (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint.");
+    }
+
+    public static long readSigned(ByteBuffer buffer) {
+        final long value = readUnsigned(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads an unsigned value and checks that it lies within the
+     * {@code [0, max]} interval.
+     *
+     * @throws  IllegalArgumentException in case it does not.
+     */
+    public static int readUnsigned(ByteBuffer buffer, int max) {
+        final long value = readUnsigned(buffer);
+        if (value < 0 || value > max) {
+            throw new IllegalArgumentException(String.format(
+                    "Value must be between 0 and %d. Got: %d", max, value));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a signed value and checks that it fits into an {@code int}.
+     *
+     * @throws  IllegalArgumentException in case it does not.
+     */
+    public static int readSignedInt(ByteBuffer buffer) {
+        final long value = readSigned(buffer);
+        if (value != (int) value) {
+            throw new IllegalArgumentException(String.format(
+                    "Value must fit into an int. Got: %d", value));
+        }
+        return (int) value;
+    }
+}
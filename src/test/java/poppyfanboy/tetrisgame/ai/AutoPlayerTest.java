@@ -0,0 +1,89 @@
+package poppyfanboy.tetrisgame.ai;
+
+import java.util.EnumMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.entities.BlockColor;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.logic.GameFieldState;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.logic.randomizers.BagRandomizer;
+import poppyfanboy.tetrisgame.util.IntVector;
+
+public class AutoPlayerTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    // a shape normally gets to its place in less than 200 ticks
+    private static final int MAX_SHAPE_TICKS = 5000;
+
+    private int piecesCount;
+    private long lastSpawnTick;
+
+    /**
+     * These games used to get stuck: the shape was kicked up and fell back
+     * again and again, and each of the moves restarted the lock delay.
+     */
+    @Test
+    public void doesNotGetStuck() {
+        playGame(8, 1, 1, 2500);
+        playGame(9, 1, 1, 1500);
+        playGame(4, 0, 1, 2100);
+    }
+
+    @Test
+    public void looksTwoShapesAhead() {
+        playGame(9, 2, 2, 100);
+    }
+
+    @Test
+    public void lookAheadDepthIsChecked() {
+        GameLogic game = new GameLogic(WIDTH, HEIGHT, 0);
+        assertThrows(IllegalArgumentException.class, () -> new AutoPlayer(
+                game, game, new BoardEvaluator(), -1, false, false));
+        assertThrows(IllegalArgumentException.class, () -> new AutoPlayer(
+                game, game, new BoardEvaluator(),
+                AutoPlayer.MAX_LOOK_AHEAD_DEPTH + 1, false, false));
+    }
+
+    /**
+     * Lets the player play until the specified number of the shapes spawn
+     * or the game is over, and checks that it never takes the player too
+     * long to place a shape.
+     */
+    private void playGame(long seed, int lookAheadDepth, int previewSize,
+            int maxPiecesCount) {
+        GameLogic game = new GameLogic(WIDTH, HEIGHT, seed,
+                new BagRandomizer(TetrisShapeType.values()), previewSize);
+        AutoPlayer player = new AutoPlayer(game, game, new BoardEvaluator(),
+                lookAheadDepth, false, false);
+        piecesCount = 0;
+        lastSpawnTick = 0;
+        final long[] tick = { 0 };
+        game.addListener(new GameLogicListener() {
+            @Override
+            public void shapeSpawned(ShapeType shapeType, IntVector coords,
+                    BlockColor color, ShapeType nextShapeType) {
+                piecesCount++;
+                lastSpawnTick = tick[0];
+            }
+        });
+        game.start();
+        // the game is stopped until the first tick
+        do {
+            game.tick();
+            player.control(new EnumMap<>(InputKey.class));
+            tick[0]++;
+            assertTrue(tick[0] - lastSpawnTick < MAX_SHAPE_TICKS,
+                    () -> String.format("seed %d: stuck at the shape %d",
+                            seed, piecesCount));
+        } while (piecesCount < maxPiecesCount
+                && game.getState() != GameFieldState.STOPPED);
+        assertTrue(piecesCount > 1);
+    }
+}
@@ -0,0 +1,182 @@
+package poppyfanboy.tetrisgame.ai;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+import poppyfanboy.tetrisgame.logic.GameFieldState;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.GameLogicListener;
+import poppyfanboy.tetrisgame.logic.TimingTable;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * Replays the paths found by the {@link PlacementFinder} on the game logic
+ * and checks that each of them leads exactly to its placement.
+ */
+public class PlacementFinderTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final int PIECES = 300;
+    // the shape must not be dropped by the gravity or locked while it
+    // follows a path, so the soft drop and the lock delay are long
+    private static final String TIMINGS
+            = "soft_drop forced_drop hard_drop user_control block_break"
+            + " lock_delay autofire gravity\n"
+            + "200 3 5 10 12 1000 2 %d\n";
+    // the shape is expected to settle well before the soft drop fires twice
+    private static final int MAX_SETTLE_TICKS = 500;
+
+    private int kicksCount;
+
+    @Test
+    public void pathsLeadToPlacements() throws IOException {
+        replayPaths(1);
+    }
+
+    @Test
+    public void pathsLeadToPlacementsWithHighGravity() throws IOException {
+        replayPaths(3);
+    }
+
+    /**
+     * Plays the games with random placements of the shapes and random
+     * garbage, so that the stacks have lots of overhangs, and replays the
+     * paths to all of the placements of each of the shapes.
+     */
+    private void replayPaths(int gravity) throws IOException {
+        final TimingTable timings = TimingTable.load(new StringReader(
+                String.format(TIMINGS, gravity)));
+        final Random random = new Random(gravity);
+        final PlacementFinder finder = new PlacementFinder(WIDTH, HEIGHT);
+        kicksCount = 0;
+        int placementsCount = 0;
+        GameLogic game = null;
+        for (int piece = 0; piece < PIECES; piece++) {
+            if (game == null || game.getState() == GameFieldState.STOPPED) {
+                game = new GameLogic(WIDTH, HEIGHT, random.nextLong());
+                game.setTimings(timings);
+                game.start();
+            }
+            if (random.nextInt(4) == 0) {
+                game.addGarbage(1 + random.nextInt(2), random.nextInt(WIDTH));
+            }
+            if (!spawn(game)) {
+                continue;
+            }
+            List<Placement> placements = finder.findPlacements(game);
+            assertFalse(placements.isEmpty());
+            for (Placement placement : placements) {
+                GameLogic copy = new GameLogic(game.snapshot());
+                copy.setTimings(timings);
+                copy.addListener(new GameLogicListener() {
+                    @Override
+                    public void shapeRotated(Rotation rotationDirection,
+                            IntVector wallKick) {
+                        if (wallKick != null) {
+                            kicksCount++;
+                        }
+                    }
+                });
+                replay(copy, placement);
+                assertEquals(new IntVector(placement.getX(),
+                        placement.getY()), copy.getActiveShapeCoords(),
+                        placement.toString());
+                assertEquals(placement.getRotation(),
+                        copy.getActiveShapeRotation(), placement.toString());
+                placementsCount++;
+            }
+            replay(game, placements.get(random.nextInt(placements.size())));
+            // the hard drop does not work once the shape has landed, it is
+            // locked by the lock delay then
+            press(game, InputKey.SPACE, KeyState.PRESSED);
+            while (game.getActiveShapeType() != null) {
+                game.tick();
+            }
+        }
+        assertTrue(placementsCount > PIECES,
+                "placements: " + placementsCount);
+        // the wall kicks are the point of the test
+        assertTrue(kicksCount > 0, "no wall kicks have been made");
+    }
+
+    /**
+     * Ticks the game until the next shape spawns and settles. Returns
+     * {@code false} in case the game is over instead.
+     */
+    private static boolean spawn(GameLogic game) {
+        for (int i = 0; i < MAX_SETTLE_TICKS; i++) {
+            game.tick();
+            if (game.getState() == GameFieldState.STOPPED) {
+                return false;
+            }
+            if (game.getActiveShapeType() != null && isSettled(game)) {
+                return true;
+            }
+        }
+        fail("The shape has not spawned");
+        return false;
+    }
+
+    /**
+     * Makes the moves of the path one by one, letting the shape settle
+     * after each of them.
+     */
+    private static void replay(GameLogic game, Placement placement) {
+        for (Move move : placement.getPath()) {
+            final int y = game.getActiveShapeCoords().getY();
+            press(game, move.getInputKey(), KeyState.PRESSED);
+            if (move == Move.DOWN) {
+                for (int i = 0; game.getActiveShapeCoords().getY() == y;
+                        i++) {
+                    assertTrue(i < MAX_SETTLE_TICKS, placement.toString());
+                    game.tick();
+                }
+                press(game, InputKey.ARROW_DOWN, KeyState.RELEASED);
+            }
+            // the wall kicks are only started by the next tick
+            game.tick();
+            for (int i = 0; !isSettled(game); i++) {
+                assertTrue(i < MAX_SETTLE_TICKS, placement.toString());
+                game.tick();
+            }
+        }
+    }
+
+    /**
+     * Checks if the shape can be moved and, in case it has landed, its
+     * lock delay has started.
+     */
+    private static boolean isSettled(GameLogic game) {
+        final GameFieldState state = game.getState();
+        if (state == GameFieldState.SHAPE_FELL) {
+            return true;
+        }
+        if (state != GameFieldState.SHAPE_SOFT_DROP
+                && state != GameFieldState.SHAPE_FORCED_DROP) {
+            return false;
+        }
+        final IntVector coords = game.getActiveShapeCoords();
+        return game.getOccupancy().fits(game.getActiveShapeType()
+                .getRowMasks(game.getActiveShapeRotation()), coords.getX(),
+                coords.getY() + 1);
+    }
+
+    private static void press(GameLogic game, InputKey key,
+            KeyState keyState) {
+        EnumMap<InputKey, KeyState> inputs = new EnumMap<>(InputKey.class);
+        inputs.put(key, keyState);
+        game.control(inputs);
+    }
+}
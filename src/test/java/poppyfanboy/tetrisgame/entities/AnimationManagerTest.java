@@ -0,0 +1,65 @@
+package poppyfanboy.tetrisgame.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.graphics.animation2D.AcceleratedMoveAnimation;
+import poppyfanboy.tetrisgame.graphics.animation2D.OpacityAnimation;
+
+import static poppyfanboy.tetrisgame.util.DoubleVector.dVect;
+import static poppyfanboy.tetrisgame.util.IntVector.iVect;
+
+public class AnimationManagerTest {
+    private static final int MAX_TICKS = 1000;
+
+    private static Block createBlock(int x) {
+        return new Block(null, iVect(x, 0), dVect(x + 0.5, 0.5),
+                BlockColor.BLUE, null, dVect(x, 0));
+    }
+
+    /**
+     * The end handlers run while the animations are ticked. A block set
+     * and its animation added by an end handler must be postponed
+     * together, and the members must be taken right away, since the
+     * collection they are passed in might be reused.
+     */
+    @Test
+    public void blockSetIsAddedWhileTicking() {
+        final AnimationManager manager = new AnimationManager();
+        final Block trigger = createBlock(0);
+        final Block first = createBlock(1), second = createBlock(2);
+        manager.addLockedBlock(trigger);
+        manager.addLockedBlock(first);
+        manager.addLockedBlock(second);
+
+        final List<Block> blocks = new ArrayList<>();
+        final boolean[] dropped = { false };
+        manager.addAnimation(trigger, LockedBlockAnimationType.BREAK,
+                new OpacityAnimation(1.0, 0.5, 2), reason -> {
+                    blocks.add(first);
+                    blocks.add(second);
+                    final BlockSet blockSet = new BlockSet(
+                            LockedBlockAnimationType.DROP, dVect(0, 0));
+                    manager.addBlockSet(blockSet, blocks);
+                    blocks.clear();
+                    manager.addAnimation(blockSet,
+                            new AcceleratedMoveAnimation(dVect(0, 0),
+                                    dVect(0, 3), 0.0),
+                            dropReason -> {
+                                manager.removeBlockSet(blockSet);
+                                dropped[0] = true;
+                            });
+                });
+        for (int i = 0; i < MAX_TICKS && !dropped[0]; i++) {
+            manager.tick();
+        }
+        assertTrue(dropped[0]);
+        assertEquals(dVect(1, 3), first.getCoords());
+        assertEquals(dVect(2, 3), second.getCoords());
+        assertEquals(dVect(0, 0), trigger.getCoords());
+    }
+}
@@ -0,0 +1,95 @@
+package poppyfanboy.tetrisgame.entities;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import poppyfanboy.tetrisgame.graphics.animation2D.AcceleratedMoveAnimation;
+
+import static poppyfanboy.tetrisgame.util.DoubleVector.dVect;
+import static poppyfanboy.tetrisgame.util.IntVector.iVect;
+
+public class AnimationStoreTest {
+    private static final int BLOCKS = 8;
+    private static final int MAX_TICKS = 1000;
+
+    private static Block createBlock(int x) {
+        return new Block(null, iVect(x, 0), dVect(x + 0.5, 0.5),
+                BlockColor.BLUE, null, dVect(x, 0));
+    }
+
+    /**
+     * The slots of the removed objects are given to the added ones, which
+     * must not inherit the animations or the set memberships of the
+     * removed objects.
+     */
+    @Test
+    public void slotsAreReusedAfterRemoval() {
+        final AnimationStore store = new AnimationStore();
+        final Block[] blocks = new Block[BLOCKS];
+        for (int i = 0; i < BLOCKS; i++) {
+            blocks[i] = createBlock(i);
+            store.add(blocks[i]);
+        }
+        final BlockSet set = new BlockSet(LockedBlockAnimationType.DROP,
+                dVect(0, 0));
+        store.add(set);
+        store.addMember(set, blocks[4]);
+        store.addMember(set, blocks[5]);
+        final int[] finished = new int[BLOCKS];
+        for (int i = 0; i < 4; i++) {
+            final int index = i;
+            store.addAnimation(blocks[i], LockedBlockAnimationType.DROP,
+                    new AcceleratedMoveAnimation(dVect(i, 0), dVect(i, 5),
+                            0.0),
+                    reason -> finished[index]++);
+        }
+        assertEquals(4, store.getActiveCount());
+
+        // the animated blocks and a member of the set are removed
+        final Set<Integer> freeSlots = new HashSet<>();
+        for (int i : new int[] { 1, 3, 4 }) {
+            freeSlots.add(blocks[i].getSlot());
+            store.remove(blocks[i]);
+            assertEquals(-1, blocks[i].getSlot());
+        }
+        assertEquals(2, store.getActiveCount());
+        assertEquals(BLOCKS - 2, store.size());
+
+        final Block[] added = new Block[3];
+        final Set<Integer> reusedSlots = new HashSet<>();
+        for (int i = 0; i < added.length; i++) {
+            added[i] = createBlock(BLOCKS + i);
+            store.add(added[i]);
+            reusedSlots.add(added[i].getSlot());
+            assertEquals(dVect(BLOCKS + i, 0), added[i].getCoords());
+        }
+        assertEquals(freeSlots, reusedSlots);
+        assertEquals(2, store.getActiveCount());
+        assertEquals(BLOCKS + 1, store.size());
+        // the next object gets a new slot
+        final Block last = createBlock(-1);
+        store.add(last);
+        assertFalse(reusedSlots.contains(last.getSlot()));
+
+        store.addAnimation(set, LockedBlockAnimationType.DROP,
+                new AcceleratedMoveAnimation(dVect(0, 0), dVect(0, 3), 0.0),
+                null);
+        for (int i = 0; i < MAX_TICKS && store.getActiveCount() != 0; i++) {
+            store.tick();
+        }
+        assertEquals(0, store.getActiveCount());
+        assertEquals(1, finished[0]);
+        assertEquals(1, finished[2]);
+        assertEquals(0, finished[1]);
+        assertEquals(0, finished[3]);
+        assertEquals(dVect(0, 5), blocks[0].getCoords());
+        assertEquals(dVect(5, 3), blocks[5].getCoords());
+        for (int i = 0; i < added.length; i++) {
+            assertEquals(dVect(BLOCKS + i, 0), added[i].getCoords());
+        }
+    }
+}
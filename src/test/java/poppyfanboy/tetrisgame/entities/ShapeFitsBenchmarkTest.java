@@ -0,0 +1,221 @@
+package poppyfanboy.tetrisgame.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.PentrixShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+import poppyfanboy.tetrisgame.util.BitBoard;
+import poppyfanboy.tetrisgame.util.IntVector;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+/**
+ * Compares the bit board collision check of the shapes with the per-tile
+ * check against the objects of a tile field, which was used before the
+ * locked blocks were stored in a {@code BitBoard}. The timing is only
+ * measured by the {@code benchmark} task.
+ */
+public class ShapeFitsBenchmarkTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final int BOARDS = 16;
+    private static final int ROUNDS = 20;
+
+    /**
+     * A single locked block, checks the collisions just like the
+     * {@code Block} entity does.
+     */
+    private static class Tile implements TileFieldObject {
+        private IntVector tileCoords;
+
+        Tile(int x, int y) {
+            tileCoords = new IntVector(x, y);
+        }
+
+        @Override
+        public boolean checkCollision(IntVector collisionTile) {
+            return tileCoords.equals(collisionTile);
+        }
+
+        @Override
+        public void tileMove(IntVector newTileCoordinates) {
+            tileCoords = newTileCoordinates;
+        }
+
+        @Override
+        public IntVector getTileCoords() {
+            return tileCoords;
+        }
+    }
+
+    /**
+     * The tile field, which relies on the default {@code isOccupied}
+     * method that scans all of the objects on the field.
+     */
+    private static class ListTileField implements TileField {
+        private final List<Tile> tiles = new ArrayList<>();
+
+        @Override
+        public int getWidthInBlocks() {
+            return WIDTH;
+        }
+
+        @Override
+        public int getHeightInBlocks() {
+            return HEIGHT;
+        }
+
+        @Override
+        public Collection<? extends TileFieldObject> getObjects() {
+            return tiles;
+        }
+    }
+
+    private final ListTileField[] tileFields = new ListTileField[BOARDS];
+    private final BitBoard[] bitBoards = new BitBoard[BOARDS];
+    private final List<ShapeType> shapeTypes = new ArrayList<>();
+
+    public ShapeFitsBenchmarkTest() {
+        Random random = new Random(1);
+        for (int i = 0; i < BOARDS; i++) {
+            tileFields[i] = new ListTileField();
+            bitBoards[i] = new BitBoard(WIDTH, HEIGHT);
+            // the stack grows higher with each board, the upper rows of
+            // the stack are sparser than the lower ones
+            final int stackHeight = 2 + i * (HEIGHT - 4) / BOARDS;
+            for (int y = HEIGHT - stackHeight; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    if (random.nextInt(HEIGHT) < y) {
+                        tileFields[i].tiles.add(new Tile(x, y));
+                        bitBoards[i].set(x, y);
+                    }
+                }
+            }
+        }
+        for (TetrisShapeType shapeType : TetrisShapeType.values()) {
+            shapeTypes.add(shapeType);
+        }
+        for (PentrixShapeType shapeType : PentrixShapeType.values()) {
+            shapeTypes.add(shapeType);
+        }
+    }
+
+    private int countTileFieldFits() {
+        int count = 0;
+        for (ListTileField tileField : tileFields) {
+            for (ShapeType shapeType : shapeTypes) {
+                final int frameSize = shapeType.getFrameSize();
+                for (Rotation rotation : Rotation.values()) {
+                    for (int y = -frameSize; y < HEIGHT; y++) {
+                        for (int x = -frameSize; x < WIDTH; x++) {
+                            if (Shape.fits(shapeType, new IntVector(x, y),
+                                    rotation, tileField)) {
+                                count++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private int countBitBoardFits() {
+        int count = 0;
+        for (BitBoard bitBoard : bitBoards) {
+            for (ShapeType shapeType : shapeTypes) {
+                final int frameSize = shapeType.getFrameSize();
+                for (Rotation rotation : Rotation.values()) {
+                    final int[] rowMasks = shapeType.getRowMasks(rotation);
+                    for (int y = -frameSize; y < HEIGHT; y++) {
+                        for (int x = -frameSize; x < WIDTH; x++) {
+                            if (bitBoard.fits(rowMasks, x, y)) {
+                                count++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void bitBoardAgreesWithTileField() {
+        for (int i = 0; i < BOARDS; i++) {
+            for (ShapeType shapeType : shapeTypes) {
+                final int frameSize = shapeType.getFrameSize();
+                for (Rotation rotation : Rotation.values()) {
+                    for (int y = -frameSize; y < HEIGHT; y++) {
+                        for (int x = -frameSize; x < WIDTH; x++) {
+                            IntVector coords = new IntVector(x, y);
+                            assertEquals(
+                                    Shape.fits(shapeType, coords, rotation,
+                                            tileFields[i]),
+                                    Shape.fits(shapeType, coords, rotation,
+                                            bitBoards[i]),
+                                    String.format("board %d, %s, %s, %s",
+                                            i, shapeType, rotation, coords));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void bitBoardIsFasterThanTileField() {
+        // warm up both of the paths, so that they are both compiled
+        // before the measurements
+        int expected = 0;
+        for (int i = 0; i < 3; i++) {
+            expected = countTileFieldFits();
+            assertEquals(expected, countBitBoardFits());
+        }
+
+        long tileFieldTime = Long.MAX_VALUE;
+        long bitBoardTime = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            assertEquals(expected, countTileFieldFits());
+            tileFieldTime = Math.min(tileFieldTime,
+                    System.nanoTime() - start);
+
+            start = System.nanoTime();
+            assertEquals(expected, countBitBoardFits());
+            bitBoardTime = Math.min(bitBoardTime, System.nanoTime() - start);
+        }
+
+        final int checks = countChecks();
+        System.out.println(String.format(
+                "Shape.fits: %d checks, tile field: %.1f ns/check,"
+                        + " bit board: %.1f ns/check, speedup: %.1fx",
+                checks, (double) tileFieldTime / checks,
+                (double) bitBoardTime / checks,
+                (double) tileFieldTime / bitBoardTime));
+        // the tile field path scans all of the blocks for every tile of
+        // the shape, so it is expected to be orders of magnitude slower,
+        // the margin just keeps the assertion away from the timer noise
+        assertTrue(bitBoardTime * 5 < tileFieldTime, String.format(
+                "tile field: %d ns, bit board: %d ns",
+                tileFieldTime, bitBoardTime));
+    }
+
+    private int countChecks() {
+        int checks = 0;
+        for (ShapeType shapeType : shapeTypes) {
+            final int frameSize = shapeType.getFrameSize();
+            checks += 4 * (HEIGHT + frameSize) * (WIDTH + frameSize);
+        }
+        return checks * BOARDS;
+    }
+}
@@ -0,0 +1,150 @@
+package poppyfanboy.tetrisgame.entities.shapetypes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.ai.TranspositionTable;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.util.BitBoard;
+import poppyfanboy.tetrisgame.util.Rotation;
+
+public class PolyominoSetTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+
+    private static PolyominoSet loadTetrominoes() throws IOException {
+        return PolyominoSet.loadBundled("tetrominoes");
+    }
+
+    /**
+     * The bundled sets hold all of the one-sided polyominoes of their
+     * sizes.
+     */
+    @Test
+    public void bundledSetsAreLoaded() throws IOException {
+        final String[] names = { "triominoes", "tetrominoes", "pentominoes",
+                "hexominoes", "heptominoes" };
+        final int[] counts = { 2, 7, 18, 60, 196 };
+        for (int i = 0; i < names.length; i++) {
+            final PolyominoSet set = PolyominoSet.loadBundled(names[i]);
+            assertEquals(counts[i], set.getShapeTypesCount(), names[i]);
+            for (ShapeType shapeType : set.getShapeTypes()) {
+                assertEquals(i + 3, shapeType.getSolidBlocksNumber(),
+                        names[i]);
+            }
+        }
+        assertThrows(IOException.class,
+                () -> PolyominoSet.loadBundled("octominoes"));
+    }
+
+    /**
+     * The T-shape loaded from the shape set file must score the T-spins
+     * at the same places as the built-in one.
+     */
+    @Test
+    public void loadedTShapeSpinsLikeBuiltInOne() throws IOException {
+        final ShapeType builtIn = TetrisShapeType.T_SHAPE;
+        final ShapeType loaded = loadTetrominoes().getShapeType("T");
+        assertTrue(loaded.isSpinShape());
+        assertFalse(loadTetrominoes().getShapeType("L").isSpinShape());
+        for (Rotation rotation : Rotation.values()) {
+            assertEquals(builtIn.getRowMasks(rotation).length,
+                    loaded.getRowMasks(rotation).length);
+            for (int y = 0; y < builtIn.getFrameSize(); y++) {
+                assertEquals(builtIn.getRowMasks(rotation)[y],
+                        loaded.getRowMasks(rotation)[y]);
+            }
+        }
+
+        final Random random = new Random(1);
+        int spinsCount = 0;
+        for (int i = 0; i < 50; i++) {
+            final BitBoard board = new BitBoard(WIDTH, HEIGHT);
+            for (int y = HEIGHT / 2; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    if (random.nextInt(3) != 0) {
+                        board.set(x, y);
+                    }
+                }
+            }
+            final int frameSize = builtIn.getFrameSize();
+            for (int y = -frameSize; y < HEIGHT; y++) {
+                for (int x = -frameSize; x < WIDTH; x++) {
+                    final boolean isTSpin
+                            = GameLogic.isTSpin(board, builtIn, x, y, true);
+                    assertEquals(isTSpin,
+                            GameLogic.isTSpin(board, loaded, x, y, true),
+                            String.format("board %d, (%d, %d)", i, x, y));
+                    if (isTSpin) {
+                        spinsCount++;
+                    }
+                }
+            }
+        }
+        assertTrue(spinsCount > 0);
+    }
+
+    @Test
+    public void spinShapesAreCached() throws IOException {
+        final Path path = Files.createTempFile("shape-set-test", ".txt");
+        final Path cachePath = Files.createTempFile("shape-set-test", ".bin");
+        try {
+            Files.write(path, ("shape T spin\n. * .\n* x *\n. . .\n"
+                    + "shape I\n. . .\n* x *\n. . .\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.delete(cachePath);
+            // the first load compiles the set, the second one reads the
+            // cache
+            for (int i = 0; i < 2; i++) {
+                PolyominoSet set = PolyominoSet.load(path, cachePath);
+                assertTrue(set.getShapeType("T").isSpinShape());
+                assertFalse(set.getShapeType("I").isSpinShape());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(cachePath);
+        }
+    }
+
+    @Test
+    public void setIsLoadedWhenCacheCanNotBeWritten() throws IOException {
+        final Path path = Files.createTempFile("shape-set-test", ".txt");
+        try {
+            Files.write(path, "shape I\n. . .\n* x *\n. . .\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            // the directory of the cache does not exist
+            final Path cachePath = path.resolveSibling(
+                    path.getFileName() + ".missing").resolve("cache.bin");
+            PolyominoSet set = PolyominoSet.load(path, cachePath);
+            assertEquals(1, set.getShapeTypesCount());
+            assertFalse(Files.exists(cachePath));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * The names of the shapes are only unique within their set, the shapes
+     * of the different sets must not share the positions in the
+     * transposition table.
+     */
+    @Test
+    public void sameNamedShapesHaveDifferentKeys() throws IOException {
+        final BitBoard board = new BitBoard(WIDTH, HEIGHT);
+        final ShapeType first = loadTetrominoes().getShapeType("T");
+        final ShapeType second = loadTetrominoes().getShapeType("T");
+        assertEquals(TranspositionTable.getKey(board, first, null),
+                TranspositionTable.getKey(board, first, null));
+        assertFalse(TranspositionTable.getKey(board, first, null)
+                == TranspositionTable.getKey(board, second, null));
+    }
+}
@@ -0,0 +1,53 @@
+package poppyfanboy.tetrisgame.graphics;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.graphics.animation2D.OpacityAnimation;
+
+public class AnimationPoolTest {
+    private static final int MAX_GC_RUNS = 50;
+
+    @Test
+    public void releasedAnimationIsReused() {
+        final AnimationPool<OpacityAnimation> pool
+                = new AnimationPool<>(OpacityAnimation::new);
+        final OpacityAnimation first = pool.obtain();
+        first.setEasing(Easing.ACCELERATED);
+        AnimationPool.recycle(first);
+        assertThrows(IllegalStateException.class,
+                () -> AnimationPool.recycle(first));
+
+        final OpacityAnimation second = pool.obtain();
+        assertTrue(first == second);
+        assertEquals(Easing.LINEAR, second.getEasing());
+        // the pool is empty again
+        assertTrue(pool.obtain() != second);
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(3, pool.getObtainedCount());
+    }
+
+    /**
+     * The animations thrown away without being released are reported once
+     * they are garbage collected, the released ones are not.
+     */
+    @Test
+    public void unreleasedAnimationIsDetected() throws InterruptedException {
+        final AnimationPool<OpacityAnimation> pool
+                = new AnimationPool<>(OpacityAnimation::new);
+        pool.setDebug(true);
+        AnimationPool.recycle(pool.obtain());
+        // the released animation stays in the pool, so it is obtained and
+        // thrown away here
+        pool.obtain();
+        pool.obtain();
+        AnimationPool.recycle(new OpacityAnimation());
+        for (int i = 0; i < MAX_GC_RUNS && pool.getLeaksCount() < 2; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(2, pool.getLeaksCount());
+    }
+}
@@ -0,0 +1,81 @@
+package poppyfanboy.tetrisgame.graphics;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EasingTest {
+    private static final double EPS = 1e-12;
+    // the tabulated curves are interpolated linearly, so they are off by
+    // no more than the second derivative of the curve times h^2 / 8
+    private static final double TABLE_EPS = 2e-5;
+    private static final int STEPS = 10000;
+
+    @Test
+    public void curvesStartAndEndAtTheirEndpoints() {
+        for (Easing easing : Easing.values()) {
+            final double end = easing == Easing.BUMP ? 0.0 : 1.0;
+            assertEquals(0.0, easing.apply(0.0), EPS, easing.toString());
+            assertEquals(end, easing.apply(1.0), EPS, easing.toString());
+            if (easing == Easing.LINEAR) {
+                // the linear curve is not clamped
+                assertEquals(-0.5, easing.apply(-0.5), EPS);
+                assertEquals(1.5, easing.apply(1.5), EPS);
+            } else {
+                assertEquals(easing.apply(0.0), easing.apply(-0.5),
+                        easing.toString());
+                assertEquals(easing.apply(1.0), easing.apply(1.5),
+                        easing.toString());
+            }
+        }
+        assertEquals(1.0, Easing.BUMP.apply(0.5), EPS);
+        assertEquals(0.5, Easing.EASE_IN_OUT.apply(0.5), EPS);
+    }
+
+    @Test
+    public void curvesAreMonotonic() {
+        for (Easing easing : new Easing[] { Easing.LINEAR,
+                Easing.ACCELERATED, Easing.EASE_IN_OUT }) {
+            assertMonotonic(easing, 0.0, 1.0, true);
+        }
+        assertMonotonic(Easing.BUMP, 0.0, 0.5, true);
+        assertMonotonic(Easing.BUMP, 0.5, 1.0, false);
+
+        // the overshoot curve rises past the end and then comes back
+        double peak = 0;
+        for (int i = 0; i <= STEPS; i++) {
+            if (Easing.OVERSHOOT.apply((double) i / STEPS)
+                    > Easing.OVERSHOOT.apply(peak)) {
+                peak = (double) i / STEPS;
+            }
+        }
+        assertTrue(Easing.OVERSHOOT.apply(peak) > 1.0);
+        assertMonotonic(Easing.OVERSHOOT, 0.0, peak, true);
+        assertMonotonic(Easing.OVERSHOOT, peak, 1.0, false);
+    }
+
+    private static void assertMonotonic(Easing easing, double start,
+            double end, boolean increasing) {
+        double previous = easing.apply(start);
+        for (int i = 1; i <= STEPS; i++) {
+            final double progress = start + (end - start) * i / STEPS;
+            final double value = easing.apply(progress);
+            assertTrue(increasing ? value >= previous : value <= previous,
+                    String.format("%s at %f", easing, progress));
+            previous = value;
+        }
+    }
+
+    @Test
+    public void tablesFollowCurves() {
+        for (int i = 0; i <= STEPS; i++) {
+            final double progress = (double) i / STEPS;
+            assertEquals(progress * progress,
+                    Easing.ACCELERATED.apply(progress), TABLE_EPS);
+            assertEquals((1 - Math.cos(Math.PI * progress)) / 2,
+                    Easing.EASE_IN_OUT.apply(progress), TABLE_EPS);
+            assertEquals(4 * progress * (1 - progress),
+                    Easing.BUMP.apply(progress), TABLE_EPS);
+        }
+    }
+}
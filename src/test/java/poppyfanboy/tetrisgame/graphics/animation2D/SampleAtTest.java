@@ -0,0 +1,163 @@
+package poppyfanboy.tetrisgame.graphics.animation2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.graphics.Animation;
+import poppyfanboy.tetrisgame.graphics.AnimationWrapper;
+import poppyfanboy.tetrisgame.graphics.Easing;
+
+import static poppyfanboy.tetrisgame.util.DoubleVector.dVect;
+
+/**
+ * The poses sampled ahead of time must be the same as the states the
+ * animated object actually goes through, including the very start and
+ * the end of the animations and the moments past the end.
+ */
+public class SampleAtTest {
+    private static final double EPS = 1e-9;
+    private static final double[] INTERPOLATIONS = { 0.0, 0.25, 0.5, 0.75 };
+    // number of the ticks sampled past the end of the animations
+    private static final int EXTRA_TICKS = 3;
+    private static final int MAX_TICKS = 1000;
+
+    private static List<Supplier<Animation<Animated2D>>> getAnimations() {
+        final List<Supplier<Animation<Animated2D>>> animations
+                = new ArrayList<>();
+        animations.add(() -> HVLinearAnimation.getVerticalAnimation(
+                0, 4, 8, 4));
+        animations.add(() -> HVLinearAnimation.getHorizontalAnimation(
+                0, -3, 8, 4).setEasing(Easing.EASE_IN_OUT));
+        animations.add(() -> new RotationAnimation(
+                0, Math.PI / 2, false, 6, Math.PI / 2));
+        animations.add(() -> new RotationAnimation(
+                0, -Math.PI / 2, true, 6, Math.PI / 2)
+                        .setEasing(Easing.OVERSHOOT));
+        animations.add(() -> new AcceleratedMoveAnimation(
+                dVect(0, 0), dVect(0, 3), 0.05));
+        animations.add(() -> new MoveAnimation(
+                dVect(0, 0), dVect(2, 1), 7, 3));
+        animations.add(() -> new OpacityAnimation(1.0, 0.25, 5));
+        animations.add(() -> new BlockBreakAnimation(0.5, 1.0, 6));
+        animations.add(() -> new GhostModeAnimation(5, 0.2));
+        return animations;
+    }
+
+    @Test
+    public void sampledPosesMatchPlayback() {
+        final List<Supplier<Animation<Animated2D>>> animations
+                = getAnimations();
+        for (int i = 0; i < animations.size(); i++) {
+            final Pose2D object = new Pose2D();
+            final AnimationWrapper<Animated2D> wrapper
+                    = new AnimationWrapper<>(object, animations.get(i).get());
+            final Pose2D start = new Pose2D().set(object);
+
+            final int duration = getDuration(animations.get(i).get());
+            // all of the moments are sampled before the animation starts
+            final List<Pose2D> samples = new ArrayList<>();
+            for (int tick = 0; tick < duration + EXTRA_TICKS; tick++) {
+                for (double interpolation : INTERPOLATIONS) {
+                    final Pose2D pose = new Pose2D().set(object);
+                    wrapper.sampleAt(pose, tick + interpolation);
+                    samples.add(pose);
+                }
+            }
+            assertSamePose(start, object, i + ": the object is changed");
+
+            // the animation is played and compared with the samples
+            int sample = 0;
+            int tick = 0;
+            while (!wrapper.finished()) {
+                for (double interpolation : INTERPOLATIONS) {
+                    wrapper.perform(interpolation);
+                    assertSamePose(object, samples.get(sample++),
+                            String.format("%d: tick %d + %.2f",
+                                    i, tick, interpolation));
+                }
+                wrapper.tick();
+                tick++;
+            }
+            // the object is left in the end state, the moments after the
+            // end must be sampled as the end state too
+            for (int j = 0; j < EXTRA_TICKS * INTERPOLATIONS.length; j++) {
+                assertSamePose(object, samples.get(sample++),
+                        String.format("%d: past the end, sample %d", i, j));
+            }
+        }
+    }
+
+    // number of the ticks it takes the animation to finish
+    private static int getDuration(Animation<Animated2D> animation) {
+        final AnimationWrapper<Animated2D> wrapper
+                = new AnimationWrapper<>(new Pose2D(), animation);
+        int duration = 0;
+        while (!wrapper.finished()) {
+            assertTrue(duration < MAX_TICKS);
+            wrapper.tick();
+            duration++;
+        }
+        return duration;
+    }
+
+    /**
+     * The animation is continuous at the tick boundaries: a tick with the
+     * full interpolation ends where the next tick starts.
+     */
+    @Test
+    public void ticksJoinAtEndpoints() {
+        for (Supplier<Animation<Animated2D>> supplier : getAnimations()) {
+            final Animation<Animated2D> animation = supplier.get();
+            for (int tick = 0; tick < 10; tick++) {
+                final Pose2D first = new Pose2D();
+                animation.sampleAt(first, tick, 1.0);
+                final Pose2D second = new Pose2D();
+                animation.sampleAt(second, tick + 1, 0.0);
+                assertSamePose(first, second, animation + ", tick " + tick);
+            }
+        }
+    }
+
+    @Test
+    public void poseIsCopied() {
+        final Pose2D object = new Pose2D();
+        object.setCoords(dVect(1, 2));
+        object.setRotationAngle(0.5);
+        object.setScale(2.0);
+        object.setOpacity(1.5);
+        object.setBrightness(0.5);
+        final Pose2D pose = new Pose2D().set(object);
+        assertEquals(dVect(1, 2), pose.getCoords());
+        assertEquals(0.5, pose.getRotationAngle());
+        assertEquals(2.0, pose.getScale());
+        assertEquals(1.0, pose.getOpacity());
+        // the brightness can not be read from the animated objects
+        assertEquals(0.0, pose.getBrightness());
+    }
+
+    private static void assertSamePose(Pose2D expected, Pose2D actual,
+            String message) {
+        assertTrue(expected.getCoords().subtract(actual.getCoords())
+                .length() < EPS, () -> String.format("%s: expected %s,"
+                        + " got %s", message, expected.getCoords(),
+                        actual.getCoords()));
+        assertTrue(Math.abs(expected.getRotationAngle()
+                - actual.getRotationAngle()) < EPS, () -> String.format(
+                        "%s: expected angle %f, got %f", message,
+                        expected.getRotationAngle(),
+                        actual.getRotationAngle()));
+        assertTrue(Math.abs(expected.getScale() - actual.getScale()) < EPS,
+                message + ": scale");
+        assertTrue(Math.abs(expected.getOpacity() - actual.getOpacity())
+                < EPS, () -> String.format("%s: expected opacity %f,"
+                        + " got %f", message, expected.getOpacity(),
+                        actual.getOpacity()));
+        assertTrue(Math.abs(expected.getBrightness()
+                - actual.getBrightness()) < EPS, message + ": brightness");
+    }
+}
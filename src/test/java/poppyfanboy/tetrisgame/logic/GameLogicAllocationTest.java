@@ -0,0 +1,123 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+import poppyfanboy.tetrisgame.entities.BlockColor;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+import poppyfanboy.tetrisgame.util.IntVector;
+
+/**
+ * Checks that the game logic does not allocate anything once it is warmed
+ * up: the inputs of the auto player are recorded first, and then they are
+ * replayed into another game logic with the same seed, while the bytes
+ * allocated by the thread are counted.
+ */
+public class GameLogicAllocationTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final long SEED = 1;
+    // the pieces replayed while the allocated bytes are counted
+    private static final int PIECES = 10000;
+    // the pieces replayed before the allocated bytes are counted, so that
+    // all of the buffers are created and the code is compiled
+    private static final int WARM_UP_PIECES = 1000;
+    // garbage rows are added every so many ticks
+    private static final int GARBAGE_PERIOD = 401;
+    // the game logic itself allocates nothing, this leaves room for the
+    // few objects the JVM might allocate on the thread on its own (e.g.
+    // when a branch not taken during the warm-up loads a class), while
+    // even a single object per piece would take more than 100 KiB
+    private static final long MAX_ALLOCATED_BYTES = 1024;
+
+    private int piecesCount;
+
+    @Test
+    public void steadyStateDoesNotAllocate() {
+        final List<EnumMap<InputKey, KeyState>> inputs = recordInputs();
+
+        GameLogic game = createGame();
+        game.start();
+        final com.sun.management.ThreadMXBean threadBean
+                = (com.sun.management.ThreadMXBean)
+                        ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        int tick = 0;
+        while (piecesCount < WARM_UP_PIECES) {
+            replayTick(game, inputs.get(tick), tick);
+            tick++;
+        }
+        final long start = threadBean.getThreadAllocatedBytes(threadId);
+        while (tick < inputs.size()) {
+            replayTick(game, inputs.get(tick), tick);
+            tick++;
+        }
+        final long allocatedBytes
+                = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        // the replayed game must be the same as the recorded one
+        assertTrue(piecesCount == WARM_UP_PIECES + PIECES,
+                "pieces: " + piecesCount);
+        assertTrue(allocatedBytes < MAX_ALLOCATED_BYTES, String.format(
+                "%d bytes have been allocated", allocatedBytes));
+    }
+
+    /**
+     * Lets the auto player play the pieces of the warm-up and of the
+     * measurement with the garbage coming in, and records the inputs it
+     * passes to the game.
+     */
+    private List<EnumMap<InputKey, KeyState>> recordInputs() {
+        final List<EnumMap<InputKey, KeyState>> inputs = new ArrayList<>();
+        GameLogic game = createGame();
+        AutoPlayer player = new AutoPlayer(newInputs -> {
+            inputs.add(new EnumMap<>(newInputs));
+            game.control(newInputs);
+        }, game, new BoardEvaluator(), 0, false, true);
+        game.start();
+        while (piecesCount < WARM_UP_PIECES + PIECES) {
+            final int tick = inputs.size();
+            addGarbage(game, tick);
+            game.tick();
+            player.control(new EnumMap<>(InputKey.class));
+        }
+        piecesCount = 0;
+        return inputs;
+    }
+
+    // the same order of the calls as during the recording
+    private static void replayTick(GameLogic game,
+            EnumMap<InputKey, KeyState> inputs, int tick) {
+        addGarbage(game, tick);
+        game.tick();
+        game.control(inputs);
+    }
+
+    private static void addGarbage(GameLogic game, int tick) {
+        if (tick % GARBAGE_PERIOD == 0) {
+            game.addGarbage(1 + tick / GARBAGE_PERIOD % 2,
+                    tick / GARBAGE_PERIOD % WIDTH);
+        }
+    }
+
+    private GameLogic createGame() {
+        GameLogic game = new GameLogic(WIDTH, HEIGHT, SEED);
+        game.addListener(new GameLogicListener() {
+            @Override
+            public void shapeSpawned(ShapeType shapeType, IntVector coords,
+                    BlockColor color, ShapeType nextShapeType) {
+                piecesCount++;
+            }
+        });
+        return game;
+    }
+}
@@ -0,0 +1,150 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+import poppyfanboy.tetrisgame.input.InputKey;
+
+/**
+ * Writes the state of the games played by the auto player with the garbage
+ * coming in, restores it into other game logics and checks that these
+ * play on just like the original ones.
+ */
+public class GameLogicStateTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final int GAMES = 5;
+    private static final int MAX_TICKS = 30000;
+    private static final int STATE_PERIOD = 23;
+    // ticks the restored game is played along with the original one
+    private static final int CHECK_TICKS = 300;
+    private static final int BUFFER_SIZE = 1024;
+    // the bounds stated by the documentation of writeState
+    private static final int MAX_GAME_FIELD_SIZE = 126;
+    private static final int MAX_REST_SIZE = 64;
+    private static final int MAX_AVERAGE_SIZE = 80;
+
+    @Test
+    public void stateIsRestored() {
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long totalSize = 0;
+        int statesCount = 0;
+        for (long seed = 1; seed <= GAMES; seed++) {
+            GameLogic game = new GameLogic(WIDTH, HEIGHT, seed);
+            AutoPlayer player = new AutoPlayer(game, game,
+                    new BoardEvaluator(), 0, false, false);
+            game.start();
+            int tick = 0;
+            do {
+                game.tick();
+                player.control(new EnumMap<>(InputKey.class));
+                // the garbage is not inserted until the next shape spawns,
+                // so it is often pending while the state is written
+                if (tick % 151 == 0) {
+                    game.addGarbage(1 + tick / 151 % 2, tick / 151 % WIDTH);
+                }
+                if (tick % STATE_PERIOD == 0) {
+                    final byte[] state = writeState(game, buffer);
+                    buffer.clear();
+                    game.writeState(buffer, false);
+                    final int restSize = buffer.position();
+                    assertTrue(restSize <= MAX_REST_SIZE,
+                            "rest size: " + restSize);
+                    assertTrue(state.length - restSize <= MAX_GAME_FIELD_SIZE,
+                            "game field size: " + (state.length - restSize));
+                    totalSize += state.length;
+                    statesCount++;
+                    if (tick % (STATE_PERIOD * 10) == 0) {
+                        assertRestored(game, state, buffer);
+                    }
+                }
+                tick++;
+            } while (tick < MAX_TICKS
+                    && game.getState() != GameFieldState.STOPPED);
+        }
+        assertTrue(statesCount > 0);
+        final double averageSize = (double) totalSize / statesCount;
+        assertTrue(averageSize < MAX_AVERAGE_SIZE,
+                "average size: " + averageSize);
+    }
+
+    private static byte[] writeState(GameLogic game, ByteBuffer buffer) {
+        buffer.clear();
+        game.writeState(buffer);
+        buffer.flip();
+        final byte[] state = new byte[buffer.remaining()];
+        buffer.get(state);
+        return state;
+    }
+
+    /**
+     * Restores the state into another game logic and checks that the
+     * score, the shapes, the game field and the pending garbage are the
+     * same, also after both of the games have been played for a while.
+     * The restored game does not get the garbage that the original one
+     * gets meanwhile, so the original game is restored from the same
+     * state as well.
+     */
+    private static void assertRestored(GameLogic game, byte[] state,
+            ByteBuffer buffer) {
+        GameLogic original = new GameLogic(WIDTH, HEIGHT, 0);
+        original.readState(ByteBuffer.wrap(state));
+        GameLogic restored = new GameLogic(WIDTH, HEIGHT, 0);
+        restored.readState(ByteBuffer.wrap(state));
+        assertSameGame(game, restored);
+        assertTrue(Arrays.equals(state, writeState(restored, buffer)));
+
+        AutoPlayer originalPlayer = new AutoPlayer(original, original,
+                new BoardEvaluator(), 0, false, false);
+        AutoPlayer restoredPlayer = new AutoPlayer(restored, restored,
+                new BoardEvaluator(), 0, false, false);
+        for (int i = 0; i < CHECK_TICKS; i++) {
+            original.tick();
+            originalPlayer.control(new EnumMap<>(InputKey.class));
+            restored.tick();
+            restoredPlayer.control(new EnumMap<>(InputKey.class));
+        }
+        assertSameGame(original, restored);
+        assertTrue(Arrays.equals(writeState(original, buffer),
+                writeState(restored, buffer)));
+    }
+
+    private static void assertSameGame(GameLogic expected,
+            GameLogic actual) {
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getScore().getScore(),
+                actual.getScore().getScore());
+        assertEquals(expected.getScore().getLines(),
+                actual.getScore().getLines());
+        assertEquals(expected.getScore().getLevel(),
+                actual.getScore().getLevel());
+        assertEquals(expected.getActiveShapeType(),
+                actual.getActiveShapeType());
+        if (expected.getActiveShapeType() != null) {
+            assertEquals(expected.getActiveShapeCoords(),
+                    actual.getActiveShapeCoords());
+            assertEquals(expected.getActiveShapeRotation(),
+                    actual.getActiveShapeRotation());
+        }
+        for (int i = 0; i < expected.getPreviewSize(); i++) {
+            assertEquals(expected.getPreviewShapeType(i),
+                    actual.getPreviewShapeType(i));
+        }
+        assertEquals(expected.getPendingGarbageCount(),
+                actual.getPendingGarbageCount());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected.getBlockColor(x, y),
+                        actual.getBlockColor(x, y),
+                        String.format("tile (%d, %d)", x, y));
+            }
+        }
+    }
+}
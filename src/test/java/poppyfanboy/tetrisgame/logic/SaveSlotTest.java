@@ -0,0 +1,96 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+import poppyfanboy.tetrisgame.input.InputKey;
+
+public class SaveSlotTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+
+    /**
+     * Saves the game every few ticks, while the rows are locked, cleared
+     * and pushed up by the garbage, and checks that the game field loaded
+     * from the slot is the same as the one of the game.
+     */
+    @Test
+    public void changedRowsAreSaved() throws IOException {
+        final Path path = Files.createTempFile("save-slot-test", ".bin");
+        try (SaveSlot slot = new SaveSlot(path, WIDTH, HEIGHT)) {
+            GameLogic game = new GameLogic(WIDTH, HEIGHT, 1);
+            AutoPlayer player = new AutoPlayer(game, game,
+                    new BoardEvaluator(), 0, false, true);
+            game.start();
+            int savesCount = 0;
+            for (int tick = 0; tick < 20000; tick++) {
+                game.tick();
+                player.control(new EnumMap<>(InputKey.class));
+                if (tick % 500 == 0) {
+                    game.addGarbage(2, tick / 500 % WIDTH);
+                }
+                if (tick % 37 == 0) {
+                    slot.save(game);
+                    savesCount++;
+                    GameLogic loaded = new GameLogic(WIDTH, HEIGHT, 0);
+                    assertTrue(slot.load(loaded));
+                    assertSameGameField(game, loaded);
+                }
+            }
+            assertTrue(savesCount > 0);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * The rows of a slot that has been saved by another game must not be
+     * taken for the rows of the first game saved into it.
+     */
+    @Test
+    public void rowsOfPreviousGameAreOverwritten() throws IOException {
+        final Path path = Files.createTempFile("save-slot-test", ".bin");
+        try {
+            GameLogic game = new GameLogic(WIDTH, HEIGHT, 1);
+            game.start();
+            game.addGarbage(5, 3);
+            for (int tick = 0; tick < 100; tick++) {
+                game.tick();
+            }
+            try (SaveSlot slot = new SaveSlot(path, WIDTH, HEIGHT)) {
+                slot.save(game);
+            }
+
+            GameLogic otherGame = new GameLogic(WIDTH, HEIGHT, 2);
+            otherGame.start();
+            otherGame.tick();
+            try (SaveSlot slot = new SaveSlot(path, WIDTH, HEIGHT)) {
+                slot.save(otherGame);
+                GameLogic loaded = new GameLogic(WIDTH, HEIGHT, 0);
+                assertTrue(slot.load(loaded));
+                assertSameGameField(otherGame, loaded);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void assertSameGameField(GameLogic expected,
+            GameLogic actual) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected.getBlockColor(x, y),
+                        actual.getBlockColor(x, y),
+                        String.format("tile (%d, %d)", x, y));
+            }
+        }
+    }
+}
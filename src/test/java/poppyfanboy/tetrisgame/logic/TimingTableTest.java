@@ -0,0 +1,77 @@
+package poppyfanboy.tetrisgame.logic;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.KeyState;
+
+public class TimingTableTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final String TIMINGS
+            = "soft_drop forced_drop hard_drop user_control block_break"
+            + " lock_delay autofire\n"
+            + "1000 3 %d 10 12 15 2\n";
+
+    private int hardDropDistance;
+    private boolean locked;
+
+    /**
+     * Returns the number of ticks between the hard drop of the first shape
+     * and its locking. The shape is locked by the tick after the drop is
+     * over.
+     */
+    private int measureHardDrop(TimingTable timings) {
+        GameLogic game = new GameLogic(WIDTH, HEIGHT, 1);
+        game.setTimings(timings);
+        hardDropDistance = 0;
+        locked = false;
+        game.addListener(new GameLogicListener() {
+            @Override
+            public void shapeHardDropped(int distance) {
+                hardDropDistance = distance;
+            }
+
+            @Override
+            public void shapeLocked() {
+                locked = true;
+            }
+        });
+        game.start();
+        // the shape can be controlled once it starts falling
+        while (game.getState() != GameFieldState.SHAPE_SOFT_DROP) {
+            game.tick();
+        }
+        EnumMap<InputKey, KeyState> inputs = new EnumMap<>(InputKey.class);
+        inputs.put(InputKey.SPACE, KeyState.PRESSED);
+        game.control(inputs);
+        assertTrue(hardDropDistance > 0);
+        int ticks = 0;
+        while (!locked) {
+            game.tick();
+            ticks++;
+        }
+        return ticks;
+    }
+
+    @Test
+    public void hardDropTakesNoLongerThanItsTiming() throws IOException {
+        final int freeFall = measureHardDrop(TimingTable.load(
+                new StringReader(String.format(TIMINGS, 1000))));
+        assertEquals(GameLogic.getDropDuration(hardDropDistance,
+                GameLogic.HARD_DROP_INITIAL_SPEED) + 1, freeFall);
+        assertEquals(freeFall, measureHardDrop(TimingTable.DEFAULT));
+
+        assertEquals(3 + 1, measureHardDrop(TimingTable.load(
+                new StringReader(String.format(TIMINGS, 3)))));
+        // the drop takes at least a single tick
+        assertEquals(1 + 1, measureHardDrop(TimingTable.load(
+                new StringReader(String.format(TIMINGS, 0)))));
+    }
+}
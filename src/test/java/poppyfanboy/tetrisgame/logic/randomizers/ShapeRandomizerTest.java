@@ -0,0 +1,145 @@
+package poppyfanboy.tetrisgame.logic.randomizers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+
+public class ShapeRandomizerTest {
+    private static final int SHAPES_COUNT = 7000;
+    private static final int BUFFER_SIZE = 256;
+
+    private static ShapeRandomizer[] createRandomizers() {
+        final ShapeType[] shapes = TetrisShapeType.values();
+        return new ShapeRandomizer[] {
+                new UniformRandomizer(shapes),
+                new BagRandomizer(shapes),
+                new BagRandomizer(shapes, 2),
+                HistoryRandomizer.createTgm() };
+    }
+
+    private static ShapeType[] generate(ShapeRandomizer randomizer,
+            Random random, int count) {
+        final ShapeType[] sequence = new ShapeType[count];
+        for (int i = 0; i < count; i++) {
+            sequence[i] = randomizer.next(random);
+        }
+        return sequence;
+    }
+
+    /**
+     * The sequence depends on the seed only, and a copy of the randomizer
+     * as well as the one restored from its state continue it in the same
+     * way.
+     */
+    @Test
+    public void sequenceIsDeterminedBySeed() {
+        final ShapeRandomizer[] first = createRandomizers();
+        final ShapeRandomizer[] second = createRandomizers();
+        final ShapeRandomizer[] other = createRandomizers();
+        final ShapeRandomizer[] restored = createRandomizers();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 0; i < first.length; i++) {
+            final ShapeType[] sequence
+                    = generate(first[i], new Random(1), SHAPES_COUNT);
+            assertArrayEquals(sequence,
+                    generate(second[i], new Random(1), SHAPES_COUNT));
+            assertFalse(Arrays.equals(sequence,
+                    generate(other[i], new Random(2), SHAPES_COUNT)));
+
+            // the randomizers are left in the middle of a bag
+            first[i].next(new Random(3));
+            buffer.clear();
+            first[i].writeState(buffer);
+            buffer.flip();
+            restored[i].readState(buffer);
+            final ShapeRandomizer copy = first[i].copy();
+            final ShapeType[] continuation
+                    = generate(first[i], new Random(4), SHAPES_COUNT);
+            assertArrayEquals(continuation,
+                    generate(copy, new Random(4), SHAPES_COUNT));
+            assertArrayEquals(continuation,
+                    generate(restored[i], new Random(4), SHAPES_COUNT));
+        }
+    }
+
+    /**
+     * Each bag holds the specified number of copies of every shape.
+     */
+    @Test
+    public void bagDealsEveryShapeOncePerCopy() {
+        final ShapeType[] shapes = TetrisShapeType.values();
+        for (int copies = 1; copies <= 3; copies++) {
+            final int bagSize = copies * shapes.length;
+            final ShapeType[] sequence = generate(
+                    new BagRandomizer(shapes, copies), new Random(1),
+                    SHAPES_COUNT / bagSize * bagSize);
+            for (int start = 0; start < sequence.length;
+                    start += bagSize) {
+                for (ShapeType shape : shapes) {
+                    int count = 0;
+                    for (int i = start; i < start + bagSize; i++) {
+                        if (sequence[i] == shape) {
+                            count++;
+                        }
+                    }
+                    assertEquals(copies, count, String.format(
+                            "%d copies, bag at %d, %s",
+                            copies, start, shape));
+                }
+            }
+        }
+    }
+
+    /**
+     * With one shape more than the length of the history and enough
+     * rolls, the shape is always the one that is not in the history.
+     */
+    @Test
+    public void historyIsAvoided() {
+        final ShapeType[] shapes = TetrisShapeType.values();
+        final ShapeType[] fiveShapes = { shapes[0], shapes[1], shapes[2],
+                shapes[3], shapes[4] };
+        final ShapeType[] sequence = generate(
+                new HistoryRandomizer(fiveShapes, 1000, shapes[1], shapes[2],
+                        shapes[3], shapes[4]),
+                new Random(1), SHAPES_COUNT);
+        assertEquals(shapes[0], sequence[0]);
+        for (int i = fiveShapes.length; i < sequence.length; i++) {
+            assertEquals(sequence[i - fiveShapes.length], sequence[i]);
+        }
+
+        // the last roll is accepted anyway, so the TGM randomizer does
+        // repeat the shapes, but much more rarely than the uniform one
+        final int uniformRepeats = countRepeats(generate(
+                new UniformRandomizer(shapes), new Random(1), SHAPES_COUNT));
+        final int tgmRepeats = countRepeats(generate(
+                HistoryRandomizer.createTgm(), new Random(1), SHAPES_COUNT));
+        assertTrue(tgmRepeats * 10 < uniformRepeats, String.format(
+                "TGM: %d repeats, uniform: %d repeats",
+                tgmRepeats, uniformRepeats));
+        // the S and Z shapes are in the initial history
+        final ShapeType first = generate(HistoryRandomizer.createTgm(),
+                new Random(1), 1)[0];
+        assertTrue(first != TetrisShapeType.S_SHAPE
+                && first != TetrisShapeType.Z_SHAPE);
+    }
+
+    private static int countRepeats(ShapeType[] sequence) {
+        int count = 0;
+        for (int i = 1; i < sequence.length; i++) {
+            if (sequence[i] == sequence[i - 1]) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,54 @@
+package poppyfanboy.tetrisgame.simulation;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+
+public class BattleRunnerTest {
+    private static final int FIELDS = 6;
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final long MAX_TICKS = 20000;
+    private static final long SEED = 1;
+    private static final int[] THREADS_COUNTS = { 1, 2, 4, FIELDS };
+
+    /**
+     * The garbage is exchanged between the shards of the fields, still the
+     * battle must be played in the same way by any number of the threads.
+     */
+    @Test
+    public void resultDoesNotDependOnThreadsCount() {
+        final BatchRunner.PolicyFactory policyFactory
+                = (game, random) -> new AutoPlayer(game, game,
+                        new BoardEvaluator(), 0, false, false);
+        final BattleResult expected = new BattleRunner(FIELDS, WIDTH, HEIGHT,
+                MAX_TICKS, policyFactory, 1).run(SEED);
+        // the garbage has been sent and the fields have been eliminated
+        // by it
+        int linesSent = 0;
+        for (int i = 0; i < FIELDS; i++) {
+            linesSent += expected.getLinesSent(i);
+        }
+        assertTrue(linesSent > 0);
+        assertTrue(expected.getSurvivorsCount() < FIELDS);
+
+        for (int threadsCount : THREADS_COUNTS) {
+            final BattleResult result = new BattleRunner(FIELDS, WIDTH,
+                    HEIGHT, MAX_TICKS, policyFactory, threadsCount)
+                    .run(SEED);
+            final String message = threadsCount + " threads";
+            assertEquals(expected.getTicks(), result.getTicks(), message);
+            for (int i = 0; i < FIELDS; i++) {
+                assertEquals(expected.getEliminationTick(i),
+                        result.getEliminationTick(i), message);
+                assertEquals(expected.getLinesSent(i),
+                        result.getLinesSent(i), message);
+                assertEquals(expected.getPieces(i), result.getPieces(i),
+                        message);
+            }
+        }
+    }
+}
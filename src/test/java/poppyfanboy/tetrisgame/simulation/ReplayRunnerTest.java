@@ -0,0 +1,93 @@
+package poppyfanboy.tetrisgame.simulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.EnumMap;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import poppyfanboy.tetrisgame.ai.AutoPlayer;
+import poppyfanboy.tetrisgame.ai.BoardEvaluator;
+import poppyfanboy.tetrisgame.entities.shapetypes.PolyominoSet;
+import poppyfanboy.tetrisgame.entities.shapetypes.ShapeType;
+import poppyfanboy.tetrisgame.entities.shapetypes.TetrisShapeType;
+import poppyfanboy.tetrisgame.input.InputKey;
+import poppyfanboy.tetrisgame.input.InputRecorder;
+import poppyfanboy.tetrisgame.input.InputReplayer;
+import poppyfanboy.tetrisgame.logic.GameLogic;
+import poppyfanboy.tetrisgame.logic.TimingTable;
+import poppyfanboy.tetrisgame.logic.randomizers.BagRandomizer;
+
+public class ReplayRunnerTest {
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 20;
+    private static final long SEED = 1;
+    private static final int TICKS = 5000;
+    private static final String TIMINGS
+            = "soft_drop forced_drop hard_drop user_control block_break"
+            + " lock_delay autofire\n"
+            + "20 3 5 10 12 15 2\n"
+            + "10 3 5 10 12 15 2\n";
+
+    /**
+     * The game recorded with the shapes and the timings other than the
+     * default ones is replayed only with the same shapes and timings.
+     */
+    @Test
+    public void recordingIsReplayedWithItsShapesAndTimings()
+            throws IOException {
+        final ShapeType[] shapeTypes
+                = PolyominoSet.loadBundled("pentominoes").getShapeTypes();
+        final TimingTable timings
+                = TimingTable.load(new StringReader(TIMINGS));
+
+        GameLogic game = new GameLogic(WIDTH, HEIGHT, SEED,
+                new BagRandomizer(shapeTypes), 1);
+        game.setTimings(timings);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputRecorder recorder = new InputRecorder(game, out, SEED,
+                WIDTH, HEIGHT, ShapeType.getChecksum(shapeTypes),
+                timings.getChecksum())) {
+            AutoPlayer player = new AutoPlayer(recorder, game,
+                    new BoardEvaluator(), 0, false, false);
+            game.start();
+            for (int i = 0; i < TICKS; i++) {
+                game.tick();
+                player.control(new EnumMap<>(InputKey.class));
+            }
+        }
+        assertTrue(game.getScore().getLines() > 0);
+
+        GameLogic replayed = ReplayRunner.createGame(
+                replayer(out), shapeTypes, timings);
+        // the game has been started without pressing the key
+        replayed.start();
+        assertEquals(TICKS, ReplayRunner.replay(replayer(out), replayed));
+        assertEquals(game.getScore().getScore(),
+                replayed.getScore().getScore());
+        assertEquals(game.getScore().getLines(),
+                replayed.getScore().getLines());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplayRunner.createGame(replayer(out)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplayRunner.createGame(replayer(out),
+                        TetrisShapeType.values(), timings));
+        assertThrows(IllegalArgumentException.class,
+                () -> ReplayRunner.createGame(replayer(out), shapeTypes,
+                        TimingTable.DEFAULT));
+        // the same shapes loaded anew match the recording
+        ReplayRunner.createGame(replayer(out), PolyominoSet
+                .loadBundled("pentominoes").getShapeTypes(), timings);
+    }
+
+    private static InputReplayer replayer(ByteArrayOutputStream out)
+            throws IOException {
+        return new InputReplayer(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,169 @@
+package poppyfanboy.tetrisgame.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the grid with a plain array of the objects while the objects
+ * are put into it and the rows are removed and inserted. The grid is
+ * three and a bit chunks wide, so the rows span several chunks and the
+ * last chunk is incomplete.
+ */
+public class ChunkedGridTest {
+    private static final int WIDTH = 3 * ChunkedGrid.CHUNK_SIZE + 8;
+    private static final int HEIGHT = 30;
+    private static final int STEPS = 300;
+
+    private final Random random = new Random(1);
+    private final ChunkedGrid<Integer> grid
+            = new ChunkedGrid<>(WIDTH, HEIGHT);
+    private Integer[][] expected = new Integer[HEIGHT][WIDTH];
+    private int nextValue = 0;
+
+    @Test
+    public void gridMatchesArray() {
+        for (int step = 0; step < STEPS; step++) {
+            switch (random.nextInt(5)) {
+                case 0:
+                    removeRows();
+                    break;
+                case 1:
+                    insertRows(random.nextInt(HEIGHT / 3));
+                    break;
+                case 2:
+                    final int y = random.nextInt(HEIGHT);
+                    grid.clearRow(y);
+                    expected[y] = new Integer[WIDTH];
+                    break;
+                default:
+                    fill(random.nextInt(HEIGHT), random.nextInt(HEIGHT));
+            }
+            assertSameContents("step " + step);
+        }
+        insertRows(HEIGHT);
+        assertSameContents("all of the rows inserted");
+        assertThrows(IllegalArgumentException.class,
+                () -> grid.insertRows(HEIGHT + 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> grid.insertRows(-1));
+    }
+
+    // puts the objects into and removes them from the rows between the
+    // specified ones, the tiles next to the chunk boundaries are favored
+    private void fill(int firstY, int lastY) {
+        for (int y = Math.min(firstY, lastY); y <= Math.max(firstY, lastY);
+                y++) {
+            for (int i = 0; i < WIDTH / 4; i++) {
+                // either side of one of the three chunk boundaries
+                final int x = random.nextBoolean()
+                        ? random.nextInt(WIDTH)
+                        : ChunkedGrid.CHUNK_SIZE * (1 + random.nextInt(3))
+                                - random.nextInt(2);
+                final Integer value
+                        = random.nextInt(4) == 0 ? null : nextValue++;
+                grid.set(x, y, value);
+                expected[y][x] = value;
+            }
+        }
+    }
+
+    private void removeRows() {
+        final int[] removedRows = new int[HEIGHT];
+        int count = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            if (random.nextInt(6) == 0) {
+                removedRows[count++] = y;
+            }
+        }
+        grid.removeRows(removedRows, count);
+        final Integer[][] rows = new Integer[HEIGHT][];
+        int y = HEIGHT - 1;
+        for (int oldY = HEIGHT - 1; oldY >= 0; oldY--) {
+            if (!contains(removedRows, count, oldY)) {
+                rows[y--] = expected[oldY];
+            }
+        }
+        for (; y >= 0; y--) {
+            rows[y] = new Integer[WIDTH];
+        }
+        expected = rows;
+    }
+
+    private static boolean contains(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insertRows(int count) {
+        grid.insertRows(count);
+        final Integer[][] rows = new Integer[HEIGHT][];
+        for (int y = 0; y < HEIGHT; y++) {
+            rows[y] = y + count < HEIGHT
+                    ? expected[y + count]
+                    : new Integer[WIDTH];
+        }
+        expected = rows;
+    }
+
+    private void assertSameContents(String message) {
+        for (int y = 0; y < HEIGHT; y++) {
+            int count = 0;
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected[y][x], grid.get(x, y), message);
+                if (expected[y][x] != null) {
+                    count++;
+                }
+            }
+            assertEquals(count, grid.getRowCount(y), message);
+        }
+        assertSameView(-5, -5, WIDTH + 5, HEIGHT + 5, message);
+        // the regions that start and end right at the chunk boundaries
+        // and the ones that lie within a single chunk
+        final int chunk = ChunkedGrid.CHUNK_SIZE;
+        assertSameView(chunk, 0, 2 * chunk - 1, HEIGHT - 1, message);
+        assertSameView(chunk - 1, 3, chunk, HEIGHT - 4, message);
+        assertSameView(3 * chunk, 0, WIDTH - 1, HEIGHT - 1, message);
+        assertSameView(5, 5, 4, 10, message);
+        for (int i = 0; i < 5; i++) {
+            final int startX = random.nextInt(WIDTH + 4) - 2;
+            final int startY = random.nextInt(HEIGHT + 4) - 2;
+            assertSameView(startX, startY,
+                    startX + random.nextInt(WIDTH),
+                    startY + random.nextInt(HEIGHT), message);
+        }
+    }
+
+    private void assertSameView(int startX, int startY, int endX, int endY,
+            String message) {
+        final List<Integer> objects = new ArrayList<>();
+        for (int y = Math.max(startY, 0); y <= Math.min(endY, HEIGHT - 1);
+                y++) {
+            for (int x = Math.max(startX, 0); x <= Math.min(endX, WIDTH - 1);
+                    x++) {
+                if (expected[y][x] != null) {
+                    objects.add(expected[y][x]);
+                }
+            }
+        }
+        final String region = String.format("%s, view (%d, %d)-(%d, %d)",
+                message, startX, startY, endX, endY);
+        final List<Integer> viewed
+                = new ArrayList<>(grid.view(startX, startY, endX, endY));
+        assertEquals(objects, viewed, region);
+        assertEquals(objects.size(),
+                grid.view(startX, startY, endX, endY).size(), region);
+        assertTrue(objects.isEmpty()
+                || grid.view(startX, startY, endX, endY).iterator()
+                        .hasNext(), region);
+    }
+}